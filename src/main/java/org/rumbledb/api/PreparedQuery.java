@@ -0,0 +1,134 @@
+package org.rumbledb.api;
+
+import java.net.URI;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.rumbledb.compiler.QueryPlan;
+import org.rumbledb.config.RumbleRuntimeConfiguration;
+import org.rumbledb.context.DynamicContext;
+import org.rumbledb.context.Name;
+import org.rumbledb.exceptions.AbsentPartOfDynamicContextException;
+import org.rumbledb.exceptions.ExceptionMetadata;
+import org.rumbledb.runtime.RuntimeIterator;
+
+/**
+ * A query that was compiled once and can be executed any number of times, with different values for its external
+ * variables.
+ *
+ * Parsing, static analysis and the assignment of execution modes happen when the query is prepared. Each execution
+ * gets its own runtime iterators and a fresh dynamic context, so that executions are independent from each other.
+ *
+ * A prepared query is safe to use from multiple threads. The values bound with bind() are shared by all threads
+ * using the same prepared query; threads that need different values should pass them to execute(Map) instead.
+ *
+ * @author Ghislain Fourny, Stefan Irimescu, Can Berker Cikis
+ */
+public class PreparedQuery {
+
+    private final String query;
+    private final URI location;
+    private final RumbleRuntimeConfiguration configuration;
+    private final QueryPlan plan;
+    private final Set<Name> externalVariableNames;
+    private final Map<Name, List<Item>> boundValues;
+
+    PreparedQuery(String query, URI location, RumbleRuntimeConfiguration configuration) {
+        this.query = query;
+        this.location = location;
+        this.configuration = configuration;
+        this.plan = QueryPlan.compile(query, location, configuration);
+        this.externalVariableNames = this.plan.getExternalVariableNames();
+        this.boundValues = new HashMap<>();
+    }
+
+    /**
+     * Binds an external variable (in no namespace) to a sequence of items for all subsequent executions.
+     *
+     * @param name the name of the external variable, without the dollar sign.
+     * @param items the value of the variable.
+     * @return this prepared query.
+     */
+    public PreparedQuery bind(String name, List<Item> items) {
+        return bind(Name.createVariableInNoNamespace(name), items);
+    }
+
+    /**
+     * Binds an external variable to a sequence of items for all subsequent executions.
+     *
+     * @param name the name of the external variable.
+     * @param items the value of the variable.
+     * @return this prepared query.
+     */
+    public PreparedQuery bind(Name name, List<Item> items) {
+        checkExternalVariable(name);
+        synchronized (this.boundValues) {
+            this.boundValues.put(name, Collections.unmodifiableList(items));
+        }
+        return this;
+    }
+
+    /**
+     * Removes all values bound with bind().
+     */
+    public void clearBindings() {
+        synchronized (this.boundValues) {
+            this.boundValues.clear();
+        }
+    }
+
+    /**
+     * Executes the query with the values bound so far.
+     *
+     * @return the resulting sequence of items.
+     */
+    public SequenceOfItems execute() {
+        return execute(Collections.emptyMap());
+    }
+
+    /**
+     * Executes the query. The supplied values are only used for this execution and take precedence over the values
+     * bound with bind().
+     *
+     * @param values the values of external variables (in no namespace) for this execution.
+     * @return the resulting sequence of items.
+     */
+    public SequenceOfItems execute(Map<String, List<Item>> values) {
+        Map<Name, List<Item>> externalVariableValues;
+        synchronized (this.boundValues) {
+            externalVariableValues = new HashMap<>(this.boundValues);
+        }
+        for (Map.Entry<String, List<Item>> entry : values.entrySet()) {
+            Name name = Name.createVariableInNoNamespace(entry.getKey());
+            checkExternalVariable(name);
+            externalVariableValues.put(name, entry.getValue());
+        }
+        QueryPlan plan = this.plan.isReusable()
+            ? this.plan
+            : QueryPlan.compileForSingleUse(this.query, this.location, this.configuration);
+        DynamicContext dynamicContext = plan.createDynamicContext(this.configuration, externalVariableValues);
+        RuntimeIterator iterator = plan.createRuntimeIterator();
+        return new SequenceOfItems(iterator, dynamicContext, this.configuration);
+    }
+
+    /**
+     * Returns the names of the external variables declared by the query.
+     *
+     * @return the names of the external variables.
+     */
+    public Set<Name> getExternalVariableNames() {
+        return Collections.unmodifiableSet(this.externalVariableNames);
+    }
+
+    private void checkExternalVariable(Name name) {
+        if (!this.externalVariableNames.contains(name)) {
+            throw new AbsentPartOfDynamicContextException(
+                    "The query does not declare an external variable $" + name + ".",
+                    ExceptionMetadata.EMPTY_METADATA
+            );
+        }
+    }
+}
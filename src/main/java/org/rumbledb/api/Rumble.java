@@ -3,12 +3,14 @@ package org.rumbledb.api;
 import java.net.URI;
 import java.io.IOException;
 
+import org.rumbledb.compiler.QueryPlan;
+import org.rumbledb.compiler.QueryPlanCache;
 import org.rumbledb.compiler.VisitorHelpers;
 import org.rumbledb.config.RumbleRuntimeConfiguration;
 import org.rumbledb.context.DynamicContext;
+import org.rumbledb.exceptions.ExceptionMetadata;
 import org.rumbledb.expressions.module.MainModule;
 import org.rumbledb.runtime.RuntimeIterator;
-import sparksoniq.spark.SparkSessionManager;
 
 /**
  * The entry point for Java applications that want to execute JSONiq queries with Rumble.
@@ -31,45 +33,70 @@ public class Rumble {
      */
     public Rumble(RumbleRuntimeConfiguration configuration) {
         this.configuration = configuration;
-        SparkSessionManager.COLLECT_ITEM_LIMIT = this.configuration.getResultSizeCap();
     }
 
     /**
      * Runs a query and returns an iterator over the resulting sequence of Items.
      *
+     * The compiled plan of the query is taken from the query plan cache if available.
+     *
      * @param query the content of the JSONiq main module.
      * @return the resulting sequence as an ItemIterator.
      */
     public SequenceOfItems runQuery(String query) {
-        MainModule mainModule = VisitorHelpers.parseMainModuleFromQuery(
-            query,
-            this.configuration
-        );
-        DynamicContext dynamicContext = VisitorHelpers.createDynamicContext(mainModule, this.configuration);
-        RuntimeIterator iterator = VisitorHelpers.generateRuntimeIterator(
-            mainModule,
-            this.configuration
-        );
-        return new SequenceOfItems(iterator, dynamicContext, this.configuration);
+        return runQuery(query, VisitorHelpers.getDefaultStaticBaseURI(this.configuration));
     }
 
     /**
      * Runs a query and returns an iterator over the resulting sequence of Items.
      *
+     * The compiled plan of the query is taken from the query plan cache if available.
+     *
      * @param location the JSONiq main module location.
      * @throws java.io.IOException if there was an issue reading a module.
      * @return the resulting sequence as an ItemIterator.
      */
     public SequenceOfItems runQuery(URI location) throws IOException {
-        MainModule mainModule = VisitorHelpers.parseMainModuleFromLocation(
+        String query = VisitorHelpers.readModuleFromLocation(
             location,
-            this.configuration
+            this.configuration,
+            ExceptionMetadata.EMPTY_METADATA
         );
-        DynamicContext dynamicContext = VisitorHelpers.createDynamicContext(mainModule, this.configuration);
-        RuntimeIterator iterator = VisitorHelpers.generateRuntimeIterator(
-            mainModule,
-            this.configuration
+        return runQuery(query, location);
+    }
+
+    /**
+     * Compiles a query once so that it can be executed many times, possibly with different values for its external
+     * variables.
+     *
+     * @param query the content of the JSONiq main module.
+     * @return the prepared query.
+     */
+    public PreparedQuery prepare(String query) {
+        return new PreparedQuery(query, VisitorHelpers.getDefaultStaticBaseURI(this.configuration), this.configuration);
+    }
+
+    /**
+     * Compiles a query once so that it can be executed many times, possibly with different values for its external
+     * variables.
+     *
+     * @param location the JSONiq main module location.
+     * @throws java.io.IOException if there was an issue reading a module.
+     * @return the prepared query.
+     */
+    public PreparedQuery prepare(URI location) throws IOException {
+        String query = VisitorHelpers.readModuleFromLocation(
+            location,
+            this.configuration,
+            ExceptionMetadata.EMPTY_METADATA
         );
+        return new PreparedQuery(query, location, this.configuration);
+    }
+
+    private SequenceOfItems runQuery(String query, URI location) {
+        QueryPlan plan = QueryPlanCache.getInstance().getOrCompile(query, location, this.configuration);
+        DynamicContext dynamicContext = plan.createDynamicContext(this.configuration);
+        RuntimeIterator iterator = plan.createRuntimeIterator();
         return new SequenceOfItems(iterator, dynamicContext, this.configuration);
     }
 
@@ -177,7 +177,11 @@ public class SequenceOfItems {
     public long populateListWithWarningOnlyIfCapReached(List<Item> resultList) {
         if (this.availableAsRDD()) {
             JavaRDD<Item> rdd = this.iterator.getRDD(this.dynamicContext);
-            return SparkSessionManager.collectRDDwithLimitWarningOnly(rdd, resultList);
+            return SparkSessionManager.collectRDDwithLimitWarningOnly(
+                rdd,
+                this.configuration.getResultSizeCap(),
+                resultList
+            );
         } else {
             return populateList(resultList);
         }
@@ -32,15 +32,18 @@ import org.rumbledb.exceptions.CliException;
 import org.rumbledb.exceptions.ExceptionMetadata;
 import org.rumbledb.optimizations.Profiler;
 import org.rumbledb.runtime.functions.input.FileSystemUtil;
+import org.rumbledb.serialization.Serializer;
 
 import sparksoniq.spark.SparkSessionManager;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
 import java.net.URI;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 
 public class JsoniqQueryExecutor {
@@ -48,7 +51,6 @@ public class JsoniqQueryExecutor {
 
     public JsoniqQueryExecutor(RumbleRuntimeConfiguration configuration) {
         this.configuration = configuration;
-        SparkSessionManager.COLLECT_ITEM_LIMIT = configuration.getResultSizeCap();
     }
 
     private void checkOutputFile(URI outputUri) throws IOException {
@@ -154,7 +156,21 @@ public class JsoniqQueryExecutor {
         } else if (sequence.availableAsRDD() && outputPath != null) {
             JavaRDD<Item> rdd = sequence.getAsRDD();
             RumbleRuntimeConfiguration configuration = this.configuration;
-            JavaRDD<String> outputRDD = rdd.map(o -> configuration.getSerializer().serialize(o));
+            // One serializer per partition, so that its buffers are reused across the items of the partition.
+            JavaRDD<String> outputRDD = rdd.mapPartitions(items -> {
+                Serializer serializer = configuration.getSerializer();
+                return new Iterator<String>() {
+                    @Override
+                    public boolean hasNext() {
+                        return items.hasNext();
+                    }
+
+                    @Override
+                    public String next() {
+                        return serializer.serialize(items.next());
+                    }
+                };
+            });
             if (this.configuration.getNumberOfOutputPartitions() > 0) {
                 outputRDD = outputRDD.repartition(this.configuration.getNumberOfOutputPartitions());
             }
@@ -163,17 +179,27 @@ public class JsoniqQueryExecutor {
         } else {
             outputList = new ArrayList<>();
             long materializationCount = sequence.populateListWithWarningOnlyIfCapReached(outputList);
-            RumbleRuntimeConfiguration configuration = this.configuration;
-            List<String> lines = outputList.stream()
-                .map(x -> configuration.getSerializer().serialize(x))
-                .collect(Collectors.toList());
+            Serializer serializer = this.configuration.getSerializer();
             if (outputPath != null) {
-                FileSystemUtil.write(outputUri, lines, this.configuration, ExceptionMetadata.EMPTY_METADATA);
+                OutputStream outputStream = FileSystemUtil.getOutputStream(
+                    outputUri,
+                    this.configuration,
+                    ExceptionMetadata.EMPTY_METADATA
+                );
+                try (Writer writer = serializer.createWriter(outputStream)) {
+                    if (serializer.serialize(outputList.iterator(), writer) > 0) {
+                        writer.write("\n");
+                    }
+                }
             } else {
-                System.out.println(String.join("\n", lines));
+                // System.out is flushed but not closed.
+                Writer writer = serializer.createWriter(System.out);
+                serializer.serialize(outputList.iterator(), writer);
+                writer.write("\n");
+                writer.flush();
             }
             if (materializationCount != -1) {
-                issueMaterializationWarning(materializationCount);
+                issueMaterializationWarning(materializationCount, this.configuration.getResultSizeCap());
                 if (outputPath == null) {
                     System.err.println(
                         "Did you really intend to collect results to the standard input? If you want the complete output, consider using --output-path to select a destination on any file system."
@@ -197,12 +223,12 @@ public class JsoniqQueryExecutor {
         return outputList;
     }
 
-    public static void issueMaterializationWarning(long materializationCount) {
+    public static void issueMaterializationWarning(long materializationCount, int materializationCap) {
         if (materializationCount == Long.MAX_VALUE) {
             System.err.println(
                 "Warning! The output sequence contains "
                     + "too many items and its materialization was capped at "
-                    + SparkSessionManager.COLLECT_ITEM_LIMIT
+                    + materializationCap
                     + " items. This value can be configured to something higher with the --materialization-cap parameter (or its deprecated equivalent --result-size) at startup"
             );
         } else {
@@ -210,12 +236,32 @@ public class JsoniqQueryExecutor {
                 "Warning! The output sequence contains "
                     + materializationCount
                     + " items but its materialization was capped at "
-                    + SparkSessionManager.COLLECT_ITEM_LIMIT
+                    + materializationCap
                     + " items. This value can be configured to something higher with the --materialization-cap parameter (or its deprecated equivalent --result-size) at startup"
             );
         }
     }
 
+    /**
+     * Compiles a query without evaluating it, so that the caller can consume the results one at a time.
+     *
+     * @param query the query, or null to read it from the query path of the configuration.
+     * @return the resulting sequence of items, not open yet.
+     * @throws IOException if the query cannot be read.
+     */
+    public SequenceOfItems runQueryLazily(String query) throws IOException {
+        Rumble rumble = new Rumble(this.configuration);
+        if (query != null) {
+            return rumble.runQuery(query);
+        }
+        URI queryUri = FileSystemUtil.resolveURIAgainstWorkingDirectory(
+            this.configuration.getQueryPath(),
+            this.configuration,
+            ExceptionMetadata.EMPTY_METADATA
+        );
+        return rumble.runQuery(queryUri);
+    }
+
     public long runInteractive(String query, List<Item> resultList) throws IOException {
         Rumble rumble = new Rumble(this.configuration);
         SequenceOfItems sequence = rumble.runQuery(query);
@@ -224,7 +270,11 @@ public class JsoniqQueryExecutor {
         }
         resultList.clear();
         JavaRDD<Item> rdd = sequence.getAsRDD();
-        return SparkSessionManager.collectRDDwithLimitWarningOnly(rdd, resultList);
+        return SparkSessionManager.collectRDDwithLimitWarningOnly(
+            rdd,
+            this.configuration.getResultSizeCap(),
+            resultList
+        );
     }
 
 }
@@ -0,0 +1,85 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Authors: Stefan Irimescu, Can Berker Cikis
+ *
+ */
+
+package org.rumbledb.compiler;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import org.rumbledb.config.RumbleRuntimeConfiguration;
+import org.rumbledb.exceptions.ExceptionMetadata;
+import org.rumbledb.runtime.functions.input.FileSystemUtil;
+
+/**
+ * Measures the time spent in each phase of the compilation of a query (parsing, translation, and each visitor pass),
+ * and appends it to the log file given with --log-path, if any.
+ */
+final class CompilationTimes {
+
+    private final RumbleRuntimeConfiguration configuration;
+    private final List<String> phases;
+    private final List<Long> durations;
+    private final long start;
+    private long lastCheckpoint;
+
+    CompilationTimes(RumbleRuntimeConfiguration configuration) {
+        this.configuration = configuration;
+        this.phases = new ArrayList<>();
+        this.durations = new ArrayList<>();
+        this.start = System.nanoTime();
+        this.lastCheckpoint = this.start;
+    }
+
+    /**
+     * Records the time elapsed since the previous phase ended.
+     *
+     * @param phase the name of the phase that just ended.
+     */
+    void endPhase(String phase) {
+        long now = System.nanoTime();
+        this.phases.add(phase);
+        this.durations.add(now - this.lastCheckpoint);
+        this.lastCheckpoint = now;
+    }
+
+    void log() {
+        String logPath = this.configuration.getLogPath();
+        if (logPath == null) {
+            return;
+        }
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < this.phases.size(); ++i) {
+            lines.add("[CompileTime] " + this.phases.get(i) + ": " + toMilliseconds(this.durations.get(i)));
+        }
+        lines.add("[CompileTime] total: " + toMilliseconds(this.lastCheckpoint - this.start));
+        URI logUri = FileSystemUtil.resolveURIAgainstWorkingDirectory(
+            logPath,
+            this.configuration,
+            ExceptionMetadata.EMPTY_METADATA
+        );
+        FileSystemUtil.append(logUri, lines, this.configuration, ExceptionMetadata.EMPTY_METADATA);
+    }
+
+    private static String toMilliseconds(long nanoseconds) {
+        return String.format(Locale.ROOT, "%.3f ms", nanoseconds / 1e6);
+    }
+}
@@ -0,0 +1,402 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Authors: Stefan Irimescu, Can Berker Cikis
+ *
+ */
+
+package org.rumbledb.compiler;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.rumbledb.context.BuiltinFunction;
+import org.rumbledb.context.BuiltinFunctionCatalogue;
+import org.rumbledb.context.FunctionIdentifier;
+import org.rumbledb.expressions.AbstractNodeVisitor;
+import org.rumbledb.expressions.CommaExpression;
+import org.rumbledb.expressions.Expression;
+import org.rumbledb.expressions.Node;
+import org.rumbledb.expressions.arithmetic.AdditiveExpression;
+import org.rumbledb.expressions.arithmetic.MultiplicativeExpression;
+import org.rumbledb.expressions.arithmetic.UnaryExpression;
+import org.rumbledb.expressions.comparison.ComparisonExpression;
+import org.rumbledb.expressions.control.ConditionalExpression;
+import org.rumbledb.expressions.control.SwitchExpression;
+import org.rumbledb.expressions.control.TypeSwitchExpression;
+import org.rumbledb.expressions.flowr.Clause;
+import org.rumbledb.expressions.flowr.FlworExpression;
+import org.rumbledb.expressions.logic.AndExpression;
+import org.rumbledb.expressions.logic.NotExpression;
+import org.rumbledb.expressions.logic.OrExpression;
+import org.rumbledb.expressions.miscellaneous.StringConcatExpression;
+import org.rumbledb.expressions.postfix.ArrayLookupExpression;
+import org.rumbledb.expressions.postfix.ArrayUnboxingExpression;
+import org.rumbledb.expressions.postfix.ObjectLookupExpression;
+import org.rumbledb.expressions.primary.ArrayConstructorExpression;
+import org.rumbledb.expressions.primary.BooleanLiteralExpression;
+import org.rumbledb.expressions.primary.DecimalLiteralExpression;
+import org.rumbledb.expressions.primary.DoubleLiteralExpression;
+import org.rumbledb.expressions.primary.FunctionCallExpression;
+import org.rumbledb.expressions.primary.IntegerLiteralExpression;
+import org.rumbledb.expressions.primary.NullLiteralExpression;
+import org.rumbledb.expressions.primary.ObjectConstructorExpression;
+import org.rumbledb.expressions.primary.StringLiteralExpression;
+import org.rumbledb.expressions.typing.CastExpression;
+import org.rumbledb.expressions.typing.CastableExpression;
+import org.rumbledb.expressions.typing.InstanceOfExpression;
+import org.rumbledb.expressions.typing.TreatExpression;
+import org.rumbledb.runtime.functions.arrays.ArrayDescendantFunctionIterator;
+import org.rumbledb.runtime.functions.arrays.ArrayFlattenFunctionIterator;
+import org.rumbledb.runtime.functions.arrays.ArrayMembersFunctionIterator;
+import org.rumbledb.runtime.functions.arrays.ArraySizeFunctionIterator;
+import org.rumbledb.runtime.functions.booleans.BooleanFunctionIterator;
+import org.rumbledb.runtime.functions.booleans.FalseFunctionIterator;
+import org.rumbledb.runtime.functions.booleans.NotFunctionIterator;
+import org.rumbledb.runtime.functions.booleans.TrueFunctionIterator;
+import org.rumbledb.runtime.functions.datetime.DateTimeFunctionIterator;
+import org.rumbledb.runtime.functions.datetime.FormatDateFunctionIterator;
+import org.rumbledb.runtime.functions.datetime.FormatDateTimeFunctionIterator;
+import org.rumbledb.runtime.functions.datetime.FormatTimeFunctionIterator;
+import org.rumbledb.runtime.functions.datetime.components.AdjustDateTimeToTimezone;
+import org.rumbledb.runtime.functions.datetime.components.AdjustDateToTimezone;
+import org.rumbledb.runtime.functions.datetime.components.AdjustTimeToTimezone;
+import org.rumbledb.runtime.functions.datetime.components.DayFromDateFunctionIterator;
+import org.rumbledb.runtime.functions.datetime.components.DayFromDateTimeFunctionIterator;
+import org.rumbledb.runtime.functions.datetime.components.HoursFromDateTimeFunctionIterator;
+import org.rumbledb.runtime.functions.datetime.components.HoursFromTimeFunctionIterator;
+import org.rumbledb.runtime.functions.datetime.components.MinutesFromDateTimeFunctionIterator;
+import org.rumbledb.runtime.functions.datetime.components.MinutesFromTimeFunctionIterator;
+import org.rumbledb.runtime.functions.datetime.components.MonthFromDateFunctionIterator;
+import org.rumbledb.runtime.functions.datetime.components.MonthFromDateTimeFunctionIterator;
+import org.rumbledb.runtime.functions.datetime.components.SecondsFromDateTimeFunctionIterator;
+import org.rumbledb.runtime.functions.datetime.components.SecondsFromTimeFunctionIterator;
+import org.rumbledb.runtime.functions.datetime.components.TimezoneFromDateFunctionIterator;
+import org.rumbledb.runtime.functions.datetime.components.TimezoneFromDateTimeFunctionIterator;
+import org.rumbledb.runtime.functions.datetime.components.TimezoneFromTimeFunctionIterator;
+import org.rumbledb.runtime.functions.datetime.components.YearFromDateFunctionIterator;
+import org.rumbledb.runtime.functions.datetime.components.YearFromDateTimeFunctionIterator;
+import org.rumbledb.runtime.functions.durations.components.DaysFromDurationFunctionIterator;
+import org.rumbledb.runtime.functions.durations.components.HoursFromDurationFunctionIterator;
+import org.rumbledb.runtime.functions.durations.components.MinutesFromDurationFunctionIterator;
+import org.rumbledb.runtime.functions.durations.components.MonthsFromDurationFunctionIterator;
+import org.rumbledb.runtime.functions.durations.components.SecondsFromDurationFunctionIterator;
+import org.rumbledb.runtime.functions.durations.components.YearsFromDurationFunctionIterator;
+import org.rumbledb.runtime.functions.numerics.AbsFunctionIterator;
+import org.rumbledb.runtime.functions.numerics.CeilingFunctionIterator;
+import org.rumbledb.runtime.functions.numerics.FloorFunctionIterator;
+import org.rumbledb.runtime.functions.numerics.NumberFunctionIterator;
+import org.rumbledb.runtime.functions.numerics.PiFunctionIterator;
+import org.rumbledb.runtime.functions.numerics.RoundFunctionIterator;
+import org.rumbledb.runtime.functions.numerics.RoundHalfToEvenFunctionIterator;
+import org.rumbledb.runtime.functions.numerics.exponential.Exp10FunctionIterator;
+import org.rumbledb.runtime.functions.numerics.exponential.ExpFunctionIterator;
+import org.rumbledb.runtime.functions.numerics.exponential.Log10FunctionIterator;
+import org.rumbledb.runtime.functions.numerics.exponential.LogFunctionIterator;
+import org.rumbledb.runtime.functions.numerics.exponential.PowFunctionIterator;
+import org.rumbledb.runtime.functions.numerics.exponential.SqrtFunctionIterator;
+import org.rumbledb.runtime.functions.numerics.trigonometric.ACosFunctionIterator;
+import org.rumbledb.runtime.functions.numerics.trigonometric.ASinFunctionIterator;
+import org.rumbledb.runtime.functions.numerics.trigonometric.ATan2FunctionIterator;
+import org.rumbledb.runtime.functions.numerics.trigonometric.ATanFunctionIterator;
+import org.rumbledb.runtime.functions.numerics.trigonometric.CosFunctionIterator;
+import org.rumbledb.runtime.functions.numerics.trigonometric.SinFunctionIterator;
+import org.rumbledb.runtime.functions.numerics.trigonometric.TanFunctionIterator;
+import org.rumbledb.runtime.functions.object.ObjectAccumulateFunctionIterator;
+import org.rumbledb.runtime.functions.object.ObjectDescendantFunctionIterator;
+import org.rumbledb.runtime.functions.object.ObjectDescendantPairsFunctionIterator;
+import org.rumbledb.runtime.functions.object.ObjectIntersectFunctionIterator;
+import org.rumbledb.runtime.functions.object.ObjectKeysFunctionIterator;
+import org.rumbledb.runtime.functions.object.ObjectProjectFunctionIterator;
+import org.rumbledb.runtime.functions.object.ObjectRemoveKeysFunctionIterator;
+import org.rumbledb.runtime.functions.object.ObjectValuesFunctionIterator;
+import org.rumbledb.runtime.functions.sequences.aggregate.AvgFunctionIterator;
+import org.rumbledb.runtime.functions.sequences.aggregate.CountFunctionIterator;
+import org.rumbledb.runtime.functions.sequences.aggregate.MaxFunctionIterator;
+import org.rumbledb.runtime.functions.sequences.aggregate.MinFunctionIterator;
+import org.rumbledb.runtime.functions.sequences.aggregate.SumFunctionIterator;
+import org.rumbledb.runtime.functions.sequences.cardinality.ExactlyOneIterator;
+import org.rumbledb.runtime.functions.sequences.cardinality.OneOrMoreIterator;
+import org.rumbledb.runtime.functions.sequences.cardinality.ZeroOrOneIterator;
+import org.rumbledb.runtime.functions.sequences.general.EmptyFunctionIterator;
+import org.rumbledb.runtime.functions.sequences.general.ExistsFunctionIterator;
+import org.rumbledb.runtime.functions.sequences.general.HeadFunctionIterator;
+import org.rumbledb.runtime.functions.sequences.general.InsertBeforeFunctionIterator;
+import org.rumbledb.runtime.functions.sequences.general.RemoveFunctionIterator;
+import org.rumbledb.runtime.functions.sequences.general.ReverseFunctionIterator;
+import org.rumbledb.runtime.functions.sequences.general.SubsequenceFunctionIterator;
+import org.rumbledb.runtime.functions.sequences.general.TailFunctionIterator;
+import org.rumbledb.runtime.functions.sequences.general.UnorderedFunctionIterator;
+import org.rumbledb.runtime.functions.sequences.value.DeepEqualFunctionIterator;
+import org.rumbledb.runtime.functions.sequences.value.DistinctValuesFunctionIterator;
+import org.rumbledb.runtime.functions.sequences.value.IndexOfFunctionIterator;
+import org.rumbledb.runtime.functions.strings.CodepointEqualFunctionIterator;
+import org.rumbledb.runtime.functions.strings.CodepointsToStringFunctionIterator;
+import org.rumbledb.runtime.functions.strings.ConcatFunctionIterator;
+import org.rumbledb.runtime.functions.strings.ContainsFunctionIterator;
+import org.rumbledb.runtime.functions.strings.DefaultCollationFunctionIterator;
+import org.rumbledb.runtime.functions.strings.EncodeForURIFunctionIterator;
+import org.rumbledb.runtime.functions.strings.EndsWithFunctionIterator;
+import org.rumbledb.runtime.functions.strings.LowerCaseFunctionIterator;
+import org.rumbledb.runtime.functions.strings.MatchesFunctionIterator;
+import org.rumbledb.runtime.functions.strings.NormalizeSpaceFunctionIterator;
+import org.rumbledb.runtime.functions.strings.NormalizeUnicodeFunctionIterator;
+import org.rumbledb.runtime.functions.strings.ReplaceFunctionIterator;
+import org.rumbledb.runtime.functions.strings.SerializeFunctionIterator;
+import org.rumbledb.runtime.functions.strings.StartsWithFunctionIterator;
+import org.rumbledb.runtime.functions.strings.StringFunctionIterator;
+import org.rumbledb.runtime.functions.strings.StringJoinFunctionIterator;
+import org.rumbledb.runtime.functions.strings.StringLengthFunctionIterator;
+import org.rumbledb.runtime.functions.strings.StringToCodepointsFunctionIterator;
+import org.rumbledb.runtime.functions.strings.SubstringAfterFunctionIterator;
+import org.rumbledb.runtime.functions.strings.SubstringBeforeFunctionIterator;
+import org.rumbledb.runtime.functions.strings.SubstringFunctionIterator;
+import org.rumbledb.runtime.functions.strings.TokenizeFunctionIterator;
+import org.rumbledb.runtime.functions.strings.TranslateFunctionIterator;
+import org.rumbledb.runtime.functions.strings.UpperCaseFunctionIterator;
+
+/**
+ * This visitor marks the expressions that only consist of literals, of operators and of calls to deterministic builtin
+ * functions, all the operands of which are themselves constant. The runtime iterator visitor then evaluates them once
+ * at compile time instead of once per tuple, and picks the branch of conditional expressions with constant conditions.
+ *
+ * Variables, the context item, user-defined functions, inputs and functions depending on the dynamic context (e.g.,
+ * current-dateTime(), adjust-dateTime-to-timezone() with one argument, which uses the implicit timezone, or
+ * string-length() without arguments, which uses the context item) are never constant. Neither
+ * are ranges, which may be large.
+ */
+public class ConstantFoldingVisitor extends AbstractNodeVisitor<Void> {
+
+    private static final List<Class<?>> CONSTANT_EXPRESSION_CLASSES = Arrays.asList(
+        CommaExpression.class,
+        AdditiveExpression.class,
+        MultiplicativeExpression.class,
+        UnaryExpression.class,
+        ComparisonExpression.class,
+        AndExpression.class,
+        OrExpression.class,
+        NotExpression.class,
+        StringConcatExpression.class,
+        ConditionalExpression.class,
+        SwitchExpression.class,
+        TypeSwitchExpression.class,
+        CastExpression.class,
+        CastableExpression.class,
+        InstanceOfExpression.class,
+        TreatExpression.class,
+        ArrayLookupExpression.class,
+        ArrayUnboxingExpression.class,
+        ObjectLookupExpression.class,
+        ArrayConstructorExpression.class,
+        ObjectConstructorExpression.class
+    );
+
+    private static final List<Class<?>> LITERAL_CLASSES = Arrays.asList(
+        IntegerLiteralExpression.class,
+        DecimalLiteralExpression.class,
+        DoubleLiteralExpression.class,
+        StringLiteralExpression.class,
+        BooleanLiteralExpression.class,
+        NullLiteralExpression.class
+    );
+
+    // The builtin functions that only depend on their arguments. Other builtin functions are never folded.
+    private static final List<Class<?>> DETERMINISTIC_FUNCTION_CLASSES = Arrays.asList(
+        ACosFunctionIterator.class,
+        ASinFunctionIterator.class,
+        ATan2FunctionIterator.class,
+        ATanFunctionIterator.class,
+        AbsFunctionIterator.class,
+        ArrayDescendantFunctionIterator.class,
+        ArrayFlattenFunctionIterator.class,
+        ArrayMembersFunctionIterator.class,
+        ArraySizeFunctionIterator.class,
+        AvgFunctionIterator.class,
+        BooleanFunctionIterator.class,
+        CeilingFunctionIterator.class,
+        CodepointEqualFunctionIterator.class,
+        CodepointsToStringFunctionIterator.class,
+        ConcatFunctionIterator.class,
+        ContainsFunctionIterator.class,
+        CosFunctionIterator.class,
+        CountFunctionIterator.class,
+        DateTimeFunctionIterator.class,
+        DayFromDateFunctionIterator.class,
+        DayFromDateTimeFunctionIterator.class,
+        DaysFromDurationFunctionIterator.class,
+        DeepEqualFunctionIterator.class,
+        DefaultCollationFunctionIterator.class,
+        DistinctValuesFunctionIterator.class,
+        EmptyFunctionIterator.class,
+        EncodeForURIFunctionIterator.class,
+        EndsWithFunctionIterator.class,
+        ExactlyOneIterator.class,
+        ExistsFunctionIterator.class,
+        Exp10FunctionIterator.class,
+        ExpFunctionIterator.class,
+        FalseFunctionIterator.class,
+        FloorFunctionIterator.class,
+        FormatDateFunctionIterator.class,
+        FormatDateTimeFunctionIterator.class,
+        FormatTimeFunctionIterator.class,
+        HeadFunctionIterator.class,
+        HoursFromDateTimeFunctionIterator.class,
+        HoursFromDurationFunctionIterator.class,
+        HoursFromTimeFunctionIterator.class,
+        IndexOfFunctionIterator.class,
+        InsertBeforeFunctionIterator.class,
+        Log10FunctionIterator.class,
+        LogFunctionIterator.class,
+        LowerCaseFunctionIterator.class,
+        MatchesFunctionIterator.class,
+        MaxFunctionIterator.class,
+        MinFunctionIterator.class,
+        MinutesFromDateTimeFunctionIterator.class,
+        MinutesFromDurationFunctionIterator.class,
+        MinutesFromTimeFunctionIterator.class,
+        MonthFromDateFunctionIterator.class,
+        MonthFromDateTimeFunctionIterator.class,
+        MonthsFromDurationFunctionIterator.class,
+        NormalizeSpaceFunctionIterator.class,
+        NormalizeUnicodeFunctionIterator.class,
+        NotFunctionIterator.class,
+        NumberFunctionIterator.class,
+        ObjectAccumulateFunctionIterator.class,
+        ObjectDescendantFunctionIterator.class,
+        ObjectDescendantPairsFunctionIterator.class,
+        ObjectIntersectFunctionIterator.class,
+        ObjectKeysFunctionIterator.class,
+        ObjectProjectFunctionIterator.class,
+        ObjectRemoveKeysFunctionIterator.class,
+        ObjectValuesFunctionIterator.class,
+        OneOrMoreIterator.class,
+        PiFunctionIterator.class,
+        PowFunctionIterator.class,
+        RemoveFunctionIterator.class,
+        ReplaceFunctionIterator.class,
+        ReverseFunctionIterator.class,
+        RoundFunctionIterator.class,
+        RoundHalfToEvenFunctionIterator.class,
+        SecondsFromDateTimeFunctionIterator.class,
+        SecondsFromDurationFunctionIterator.class,
+        SecondsFromTimeFunctionIterator.class,
+        SerializeFunctionIterator.class,
+        SinFunctionIterator.class,
+        SqrtFunctionIterator.class,
+        StartsWithFunctionIterator.class,
+        StringFunctionIterator.class,
+        StringJoinFunctionIterator.class,
+        StringLengthFunctionIterator.class,
+        StringToCodepointsFunctionIterator.class,
+        SubsequenceFunctionIterator.class,
+        SubstringAfterFunctionIterator.class,
+        SubstringBeforeFunctionIterator.class,
+        SubstringFunctionIterator.class,
+        SumFunctionIterator.class,
+        TailFunctionIterator.class,
+        TanFunctionIterator.class,
+        TimezoneFromDateFunctionIterator.class,
+        TimezoneFromDateTimeFunctionIterator.class,
+        TimezoneFromTimeFunctionIterator.class,
+        TokenizeFunctionIterator.class,
+        TranslateFunctionIterator.class,
+        TrueFunctionIterator.class,
+        UnorderedFunctionIterator.class,
+        UpperCaseFunctionIterator.class,
+        YearFromDateFunctionIterator.class,
+        YearFromDateTimeFunctionIterator.class,
+        YearsFromDurationFunctionIterator.class,
+        ZeroOrOneIterator.class
+    );
+
+    // The builtin functions that read the implicit timezone from the dynamic context if called with one argument.
+    private static final List<Class<?>> IMPLICIT_TIMEZONE_FUNCTION_CLASSES = Arrays.asList(
+        AdjustDateTimeToTimezone.class,
+        AdjustDateToTimezone.class,
+        AdjustTimeToTimezone.class
+    );
+
+    /**
+     * Tells whether an expression is a literal, which is already evaluated.
+     *
+     * @param expression the expression.
+     * @return true if it is a literal.
+     */
+    public static boolean isLiteral(Expression expression) {
+        return LITERAL_CLASSES.contains(expression.getClass());
+    }
+
+    @Override
+    protected Void defaultAction(Node node, Void argument) {
+        visitDescendants(node, argument);
+        if (node instanceof Expression) {
+            ((Expression) node).setConstant(isConstant(node));
+        }
+        return argument;
+    }
+
+    @Override
+    public Void visitFlowrExpression(FlworExpression expression, Void argument) {
+        Clause clause = expression.getReturnClause().getFirstClause();
+        for (; clause != null; clause = clause.getNextClause()) {
+            this.visit(clause, argument);
+        }
+        return argument;
+    }
+
+    private static boolean isConstant(Node node) {
+        if (LITERAL_CLASSES.contains(node.getClass())) {
+            return true;
+        }
+        if (!CONSTANT_EXPRESSION_CLASSES.contains(node.getClass()) && !isDeterministicBuiltinFunctionCall(node)) {
+            return false;
+        }
+        for (Node child : node.getChildren()) {
+            if (!(child instanceof Expression) || !((Expression) child).isConstant()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isDeterministicBuiltinFunctionCall(Node node) {
+        if (!(node instanceof FunctionCallExpression)) {
+            return false;
+        }
+        FunctionCallExpression call = (FunctionCallExpression) node;
+        if (call.isPartialApplication() || !BuiltinFunctionCatalogue.exists(call.getFunctionIdentifier())) {
+            return false;
+        }
+        if (dependsOnContextItem(call.getFunctionIdentifier())) {
+            return false;
+        }
+        BuiltinFunction function = BuiltinFunctionCatalogue.getBuiltinFunction(call.getFunctionIdentifier());
+        Class<?> iteratorClass = function.getFunctionIteratorClass();
+        if (IMPLICIT_TIMEZONE_FUNCTION_CLASSES.contains(iteratorClass)) {
+            return call.getFunctionIdentifier().getArity() > 1;
+        }
+        return DETERMINISTIC_FUNCTION_CLASSES.contains(iteratorClass);
+    }
+
+    /**
+     * Tells whether a builtin function implicitly takes the context item as argument, as string-length() does. These
+     * functions are the versions without arguments of functions that also take one.
+     */
+    private static boolean dependsOnContextItem(FunctionIdentifier identifier) {
+        return identifier.getArity() == 0
+            && BuiltinFunctionCatalogue.exists(new FunctionIdentifier(identifier.getName(), 1));
+    }
+}
@@ -25,6 +25,7 @@ import java.io.IOException;
 import java.io.InputStreamReader;
 import java.net.URI;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -65,10 +66,23 @@ import org.rumbledb.types.SequenceType.Arity;
 public class DynamicContextVisitor extends AbstractNodeVisitor<DynamicContext> {
 
     private RumbleRuntimeConfiguration configuration;
+    private Map<Name, List<Item>> externalVariableValues;
     private Map<String, DynamicContext> importedModuleContexts;
 
     DynamicContextVisitor(RumbleRuntimeConfiguration configuration) {
+        this(configuration, Collections.emptyMap());
+    }
+
+    /**
+     * Creates a visitor that binds external variables to the supplied values in priority, falling back to the values
+     * in the configuration.
+     *
+     * @param configuration the Rumble configuration.
+     * @param externalVariableValues values of external variables that override those of the configuration.
+     */
+    DynamicContextVisitor(RumbleRuntimeConfiguration configuration, Map<Name, List<Item>> externalVariableValues) {
         this.configuration = configuration;
+        this.externalVariableValues = externalVariableValues;
         this.importedModuleContexts = new HashMap<>();
     }
 
@@ -126,7 +140,10 @@ public class DynamicContextVisitor extends AbstractNodeVisitor<DynamicContext> {
         }
 
         // Variable is external. Do we have supplied items?
-        List<Item> items = this.configuration.getExternalVariableValue(name);
+        List<Item> items = this.externalVariableValues.get(name);
+        if (items == null) {
+            items = this.configuration.getExternalVariableValue(name);
+        }
         if (items != null) {
             if (variableDeclaration.getSequenceType().isEmptySequence() && items.size() > 0) {
                 throw new UnexpectedTypeException(
@@ -0,0 +1,139 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Authors: Stefan Irimescu, Can Berker Cikis
+ *
+ */
+
+
+package org.rumbledb.compiler;
+
+import java.net.URI;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.rumbledb.config.RumbleRuntimeConfiguration;
+import org.rumbledb.context.BuiltinFunction;
+import org.rumbledb.context.BuiltinFunction.BuiltinFunctionExecutionMode;
+import org.rumbledb.context.BuiltinFunctionCatalogue;
+import org.rumbledb.exceptions.ExceptionMetadata;
+import org.rumbledb.expressions.AbstractNodeVisitor;
+import org.rumbledb.expressions.ExecutionMode;
+import org.rumbledb.expressions.Expression;
+import org.rumbledb.expressions.flowr.Clause;
+import org.rumbledb.expressions.flowr.FlworExpression;
+import org.rumbledb.expressions.primary.FunctionCallExpression;
+import org.rumbledb.expressions.primary.StringLiteralExpression;
+import org.rumbledb.runtime.functions.input.FileSystemUtil;
+
+/**
+ * This visitor measures the files read by calls that use Spark unless their input is small, if the path is a
+ * literal and a local execution threshold is set. Spark jobs take seconds to schedule, which is only worth it for
+ * large inputs. The resulting execution mode is stored on the call and used when execution modes are inferred.
+ *
+ * The measured inputs are recorded so that a cached plan can be checked against their current sizes.
+ */
+public class InputSizeVisitor extends AbstractNodeVisitor<Void> {
+
+    private final RumbleRuntimeConfiguration configuration;
+    private final Map<URI, ExecutionMode> measuredInputs;
+
+    InputSizeVisitor(RumbleRuntimeConfiguration configuration) {
+        this.configuration = configuration;
+        this.measuredInputs = new HashMap<>();
+    }
+
+    /**
+     * Returns the inputs measured so far, with the execution mode chosen for each of them.
+     *
+     * @return the measured inputs.
+     */
+    Map<URI, ExecutionMode> getMeasuredInputs() {
+        return this.measuredInputs;
+    }
+
+    @Override
+    public Void visitFlowrExpression(FlworExpression expression, Void argument) {
+        Clause clause = expression.getReturnClause().getFirstClause();
+        for (; clause != null; clause = clause.getNextClause()) {
+            this.visit(clause, argument);
+        }
+        return argument;
+    }
+
+    @Override
+    public Void visitFunctionCall(FunctionCallExpression expression, Void argument) {
+        if (
+            this.configuration.getLocalExecutionThreshold() > 0
+                && dependsOnInputSize(expression)
+        ) {
+            Expression path = expression.getArguments().get(0);
+            if (path instanceof StringLiteralExpression && !((StringLiteralExpression) path).getValue().isEmpty()) {
+                URI uri = FileSystemUtil.resolveURI(
+                    expression.getStaticContext().getStaticBaseURI(),
+                    ((StringLiteralExpression) path).getValue().replaceAll(" ", "%20"),
+                    expression.getMetadata()
+                );
+                ExecutionMode mode = getInputSizeExecutionMode(uri, this.configuration, expression.getMetadata());
+                expression.setInputSizeExecutionMode(mode);
+                this.measuredInputs.put(uri, mode);
+            } else if (this.configuration.isPrintIteratorTree()) {
+                System.err.println("[INFO] Input path not known statically, it will be read with Spark.");
+            }
+        }
+        return defaultAction(expression, argument);
+    }
+
+    private static boolean dependsOnInputSize(FunctionCallExpression expression) {
+        if (
+            expression.isPartialApplication()
+                || !BuiltinFunctionCatalogue.exists(expression.getFunctionIdentifier())
+        ) {
+            return false;
+        }
+        BuiltinFunction function = BuiltinFunctionCatalogue.getBuiltinFunction(expression.getFunctionIdentifier());
+        return function.getBuiltinFunctionExecutionMode() == BuiltinFunctionExecutionMode.RDD_UNLESS_SMALL_INPUT;
+    }
+
+    /**
+     * Chooses between reading an input locally or with Spark, from its current size.
+     *
+     * @param uri the input.
+     * @param configuration the configuration with the local execution threshold.
+     * @param metadata the metadata of the call reading the input.
+     * @return LOCAL if the input is within the threshold, RDD otherwise.
+     */
+    static ExecutionMode getInputSizeExecutionMode(
+            URI uri,
+            RumbleRuntimeConfiguration configuration,
+            ExceptionMetadata metadata
+    ) {
+        long threshold = configuration.getLocalExecutionThreshold();
+        long size = FileSystemUtil.getSize(uri, configuration, metadata);
+        ExecutionMode result = size >= 0 && size <= threshold ? ExecutionMode.LOCAL : ExecutionMode.RDD;
+        if (configuration.isPrintIteratorTree()) {
+            System.err.println(
+                "[INFO] "
+                    + (size < 0 ? "Size of " + uri + " unknown" : uri + " has " + size + " bytes")
+                    + ", threshold of "
+                    + threshold
+                    + " bytes: "
+                    + (result == ExecutionMode.LOCAL ? "read locally." : "read with Spark.")
+            );
+        }
+        return result;
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Authors: Stefan Irimescu, Can Berker Cikis
+ *
+ */
+
+package org.rumbledb.compiler;
+
+import java.net.URI;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import org.antlr.v4.runtime.ParserRuleContext;
+
+/**
+ * A bounded, least-recently-used cache of the parse trees of imported library modules, shared by all Rumble instances
+ * of the JVM.
+ *
+ * Parse trees are keyed by the resolved location of the module, and are only reused if the content read from this
+ * location is unchanged, so that a modified module is parsed again. The translated modules are not cached, because
+ * the static analysis of each importing query modifies them: they are translated again from the cached parse tree,
+ * which is much cheaper than parsing.
+ */
+public class LibraryModuleCache {
+
+    public static final int DEFAULT_MAXIMUM_SIZE = 100;
+
+    private static LibraryModuleCache instance;
+
+    private final LinkedHashMap<URI, Entry> entries;
+    private final int maximumSize;
+
+    LibraryModuleCache(int maximumSize) {
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+        this.maximumSize = maximumSize;
+    }
+
+    public static synchronized LibraryModuleCache getInstance() {
+        if (instance == null) {
+            instance = new LibraryModuleCache(DEFAULT_MAXIMUM_SIZE);
+        }
+        return instance;
+    }
+
+    /**
+     * Returns the parse tree of a library module, parsing it only if it is not in the cache yet or if its content
+     * changed.
+     *
+     * @param location the resolved location of the module.
+     * @param content the content of the module, as just read from its location.
+     * @param treeClass the class of the parse tree.
+     * @param parser parses the content.
+     * @param <T> the class of the parse tree.
+     * @return the parse tree.
+     */
+    public <T extends ParserRuleContext> T getOrParse(
+            URI location,
+            String content,
+            Class<T> treeClass,
+            Supplier<T> parser
+    ) {
+        synchronized (this) {
+            Entry entry = this.entries.get(location);
+            if (entry != null && entry.content.equals(content) && treeClass.isInstance(entry.tree)) {
+                return treeClass.cast(entry.tree);
+            }
+        }
+        // Parsing happens outside of the lock so that other queries are not blocked.
+        T tree = parser.get();
+        synchronized (this) {
+            this.entries.put(location, new Entry(content, tree));
+            Iterator<Map.Entry<URI, Entry>> iterator = this.entries.entrySet().iterator();
+            while (this.entries.size() > this.maximumSize && iterator.hasNext()) {
+                iterator.next();
+                iterator.remove();
+            }
+        }
+        return tree;
+    }
+
+    /**
+     * Removes all cached parse trees, for example to free memory after library modules were modified.
+     *
+     * @return the number of parse trees removed.
+     */
+    public synchronized int invalidateAll() {
+        int removed = this.entries.size();
+        this.entries.clear();
+        return removed;
+    }
+
+    public synchronized int size() {
+        return this.entries.size();
+    }
+
+    private static final class Entry {
+        private final String content;
+        private final ParserRuleContext tree;
+
+        private Entry(String content, ParserRuleContext tree) {
+            this.content = content;
+            this.tree = tree;
+        }
+    }
+}
@@ -0,0 +1,173 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Authors: Stefan Irimescu, Can Berker Cikis
+ *
+ */
+
+package org.rumbledb.compiler;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.rumbledb.context.Name;
+import org.rumbledb.expressions.AbstractNodeVisitor;
+import org.rumbledb.expressions.Expression;
+import org.rumbledb.expressions.Node;
+import org.rumbledb.expressions.comparison.ComparisonExpression;
+import org.rumbledb.expressions.comparison.ComparisonExpression.ComparisonOperator;
+import org.rumbledb.expressions.flowr.Clause;
+import org.rumbledb.expressions.flowr.CountClause;
+import org.rumbledb.expressions.flowr.FlworExpression;
+import org.rumbledb.expressions.flowr.ForClause;
+import org.rumbledb.expressions.flowr.GroupByClause;
+import org.rumbledb.expressions.flowr.ReturnClause;
+import org.rumbledb.expressions.flowr.WhereClause;
+import org.rumbledb.expressions.logic.AndExpression;
+import org.rumbledb.expressions.postfix.ObjectLookupExpression;
+import org.rumbledb.expressions.primary.FunctionCallExpression;
+import org.rumbledb.expressions.primary.IntegerLiteralExpression;
+import org.rumbledb.expressions.primary.StringLiteralExpression;
+import org.rumbledb.runtime.functions.input.PartitionFilter;
+
+/**
+ * This visitor collects, for each for clause iterating over a call to json-file(), the comparisons of a field of the
+ * variable with a string or integer literal that the following where clauses require, so that the partition
+ * directories in which they cannot hold are not read at all.
+ */
+public class PartitionFilterVisitor extends AbstractNodeVisitor<Void> {
+
+    @Override
+    public Void visitFlowrExpression(FlworExpression expression, Void argument) {
+        Clause clause = expression.getReturnClause().getFirstClause();
+        while (clause != null) {
+            if (clause instanceof ForClause && ProjectionVisitor.isJsonFileCall(((ForClause) clause).getExpression())) {
+                ForClause forClause = (ForClause) clause;
+                List<PartitionFilter> filters = collectPartitionFilters(forClause);
+                if (!filters.isEmpty()) {
+                    ((FunctionCallExpression) forClause.getExpression()).setPartitionFilters(filters);
+                }
+            }
+            this.visit(clause, argument);
+            clause = clause.getNextClause();
+        }
+        return argument;
+    }
+
+    /**
+     * Returns the comparisons of fields of the variable of a for clause with literals in the where clauses that
+     * filter its tuples, up to the first clause that changes the tuples otherwise.
+     */
+    private static List<PartitionFilter> collectPartitionFilters(ForClause forClause) {
+        List<PartitionFilter> result = new ArrayList<>();
+        // Skipping objects would change the positions and the counts.
+        if (forClause.isAllowEmpty() || forClause.getPositionalVariableName() != null) {
+            return result;
+        }
+        Name variable = forClause.getVariableName();
+        for (Clause c = forClause.getNextClause(); c != null; c = c.getNextClause()) {
+            if (
+                c instanceof GroupByClause
+                    || c instanceof CountClause
+                    || c instanceof ReturnClause
+                    || ProjectionVisitor.bindsVariable(c, variable)
+            ) {
+                break;
+            }
+            if (c instanceof WhereClause) {
+                collectPartitionFilters(variable, ((WhereClause) c).getWhereExpression(), result);
+            }
+        }
+        return result;
+    }
+
+    private static void collectPartitionFilters(Name variable, Expression condition, List<PartitionFilter> result) {
+        if (condition instanceof AndExpression) {
+            for (Node conjunct : condition.getChildren()) {
+                collectPartitionFilters(variable, (Expression) conjunct, result);
+            }
+            return;
+        }
+        if (!(condition instanceof ComparisonExpression)) {
+            return;
+        }
+        ComparisonExpression comparison = (ComparisonExpression) condition;
+        Expression left = (Expression) comparison.getChildren().get(0);
+        Expression right = (Expression) comparison.getChildren().get(1);
+        ComparisonOperator operator = comparison.getComparisonOperator();
+        String key = getFieldOf(left, variable);
+        Expression literal = right;
+        if (key == null) {
+            key = getFieldOf(right, variable);
+            literal = left;
+            operator = mirror(operator);
+        }
+        if (key == null) {
+            return;
+        }
+        if (literal instanceof StringLiteralExpression) {
+            result.add(new PartitionFilter(key, operator, ((StringLiteralExpression) literal).getValue(), false));
+        } else if (literal instanceof IntegerLiteralExpression) {
+            String value = ((IntegerLiteralExpression) literal).getLexicalValue();
+            if (value.matches("-?[0-9]+")) {
+                result.add(new PartitionFilter(key, operator, value, true));
+            }
+        }
+    }
+
+    /**
+     * Returns the key of a lookup of a literal key directly on a variable, or null.
+     */
+    private static String getFieldOf(Expression expression, Name variable) {
+        if (!(expression instanceof ObjectLookupExpression)) {
+            return null;
+        }
+        ObjectLookupExpression lookup = (ObjectLookupExpression) expression;
+        if (
+            !ProjectionVisitor.isReferenceTo(lookup.getMainExpression(), variable)
+                || !(lookup.getLookupExpression() instanceof StringLiteralExpression)
+        ) {
+            return null;
+        }
+        return ((StringLiteralExpression) lookup.getLookupExpression()).getValue();
+    }
+
+    /**
+     * Returns the operator to use when swapping the operands of a comparison.
+     */
+    private static ComparisonOperator mirror(ComparisonOperator operator) {
+        switch (operator) {
+            case VC_LT:
+                return ComparisonOperator.VC_GT;
+            case VC_LE:
+                return ComparisonOperator.VC_GE;
+            case VC_GT:
+                return ComparisonOperator.VC_LT;
+            case VC_GE:
+                return ComparisonOperator.VC_LE;
+            case GC_LT:
+                return ComparisonOperator.GC_GT;
+            case GC_LE:
+                return ComparisonOperator.GC_GE;
+            case GC_GT:
+                return ComparisonOperator.GC_LT;
+            case GC_GE:
+                return ComparisonOperator.GC_LE;
+            default:
+                return operator;
+        }
+    }
+}
@@ -0,0 +1,285 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Authors: Stefan Irimescu, Can Berker Cikis
+ *
+ */
+
+package org.rumbledb.compiler;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.rumbledb.config.RumbleRuntimeConfiguration;
+import org.rumbledb.context.BuiltinFunction;
+import org.rumbledb.context.BuiltinFunctionCatalogue;
+import org.rumbledb.context.Name;
+import org.rumbledb.expressions.AbstractNodeVisitor;
+import org.rumbledb.expressions.CommaExpression;
+import org.rumbledb.expressions.Expression;
+import org.rumbledb.expressions.Node;
+import org.rumbledb.expressions.control.TypeSwitchExpression;
+import org.rumbledb.expressions.control.TypeswitchCase;
+import org.rumbledb.expressions.flowr.Clause;
+import org.rumbledb.expressions.flowr.FlworExpression;
+import org.rumbledb.expressions.flowr.ForClause;
+import org.rumbledb.expressions.flowr.GroupByClause;
+import org.rumbledb.expressions.flowr.GroupByVariableDeclaration;
+import org.rumbledb.expressions.flowr.LetClause;
+import org.rumbledb.expressions.postfix.ObjectLookupExpression;
+import org.rumbledb.expressions.primary.FunctionCallExpression;
+import org.rumbledb.expressions.primary.InlineFunctionExpression;
+import org.rumbledb.expressions.primary.StringLiteralExpression;
+import org.rumbledb.expressions.primary.VariableReferenceExpression;
+import org.rumbledb.items.parsing.FieldProjection;
+import org.rumbledb.runtime.functions.input.JsonFileFunctionIterator;
+import org.rumbledb.runtime.functions.object.ObjectProjectFunctionIterator;
+
+/**
+ * This visitor computes, for each call to json-file(), the object fields that the query actually uses, so that the
+ * parser can skip the others.
+ *
+ * Two patterns are recognized: object lookups with literal keys directly on the call (json-file(...).foo.bar), and a
+ * for clause iterating over the call, the variable of which is then only used in object lookups with literal keys or
+ * as the first argument of project() with literal keys. Any other use of the objects (e.g., returning them, passing
+ * them to a function or rebinding the variable) means that they are needed entirely, and no projection is set.
+ */
+public class ProjectionVisitor extends AbstractNodeVisitor<Void> {
+
+    @SuppressWarnings("unused")
+    private RumbleRuntimeConfiguration rumbleRuntimeConfiguration;
+
+    /**
+     * Builds a new visitor.
+     *
+     * @param rumbleRuntimeConfiguration the configuration.
+     */
+    ProjectionVisitor(RumbleRuntimeConfiguration rumbleRuntimeConfiguration) {
+        this.rumbleRuntimeConfiguration = rumbleRuntimeConfiguration;
+    }
+
+    @Override
+    public Void visitFlowrExpression(FlworExpression expression, Void argument) {
+        Clause clause = expression.getReturnClause().getFirstClause();
+        while (clause != null) {
+            if (clause instanceof ForClause && isJsonFileCall(((ForClause) clause).getExpression())) {
+                ForClause forClause = (ForClause) clause;
+                FieldProjection projection = new FieldProjection();
+                if (
+                    collectUsedFields(
+                        forClause.getVariableName(),
+                        getRemainingClauseChildren(forClause),
+                        projection
+                    )
+                ) {
+                    ((FunctionCallExpression) forClause.getExpression()).setProjection(projection);
+                }
+            }
+            this.visit(clause, argument);
+            clause = clause.getNextClause();
+        }
+        return argument;
+    }
+
+    @Override
+    public Void visitObjectLookupExpression(ObjectLookupExpression expression, Void argument) {
+        Expression base = getLookupChainBase(expression);
+        if (isJsonFileCall(base) && ((FunctionCallExpression) base).getProjection() == null) {
+            List<String> path = getLiteralPath(expression);
+            if (!path.isEmpty()) {
+                FieldProjection projection = new FieldProjection();
+                projection.addPath(path);
+                ((FunctionCallExpression) base).setProjection(projection);
+            }
+        }
+        return defaultAction(expression, argument);
+    }
+
+    static boolean isJsonFileCall(Node node) {
+        return isBuiltinFunctionCall(node, JsonFileFunctionIterator.class);
+    }
+
+    static boolean isBuiltinFunctionCall(Node node, Class<?> iteratorClass) {
+        if (!(node instanceof FunctionCallExpression)) {
+            return false;
+        }
+        FunctionCallExpression call = (FunctionCallExpression) node;
+        if (call.isPartialApplication() || !BuiltinFunctionCatalogue.exists(call.getFunctionIdentifier())) {
+            return false;
+        }
+        BuiltinFunction function = BuiltinFunctionCatalogue.getBuiltinFunction(call.getFunctionIdentifier());
+        return function.getFunctionIteratorClass().equals(iteratorClass);
+    }
+
+    private static List<Node> getRemainingClauseChildren(Clause clause) {
+        List<Node> result = new ArrayList<>();
+        for (Clause c = clause.getNextClause(); c != null; c = c.getNextClause()) {
+            result.add(c);
+        }
+        return result;
+    }
+
+    private static Expression getLookupChainBase(ObjectLookupExpression expression) {
+        Expression result = expression;
+        while (result instanceof ObjectLookupExpression) {
+            result = ((ObjectLookupExpression) result).getMainExpression();
+        }
+        return result;
+    }
+
+    /**
+     * Returns the keys of a chain of object lookups from the innermost one, up to the first non-literal key.
+     */
+    private static List<String> getLiteralPath(ObjectLookupExpression expression) {
+        List<ObjectLookupExpression> chain = new ArrayList<>();
+        Expression current = expression;
+        while (current instanceof ObjectLookupExpression) {
+            chain.add(0, (ObjectLookupExpression) current);
+            current = ((ObjectLookupExpression) current).getMainExpression();
+        }
+        List<String> path = new ArrayList<>();
+        for (ObjectLookupExpression lookup : chain) {
+            if (!(lookup.getLookupExpression() instanceof StringLiteralExpression)) {
+                break;
+            }
+            path.add(((StringLiteralExpression) lookup.getLookupExpression()).getValue());
+        }
+        return path;
+    }
+
+    /**
+     * Adds to a projection the fields used from a variable in some nodes.
+     *
+     * @return false if the values of the variable are needed entirely.
+     */
+    private static boolean collectUsedFields(Name variable, List<Node> nodes, FieldProjection projection) {
+        for (Node node : nodes) {
+            if (!collectUsedFields(variable, node, projection)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean collectUsedFields(Name variable, Node node, FieldProjection projection) {
+        if (node == null) {
+            return true;
+        }
+        if (bindsVariable(node, variable)) {
+            return false;
+        }
+        if (node instanceof VariableReferenceExpression) {
+            return !((VariableReferenceExpression) node).getVariableName().equals(variable);
+        }
+        if (node instanceof ObjectLookupExpression) {
+            ObjectLookupExpression lookup = (ObjectLookupExpression) node;
+            if (isReferenceTo(getLookupChainBase(lookup), variable)) {
+                List<String> path = getLiteralPath(lookup);
+                if (path.isEmpty()) {
+                    return false;
+                }
+                projection.addPath(path);
+                // The keys may themselves use the variable.
+                Expression current = lookup;
+                while (current instanceof ObjectLookupExpression) {
+                    Expression key = ((ObjectLookupExpression) current).getLookupExpression();
+                    if (!collectUsedFields(variable, key, projection)) {
+                        return false;
+                    }
+                    current = ((ObjectLookupExpression) current).getMainExpression();
+                }
+                return true;
+            }
+        }
+        if (isBuiltinFunctionCall(node, ObjectProjectFunctionIterator.class)) {
+            List<Expression> arguments = ((FunctionCallExpression) node).getArguments();
+            List<String> keys = getLiteralStrings(arguments.get(1));
+            if (isReferenceTo(arguments.get(0), variable) && keys != null) {
+                for (String key : keys) {
+                    List<String> path = new ArrayList<>();
+                    path.add(key);
+                    projection.addPath(path);
+                }
+                return true;
+            }
+        }
+        if (node instanceof FlworExpression) {
+            Clause clause = ((FlworExpression) node).getReturnClause().getFirstClause();
+            for (; clause != null; clause = clause.getNextClause()) {
+                if (!collectUsedFields(variable, clause, projection)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return collectUsedFields(variable, node.getChildren(), projection);
+    }
+
+    static boolean isReferenceTo(Expression expression, Name variable) {
+        return expression instanceof VariableReferenceExpression
+            && ((VariableReferenceExpression) expression).getVariableName().equals(variable);
+    }
+
+    private static List<String> getLiteralStrings(Expression expression) {
+        List<String> result = new ArrayList<>();
+        if (expression instanceof StringLiteralExpression) {
+            result.add(((StringLiteralExpression) expression).getValue());
+            return result;
+        }
+        if (!(expression instanceof CommaExpression)) {
+            return null;
+        }
+        for (Expression e : ((CommaExpression) expression).getExpressions()) {
+            if (!(e instanceof StringLiteralExpression)) {
+                return null;
+            }
+            result.add(((StringLiteralExpression) e).getValue());
+        }
+        return result;
+    }
+
+    static boolean bindsVariable(Node node, Name variable) {
+        if (node instanceof ForClause) {
+            ForClause forClause = (ForClause) node;
+            return variable.equals(forClause.getVariableName())
+                || variable.equals(forClause.getPositionalVariableName());
+        }
+        if (node instanceof LetClause) {
+            return variable.equals(((LetClause) node).getVariableName());
+        }
+        if (node instanceof GroupByClause) {
+            for (GroupByVariableDeclaration declaration : ((GroupByClause) node).getGroupVariables()) {
+                if (variable.equals(declaration.getVariableName())) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        if (node instanceof InlineFunctionExpression) {
+            return ((InlineFunctionExpression) node).getParams().containsKey(variable);
+        }
+        if (node instanceof TypeSwitchExpression) {
+            TypeSwitchExpression typeSwitch = (TypeSwitchExpression) node;
+            for (TypeswitchCase c : typeSwitch.getCases()) {
+                if (variable.equals(c.getVariableName())) {
+                    return true;
+                }
+            }
+            return variable.equals(typeSwitch.getDefaultCase().getVariableName());
+        }
+        return false;
+    }
+}
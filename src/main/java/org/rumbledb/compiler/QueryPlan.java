@@ -0,0 +1,202 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Authors: Stefan Irimescu, Can Berker Cikis
+ *
+ */
+
+package org.rumbledb.compiler;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.net.URI;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.rumbledb.api.Item;
+import org.rumbledb.config.RumbleRuntimeConfiguration;
+import org.rumbledb.context.DynamicContext;
+import org.rumbledb.context.Name;
+import org.rumbledb.exceptions.OurBadException;
+import org.rumbledb.exceptions.RumbleException;
+import org.rumbledb.expressions.module.MainModule;
+import org.rumbledb.expressions.module.VariableDeclaration;
+import org.rumbledb.runtime.RuntimeIterator;
+
+/**
+ * A compiled main module, i.e., the expression tree after all static passes (including execution mode assignment)
+ * together with its runtime iterator tree.
+ *
+ * Runtime iterators are stateful, so a plan never hands out the same iterator tree twice. Instead, the tree is
+ * serialized once at compile time and every execution gets its own deserialized copy, in the same way function
+ * bodies are copied with RuntimeIterator.deepCopy(). Each execution also gets a fresh dynamic context.
+ *
+ * If the iterator tree cannot be serialized, the plan is single-use and is not reusable.
+ *
+ * Some inputs are read locally or with Spark depending on their size at compile time. A plan is thus only up to date
+ * as long as these inputs stay on the same side of the threshold.
+ */
+public class QueryPlan {
+
+    private final MainModule mainModule;
+    private final byte[] serializedIterator;
+    private RuntimeIterator singleUseIterator;
+
+    private QueryPlan(MainModule mainModule, RuntimeIterator iterator, boolean reusable) {
+        this.mainModule = mainModule;
+        this.serializedIterator = reusable ? serialize(iterator) : null;
+        this.singleUseIterator = this.serializedIterator == null ? iterator : null;
+    }
+
+    /**
+     * Parses, analyzes and compiles a main module into a plan that can be executed several times.
+     *
+     * @param query the content of the JSONiq or XQuery main module.
+     * @param location the static base URI of the module.
+     * @param configuration the configuration to compile with.
+     * @return the compiled plan.
+     */
+    public static QueryPlan compile(String query, URI location, RumbleRuntimeConfiguration configuration) {
+        return compile(query, location, configuration, true);
+    }
+
+    /**
+     * Parses, analyzes and compiles a main module into a plan that will be executed exactly once.
+     *
+     * @param query the content of the JSONiq or XQuery main module.
+     * @param location the static base URI of the module.
+     * @param configuration the configuration to compile with.
+     * @return the compiled plan.
+     */
+    public static QueryPlan compileForSingleUse(
+            String query,
+            URI location,
+            RumbleRuntimeConfiguration configuration
+    ) {
+        return compile(query, location, configuration, false);
+    }
+
+    private static QueryPlan compile(
+            String query,
+            URI location,
+            RumbleRuntimeConfiguration configuration,
+            boolean reusable
+    ) {
+        MainModule mainModule = VisitorHelpers.parseMainModule(query, location, configuration);
+        RuntimeIterator iterator = VisitorHelpers.generateRuntimeIterator(mainModule, configuration);
+        return new QueryPlan(mainModule, iterator, reusable);
+    }
+
+    public MainModule getMainModule() {
+        return this.mainModule;
+    }
+
+    /**
+     * Checks whether this plan can be executed more than once (and hence cached).
+     *
+     * @return true if new runtime iterators can be created for each execution.
+     */
+    public boolean isReusable() {
+        return this.serializedIterator != null;
+    }
+
+    /**
+     * Creates a fresh dynamic context for an execution of this plan.
+     *
+     * @param configuration the configuration of the execution.
+     * @return the new dynamic context.
+     */
+    public DynamicContext createDynamicContext(RumbleRuntimeConfiguration configuration) {
+        return VisitorHelpers.createDynamicContext(this.mainModule, configuration);
+    }
+
+    /**
+     * Creates a fresh dynamic context for an execution of this plan, with values for external variables that take
+     * precedence over those of the configuration.
+     *
+     * @param configuration the configuration of the execution.
+     * @param externalVariableValues the values of external variables for this execution.
+     * @return the new dynamic context.
+     */
+    public DynamicContext createDynamicContext(
+            RumbleRuntimeConfiguration configuration,
+            Map<Name, List<Item>> externalVariableValues
+    ) {
+        return VisitorHelpers.createDynamicContext(this.mainModule, configuration, externalVariableValues);
+    }
+
+    /**
+     * Returns the names of the external variables declared in the prolog of the main module.
+     *
+     * @return the names of the external variables.
+     */
+    public Set<Name> getExternalVariableNames() {
+        Set<Name> result = new HashSet<>();
+        for (VariableDeclaration declaration : this.mainModule.getProlog().getVariableDeclarations()) {
+            if (declaration.external()) {
+                result.add(declaration.getVariableName());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns a runtime iterator tree for an execution of this plan. The tree is not shared with any other execution.
+     *
+     * @return the root runtime iterator.
+     */
+    public RuntimeIterator createRuntimeIterator() {
+        if (this.serializedIterator == null) {
+            return takeSingleUseIterator();
+        }
+        try {
+            ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(this.serializedIterator));
+            return (RuntimeIterator) ois.readObject();
+        } catch (IOException | ClassNotFoundException e) {
+            RumbleException rumbleException = new OurBadException(
+                    "Error while copying the runtime iterator tree of a query plan."
+            );
+            rumbleException.initCause(e);
+            throw rumbleException;
+        }
+    }
+
+    private synchronized RuntimeIterator takeSingleUseIterator() {
+        if (this.singleUseIterator == null) {
+            throw new OurBadException("This query plan is not reusable and was already executed.");
+        }
+        RuntimeIterator result = this.singleUseIterator;
+        this.singleUseIterator = null;
+        return result;
+    }
+
+    private static byte[] serialize(RuntimeIterator iterator) {
+        try {
+            ByteArrayOutputStream bos = new ByteArrayOutputStream();
+            ObjectOutputStream oos = new ObjectOutputStream(bos);
+            oos.writeObject(iterator);
+            oos.flush();
+            return bos.toByteArray();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+}
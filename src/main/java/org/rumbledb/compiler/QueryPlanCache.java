@@ -0,0 +1,247 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Authors: Stefan Irimescu, Can Berker Cikis
+ *
+ */
+
+package org.rumbledb.compiler;
+
+import java.net.URI;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.rumbledb.config.RumbleRuntimeConfiguration;
+import org.rumbledb.exceptions.ExceptionMetadata;
+import org.rumbledb.expressions.ExecutionMode;
+
+/**
+ * A bounded, least-recently-used cache of compiled query plans, shared by all Rumble instances of the JVM.
+ *
+ * Plans are keyed by the query text, the static base URI and the configuration options that influence compilation
+ * (see RumbleRuntimeConfiguration.getQueryPlanCacheKey()). Queries compiled with debugging output (iterator tree or
+ * inferred types) are never cached, so that the output is printed on every call. A cached plan is compiled again if
+ * one of the inputs it reads locally, or with Spark, because of its size, now falls on the other side of the
+ * threshold.
+ */
+public class QueryPlanCache {
+
+    public static final int DEFAULT_MAXIMUM_SIZE = 100;
+
+    private static QueryPlanCache instance;
+
+    private final LinkedHashMap<Key, QueryPlan> plans;
+    private volatile int maximumSize;
+    private final AtomicLong hitCount;
+    private final AtomicLong missCount;
+    private final AtomicLong evictionCount;
+
+    private QueryPlanCache(int maximumSize) {
+        this.plans = new LinkedHashMap<>(16, 0.75f, true);
+        this.maximumSize = maximumSize;
+        this.hitCount = new AtomicLong();
+        this.missCount = new AtomicLong();
+        this.evictionCount = new AtomicLong();
+    }
+
+    public static synchronized QueryPlanCache getInstance() {
+        if (instance == null) {
+            instance = new QueryPlanCache(DEFAULT_MAXIMUM_SIZE);
+        }
+        return instance;
+    }
+
+    /**
+     * Returns the plan for a query, compiling it only if it is not in the cache yet.
+     *
+     * @param query the content of the JSONiq or XQuery main module.
+     * @param location the static base URI of the module.
+     * @param configuration the configuration of the query.
+     * @return a plan ready to be executed with a fresh dynamic context.
+     */
+    public QueryPlan getOrCompile(String query, URI location, RumbleRuntimeConfiguration configuration) {
+        if (!isCacheable(configuration)) {
+            return QueryPlan.compileForSingleUse(query, location, configuration);
+        }
+        Key key = new Key(query, location, configuration.getQueryPlanCacheKey());
+        QueryPlan plan;
+        synchronized (this) {
+            plan = this.plans.get(key);
+        }
+        // Inputs are measured outside of the lock, as listing files may be slow.
+        if (plan != null && isUpToDate(plan, configuration)) {
+            this.hitCount.incrementAndGet();
+            return plan;
+        }
+        this.missCount.incrementAndGet();
+        // Compilation happens outside of the lock so that other queries are not blocked.
+        plan = QueryPlan.compile(query, location, configuration);
+        if (plan.isReusable()) {
+            synchronized (this) {
+                this.plans.put(key, plan);
+                evictIfNeeded();
+            }
+        }
+        return plan;
+    }
+
+    /**
+     * Checks whether the inputs measured when the plan was compiled would still be read in the same execution modes.
+     * Files may grow past the threshold or shrink below it between two executions of a cached plan.
+     */
+    private static boolean isUpToDate(QueryPlan plan, RumbleRuntimeConfiguration configuration) {
+        for (Map.Entry<URI, ExecutionMode> input : plan.getMainModule().getMeasuredInputs().entrySet()) {
+            ExecutionMode mode = InputSizeVisitor.getInputSizeExecutionMode(
+                input.getKey(),
+                configuration,
+                ExceptionMetadata.EMPTY_METADATA
+            );
+            if (mode != input.getValue()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean isCacheable(RumbleRuntimeConfiguration configuration) {
+        return this.maximumSize > 0
+            && !configuration.isPrintIteratorTree()
+            && !configuration.printInferredTypes();
+    }
+
+    private void evictIfNeeded() {
+        Iterator<Map.Entry<Key, QueryPlan>> iterator = this.plans.entrySet().iterator();
+        while (this.plans.size() > this.maximumSize && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+            this.evictionCount.incrementAndGet();
+        }
+    }
+
+    /**
+     * Removes all cached plans for the given query text, whatever their base URI and configuration.
+     *
+     * @param query the query text.
+     * @return the number of plans removed.
+     */
+    public synchronized int invalidate(String query) {
+        int removed = 0;
+        Iterator<Key> iterator = this.plans.keySet().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().query.equals(query)) {
+                iterator.remove();
+                ++removed;
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Removes all cached plans.
+     *
+     * @return the number of plans removed.
+     */
+    public synchronized int invalidateAll() {
+        int removed = this.plans.size();
+        this.plans.clear();
+        return removed;
+    }
+
+    public synchronized int getMaximumSize() {
+        return this.maximumSize;
+    }
+
+    /**
+     * Sets the maximum number of cached plans. Least recently used plans are evicted if needed. 0 disables caching.
+     *
+     * @param maximumSize the maximum number of plans.
+     */
+    public synchronized void setMaximumSize(int maximumSize) {
+        this.maximumSize = Math.max(0, maximumSize);
+        evictIfNeeded();
+    }
+
+    public synchronized int size() {
+        return this.plans.size();
+    }
+
+    public long getHitCount() {
+        return this.hitCount.get();
+    }
+
+    public long getMissCount() {
+        return this.missCount.get();
+    }
+
+    public long getEvictionCount() {
+        return this.evictionCount.get();
+    }
+
+    /**
+     * Resets the hit, miss and eviction counters.
+     */
+    public void resetStatistics() {
+        this.hitCount.set(0);
+        this.missCount.set(0);
+        this.evictionCount.set(0);
+    }
+
+    @Override
+    public String toString() {
+        return "Query plan cache: "
+            + size()
+            + "/"
+            + getMaximumSize()
+            + " plans, "
+            + getHitCount()
+            + " hits, "
+            + getMissCount()
+            + " misses, "
+            + getEvictionCount()
+            + " evictions";
+    }
+
+    private static final class Key {
+        private final String query;
+        private final URI location;
+        private final String configuration;
+
+        private Key(String query, URI location, String configuration) {
+            this.query = query;
+            this.location = location;
+            this.configuration = configuration;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Key)) {
+                return false;
+            }
+            Key otherKey = (Key) other;
+            return this.query.equals(otherKey.query)
+                && Objects.equals(this.location, otherKey.location)
+                && this.configuration.equals(otherKey.configuration);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(this.query, this.location, this.configuration);
+        }
+    }
+}
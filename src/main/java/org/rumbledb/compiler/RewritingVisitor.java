@@ -0,0 +1,122 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Authors: Stefan Irimescu, Can Berker Cikis
+ *
+ */
+
+package org.rumbledb.compiler;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.rumbledb.compiler.rewriting.CommonSubexpressionRule;
+import org.rumbledb.compiler.rewriting.DeadLetEliminationRule;
+import org.rumbledb.compiler.rewriting.DecorrelationRule;
+import org.rumbledb.compiler.rewriting.FlworRewriteRule;
+import org.rumbledb.compiler.rewriting.LetHoistingRule;
+import org.rumbledb.compiler.rewriting.WherePushdownRule;
+import org.rumbledb.compiler.rewriting.WhereSplittingRule;
+import org.rumbledb.config.RumbleRuntimeConfiguration;
+import org.rumbledb.expressions.AbstractNodeVisitor;
+import org.rumbledb.expressions.flowr.Clause;
+import org.rumbledb.expressions.flowr.FlworExpression;
+import org.rumbledb.expressions.module.Module;
+
+/**
+ * This visitor rewrites the expression tree right after its translation, before the variable dependencies and the
+ * static context are computed, so that the rewritten tree is analyzed as if the user had written it.
+ *
+ * The rules are applied in phases, each of which goes through the whole tree. Within a phase, the rules are applied in
+ * order to each FLWOR expression, after its nested FLWOR expressions, until none applies. Conjunctive where clauses
+ * are split first, so that their conjuncts can be moved separately, then unused let clauses are removed, and nested
+ * FLWOR expressions that are correlated with an equality are turned into let clauses that can be evaluated as joins.
+ * Paths shared by several clauses are bound to let clauses in a second phase, so that the where clauses they are in
+ * have been moved and nested FLWOR expressions have been decorrelated. Each rule only moves clauses up or removes
+ * them, or lowers the number of where clauses or navigation steps, so that this terminates.
+ */
+public class RewritingVisitor extends AbstractNodeVisitor<Void> {
+
+    @SuppressWarnings("unused")
+    private RumbleRuntimeConfiguration rumbleRuntimeConfiguration;
+    private final List<List<FlworRewriteRule>> phases;
+    private List<FlworRewriteRule> flworRules;
+    private final Map<String, Integer> applications;
+
+    /**
+     * Builds a new visitor.
+     *
+     * @param rumbleRuntimeConfiguration the configuration.
+     */
+    RewritingVisitor(RumbleRuntimeConfiguration rumbleRuntimeConfiguration) {
+        this.rumbleRuntimeConfiguration = rumbleRuntimeConfiguration;
+        this.phases = Arrays.asList(
+            Arrays.asList(
+                new WhereSplittingRule(),
+                new LetHoistingRule(),
+                new WherePushdownRule(),
+                new DeadLetEliminationRule(),
+                new DecorrelationRule()
+            ),
+            Arrays.asList(new CommonSubexpressionRule())
+        );
+        this.applications = new LinkedHashMap<>();
+    }
+
+    /**
+     * Rewrites a module, going through it once per phase.
+     *
+     * @param module the module to rewrite.
+     */
+    public void rewrite(Module module) {
+        for (List<FlworRewriteRule> phase : this.phases) {
+            this.flworRules = phase;
+            this.visit(module, null);
+        }
+    }
+
+    /**
+     * Returns how many times each rule applied, for --print-optimized-plan.
+     *
+     * @return the number of applications, by rule name.
+     */
+    public Map<String, Integer> getApplications() {
+        return this.applications;
+    }
+
+    @Override
+    public Void visitFlowrExpression(FlworExpression expression, Void argument) {
+        Clause clause = expression.getReturnClause().getFirstClause();
+        for (; clause != null; clause = clause.getNextClause()) {
+            this.visit(clause, argument);
+        }
+        // Rules enable each other, e.g., a let clause moved out of a loop lets the where clauses on it follow.
+        boolean changed;
+        do {
+            changed = false;
+            for (FlworRewriteRule rule : this.flworRules) {
+                int count = rule.rewrite(expression);
+                if (count > 0) {
+                    this.applications.merge(rule.getName(), count, Integer::sum);
+                    changed = true;
+                }
+            }
+        } while (changed);
+        return argument;
+    }
+}
@@ -20,20 +20,24 @@
 
 package org.rumbledb.compiler;
 
+import org.rumbledb.api.Item;
 import org.rumbledb.config.RumbleRuntimeConfiguration;
 import org.rumbledb.context.BuiltinFunctionCatalogue;
+import org.rumbledb.context.DynamicContext;
 import org.rumbledb.context.FunctionIdentifier;
 import org.rumbledb.context.Name;
 import org.rumbledb.context.NamedFunctions;
 import org.rumbledb.errorcodes.ErrorCode;
 import org.rumbledb.exceptions.ExceptionMetadata;
 import org.rumbledb.exceptions.OurBadException;
+import org.rumbledb.exceptions.RumbleException;
 import org.rumbledb.exceptions.UnsupportedFeatureException;
 import org.rumbledb.expressions.flowr.SimpleMapExpression;
 import org.rumbledb.expressions.typing.CastExpression;
 import org.rumbledb.expressions.typing.CastableExpression;
 import org.rumbledb.expressions.AbstractNodeVisitor;
 import org.rumbledb.expressions.CommaExpression;
+import org.rumbledb.expressions.ExecutionMode;
 import org.rumbledb.expressions.Expression;
 import org.rumbledb.expressions.Node;
 import org.rumbledb.expressions.arithmetic.AdditiveExpression;
@@ -87,9 +91,14 @@ import org.rumbledb.expressions.primary.StringLiteralExpression;
 import org.rumbledb.expressions.primary.VariableReferenceExpression;
 import org.rumbledb.runtime.AtMostOneItemLocalRuntimeIterator;
 import org.rumbledb.runtime.CommaExpressionIterator;
+import org.rumbledb.runtime.ConstantRuntimeIterator;
 import org.rumbledb.runtime.RuntimeIterator;
 import org.rumbledb.runtime.RuntimeTupleIterator;
 import org.rumbledb.runtime.arithmetics.AdditiveOperationIterator;
+import org.rumbledb.runtime.arithmetics.DoubleAdditiveOperationIterator;
+import org.rumbledb.runtime.arithmetics.DoubleMultiplicativeOperationIterator;
+import org.rumbledb.runtime.arithmetics.IntAdditiveOperationIterator;
+import org.rumbledb.runtime.arithmetics.IntMultiplicativeOperationIterator;
 import org.rumbledb.runtime.arithmetics.MultiplicativeOperationIterator;
 import org.rumbledb.runtime.arithmetics.UnaryOperationIterator;
 import org.rumbledb.runtime.control.AtMostOneItemIfRuntimeIterator;
@@ -112,10 +121,15 @@ import org.rumbledb.runtime.functions.DynamicFunctionCallIterator;
 import org.rumbledb.runtime.functions.FunctionRuntimeIterator;
 import org.rumbledb.runtime.functions.NamedFunctionRefRuntimeIterator;
 import org.rumbledb.runtime.functions.StaticUserDefinedFunctionCallIterator;
+import org.rumbledb.runtime.functions.input.JsonFileFunctionIterator;
+import org.rumbledb.runtime.functions.input.UnparsedTextLinesFunctionIterator;
+import org.rumbledb.runtime.functions.io.LocalTextFileFunctionIterator;
 import org.rumbledb.runtime.logics.AndOperationIterator;
 import org.rumbledb.runtime.logics.NotOperationIterator;
 import org.rumbledb.runtime.logics.OrOperationIterator;
 import org.rumbledb.runtime.misc.ComparisonIterator;
+import org.rumbledb.runtime.misc.DoubleComparisonIterator;
+import org.rumbledb.runtime.misc.IntComparisonIterator;
 import org.rumbledb.runtime.misc.RangeOperationIterator;
 import org.rumbledb.runtime.misc.StringConcatIterator;
 import org.rumbledb.runtime.navigation.ArrayLookupIterator;
@@ -139,6 +153,7 @@ import org.rumbledb.runtime.primary.ObjectConstructorRuntimeIterator;
 import org.rumbledb.runtime.primary.StringRuntimeIterator;
 import org.rumbledb.runtime.primary.VariableReferenceIterator;
 import org.rumbledb.types.BuiltinTypesCatalogue;
+import org.rumbledb.types.ItemType;
 import org.rumbledb.types.SequenceType;
 
 import java.util.ArrayList;
@@ -159,7 +174,74 @@ public class RuntimeIteratorVisitor extends AbstractNodeVisitor<RuntimeIterator>
 
     @Override
     public RuntimeIterator visit(Node node, RuntimeIterator argument) {
-        return node.accept(this, argument);
+        RuntimeIterator result = node.accept(this, argument);
+        if (node instanceof Expression && isFoldable((Expression) node)) {
+            RuntimeIterator folded = foldConstant((Expression) node, result);
+            if (folded != null) {
+                return folded;
+            }
+            // An iterator whose evaluation failed may not be reusable, so it is built again. The expression is no
+            // longer considered constant, so that neither it nor the expressions containing it are evaluated again.
+            ((Expression) node).setConstant(false);
+            return node.accept(this, argument);
+        }
+        return result;
+    }
+
+    private boolean isFoldable(Expression expression) {
+        if (
+            !expression.isConstant()
+                || ConstantFoldingVisitor.isLiteral(expression)
+                || expression.getHighestExecutionMode(this.visitorConfig) != ExecutionMode.LOCAL
+        ) {
+            return false;
+        }
+        // An operand may have failed to evaluate, in which case this expression fails as well.
+        for (Node child : expression.getChildren()) {
+            if (child instanceof Expression && !((Expression) child).isConstant()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Replaces the iterator of a constant expression with its value, computed once at compile time. Its operands are
+     * already folded, so that this is cheap.
+     *
+     * @return the folded iterator, the original one if the value has several items, or null if the evaluation fails.
+     */
+    private RuntimeIterator foldConstant(Expression expression, RuntimeIterator iterator) {
+        List<Item> items = evaluateConstant(iterator);
+        if (items == null) {
+            return null;
+        }
+        if (items.size() > 1) {
+            return iterator;
+        }
+        RuntimeIterator runtimeIterator = new ConstantRuntimeIterator(
+                items.isEmpty() ? null : items.get(0),
+                ExecutionMode.LOCAL,
+                expression.getMetadata()
+        );
+        runtimeIterator.setStaticContext(expression.getStaticContext());
+        return runtimeIterator;
+    }
+
+    /**
+     * Evaluates the iterator of a constant expression at compile time, up to its second item.
+     *
+     * @return the items, or null if the evaluation fails, in which case the error is raised at runtime if the
+     *         expression is actually evaluated.
+     */
+    private List<Item> evaluateConstant(RuntimeIterator iterator) {
+        List<Item> result = new ArrayList<>();
+        try {
+            iterator.materializeNFirstItems(new DynamicContext(this.config), result, 2);
+        } catch (RumbleException e) {
+            return null;
+        }
+        return result;
     }
 
     @Override
@@ -540,6 +622,18 @@ public class RuntimeIteratorVisitor extends AbstractNodeVisitor<RuntimeIterator>
                 this.config.isCheckReturnTypeOfBuiltinFunctions(),
                 iteratorMetadata
             );
+            if (expression.getProjection() != null && runtimeIterator instanceof JsonFileFunctionIterator) {
+                ((JsonFileFunctionIterator) runtimeIterator).setProjection(expression.getProjection());
+            }
+            if (expression.getPartitionFilters() != null && runtimeIterator instanceof JsonFileFunctionIterator) {
+                ((JsonFileFunctionIterator) runtimeIterator).setPartitionFilters(expression.getPartitionFilters());
+            }
+            if (expression.isUnordered() && runtimeIterator instanceof UnparsedTextLinesFunctionIterator) {
+                ((UnparsedTextLinesFunctionIterator) runtimeIterator).setUnordered(true);
+            }
+            if (expression.isUnordered() && runtimeIterator instanceof LocalTextFileFunctionIterator) {
+                ((LocalTextFileFunctionIterator) runtimeIterator).setUnordered(true);
+            }
         } else {
             runtimeIterator = new StaticUserDefinedFunctionCallIterator(
                     identifier,
@@ -655,13 +749,32 @@ public class RuntimeIteratorVisitor extends AbstractNodeVisitor<RuntimeIterator>
             argument
         );
 
-        RuntimeIterator runtimeIterator = new AdditiveOperationIterator(
-                left,
-                right,
-                expression.isMinus(),
-                expression.getHighestExecutionMode(this.visitorConfig),
-                expression.getMetadata()
-        );
+        RuntimeIterator runtimeIterator;
+        if (haveStaticItemType(leftExpression, rightExpression, BuiltinTypesCatalogue.doubleItem)) {
+            runtimeIterator = new DoubleAdditiveOperationIterator(
+                    left,
+                    right,
+                    expression.isMinus(),
+                    expression.getHighestExecutionMode(this.visitorConfig),
+                    expression.getMetadata()
+            );
+        } else if (haveStaticIntegerType(leftExpression, rightExpression)) {
+            runtimeIterator = new IntAdditiveOperationIterator(
+                    left,
+                    right,
+                    expression.isMinus(),
+                    expression.getHighestExecutionMode(this.visitorConfig),
+                    expression.getMetadata()
+            );
+        } else {
+            runtimeIterator = new AdditiveOperationIterator(
+                    left,
+                    right,
+                    expression.isMinus(),
+                    expression.getHighestExecutionMode(this.visitorConfig),
+                    expression.getMetadata()
+            );
+        }
         runtimeIterator.setStaticContext(expression.getStaticContext());
         return runtimeIterator;
     }
@@ -679,13 +792,32 @@ public class RuntimeIteratorVisitor extends AbstractNodeVisitor<RuntimeIterator>
             argument
         );
 
-        RuntimeIterator runtimeIterator = new MultiplicativeOperationIterator(
-                left,
-                right,
-                expression.getMultiplicativeOperator(),
-                expression.getHighestExecutionMode(this.visitorConfig),
-                expression.getMetadata()
-        );
+        RuntimeIterator runtimeIterator;
+        if (haveStaticItemType(leftExpression, rightExpression, BuiltinTypesCatalogue.doubleItem)) {
+            runtimeIterator = new DoubleMultiplicativeOperationIterator(
+                    left,
+                    right,
+                    expression.getMultiplicativeOperator(),
+                    expression.getHighestExecutionMode(this.visitorConfig),
+                    expression.getMetadata()
+            );
+        } else if (haveStaticIntegerType(leftExpression, rightExpression)) {
+            runtimeIterator = new IntMultiplicativeOperationIterator(
+                    left,
+                    right,
+                    expression.getMultiplicativeOperator(),
+                    expression.getHighestExecutionMode(this.visitorConfig),
+                    expression.getMetadata()
+            );
+        } else {
+            runtimeIterator = new MultiplicativeOperationIterator(
+                    left,
+                    right,
+                    expression.getMultiplicativeOperator(),
+                    expression.getHighestExecutionMode(this.visitorConfig),
+                    expression.getMetadata()
+            );
+        }
         runtimeIterator.setStaticContext(expression.getStaticContext());
         return runtimeIterator;
     }
@@ -799,19 +931,63 @@ public class RuntimeIteratorVisitor extends AbstractNodeVisitor<RuntimeIterator>
 
     @Override
     public RuntimeIterator visitComparisonExpr(ComparisonExpression expression, RuntimeIterator argument) {
-        RuntimeIterator left = this.visit(expression.getChildren().get(0), argument);
-        RuntimeIterator right = this.visit(expression.getChildren().get(1), argument);
-        RuntimeIterator runtimeIterator = new ComparisonIterator(
-                left,
-                right,
-                expression.getComparisonOperator(),
-                expression.getHighestExecutionMode(this.visitorConfig),
-                expression.getMetadata()
-        );
+        Expression leftExpression = (Expression) expression.getChildren().get(0);
+        Expression rightExpression = (Expression) expression.getChildren().get(1);
+        RuntimeIterator left = this.visit(leftExpression, argument);
+        RuntimeIterator right = this.visit(rightExpression, argument);
+        RuntimeIterator runtimeIterator;
+        if (haveStaticItemType(leftExpression, rightExpression, BuiltinTypesCatalogue.doubleItem)) {
+            runtimeIterator = new DoubleComparisonIterator(
+                    left,
+                    right,
+                    expression.getComparisonOperator(),
+                    expression.getHighestExecutionMode(this.visitorConfig),
+                    expression.getMetadata()
+            );
+        } else if (haveStaticIntegerType(leftExpression, rightExpression)) {
+            runtimeIterator = new IntComparisonIterator(
+                    left,
+                    right,
+                    expression.getComparisonOperator(),
+                    expression.getHighestExecutionMode(this.visitorConfig),
+                    expression.getMetadata()
+            );
+        } else {
+            runtimeIterator = new ComparisonIterator(
+                    left,
+                    right,
+                    expression.getComparisonOperator(),
+                    expression.getHighestExecutionMode(this.visitorConfig),
+                    expression.getMetadata()
+            );
+        }
         runtimeIterator.setStaticContext(expression.getStaticContext());
         return runtimeIterator;
     }
 
+    /**
+     * Tells whether both operands are statically known to only return items of the given type, in which case an
+     * iterator specialized for this type can be used. The specialized iterators still check the dynamic types, and
+     * fall back to the general case, e.g., for empty sequences.
+     */
+    private static boolean haveStaticItemType(Expression left, Expression right, ItemType itemType) {
+        return hasStaticItemType(left, itemType) && hasStaticItemType(right, itemType);
+    }
+
+    private static boolean haveStaticIntegerType(Expression left, Expression right) {
+        return (hasStaticItemType(left, BuiltinTypesCatalogue.intItem)
+            || hasStaticItemType(left, BuiltinTypesCatalogue.integerItem))
+            && (hasStaticItemType(right, BuiltinTypesCatalogue.intItem)
+                || hasStaticItemType(right, BuiltinTypesCatalogue.integerItem));
+    }
+
+    private static boolean hasStaticItemType(Expression expression, ItemType itemType) {
+        SequenceType sequenceType = expression.getStaticSequenceType();
+        return sequenceType != null
+            && !sequenceType.isEmptySequence()
+            && sequenceType.getItemType().equals(itemType);
+    }
+
     @Override
     public RuntimeIterator visitStringConcatExpr(StringConcatExpression expression, RuntimeIterator argument) {
         RuntimeIterator left = this.visit(expression.getChildren().get(0), argument);
@@ -905,6 +1081,20 @@ public class RuntimeIteratorVisitor extends AbstractNodeVisitor<RuntimeIterator>
     @Override
     public RuntimeIterator visitConditionalExpression(ConditionalExpression expression, RuntimeIterator argument) {
         RuntimeIterator conditionIterator = this.visit(expression.getCondition(), argument);
+        if (expression.getCondition().isConstant()) {
+            Expression branch = null;
+            try {
+                branch = conditionIterator.getEffectiveBooleanValue(new DynamicContext(this.config))
+                    ? expression.getBranch()
+                    : expression.getElseBranch();
+            } catch (RumbleException e) {
+                // The error is raised at runtime, if the expression is evaluated.
+                conditionIterator = this.visit(expression.getCondition(), argument);
+            }
+            if (isFoldableBranch(expression, branch)) {
+                return this.visit(branch, argument);
+            }
+        }
         RuntimeIterator thenIterator = this.visit(expression.getBranch(), argument);
         RuntimeIterator elseIterator = this.visit(expression.getElseBranch(), argument);
         RuntimeIterator runtimeIterator = null;
@@ -933,8 +1123,111 @@ public class RuntimeIteratorVisitor extends AbstractNodeVisitor<RuntimeIterator>
         return runtimeIterator;
     }
 
+    /**
+     * Tells whether a conditional expression can be replaced with its branch, which is only the case if they are
+     * executed in the same way, since the execution mode of the parent depends on it.
+     */
+    private boolean isFoldableBranch(Expression expression, Expression branch) {
+        return branch != null
+            && branch.getHighestExecutionMode(this.visitorConfig) == expression.getHighestExecutionMode(
+                this.visitorConfig
+            );
+    }
+
+    /**
+     * Returns a constant iterator returning the index of a branch, used to evaluate which branch of a switch or
+     * typeswitch expression is taken without evaluating the branch itself.
+     */
+    private static RuntimeIterator getBranchIndexIterator(int index, Expression branch) {
+        return new ConstantRuntimeIterator(
+                ItemFactory.getInstance().createIntItem(index),
+                ExecutionMode.LOCAL,
+                branch.getMetadata()
+        );
+    }
+
+    /**
+     * Returns the index of the branch taken by a switch or typeswitch iterator whose branches were replaced with
+     * their indices, or -1 if it cannot be evaluated at compile time.
+     */
+    private int evaluateBranchIndex(RuntimeIterator selector, Expression expression) {
+        selector.setStaticContext(expression.getStaticContext());
+        List<Item> index = evaluateConstant(selector);
+        if (index == null || index.size() != 1) {
+            return -1;
+        }
+        return index.get(0).getIntValue();
+    }
+
+    private Expression getConstantSwitchBranch(SwitchExpression expression, RuntimeIterator argument) {
+        if (!expression.getTestCondition().isConstant()) {
+            return null;
+        }
+        List<Expression> branches = new ArrayList<>();
+        Map<RuntimeIterator, RuntimeIterator> cases = new LinkedHashMap<>();
+        for (SwitchCase caseExpression : expression.getCases()) {
+            RuntimeIterator branchIndex = getBranchIndexIterator(branches.size(), caseExpression.getReturnExpression());
+            branches.add(caseExpression.getReturnExpression());
+            for (Expression conditionExpr : caseExpression.getConditionExpressions()) {
+                if (!conditionExpr.isConstant()) {
+                    return null;
+                }
+                cases.put(this.visit(conditionExpr, argument), branchIndex);
+            }
+        }
+        branches.add(expression.getDefaultExpression());
+        RuntimeIterator selector = new SwitchRuntimeIterator(
+                this.visit(expression.getTestCondition(), argument),
+                cases,
+                getBranchIndexIterator(branches.size() - 1, expression.getDefaultExpression()),
+                ExecutionMode.LOCAL,
+                expression.getMetadata()
+        );
+        int index = evaluateBranchIndex(selector, expression);
+        return index == -1 ? null : branches.get(index);
+    }
+
+    private Expression getConstantTypeSwitchBranch(TypeSwitchExpression expression, RuntimeIterator argument) {
+        if (!expression.getTestCondition().isConstant()) {
+            return null;
+        }
+        List<TypeswitchCase> branches = new ArrayList<>();
+        List<TypeswitchRuntimeIteratorCase> cases = new ArrayList<>();
+        for (TypeswitchCase caseExpression : expression.getCases()) {
+            cases.add(
+                new TypeswitchRuntimeIteratorCase(
+                        null,
+                        caseExpression.getUnion(),
+                        getBranchIndexIterator(branches.size(), caseExpression.getReturnExpression())
+                )
+            );
+            branches.add(caseExpression);
+        }
+        branches.add(expression.getDefaultCase());
+        RuntimeIterator selector = new TypeswitchRuntimeIterator(
+                this.visit(expression.getTestCondition(), argument),
+                cases,
+                new TypeswitchRuntimeIteratorCase(
+                        null,
+                        getBranchIndexIterator(branches.size() - 1, expression.getDefaultCase().getReturnExpression())
+                ),
+                ExecutionMode.LOCAL,
+                expression.getMetadata()
+        );
+        int index = evaluateBranchIndex(selector, expression);
+        // A branch binding the value to a variable cannot be taken alone.
+        if (index == -1 || branches.get(index).getVariableName() != null) {
+            return null;
+        }
+        return branches.get(index).getReturnExpression();
+    }
+
     @Override
     public RuntimeIterator visitSwitchExpression(SwitchExpression expression, RuntimeIterator argument) {
+        Expression constantBranch = getConstantSwitchBranch(expression, argument);
+        if (isFoldableBranch(expression, constantBranch)) {
+            return this.visit(constantBranch, argument);
+        }
         Map<RuntimeIterator, RuntimeIterator> cases = new LinkedHashMap<>();
         for (SwitchCase caseExpression : expression.getCases()) {
             RuntimeIterator caseExpr = this.visit(caseExpression.getReturnExpression(), argument);
@@ -957,6 +1250,10 @@ public class RuntimeIteratorVisitor extends AbstractNodeVisitor<RuntimeIterator>
 
     @Override
     public RuntimeIterator visitTypeSwitchExpression(TypeSwitchExpression expression, RuntimeIterator argument) {
+        Expression constantBranch = getConstantTypeSwitchBranch(expression, argument);
+        if (isFoldableBranch(expression, constantBranch)) {
+            return this.visit(constantBranch, argument);
+        }
         List<TypeswitchRuntimeIteratorCase> cases = new ArrayList<>();
         for (TypeswitchCase caseExpression : expression.getCases()) {
             cases.add(
@@ -0,0 +1,106 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Authors: Stefan Irimescu, Can Berker Cikis
+ *
+ */
+
+package org.rumbledb.compiler;
+
+import org.rumbledb.expressions.AbstractNodeVisitor;
+import org.rumbledb.expressions.Expression;
+import org.rumbledb.expressions.flowr.Clause;
+import org.rumbledb.expressions.flowr.CountClause;
+import org.rumbledb.expressions.flowr.FlworExpression;
+import org.rumbledb.expressions.flowr.ForClause;
+import org.rumbledb.expressions.flowr.GroupByClause;
+import org.rumbledb.expressions.flowr.OrderByClause;
+import org.rumbledb.expressions.primary.FunctionCallExpression;
+import org.rumbledb.runtime.functions.input.UnparsedTextLinesFunctionIterator;
+import org.rumbledb.runtime.functions.io.LocalTextFileFunctionIterator;
+import org.rumbledb.runtime.functions.sequences.aggregate.CountFunctionIterator;
+import org.rumbledb.runtime.functions.sequences.aggregate.MaxFunctionIterator;
+import org.rumbledb.runtime.functions.sequences.aggregate.MinFunctionIterator;
+import org.rumbledb.runtime.functions.sequences.general.EmptyFunctionIterator;
+import org.rumbledb.runtime.functions.sequences.general.ExistsFunctionIterator;
+import org.rumbledb.runtime.functions.sequences.general.UnorderedFunctionIterator;
+
+/**
+ * This visitor marks calls reading lines from files as unordered if their result is passed to unordered() or to an
+ * aggregate that does not depend on the order, directly or through the for clauses and return clause of a FLWOR
+ * expression in which the order of the tuples is not observable. The lines of these calls are then read in parallel
+ * and returned in any order.
+ */
+public class UnorderedInputVisitor extends AbstractNodeVisitor<Void> {
+
+    @Override
+    public Void visitFlowrExpression(FlworExpression expression, Void argument) {
+        Clause clause = expression.getReturnClause().getFirstClause();
+        for (; clause != null; clause = clause.getNextClause()) {
+            this.visit(clause, argument);
+        }
+        return argument;
+    }
+
+    @Override
+    public Void visitFunctionCall(FunctionCallExpression expression, Void argument) {
+        if (
+            !expression.getArguments().isEmpty()
+                && (ProjectionVisitor.isBuiltinFunctionCall(expression, UnorderedFunctionIterator.class)
+                    || ProjectionVisitor.isBuiltinFunctionCall(expression, CountFunctionIterator.class)
+                    || ProjectionVisitor.isBuiltinFunctionCall(expression, MinFunctionIterator.class)
+                    || ProjectionVisitor.isBuiltinFunctionCall(expression, MaxFunctionIterator.class)
+                    || ProjectionVisitor.isBuiltinFunctionCall(expression, EmptyFunctionIterator.class)
+                    || ProjectionVisitor.isBuiltinFunctionCall(expression, ExistsFunctionIterator.class))
+        ) {
+            markUnordered(expression.getArguments().get(0));
+        }
+        return defaultAction(expression, argument);
+    }
+
+    /**
+     * Marks the calls reading lines whose order is not observable in the result of an expression, the order of
+     * which does not matter.
+     */
+    private static void markUnordered(Expression expression) {
+        if (
+            ProjectionVisitor.isBuiltinFunctionCall(expression, UnparsedTextLinesFunctionIterator.class)
+                || ProjectionVisitor.isBuiltinFunctionCall(expression, LocalTextFileFunctionIterator.class)
+        ) {
+            ((FunctionCallExpression) expression).setUnordered(true);
+            return;
+        }
+        if (!(expression instanceof FlworExpression)) {
+            return;
+        }
+        FlworExpression flwor = (FlworExpression) expression;
+        for (Clause c = flwor.getReturnClause().getFirstClause(); c != null; c = c.getNextClause()) {
+            // The order of the tuples is visible to these clauses.
+            if (c instanceof OrderByClause || c instanceof GroupByClause || c instanceof CountClause) {
+                return;
+            }
+            if (c instanceof ForClause && ((ForClause) c).getPositionalVariableName() != null) {
+                return;
+            }
+        }
+        for (Clause c = flwor.getReturnClause().getFirstClause(); c != null; c = c.getNextClause()) {
+            if (c instanceof ForClause) {
+                markUnordered(((ForClause) c).getExpression());
+            }
+        }
+        markUnordered(flwor.getReturnClause().getReturnExpr());
+    }
+}
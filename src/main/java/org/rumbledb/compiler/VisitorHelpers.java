@@ -6,16 +6,25 @@ import java.net.URI;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
 
 import org.antlr.v4.runtime.BailErrorStrategy;
+import org.antlr.v4.runtime.BufferedTokenStream;
 import org.antlr.v4.runtime.CharStream;
 import org.antlr.v4.runtime.CharStreams;
 import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.Lexer;
+import org.antlr.v4.runtime.Parser;
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.atn.PredictionMode;
 import org.antlr.v4.runtime.misc.ParseCancellationException;
 import org.apache.commons.io.IOUtils;
+import org.rumbledb.api.Item;
 import org.rumbledb.config.RumbleRuntimeConfiguration;
 import org.rumbledb.context.DynamicContext;
 import org.rumbledb.context.FunctionIdentifier;
+import org.rumbledb.context.Name;
 import org.rumbledb.context.StaticContext;
 import org.rumbledb.context.UserDefinedFunctionExecutionModes;
 import org.rumbledb.exceptions.DuplicateFunctionIdentifierException;
@@ -36,6 +45,18 @@ import org.rumbledb.runtime.functions.input.FileSystemUtil;
 
 public class VisitorHelpers {
 
+    private static final String[] JSONIQ_WARM_UP_QUERIES = {
+        "declare variable $x := 1; declare function local:f($a) { $a + 1 }; local:f($x)",
+        "for $o in (1 to 10) let $k := $o mod 3 where $k eq 1 group by $k order by $k descending count $c return $c",
+        "let $o := { \"a\" : [ 1, 2 ], \"b\" : \"c\" } return ($o.a[[1]], $o.b, $o.a[], keys($o))",
+        "if (some $i in 1 to 3 satisfies $i gt 2) then \"yes\" else (1 || 2, 3 * 4 div 2, -5 instance of integer)"
+    };
+
+    private static final String[] XQUERY_WARM_UP_QUERIES = {
+        "xquery version \"3.1\"; declare variable $x := 1; for $i in 1 to $x where $i mod 2 eq 1 return $i",
+        "xquery version \"3.1\"; let $s := (\"a\", \"b\") return if (count($s) gt 1) then $s[1] else ()"
+    };
+
     public static RuntimeIterator generateRuntimeIterator(Node node, RumbleRuntimeConfiguration conf) {
         RuntimeIterator result = new RuntimeIteratorVisitor(conf).visit(node, null);
         if (conf.isPrintIteratorTree()) {
@@ -54,6 +75,48 @@ public class VisitorHelpers {
         new ModulePruningVisitor(conf).visit(node, null);
     }
 
+    private static void rewrite(Module module, RumbleRuntimeConfiguration conf) {
+        if (conf.printOptimizedPlan()) {
+            printPlan("Plan before rewriting", module);
+        }
+        RewritingVisitor visitor = new RewritingVisitor(conf);
+        visitor.rewrite(module);
+        if (conf.printOptimizedPlan()) {
+            printPlan("Plan after rewriting", module);
+            System.err.println("Applied rules: " + visitor.getApplications());
+            System.err.println();
+        }
+    }
+
+    private static void printPlan(String title, Module module) {
+        System.err.println("***************");
+        System.err.println(title);
+        System.err.println("***************");
+        System.err.println(module);
+    }
+
+    private static void inferProjections(Node node, RumbleRuntimeConfiguration conf) {
+        new ProjectionVisitor(conf).visit(node, null);
+    }
+
+    private static void inferPartitionFilters(Node node) {
+        new PartitionFilterVisitor().visit(node, null);
+    }
+
+    private static void markUnorderedInputs(Node node) {
+        new UnorderedInputVisitor().visit(node, null);
+    }
+
+    private static void markConstants(Node node, RumbleRuntimeConfiguration conf) {
+        new ConstantFoldingVisitor().visit(node, null);
+    }
+
+    private static void measureInputs(MainModule mainModule, RumbleRuntimeConfiguration conf) {
+        InputSizeVisitor visitor = new InputSizeVisitor(conf);
+        visitor.visit(mainModule, null);
+        mainModule.setMeasuredInputs(visitor.getMeasuredInputs());
+    }
+
     private static void inferTypes(Module module, RumbleRuntimeConfiguration conf) {
         new InferTypeVisitor(conf).visit(module, module.getStaticContext());
         if (conf.printInferredTypes() || conf.isPrintIteratorTree()) {
@@ -71,10 +134,19 @@ public class VisitorHelpers {
         System.err.println(node.getStaticContext());
     }
 
+    public static String readModuleFromLocation(
+            URI location,
+            RumbleRuntimeConfiguration configuration,
+            ExceptionMetadata metadata
+    )
+            throws IOException {
+        InputStream in = FileSystemUtil.getDataInputStream(location, configuration, metadata);
+        return IOUtils.toString(in, StandardCharsets.UTF_8.name());
+    }
+
     public static MainModule parseMainModuleFromLocation(URI location, RumbleRuntimeConfiguration configuration)
             throws IOException {
-        InputStream in = FileSystemUtil.getDataInputStream(location, configuration, ExceptionMetadata.EMPTY_METADATA);
-        String query = IOUtils.toString(in, StandardCharsets.UTF_8.name());
+        String query = readModuleFromLocation(location, configuration, ExceptionMetadata.EMPTY_METADATA);
         return parseMainModule(query, location, configuration);
     }
 
@@ -85,18 +157,20 @@ public class VisitorHelpers {
             ExceptionMetadata metadata
     )
             throws IOException {
-        InputStream in = FileSystemUtil.getDataInputStream(location, configuration, metadata);
-        String query = IOUtils.toString(in, StandardCharsets.UTF_8.name());
+        String query = readModuleFromLocation(location, configuration, metadata);
         return parseLibraryModule(query, location, importingModuleContext, configuration);
     }
 
     public static MainModule parseMainModuleFromQuery(String query, RumbleRuntimeConfiguration configuration) {
-        URI location = FileSystemUtil.resolveURIAgainstWorkingDirectory(
+        return parseMainModule(query, getDefaultStaticBaseURI(configuration), configuration);
+    }
+
+    public static URI getDefaultStaticBaseURI(RumbleRuntimeConfiguration configuration) {
+        return FileSystemUtil.resolveURIAgainstWorkingDirectory(
             ".",
             configuration,
             ExceptionMetadata.EMPTY_METADATA
         );
-        return parseMainModule(query, location, configuration);
     }
 
     public static MainModule parseMainModule(String query, URI uri, RumbleRuntimeConfiguration configuration) {
@@ -116,6 +190,92 @@ public class VisitorHelpers {
 
     }
 
+    /**
+     * Parses with SLL prediction first, which is faster and succeeds on almost all queries, and only parses again
+     * with full LL prediction if it fails. A syntax error is only reported if the LL parse fails too. The LL parse
+     * lexes the query again from the start, so that the lexer, whose position is used to locate syntax errors, is
+     * left exactly where a parse with LL prediction only would leave it.
+     *
+     * @param parser the parser, on a buffered token stream over a lexer.
+     * @param rule the start rule.
+     * @return the parse tree.
+     */
+    private static <P extends Parser, T extends ParserRuleContext> T parse(P parser, Function<P, T> rule) {
+        parser.setErrorHandler(new BailErrorStrategy());
+        parser.getInterpreter().setPredictionMode(PredictionMode.SLL);
+        try {
+            return rule.apply(parser);
+        } catch (ParseCancellationException e) {
+            BufferedTokenStream tokens = (BufferedTokenStream) parser.getInputStream();
+            Lexer lexer = (Lexer) tokens.getTokenSource();
+            lexer.reset();
+            tokens.setTokenSource(lexer);
+            parser.setTokenStream(tokens);
+            parser.getInterpreter().setPredictionMode(PredictionMode.LL);
+            return rule.apply(parser);
+        }
+    }
+
+    /**
+     * Parses a few typical queries in both languages, so that the DFA caches of the parsers, which are shared by all
+     * parser instances, are already filled when the first actual queries are received.
+     */
+    public static void warmUpParsers() {
+        for (String query : JSONIQ_WARM_UP_QUERIES) {
+            try {
+                parse(
+                    new JsoniqParser(new CommonTokenStream(new JsoniqLexer(CharStreams.fromString(query)))),
+                    JsoniqParser::moduleAndThisIsIt
+                );
+            } catch (ParseCancellationException e) {
+                // Warming up is best effort.
+            }
+        }
+        for (String query : XQUERY_WARM_UP_QUERIES) {
+            try {
+                parse(
+                    new XQueryParser(new CommonTokenStream(new XQueryLexer(CharStreams.fromString(query)))),
+                    XQueryParser::module
+                );
+            } catch (ParseCancellationException e) {
+                // Warming up is best effort.
+            }
+        }
+    }
+
+    /**
+     * Compiles a translated main module, with all the passes of the static analysis.
+     */
+    private static void compileMainModule(
+            MainModule mainModule,
+            RumbleRuntimeConfiguration configuration,
+            CompilationTimes times
+    ) {
+        pruneModules(mainModule, configuration);
+        times.endPhase("module pruning");
+        rewrite(mainModule, configuration);
+        times.endPhase("rewriting");
+        resolveDependencies(mainModule, configuration);
+        times.endPhase("variable dependencies");
+        populateStaticContext(mainModule, configuration);
+        times.endPhase("static context");
+        inferTypes(mainModule, configuration);
+        times.endPhase("type inference");
+        inferProjections(mainModule, configuration);
+        times.endPhase("projections");
+        inferPartitionFilters(mainModule);
+        times.endPhase("partition filters");
+        markUnorderedInputs(mainModule);
+        times.endPhase("unordered inputs");
+        markConstants(mainModule, configuration);
+        times.endPhase("constant folding");
+        measureInputs(mainModule, configuration);
+        times.endPhase("input sizes");
+        populateExecutionModes(mainModule, configuration);
+        times.endPhase("execution modes");
+        times.log();
+    }
+
     public static MainModule parseJSONiqMainModule(
             String query,
             URI uri,
@@ -124,23 +284,21 @@ public class VisitorHelpers {
         CharStream stream = CharStreams.fromString(query);
         JsoniqLexer lexer = new JsoniqLexer(stream);
         JsoniqParser parser = new JsoniqParser(new CommonTokenStream(lexer));
-        parser.setErrorHandler(new BailErrorStrategy());
         StaticContext moduleContext = new StaticContext(uri, configuration);
         moduleContext.setUserDefinedFunctionsExecutionModes(new UserDefinedFunctionExecutionModes());
         TranslationVisitor visitor = new TranslationVisitor(moduleContext, true, configuration, query);
+        CompilationTimes times = new CompilationTimes(configuration);
         try {
             // TODO Handle module extras
-            JsoniqParser.ModuleAndThisIsItContext module = parser.moduleAndThisIsIt();
+            JsoniqParser.ModuleAndThisIsItContext module = parse(parser, JsoniqParser::moduleAndThisIsIt);
+            times.endPhase("parsing");
             JsoniqParser.MainModuleContext main = module.module().main;
             if (main == null) {
                 throw new ParsingException("A library module is not executable.", ExceptionMetadata.EMPTY_METADATA);
             }
             MainModule mainModule = (MainModule) visitor.visit(main);
-            pruneModules(mainModule, configuration);
-            resolveDependencies(mainModule, configuration);
-            populateStaticContext(mainModule, configuration);
-            inferTypes(mainModule, configuration);
-            populateExecutionModes(mainModule, configuration);
+            times.endPhase("translation");
+            compileMainModule(mainModule, configuration, times);
             return mainModule;
         } catch (ParseCancellationException ex) {
             ParsingException e = new ParsingException(
@@ -165,22 +323,21 @@ public class VisitorHelpers {
         CharStream stream = CharStreams.fromString(query);
         XQueryLexer lexer = new XQueryLexer(stream);
         XQueryParser parser = new XQueryParser(new CommonTokenStream(lexer));
-        parser.setErrorHandler(new BailErrorStrategy());
         StaticContext moduleContext = new StaticContext(uri, configuration);
         moduleContext.setUserDefinedFunctionsExecutionModes(new UserDefinedFunctionExecutionModes());
         XQueryTranslationVisitor visitor = new XQueryTranslationVisitor(moduleContext, true, configuration, query);
+        CompilationTimes times = new CompilationTimes(configuration);
         try {
             // TODO Handle module extras
-            XQueryParser.MainModuleContext main = parser.module().mainModule();
+            XQueryParser.ModuleContext module = parse(parser, XQueryParser::module);
+            times.endPhase("parsing");
+            XQueryParser.MainModuleContext main = module.mainModule();
             if (main == null) {
                 throw new ParsingException("A library module is not executable.", ExceptionMetadata.EMPTY_METADATA);
             }
             MainModule mainModule = (MainModule) visitor.visit(main);
-            pruneModules(mainModule, configuration);
-            resolveDependencies(mainModule, configuration);
-            populateStaticContext(mainModule, configuration);
-            inferTypes(mainModule, configuration);
-            populateExecutionModes(mainModule, configuration);
+            times.endPhase("translation");
+            compileMainModule(mainModule, configuration, times);
             return mainModule;
         } catch (ParseCancellationException ex) {
             ParsingException e = new ParsingException(
@@ -228,7 +385,6 @@ public class VisitorHelpers {
         CharStream stream = CharStreams.fromString(query);
         JsoniqLexer lexer = new JsoniqLexer(stream);
         JsoniqParser parser = new JsoniqParser(new CommonTokenStream(lexer));
-        parser.setErrorHandler(new BailErrorStrategy());
         StaticContext moduleContext = new StaticContext(uri, configuration);
         moduleContext.setUserDefinedFunctionsExecutionModes(
             importingModuleContext.getUserDefinedFunctionsExecutionModes()
@@ -236,7 +392,13 @@ public class VisitorHelpers {
         TranslationVisitor visitor = new TranslationVisitor(moduleContext, false, configuration, query);
         try {
             // TODO Handle module extras
-            JsoniqParser.ModuleAndThisIsItContext module = parser.moduleAndThisIsIt();
+            JsoniqParser.ModuleAndThisIsItContext module = LibraryModuleCache.getInstance()
+                .getOrParse(
+                    uri,
+                    query,
+                    JsoniqParser.ModuleAndThisIsItContext.class,
+                    () -> parse(parser, JsoniqParser::moduleAndThisIsIt)
+                );
             JsoniqParser.LibraryModuleContext main = module.module().libraryModule();
             LibraryModule libraryModule = (LibraryModule) visitor.visit(main);
             resolveDependencies(libraryModule, configuration);
@@ -266,7 +428,6 @@ public class VisitorHelpers {
         CharStream stream = CharStreams.fromString(query);
         XQueryLexer lexer = new XQueryLexer(stream);
         XQueryParser parser = new XQueryParser(new CommonTokenStream(lexer));
-        parser.setErrorHandler(new BailErrorStrategy());
         StaticContext moduleContext = new StaticContext(uri, configuration);
         moduleContext.setUserDefinedFunctionsExecutionModes(
             importingModuleContext.getUserDefinedFunctionsExecutionModes()
@@ -274,7 +435,9 @@ public class VisitorHelpers {
         XQueryTranslationVisitor visitor = new XQueryTranslationVisitor(moduleContext, false, configuration, query);
         try {
             // TODO Handle module extras
-            XQueryParser.LibraryModuleContext main = parser.module().libraryModule();
+            XQueryParser.ModuleContext module = LibraryModuleCache.getInstance()
+                .getOrParse(uri, query, XQueryParser.ModuleContext.class, () -> parse(parser, XQueryParser::module));
+            XQueryParser.LibraryModuleContext main = module.libraryModule();
             LibraryModule libraryModule = (LibraryModule) visitor.visit(main);
             resolveDependencies(libraryModule, configuration);
             // no static context population, as this is done in a single shot via the importing main module.
@@ -364,6 +527,15 @@ public class VisitorHelpers {
         return visitor.visit(node, null);
     }
 
+    public static DynamicContext createDynamicContext(
+            Node node,
+            RumbleRuntimeConfiguration configuration,
+            Map<Name, List<Item>> externalVariableValues
+    ) {
+        DynamicContextVisitor visitor = new DynamicContextVisitor(configuration, externalVariableValues);
+        return visitor.visit(node, null);
+    }
+
     private static void setLocalExecutionForUnsetUserDefinedFunctions(
             UserDefinedFunctionExecutionModes userDefinedFunctionExecutionModes
     ) {
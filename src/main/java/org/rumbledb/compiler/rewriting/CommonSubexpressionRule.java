@@ -0,0 +1,240 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Authors: Stefan Irimescu, Can Berker Cikis
+ *
+ */
+
+package org.rumbledb.compiler.rewriting;
+
+import org.rumbledb.context.Name;
+import org.rumbledb.expressions.Expression;
+import org.rumbledb.expressions.Node;
+import org.rumbledb.expressions.arithmetic.AdditiveExpression;
+import org.rumbledb.expressions.arithmetic.MultiplicativeExpression;
+import org.rumbledb.expressions.comparison.ComparisonExpression;
+import org.rumbledb.expressions.flowr.Clause;
+import org.rumbledb.expressions.flowr.FlworExpression;
+import org.rumbledb.expressions.flowr.LetClause;
+import org.rumbledb.expressions.postfix.ArrayLookupExpression;
+import org.rumbledb.expressions.postfix.ArrayUnboxingExpression;
+import org.rumbledb.expressions.postfix.ObjectLookupExpression;
+import org.rumbledb.expressions.primary.FunctionCallExpression;
+import org.rumbledb.expressions.primary.ObjectConstructorExpression;
+import org.rumbledb.expressions.primary.VariableReferenceExpression;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Binds a navigation path that several clauses evaluate, such as $x.payload.items[].price, to a let variable, and
+ * replaces its occurrences with references to this variable, so that it is navigated once per tuple. If the first
+ * occurrence is the whole expression of an untyped let clause, the variable of this let clause is used instead.
+ *
+ * Only paths made of object lookups with literal keys, array lookups with literal positions and array unboxings on a
+ * variable are considered: they are deterministic and never raise errors, so that they can be evaluated earlier. The
+ * let clause is inserted right before the first clause with an occurrence, so that it is evaluated for the same
+ * tuples. Occurrences are looked for in the operands of comparisons, arithmetic, function calls, object constructors
+ * and lookups, but not in nested FLWOR expressions and other expressions that bind variables or evaluate their
+ * operands conditionally.
+ *
+ * The following clauses are considered until one binds the variable of the path. Occurrences after a group by clause
+ * are also replaced: navigating the sequence of the grouped values of a variable gives the sequence of the grouped
+ * values of the path. In DataFrame mode, the let variable becomes a column, which is computed with Spark SQL if the
+ * path can be.
+ */
+public class CommonSubexpressionRule implements FlworRewriteRule {
+
+    // Shorter paths are cheaper to navigate again than to bind.
+    private static final int MINIMUM_STEP_COUNT = 2;
+
+    @Override
+    public String getName() {
+        return "common-subexpression-elimination";
+    }
+
+    @Override
+    public int rewrite(FlworExpression expression) {
+        Map<String, List<Occurrence>> occurrences = new LinkedHashMap<>();
+        Clause clause = expression.getReturnClause().getFirstClause();
+        for (; clause != null; clause = clause.getNextClause()) {
+            for (Node child : clause.getChildren()) {
+                collectOccurrences(clause, clause, (Expression) child, occurrences);
+            }
+        }
+        List<Candidate> candidates = new ArrayList<>();
+        for (List<Occurrence> pathOccurrences : occurrences.values()) {
+            // The occurrences after the variable of the path is bound again are considered separately.
+            for (int start = 0; start < pathOccurrences.size();) {
+                Candidate candidate = new Candidate(pathOccurrences, start);
+                if (candidate.occurrences.size() >= (candidate.reusedLetClause != null ? 1 : 2)) {
+                    candidates.add(candidate);
+                }
+                start = candidate.end;
+            }
+        }
+        // The longest paths are bound first, their prefixes can then be bound in the next rounds.
+        candidates.sort((left, right) -> Integer.compare(right.first.stepCount, left.first.stepCount));
+        for (Candidate candidate : candidates) {
+            if (eliminate(expression, candidate)) {
+                return 1;
+            }
+        }
+        return 0;
+    }
+
+    private static void collectOccurrences(
+            Clause clause,
+            Node parent,
+            Expression expression,
+            Map<String, List<Occurrence>> result
+    ) {
+        String path = NavigationPaths.getKey(expression);
+        if (path != null) {
+            int stepCount = NavigationPaths.getStepCount(expression);
+            if (stepCount >= MINIMUM_STEP_COUNT) {
+                result.computeIfAbsent(path, k -> new ArrayList<>())
+                    .add(new Occurrence(clause, parent, expression, stepCount));
+                // The prefixes of the path may be shared by other paths.
+                collectOccurrences(clause, expression, NavigationPaths.getMainExpression(expression), result);
+            }
+            return;
+        }
+        if (
+            expression instanceof ObjectLookupExpression
+                || expression instanceof ArrayLookupExpression
+                || expression instanceof ArrayUnboxingExpression
+        ) {
+            collectOccurrences(clause, expression, NavigationPaths.getMainExpression(expression), result);
+            return;
+        }
+        if (expression instanceof ObjectConstructorExpression) {
+            if (!((ObjectConstructorExpression) expression).isMergedConstructor()) {
+                for (Expression value : ((ObjectConstructorExpression) expression).getValues()) {
+                    collectOccurrences(clause, expression, value, result);
+                }
+            }
+            return;
+        }
+        if (
+            expression instanceof ComparisonExpression
+                || expression instanceof AdditiveExpression
+                || expression instanceof MultiplicativeExpression
+                || expression instanceof FunctionCallExpression
+        ) {
+            for (Node child : expression.getChildren()) {
+                collectOccurrences(clause, expression, (Expression) child, result);
+            }
+        }
+    }
+
+    private static boolean eliminate(FlworExpression expression, Candidate candidate) {
+        Name variable = candidate.reusedLetClause != null
+            ? candidate.reusedLetClause.getVariableName()
+            : FlworVariables.createVariableName(expression, "cse");
+        List<VariableReferenceExpression> references = new ArrayList<>();
+        for (Occurrence occurrence : candidate.occurrences) {
+            VariableReferenceExpression reference = new VariableReferenceExpression(
+                    variable,
+                    occurrence.expression.getMetadata()
+            );
+            if (!occurrence.parent.replaceChild(occurrence.expression, reference)) {
+                for (int i = 0; i < references.size(); ++i) {
+                    Occurrence replaced = candidate.occurrences.get(i);
+                    replaced.parent.replaceChild(references.get(i), replaced.expression);
+                }
+                return false;
+            }
+            references.add(reference);
+        }
+        if (candidate.reusedLetClause != null) {
+            return true;
+        }
+        Expression path = candidate.first.expression;
+        LetClause letClause = new LetClause(variable, null, path, path.getMetadata());
+        Clause previousClause = candidate.first.clause.getPreviousClause();
+        if (previousClause == null) {
+            letClause.chainWith(candidate.first.clause);
+        } else {
+            previousClause.insertNextClause(letClause);
+        }
+        return true;
+    }
+
+    /**
+     * The occurrences of a path that can refer to a variable bound right before the first one, which are those before
+     * the variable of the path, or the variable of the reused let clause, is bound again.
+     */
+    private static class Candidate {
+        private final Occurrence first;
+        private final LetClause reusedLetClause;
+        private final List<Occurrence> occurrences;
+        // The index of the first occurrence that is not considered.
+        private final int end;
+
+        private Candidate(List<Occurrence> allOccurrences, int start) {
+            this.first = allOccurrences.get(start);
+            if (
+                this.first.parent instanceof LetClause
+                    && ((LetClause) this.first.parent).getActualSequenceType() == null
+            ) {
+                this.reusedLetClause = (LetClause) this.first.parent;
+            } else {
+                this.reusedLetClause = null;
+            }
+            this.occurrences = new ArrayList<>();
+            Set<Name> variables = new HashSet<>();
+            variables.add(NavigationPaths.getVariable(this.first.expression));
+            int index = start;
+            for (Clause clause = this.first.clause; clause != null; clause = clause.getNextClause()) {
+                for (; index < allOccurrences.size() && allOccurrences.get(index).clause == clause; ++index) {
+                    this.occurrences.add(allOccurrences.get(index));
+                }
+                Set<Name> boundVariables = FlworVariables.getBoundVariables(clause);
+                if (clause == this.reusedLetClause) {
+                    this.occurrences.remove(this.first);
+                    if (boundVariables.contains(NavigationPaths.getVariable(this.first.expression))) {
+                        break;
+                    }
+                    variables.addAll(boundVariables);
+                    continue;
+                }
+                if (FlworVariables.intersects(boundVariables, variables)) {
+                    break;
+                }
+            }
+            this.end = index;
+        }
+    }
+
+    private static class Occurrence {
+        private final Clause clause;
+        private final Node parent;
+        private final Expression expression;
+        private final int stepCount;
+
+        private Occurrence(Clause clause, Node parent, Expression expression, int stepCount) {
+            this.clause = clause;
+            this.parent = parent;
+            this.expression = expression;
+            this.stepCount = stepCount;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Authors: Stefan Irimescu, Can Berker Cikis
+ *
+ */
+
+package org.rumbledb.compiler.rewriting;
+
+import org.rumbledb.context.Name;
+import org.rumbledb.expressions.flowr.Clause;
+import org.rumbledb.expressions.flowr.FlworExpression;
+import org.rumbledb.expressions.flowr.ForClause;
+import org.rumbledb.expressions.flowr.LetClause;
+
+/**
+ * Removes the let clauses whose variable is not used by the following clauses.
+ *
+ * Let clauses with a type declaration are kept, as they check the type of their value. So is the first clause if the
+ * next one cannot start a FLWOR expression.
+ */
+public class DeadLetEliminationRule implements FlworRewriteRule {
+
+    @Override
+    public String getName() {
+        return "dead-let-elimination";
+    }
+
+    @Override
+    public int rewrite(FlworExpression expression) {
+        int result = 0;
+        // Removing a let clause may make the previous ones unused as well.
+        Clause clause = expression.getReturnClause().getPreviousClause();
+        while (clause != null) {
+            Clause previous = clause.getPreviousClause();
+            if (clause instanceof LetClause && isUnused((LetClause) clause)) {
+                clause.detach();
+                ++result;
+            }
+            clause = previous;
+        }
+        return result;
+    }
+
+    private static boolean isUnused(LetClause letClause) {
+        if (letClause.getActualSequenceType() != null) {
+            return false;
+        }
+        Clause next = letClause.getNextClause();
+        if (letClause.getPreviousClause() == null && !(next instanceof ForClause) && !(next instanceof LetClause)) {
+            return false;
+        }
+        Name variable = letClause.getVariableName();
+        for (Clause clause = next; clause != null; clause = clause.getNextClause()) {
+            if (FlworVariables.getUsedVariables(clause).contains(variable)) {
+                return false;
+            }
+            if (FlworVariables.getBoundVariables(clause).contains(variable)) {
+                return true;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,236 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Authors: Stefan Irimescu, Can Berker Cikis
+ *
+ */
+
+package org.rumbledb.compiler.rewriting;
+
+import org.rumbledb.context.Name;
+import org.rumbledb.expressions.Expression;
+import org.rumbledb.expressions.Node;
+import org.rumbledb.expressions.comparison.ComparisonExpression;
+import org.rumbledb.expressions.flowr.Clause;
+import org.rumbledb.expressions.flowr.FlworExpression;
+import org.rumbledb.expressions.flowr.ForClause;
+import org.rumbledb.expressions.flowr.LetClause;
+import org.rumbledb.expressions.flowr.ReturnClause;
+import org.rumbledb.expressions.flowr.WhereClause;
+import org.rumbledb.expressions.postfix.FilterExpression;
+import org.rumbledb.expressions.primary.ArrayConstructorExpression;
+import org.rumbledb.expressions.primary.ContextItemExpression;
+import org.rumbledb.expressions.primary.FunctionCallExpression;
+import org.rumbledb.expressions.primary.ObjectConstructorExpression;
+import org.rumbledb.expressions.primary.VariableReferenceExpression;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Turns a nested FLWOR expression that filters a sequence with an equality with the current tuple into a let clause
+ * with a predicate expression. For example,
+ *
+ * for $u in $users return { "user" : $u, "orders" : [ for $o in $orders where $o.uid eq $u.id return $o ] }
+ *
+ * becomes
+ *
+ * for $u in $users let $join1 := $orders[$$.uid eq $u.id] return { "user" : $u, "orders" : [ $join1 ] }
+ *
+ * In a DataFrame FLWOR expression, such a let clause is evaluated as an equi-join with the sequence grouped by the
+ * join key, rather than as a nested loop that cannot run on a cluster.
+ *
+ * The nested FLWOR expression must start with a for clause without positional variable, type or allowing empty, over
+ * a sequence that does not depend on the variables of the outer FLWOR expression, except those of its initial let
+ * clauses. It must be directly followed by a
+ * where clause that compares, with eq, a path on the for variable with a path on another variable. The rest of the
+ * nested FLWOR expression iterates over the let variable, and is replaced with this variable if it just returns the
+ * items. Nested FLWOR expressions are looked for in for, let and return clauses, within object and array
+ * constructors and count(), sum(), avg(), min() and max() calls, which all evaluate the whole sequence.
+ */
+public class DecorrelationRule implements FlworRewriteRule {
+
+    private static final Set<Name> AGGREGATE_FUNCTIONS = new HashSet<>(
+            Arrays.asList(
+                Name.createVariableInDefaultFunctionNamespace("count"),
+                Name.createVariableInDefaultFunctionNamespace("sum"),
+                Name.createVariableInDefaultFunctionNamespace("avg"),
+                Name.createVariableInDefaultFunctionNamespace("min"),
+                Name.createVariableInDefaultFunctionNamespace("max")
+            )
+    );
+
+    @Override
+    public String getName() {
+        return "decorrelation";
+    }
+
+    @Override
+    public int rewrite(FlworExpression expression) {
+        // Initial let clauses are evaluated once, before the tuples, on which the sequence may thus depend.
+        Set<Name> outerVariables = new HashSet<>();
+        Clause clause = expression.getReturnClause().getFirstClause();
+        while (clause instanceof LetClause) {
+            clause = clause.getNextClause();
+        }
+        for (; clause != null; clause = clause.getNextClause()) {
+            outerVariables.addAll(FlworVariables.getBoundVariables(clause));
+        }
+        clause = expression.getReturnClause().getFirstClause();
+        for (; clause != null; clause = clause.getNextClause()) {
+            if (
+                !(clause instanceof ForClause)
+                    && !(clause instanceof LetClause)
+                    && !(clause instanceof ReturnClause)
+            ) {
+                continue;
+            }
+            for (Node child : clause.getChildren()) {
+                if (decorrelate(expression, clause, clause, (Expression) child, outerVariables)) {
+                    return 1;
+                }
+            }
+        }
+        return 0;
+    }
+
+    private static boolean decorrelate(
+            FlworExpression outerExpression,
+            Clause clause,
+            Node parent,
+            Expression expression,
+            Set<Name> outerVariables
+    ) {
+        if (expression instanceof FlworExpression) {
+            return decorrelateFlwor(outerExpression, clause, parent, (FlworExpression) expression, outerVariables);
+        }
+        List<Expression> children;
+        if (
+            expression instanceof ObjectConstructorExpression
+                && !((ObjectConstructorExpression) expression).isMergedConstructor()
+        ) {
+            children = ((ObjectConstructorExpression) expression).getValues();
+        } else if (
+            expression instanceof ArrayConstructorExpression
+                && ((ArrayConstructorExpression) expression).getExpression() != null
+        ) {
+            children = Arrays.asList(((ArrayConstructorExpression) expression).getExpression());
+        } else if (
+            expression instanceof FunctionCallExpression
+                && AGGREGATE_FUNCTIONS.contains(((FunctionCallExpression) expression).getFunctionName())
+                && ((FunctionCallExpression) expression).getArguments().size() == 1
+                && ((FunctionCallExpression) expression).getArguments().get(0) != null
+        ) {
+            children = ((FunctionCallExpression) expression).getArguments();
+        } else {
+            return false;
+        }
+        for (Expression child : children) {
+            if (decorrelate(outerExpression, clause, expression, child, outerVariables)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean decorrelateFlwor(
+            FlworExpression outerExpression,
+            Clause clause,
+            Node parent,
+            FlworExpression expression,
+            Set<Name> outerVariables
+    ) {
+        Clause firstClause = expression.getReturnClause().getFirstClause();
+        if (!(firstClause instanceof ForClause) || !(firstClause.getNextClause() instanceof WhereClause)) {
+            return false;
+        }
+        ForClause forClause = (ForClause) firstClause;
+        if (
+            forClause.getPositionalVariableName() != null
+                || forClause.isAllowEmpty()
+                || forClause.getActualSequenceType() != null
+                || FlworVariables.intersects(
+                    FlworVariables.getUsedVariables(forClause.getExpression()),
+                    outerVariables
+                )
+        ) {
+            return false;
+        }
+        WhereClause whereClause = (WhereClause) forClause.getNextClause();
+        if (
+            !(whereClause.getWhereExpression() instanceof ComparisonExpression)
+                || !((ComparisonExpression) whereClause.getWhereExpression()).getComparisonOperator()
+                    .equals(ComparisonExpression.ComparisonOperator.VC_EQ)
+        ) {
+            return false;
+        }
+        ComparisonExpression comparison = (ComparisonExpression) whereClause.getWhereExpression();
+        Expression innerKey = null;
+        Expression outerKey = null;
+        for (Node side : comparison.getChildren()) {
+            Expression key = (Expression) side;
+            if (NavigationPaths.getKey(key) == null) {
+                return false;
+            }
+            if (NavigationPaths.getVariable(key).equals(forClause.getVariableName())) {
+                innerKey = key;
+            } else {
+                outerKey = key;
+            }
+        }
+        if (innerKey == null || outerKey == null) {
+            return false;
+        }
+
+        // The predicate navigates from the context item rather than from the for variable.
+        Node rootParent = comparison;
+        Expression root = innerKey;
+        while (NavigationPaths.getMainExpression(root) != null) {
+            rootParent = root;
+            root = NavigationPaths.getMainExpression(root);
+        }
+        rootParent.replaceChild(root, new ContextItemExpression(root.getMetadata()));
+
+        Name variable = FlworVariables.createVariableName(outerExpression, "join");
+        Expression sequence = forClause.getExpression();
+        LetClause letClause = new LetClause(
+                variable,
+                null,
+                new FilterExpression(sequence, comparison, comparison.getMetadata()),
+                expression.getMetadata()
+        );
+        if (clause.getPreviousClause() == null) {
+            letClause.chainWith(clause);
+        } else {
+            clause.getPreviousClause().insertNextClause(letClause);
+        }
+        forClause.replaceChild(sequence, new VariableReferenceExpression(variable, sequence.getMetadata()));
+        whereClause.detach();
+
+        Expression returnExpression = expression.getReturnClause().getReturnExpr();
+        if (
+            forClause.getNextClause() == expression.getReturnClause()
+                && returnExpression instanceof VariableReferenceExpression
+                && ((VariableReferenceExpression) returnExpression).getVariableName()
+                    .equals(forClause.getVariableName())
+        ) {
+            parent.replaceChild(expression, new VariableReferenceExpression(variable, expression.getMetadata()));
+        }
+        return true;
+    }
+}
@@ -0,0 +1,45 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Authors: Stefan Irimescu, Can Berker Cikis
+ *
+ */
+
+package org.rumbledb.compiler.rewriting;
+
+import org.rumbledb.expressions.flowr.FlworExpression;
+
+/**
+ * A rewrite of the clauses of a FLWOR expression that preserves its semantics, applied to the expression tree before
+ * the static analysis. Nested FLWOR expressions are rewritten before the enclosing ones.
+ */
+public interface FlworRewriteRule {
+
+    /**
+     * Returns the name with which the rule is shown with --print-optimized-plan.
+     *
+     * @return the name.
+     */
+    String getName();
+
+    /**
+     * Rewrites the clauses of a FLWOR expression in place.
+     *
+     * @param expression the FLWOR expression.
+     * @return the number of times the rule applied, 0 if nothing changed.
+     */
+    int rewrite(FlworExpression expression);
+}
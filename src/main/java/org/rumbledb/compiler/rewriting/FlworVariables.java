@@ -0,0 +1,127 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Authors: Stefan Irimescu, Can Berker Cikis
+ *
+ */
+
+package org.rumbledb.compiler.rewriting;
+
+import org.rumbledb.context.Name;
+import org.rumbledb.expressions.Node;
+import org.rumbledb.expressions.flowr.Clause;
+import org.rumbledb.expressions.flowr.CountClause;
+import org.rumbledb.expressions.flowr.FlworExpression;
+import org.rumbledb.expressions.flowr.ForClause;
+import org.rumbledb.expressions.flowr.GroupByClause;
+import org.rumbledb.expressions.flowr.GroupByVariableDeclaration;
+import org.rumbledb.expressions.flowr.LetClause;
+import org.rumbledb.expressions.primary.VariableReferenceExpression;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Computes the variables that clauses bind and use, as needed to move clauses around.
+ *
+ * Rewrites run before the variable dependencies are resolved, so the uses are found syntactically by name. Nested
+ * scopes are not taken into account: a variable of the same name bound inside the clause counts as a use. This may
+ * prevent a rewrite, but never allows a wrong one.
+ */
+final class FlworVariables {
+
+    private FlworVariables() {
+    }
+
+    static Set<Name> getBoundVariables(Clause clause) {
+        Set<Name> result = new HashSet<>();
+        if (clause instanceof ForClause) {
+            result.add(((ForClause) clause).getVariableName());
+            if (((ForClause) clause).getPositionalVariableName() != null) {
+                result.add(((ForClause) clause).getPositionalVariableName());
+            }
+        } else if (clause instanceof LetClause) {
+            result.add(((LetClause) clause).getVariableName());
+        } else if (clause instanceof GroupByClause) {
+            for (GroupByVariableDeclaration declaration : ((GroupByClause) clause).getGroupVariables()) {
+                result.add(declaration.getVariableName());
+            }
+        } else if (clause instanceof CountClause) {
+            result.add(((CountClause) clause).getCountVariable().getVariableName());
+        }
+        return result;
+    }
+
+    static Set<Name> getUsedVariables(Node node) {
+        Set<Name> result = new HashSet<>();
+        collectUsedVariables(node, result);
+        return result;
+    }
+
+    private static void collectUsedVariables(Node node, Set<Name> result) {
+        if (node == null) {
+            return;
+        }
+        if (node instanceof VariableReferenceExpression) {
+            result.add(((VariableReferenceExpression) node).getVariableName());
+            return;
+        }
+        if (node instanceof FlworExpression) {
+            Clause clause = ((FlworExpression) node).getReturnClause().getFirstClause();
+            for (; clause != null; clause = clause.getNextClause()) {
+                collectUsedVariables(clause, result);
+            }
+            return;
+        }
+        if (node instanceof GroupByClause) {
+            // Grouping by a variable without an expression uses it.
+            result.addAll(getBoundVariables((Clause) node));
+        }
+        for (Node child : node.getChildren()) {
+            collectUsedVariables(child, result);
+        }
+    }
+
+    /**
+     * Creates the name of a variable for a rewrite, which is not used in a FLWOR expression.
+     *
+     * @param expression the FLWOR expression in which the variable is bound.
+     * @param prefix the prefix of the name, followed by a number.
+     * @return the name.
+     */
+    static Name createVariableName(FlworExpression expression, String prefix) {
+        Set<Name> names = getUsedVariables(expression);
+        Clause clause = expression.getReturnClause().getFirstClause();
+        for (; clause != null; clause = clause.getNextClause()) {
+            names.addAll(getBoundVariables(clause));
+        }
+        for (int i = 1;; ++i) {
+            Name name = Name.createVariableInNoNamespace(prefix + i);
+            if (!names.contains(name)) {
+                return name;
+            }
+        }
+    }
+
+    static boolean intersects(Set<Name> left, Set<Name> right) {
+        for (Name name : left) {
+            if (right.contains(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
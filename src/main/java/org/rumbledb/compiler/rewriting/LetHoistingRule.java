@@ -0,0 +1,90 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Authors: Stefan Irimescu, Can Berker Cikis
+ *
+ */
+
+package org.rumbledb.compiler.rewriting;
+
+import org.rumbledb.context.Name;
+import org.rumbledb.expressions.flowr.Clause;
+import org.rumbledb.expressions.flowr.FlworExpression;
+import org.rumbledb.expressions.flowr.ForClause;
+import org.rumbledb.expressions.flowr.LetClause;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Moves a let clause that does not depend on the variables of the for clauses before it above them, so that it is
+ * computed once per outer tuple rather than once per iteration of the inner loops.
+ *
+ * Let clauses only cross for and let clauses, never a where clause (which would compute them for the tuples it
+ * filters out) nor the first clause, and only if at least one for clause is crossed. The crossed clauses must neither
+ * bind nor use a variable with the same name as the let clause.
+ */
+public class LetHoistingRule implements FlworRewriteRule {
+
+    @Override
+    public String getName() {
+        return "let-hoisting";
+    }
+
+    @Override
+    public int rewrite(FlworExpression expression) {
+        List<LetClause> letClauses = new ArrayList<>();
+        Clause clause = expression.getReturnClause().getFirstClause();
+        for (; clause != null; clause = clause.getNextClause()) {
+            if (clause instanceof LetClause && clause.getPreviousClause() != null) {
+                letClauses.add((LetClause) clause);
+            }
+        }
+        int result = 0;
+        for (LetClause letClause : letClauses) {
+            Set<Name> usedVariables = FlworVariables.getUsedVariables(letClause.getExpression());
+            Clause target = null;
+            Clause crossed = letClause.getPreviousClause();
+            while (
+                crossed.getPreviousClause() != null
+                    && canMoveBefore(crossed, letClause.getVariableName(), usedVariables)
+            ) {
+                if (crossed instanceof ForClause) {
+                    target = crossed.getPreviousClause();
+                }
+                crossed = crossed.getPreviousClause();
+            }
+            if (target == null) {
+                continue;
+            }
+            letClause.detach();
+            target.insertNextClause(letClause);
+            ++result;
+        }
+        return result;
+    }
+
+    private static boolean canMoveBefore(Clause clause, Name variable, Set<Name> usedVariables) {
+        if (!(clause instanceof ForClause) && !(clause instanceof LetClause)) {
+            return false;
+        }
+        Set<Name> boundVariables = FlworVariables.getBoundVariables(clause);
+        return !boundVariables.contains(variable)
+            && !FlworVariables.intersects(boundVariables, usedVariables)
+            && !FlworVariables.getUsedVariables(clause).contains(variable);
+    }
+}
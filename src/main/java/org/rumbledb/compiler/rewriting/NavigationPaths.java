@@ -0,0 +1,101 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Authors: Stefan Irimescu, Can Berker Cikis
+ *
+ */
+
+package org.rumbledb.compiler.rewriting;
+
+import org.rumbledb.context.Name;
+import org.rumbledb.expressions.Expression;
+import org.rumbledb.expressions.postfix.ArrayLookupExpression;
+import org.rumbledb.expressions.postfix.ArrayUnboxingExpression;
+import org.rumbledb.expressions.postfix.ObjectLookupExpression;
+import org.rumbledb.expressions.primary.IntegerLiteralExpression;
+import org.rumbledb.expressions.primary.StringLiteralExpression;
+import org.rumbledb.expressions.primary.VariableReferenceExpression;
+
+/**
+ * Navigation paths, i.e., object lookups with literal keys, array lookups with literal positions and array unboxings
+ * on a variable, such as $x.payload.items[].price. They are deterministic and never raise errors, so that rewrites
+ * can evaluate them more or less often than the query does.
+ */
+final class NavigationPaths {
+
+    private NavigationPaths() {
+    }
+
+    /**
+     * Returns a key that identifies a path structurally, or null if the expression is not a path.
+     */
+    static String getKey(Expression expression) {
+        if (expression instanceof VariableReferenceExpression) {
+            Name name = ((VariableReferenceExpression) expression).getVariableName();
+            return "${" + name.getNamespace() + "}" + name.getLocalName();
+        }
+        Expression mainExpression = getMainExpression(expression);
+        String mainPath = mainExpression == null ? null : getKey(mainExpression);
+        if (mainPath == null) {
+            return null;
+        }
+        if (expression instanceof ArrayUnboxingExpression) {
+            return mainPath + "[]";
+        }
+        if (expression instanceof ObjectLookupExpression) {
+            Expression lookupExpression = ((ObjectLookupExpression) expression).getLookupExpression();
+            if (!(lookupExpression instanceof StringLiteralExpression)) {
+                return null;
+            }
+            String key = ((StringLiteralExpression) lookupExpression).getValue();
+            return mainPath + "." + key.length() + ":" + key;
+        }
+        Expression lookupExpression = ((ArrayLookupExpression) expression).getLookupExpression();
+        if (!(lookupExpression instanceof IntegerLiteralExpression)) {
+            return null;
+        }
+        return mainPath + "[[" + ((IntegerLiteralExpression) lookupExpression).getLexicalValue() + "]]";
+    }
+
+    static int getStepCount(Expression path) {
+        int result = 0;
+        for (Expression step = path; !(step instanceof VariableReferenceExpression); step = getMainExpression(step)) {
+            ++result;
+        }
+        return result;
+    }
+
+    static Name getVariable(Expression path) {
+        Expression step = path;
+        while (!(step instanceof VariableReferenceExpression)) {
+            step = getMainExpression(step);
+        }
+        return ((VariableReferenceExpression) step).getVariableName();
+    }
+
+    static Expression getMainExpression(Expression expression) {
+        if (expression instanceof ObjectLookupExpression) {
+            return ((ObjectLookupExpression) expression).getMainExpression();
+        }
+        if (expression instanceof ArrayLookupExpression) {
+            return ((ArrayLookupExpression) expression).getMainExpression();
+        }
+        if (expression instanceof ArrayUnboxingExpression) {
+            return ((ArrayUnboxingExpression) expression).getMainExpression();
+        }
+        return null;
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Authors: Stefan Irimescu, Can Berker Cikis
+ *
+ */
+
+package org.rumbledb.compiler.rewriting;
+
+import org.rumbledb.context.Name;
+import org.rumbledb.expressions.flowr.Clause;
+import org.rumbledb.expressions.flowr.FlworExpression;
+import org.rumbledb.expressions.flowr.ForClause;
+import org.rumbledb.expressions.flowr.LetClause;
+import org.rumbledb.expressions.flowr.OrderByClause;
+import org.rumbledb.expressions.flowr.WhereClause;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Moves each where clause up to right after the clause that binds the last of the variables it uses, so that tuples
+ * are filtered before the following for clauses multiply them and the following let clauses are computed.
+ *
+ * Where clauses do not cross group by and count clauses, which change the tuples or number them. A where clause that
+ * ends up right after a for clause over an input can also be pushed into the input, e.g., to prune the partitions of
+ * json-file() or to filter a DataFrame with Spark SQL. Where clauses moved to the same place keep their order.
+ */
+public class WherePushdownRule implements FlworRewriteRule {
+
+    @Override
+    public String getName() {
+        return "where-pushdown";
+    }
+
+    @Override
+    public int rewrite(FlworExpression expression) {
+        List<WhereClause> whereClauses = new ArrayList<>();
+        Clause clause = expression.getReturnClause().getFirstClause();
+        for (; clause != null; clause = clause.getNextClause()) {
+            if (clause instanceof WhereClause) {
+                whereClauses.add((WhereClause) clause);
+            }
+        }
+        int result = 0;
+        for (WhereClause whereClause : whereClauses) {
+            Set<Name> usedVariables = FlworVariables.getUsedVariables(whereClause.getWhereExpression());
+            Clause target = whereClause.getPreviousClause();
+            // A FLWOR expression cannot start with a where clause.
+            while (target.getPreviousClause() != null && canMoveBefore(target, usedVariables)) {
+                target = target.getPreviousClause();
+            }
+            while (target.getNextClause() instanceof WhereClause && target.getNextClause() != whereClause) {
+                target = target.getNextClause();
+            }
+            if (target == whereClause.getPreviousClause()) {
+                continue;
+            }
+            whereClause.detach();
+            target.insertNextClause(whereClause);
+            ++result;
+        }
+        return result;
+    }
+
+    private static boolean canMoveBefore(Clause clause, Set<Name> usedVariables) {
+        if (
+            !(clause instanceof ForClause)
+                && !(clause instanceof LetClause)
+                && !(clause instanceof WhereClause)
+                && !(clause instanceof OrderByClause)
+        ) {
+            return false;
+        }
+        return !FlworVariables.intersects(FlworVariables.getBoundVariables(clause), usedVariables);
+    }
+}
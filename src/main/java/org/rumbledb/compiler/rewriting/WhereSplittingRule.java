@@ -0,0 +1,80 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Authors: Stefan Irimescu, Can Berker Cikis
+ *
+ */
+
+package org.rumbledb.compiler.rewriting;
+
+import org.rumbledb.expressions.Expression;
+import org.rumbledb.expressions.Node;
+import org.rumbledb.expressions.flowr.Clause;
+import org.rumbledb.expressions.flowr.FlworExpression;
+import org.rumbledb.expressions.flowr.WhereClause;
+import org.rumbledb.expressions.logic.AndExpression;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits a where clause on a conjunction into one where clause per conjunct, in the same order, so that each of them
+ * can then be moved separately.
+ */
+public class WhereSplittingRule implements FlworRewriteRule {
+
+    @Override
+    public String getName() {
+        return "where-splitting";
+    }
+
+    @Override
+    public int rewrite(FlworExpression expression) {
+        int result = 0;
+        Clause clause = expression.getReturnClause().getFirstClause();
+        while (clause != null) {
+            if (
+                !(clause instanceof WhereClause)
+                    || !(((WhereClause) clause).getWhereExpression() instanceof AndExpression)
+            ) {
+                clause = clause.getNextClause();
+                continue;
+            }
+            List<Expression> conjuncts = new ArrayList<>();
+            collectConjuncts(((WhereClause) clause).getWhereExpression(), conjuncts);
+            Clause previous = clause;
+            for (Expression conjunct : conjuncts) {
+                WhereClause whereClause = new WhereClause(conjunct, conjunct.getMetadata());
+                previous.insertNextClause(whereClause);
+                previous = whereClause;
+            }
+            clause.detach();
+            clause = previous.getNextClause();
+            ++result;
+        }
+        return result;
+    }
+
+    private static void collectConjuncts(Expression expression, List<Expression> result) {
+        if (!(expression instanceof AndExpression)) {
+            result.add(expression);
+            return;
+        }
+        for (Node child : expression.getChildren()) {
+            collectConjuncts((Expression) child, result);
+        }
+    }
+}
@@ -21,6 +21,7 @@
 package org.rumbledb.config;
 
 import org.rumbledb.api.Item;
+import org.rumbledb.compiler.QueryPlanCache;
 import org.rumbledb.context.Name;
 import org.rumbledb.exceptions.CliException;
 import org.rumbledb.serialization.Serializer;
@@ -39,12 +40,47 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
 
 public class RumbleRuntimeConfiguration implements Serializable, KryoSerializable {
 
     private static final long serialVersionUID = 1L;
     private static final String SHORTCUT_PREFIX = "-";
     private static final String ARGUMENT_PREFIX = "--";
+    private static final Set<String> RUNTIME_ONLY_ARGUMENTS = new HashSet<>(
+            Arrays.asList(
+                "query",
+                "query-path",
+                "output-path",
+                "log-path",
+                "overwrite",
+                "output-format",
+                "number-of-output-partitions",
+                "materialization-cap",
+                "result-size",
+                "show-error-info",
+                "shell",
+                "shell-filter",
+                "server",
+                "host",
+                "port",
+                "server-threads",
+                "streaming-response",
+                "query-plan-cache-size",
+                "lazy-json-parsing",
+                "schema-inference-sampling-ratio",
+                "schema-cache-sidecar",
+                "catalog",
+                "context-item",
+                "context-item-input",
+                "context-item-input-format",
+                "explain"
+            )
+    );
+    private static final String[] RUNTIME_ONLY_ARGUMENT_PREFIXES = new String[] {
+        "variable:",
+        "variable-from-file:",
+        "output-format-option:" };
     private HashMap<String, String> arguments;
 
     List<String> allowedPrefixes;
@@ -67,6 +103,11 @@ public class RumbleRuntimeConfiguration implements Serializable, KryoSerializabl
     private boolean nativeSQLPredicates;
     private boolean dataFrameExecutionModeDetection;
     private boolean thirdFeature;
+    private int queryPlanCacheSize;
+    private boolean lazyJSONParsing;
+    private double schemaInferenceSamplingRatio;
+    private boolean schemaCacheSidecar;
+    private long localExecutionThreshold;
 
     private Map<String, String> shortcutMap;
     private Set<String> yesNoShortcuts;
@@ -199,6 +240,41 @@ public class RumbleRuntimeConfiguration implements Serializable, KryoSerializabl
         }
     }
 
+    public int getServerThreads() {
+        if (this.arguments.containsKey("server-threads")) {
+            return Integer.parseInt(this.arguments.get("server-threads"));
+        } else {
+            return 8;
+        }
+    }
+
+    /**
+     * Gets the format in which the HTTP server streams results: no (results are materialized and returned in a single
+     * JSON object), json (the same JSON object, written incrementally) or ndjson (one item per line).
+     *
+     * @return the streaming format.
+     */
+    /**
+     * Returns the location of the JSON file that defines the collections accessible with fn:collection().
+     *
+     * @return the location, or null if no catalog is configured.
+     */
+    public String getCatalog() {
+        if (this.arguments.containsKey("catalog")) {
+            return this.arguments.get("catalog");
+        } else {
+            return null;
+        }
+    }
+
+    public String getStreamingResponseFormat() {
+        if (this.arguments.containsKey("streaming-response")) {
+            return this.arguments.get("streaming-response");
+        } else {
+            return "no";
+        }
+    }
+
     public List<String> getAllowedURIPrefixes() {
         return this.allowedPrefixes;
     }
@@ -385,6 +461,38 @@ public class RumbleRuntimeConfiguration implements Serializable, KryoSerializabl
         } else {
             this.thirdFeature = true;
         }
+
+        if (this.arguments.containsKey("query-plan-cache-size")) {
+            this.queryPlanCacheSize = Integer.parseInt(this.arguments.get("query-plan-cache-size"));
+        } else {
+            this.queryPlanCacheSize = QueryPlanCache.DEFAULT_MAXIMUM_SIZE;
+        }
+
+        if (this.arguments.containsKey("lazy-json-parsing")) {
+            this.lazyJSONParsing = this.arguments.get("lazy-json-parsing").equals("yes");
+        } else {
+            this.lazyJSONParsing = false;
+        }
+
+        if (this.arguments.containsKey("schema-inference-sampling-ratio")) {
+            this.schemaInferenceSamplingRatio = Double.parseDouble(
+                this.arguments.get("schema-inference-sampling-ratio")
+            );
+        } else {
+            this.schemaInferenceSamplingRatio = 1.0;
+        }
+
+        if (this.arguments.containsKey("schema-cache-sidecar")) {
+            this.schemaCacheSidecar = this.arguments.get("schema-cache-sidecar").equals("yes");
+        } else {
+            this.schemaCacheSidecar = false;
+        }
+
+        if (this.arguments.containsKey("local-execution-threshold")) {
+            this.localExecutionThreshold = Long.parseLong(this.arguments.get("local-execution-threshold"));
+        } else {
+            this.localExecutionThreshold = 0;
+        }
     }
 
     public boolean getOverwrite() {
@@ -467,6 +575,91 @@ public class RumbleRuntimeConfiguration implements Serializable, KryoSerializabl
         this.thirdFeature = value;
     }
 
+    public int getQueryPlanCacheSize() {
+        return this.queryPlanCacheSize;
+    }
+
+    public void setQueryPlanCacheSize(int value) {
+        this.queryPlanCacheSize = value;
+    }
+
+    public boolean getLazyJSONParsing() {
+        return this.lazyJSONParsing;
+    }
+
+    public void setLazyJSONParsing(boolean value) {
+        this.lazyJSONParsing = value;
+    }
+
+    public double getSchemaInferenceSamplingRatio() {
+        return this.schemaInferenceSamplingRatio;
+    }
+
+    public void setSchemaInferenceSamplingRatio(double value) {
+        this.schemaInferenceSamplingRatio = value;
+    }
+
+    public boolean getSchemaCacheSidecar() {
+        return this.schemaCacheSidecar;
+    }
+
+    public void setSchemaCacheSidecar(boolean value) {
+        this.schemaCacheSidecar = value;
+    }
+
+    public long getLocalExecutionThreshold() {
+        return this.localExecutionThreshold;
+    }
+
+    public void setLocalExecutionThreshold(long value) {
+        this.localExecutionThreshold = value;
+    }
+
+    /**
+     * Returns a string that identifies all options that may change the compiled plan of a query. Two configurations
+     * with the same key compile any given query to the same plan, so that it can be shared via the query plan cache.
+     *
+     * @return the key.
+     */
+    public String getQueryPlanCacheKey() {
+        Map<String, String> compileTimeArguments = new TreeMap<>();
+        for (Map.Entry<String, String> entry : this.arguments.entrySet()) {
+            if (isRuntimeOnlyArgument(entry.getKey())) {
+                continue;
+            }
+            compileTimeArguments.put(entry.getKey(), entry.getValue());
+        }
+        StringBuilder sb = new StringBuilder();
+        sb.append(compileTimeArguments);
+        sb.append(this.allowedPrefixes);
+        sb.append(this.checkReturnTypeOfBuiltinFunctions);
+        sb.append(this.nativeSQLPredicates);
+        sb.append(this.dataFrameExecutionModeDetection);
+        sb.append(this.thirdFeature);
+        // Positional predicates below the materialization cap are compiled to local lookups.
+        sb.append(this.resultsSizeCap);
+        // Small inputs are read locally, and so is everything that depends on them.
+        sb.append(this.localExecutionThreshold);
+        // The translator adds a context item declaration if a context item is supplied.
+        sb.append(
+            this.readFromStandardInput(Name.CONTEXT_ITEM)
+                || this.getUnparsedExternalVariableValue(Name.CONTEXT_ITEM) != null
+        );
+        return sb.toString();
+    }
+
+    private static boolean isRuntimeOnlyArgument(String argument) {
+        if (RUNTIME_ONLY_ARGUMENTS.contains(argument)) {
+            return true;
+        }
+        for (String prefix : RUNTIME_ONLY_ARGUMENT_PREFIXES) {
+            if (argument.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * Gets the configured number of Items that should be collected in case of a forced materialization. This applies in
      * particular to a local use of the ItemIterator.
@@ -555,6 +748,16 @@ public class RumbleRuntimeConfiguration implements Serializable, KryoSerializabl
             && this.arguments.get("print-inferred-types").equals("yes");
     }
 
+    public boolean printOptimizedPlan() {
+        return this.arguments.containsKey("print-optimized-plan")
+            && this.arguments.get("print-optimized-plan").equals("yes");
+    }
+
+    public boolean explain() {
+        return this.arguments.containsKey("explain")
+            && this.arguments.get("explain").equals("yes");
+    }
+
     public boolean escapeBackticks() {
         return this.arguments.containsKey("escape-backticks")
             && this.arguments.get("escape-backticks").equals("yes");
@@ -673,7 +876,7 @@ public class RumbleRuntimeConfiguration implements Serializable, KryoSerializabl
         }
         String encoding = "UTF-8";
         if (options.containsKey("encoding")) {
-            itemSeparator = options.get("encoding");
+            encoding = options.get("encoding");
         }
         return new Serializer(
                 encoding,
@@ -15,7 +15,9 @@ public class BuiltinFunction {
         RDD,
         DATAFRAME,
         INHERIT_FROM_FIRST_ARGUMENT,
-        INHERIT_FROM_FIRST_ARGUMENT_BUT_DATAFRAME_FALLSBACK_TO_LOCAL
+        INHERIT_FROM_FIRST_ARGUMENT_BUT_DATAFRAME_FALLSBACK_TO_LOCAL,
+        // RDD, or local if the files read by the function are below the local execution threshold.
+        RDD_UNLESS_SMALL_INPUT
     }
 
     private FunctionIdentifier identifier;
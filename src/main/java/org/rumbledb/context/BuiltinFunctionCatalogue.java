@@ -50,13 +50,16 @@ import org.rumbledb.runtime.functions.durations.components.SecondsFromDurationFu
 import org.rumbledb.runtime.functions.durations.components.YearsFromDurationFunctionIterator;
 import org.rumbledb.runtime.functions.input.AvroFileFunctionIterator;
 import org.rumbledb.runtime.functions.input.CSVFileFunctionIterator;
+import org.rumbledb.runtime.functions.input.JsonArrayFileFunctionIterator;
 import org.rumbledb.runtime.functions.input.JsonFileFunctionIterator;
+import org.rumbledb.runtime.functions.input.JsonSequenceFileFunctionIterator;
 import org.rumbledb.runtime.functions.input.LibSVMFileFunctionIterator;
 import org.rumbledb.runtime.functions.input.ParallelizeFunctionIterator;
 import org.rumbledb.runtime.functions.input.ParquetFileFunctionIterator;
 import org.rumbledb.runtime.functions.input.RootFileFunctionIterator;
 import org.rumbledb.runtime.functions.input.StructuredJsonFileFunctionIterator;
 import org.rumbledb.runtime.functions.input.UnparsedTextLinesFunctionIterator;
+import org.rumbledb.runtime.functions.io.CollectionFunctionIterator;
 import org.rumbledb.runtime.functions.io.JsonDocFunctionIterator;
 import org.rumbledb.runtime.functions.io.LocalTextFileFunctionIterator;
 import org.rumbledb.runtime.functions.io.ParseJsonFunctionIterator;
@@ -347,7 +350,7 @@ public class BuiltinFunctionCatalogue {
         "string",
         "item*",
         JsonFileFunctionIterator.class,
-        BuiltinFunction.BuiltinFunctionExecutionMode.RDD
+        BuiltinFunction.BuiltinFunctionExecutionMode.RDD_UNLESS_SMALL_INPUT
     );
     static final BuiltinFunction json_file2 = createBuiltinFunction(
         new Name(Name.JN_NS, "jn", "json-file"),
@@ -357,6 +360,42 @@ public class BuiltinFunctionCatalogue {
         JsonFileFunctionIterator.class,
         BuiltinFunction.BuiltinFunctionExecutionMode.RDD
     );
+    /**
+     * function that parses the members of the top-level array of a JSON file in parallel
+     */
+    static final BuiltinFunction json_array_file1 = createBuiltinFunction(
+        new Name(Name.JN_NS, "jn", "json-array-file"),
+        "string",
+        "item*",
+        JsonArrayFileFunctionIterator.class,
+        BuiltinFunction.BuiltinFunctionExecutionMode.RDD
+    );
+    static final BuiltinFunction json_array_file2 = createBuiltinFunction(
+        new Name(Name.JN_NS, "jn", "json-array-file"),
+        "string",
+        "integer?",
+        "item*",
+        JsonArrayFileFunctionIterator.class,
+        BuiltinFunction.BuiltinFunctionExecutionMode.RDD
+    );
+    /**
+     * function that parses a sequence of JSON values, not necessarily separated by newlines, in parallel
+     */
+    static final BuiltinFunction json_sequence_file1 = createBuiltinFunction(
+        new Name(Name.JN_NS, "jn", "json-sequence-file"),
+        "string",
+        "item*",
+        JsonSequenceFileFunctionIterator.class,
+        BuiltinFunction.BuiltinFunctionExecutionMode.RDD
+    );
+    static final BuiltinFunction json_sequence_file2 = createBuiltinFunction(
+        new Name(Name.JN_NS, "jn", "json-sequence-file"),
+        "string",
+        "integer?",
+        "item*",
+        JsonSequenceFileFunctionIterator.class,
+        BuiltinFunction.BuiltinFunctionExecutionMode.RDD
+    );
     /**
      * function that parses a structured JSON lines file into a DataFrame
      */
@@ -387,6 +426,16 @@ public class BuiltinFunctionCatalogue {
         JsonDocFunctionIterator.class,
         BuiltinFunction.BuiltinFunctionExecutionMode.LOCAL
     );
+    /**
+     * function that returns a collection defined in the catalog
+     */
+    static final BuiltinFunction collection = createBuiltinFunction(
+        new Name(Name.FN_NS, "fn", "collection"),
+        "string?",
+        "item*",
+        CollectionFunctionIterator.class,
+        BuiltinFunction.BuiltinFunctionExecutionMode.DATAFRAME
+    );
     static final BuiltinFunction parse_json = createBuiltinFunction(
         new Name(Name.FN_NS, "fn", "parse-json"),
         "string?",
@@ -410,14 +459,14 @@ public class BuiltinFunctionCatalogue {
         "string?",
         "string*",
         UnparsedTextLinesFunctionIterator.class,
-        BuiltinFunction.BuiltinFunctionExecutionMode.RDD
+        BuiltinFunction.BuiltinFunctionExecutionMode.RDD_UNLESS_SMALL_INPUT
     );
     static final BuiltinFunction text_file1 = createBuiltinFunction(
         new Name(Name.JN_NS, "jn", "text-file"),
         "string",
         "item*",
         UnparsedTextLinesFunctionIterator.class,
-        BuiltinFunction.BuiltinFunctionExecutionMode.RDD
+        BuiltinFunction.BuiltinFunctionExecutionMode.RDD_UNLESS_SMALL_INPUT
     );
     static final BuiltinFunction text_file2 = createBuiltinFunction(
         new Name(Name.JN_NS, "jn", "text-file"),
@@ -2550,9 +2599,14 @@ public class BuiltinFunctionCatalogue {
 
         builtinFunctions.put(json_file1.getIdentifier(), json_file1);
         builtinFunctions.put(json_file2.getIdentifier(), json_file2);
+        builtinFunctions.put(json_array_file1.getIdentifier(), json_array_file1);
+        builtinFunctions.put(json_array_file2.getIdentifier(), json_array_file2);
+        builtinFunctions.put(json_sequence_file1.getIdentifier(), json_sequence_file1);
+        builtinFunctions.put(json_sequence_file2.getIdentifier(), json_sequence_file2);
         builtinFunctions.put(structured_json_file.getIdentifier(), structured_json_file);
         builtinFunctions.put(libsvm_file.getIdentifier(), libsvm_file);
         builtinFunctions.put(json_doc.getIdentifier(), json_doc);
+        builtinFunctions.put(collection.getIdentifier(), collection);
         builtinFunctions.put(unparsed_text.getIdentifier(), unparsed_text);
         builtinFunctions.put(unparsed_text_lines.getIdentifier(), unparsed_text_lines);
         builtinFunctions.put(text_file1.getIdentifier(), text_file1);
@@ -56,14 +56,25 @@ public class VariableValues implements Serializable, KryoSerializable {
     private Map<Name, JSoundDataFrame> dataFrameVariableValues;
     private boolean nestedQuery;
     private VariableValues parent;
+    private int materializationCap;
 
     public VariableValues() {
+        this(0);
+    }
+
+    /**
+     * Creates new, empty variable values (without parent).
+     *
+     * @param materializationCap the maximum number of items materialized from an RDD variable, 0 for no limit.
+     */
+    public VariableValues(int materializationCap) {
         this.parent = null;
         this.localVariableCounts = new HashMap<>();
         this.localVariableValues = new HashMap<>();
         this.rddVariableValues = new HashMap<>();
         this.dataFrameVariableValues = new HashMap<>();
         this.nestedQuery = false;
+        this.materializationCap = materializationCap;
     }
 
     public VariableValues(VariableValues parent) {
@@ -187,7 +198,7 @@ public class VariableValues implements Serializable, KryoSerializable {
                 throw new JobWithinAJobException(metadata);
             }
             JavaRDD<Item> rdd = this.getRDDVariableValue(varName, metadata);
-            return SparkSessionManager.collectRDDwithLimit(rdd, metadata);
+            return SparkSessionManager.collectRDDwithLimit(rdd, getMaterializationCap(), metadata);
         }
 
         if (this.parent != null) {
@@ -207,6 +218,13 @@ public class VariableValues implements Serializable, KryoSerializable {
         );
     }
 
+    private int getMaterializationCap() {
+        if (this.parent != null) {
+            return this.parent.getMaterializationCap();
+        }
+        return this.materializationCap;
+    }
+
     public JavaRDD<Item> getRDDVariableValue(Name varName, ExceptionMetadata metadata) {
         if (this.rddVariableValues.containsKey(varName)) {
             if (this.nestedQuery) {
@@ -42,6 +42,8 @@ public abstract class Expression extends Node {
 
     protected SequenceType staticSequenceType;
 
+    protected boolean isConstant;
+
     protected Expression(ExceptionMetadata metadata) {
         super(metadata);
     }
@@ -98,6 +100,25 @@ public abstract class Expression extends Node {
         this.staticSequenceType = staticSequenceType;
     }
 
+    /**
+     * Tells whether this expression only consists of literals and deterministic operators and builtin function
+     * calls, so that it can be evaluated once at compile time.
+     *
+     * @return true if yes, false otherwise.
+     */
+    public boolean isConstant() {
+        return this.isConstant;
+    }
+
+    /**
+     * Marks the expression as constant, for use by the constant folding visitor.
+     *
+     * @param isConstant whether the expression is constant.
+     */
+    public void setConstant(boolean isConstant) {
+        this.isConstant = isConstant;
+    }
+
     @Override
     public void print(StringBuffer buffer, int indent) {
         for (int i = 0; i < indent; ++i) {
@@ -112,6 +133,9 @@ public abstract class Expression extends Node {
                     : this.staticSequenceType
                         + (this.staticSequenceType.isResolved() ? " (resolved)" : " (unresolved)"))
         );
+        if (this.isConstant) {
+            buffer.append(" | constant");
+        }
         buffer.append("\n");
         for (Node iterator : getChildren()) {
             iterator.print(buffer, indent + 1);
@@ -192,6 +192,18 @@ public abstract class Node {
         return sb.toString();
     }
 
+    /**
+     * Replaces a child expression of this node with another expression. This is used by rewrites, and only
+     * supported by some nodes.
+     *
+     * @param child the child to replace, compared by identity.
+     * @param replacement the expression to put in its place.
+     * @return true if the child was replaced, false if it is not a child of this node or cannot be replaced.
+     */
+    public boolean replaceChild(Expression child, Expression replacement) {
+        return false;
+    }
+
     public abstract void serializeToJSONiq(StringBuffer sb, int indent);
 
     protected void indentIt(StringBuffer buffer, int indent) {
@@ -64,6 +64,19 @@ public class AdditiveExpression extends Expression {
         return this.rightExpression;
     }
 
+    @Override
+    public boolean replaceChild(Expression child, Expression replacement) {
+        if (this.leftExpression == child) {
+            this.leftExpression = replacement;
+            return true;
+        }
+        if (this.rightExpression == child) {
+            this.rightExpression = replacement;
+            return true;
+        }
+        return false;
+    }
+
     public boolean isMinus() {
         return this.isMinus;
     }
@@ -140,6 +140,19 @@ public class ComparisonExpression extends Expression {
         return Arrays.asList(this.leftExpression, this.rightExpression);
     }
 
+    @Override
+    public boolean replaceChild(Expression child, Expression replacement) {
+        if (this.leftExpression == child) {
+            this.leftExpression = replacement;
+            return true;
+        }
+        if (this.rightExpression == child) {
+            this.rightExpression = replacement;
+            return true;
+        }
+        return false;
+    }
+
     public ComparisonOperator getComparisonOperator() {
         return this.comparisonOperator;
     }
@@ -95,6 +95,37 @@ public abstract class Clause extends Node {
         otherClause.previousClause = this;
     }
 
+    /**
+     * Removes this clause from its list, chaining its previous and next clauses together. This is used by rewrites.
+     */
+    public void detach() {
+        if (this.previousClause != null) {
+            this.previousClause.nextClause = this.nextClause;
+        }
+        if (this.nextClause != null) {
+            this.nextClause.previousClause = this.previousClause;
+        }
+        this.previousClause = null;
+        this.nextClause = null;
+    }
+
+    /**
+     * Inserts a detached clause between this clause and its next clause.
+     *
+     * @param otherClause the clause to insert.
+     */
+    public void insertNextClause(Clause otherClause) {
+        if (otherClause.previousClause != null || otherClause.nextClause != null) {
+            throw new OurBadException("Inserted clause already chained!");
+        }
+        otherClause.nextClause = this.nextClause;
+        otherClause.previousClause = this;
+        if (this.nextClause != null) {
+            this.nextClause.previousClause = otherClause;
+        }
+        this.nextClause = otherClause;
+    }
+
     public ReturnClause detachInitialLetClauses() {
         if (this.nextClause != null) {
             throw new OurBadException("Detaching a let clause can only be done from the last clause");
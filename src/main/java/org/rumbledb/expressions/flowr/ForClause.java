@@ -90,6 +90,15 @@ public class ForClause extends Clause {
         return this.expression;
     }
 
+    @Override
+    public boolean replaceChild(Expression child, Expression replacement) {
+        if (this.expression != child) {
+            return false;
+        }
+        this.expression = replacement;
+        return true;
+    }
+
     @Override
     public void initHighestExecutionMode(VisitorConfig visitorConfig) {
         this.highestExecutionMode =
@@ -24,6 +24,7 @@ import org.rumbledb.compiler.VisitorConfig;
 import org.rumbledb.exceptions.ExceptionMetadata;
 import org.rumbledb.exceptions.SemanticException;
 import org.rumbledb.expressions.AbstractNodeVisitor;
+import org.rumbledb.expressions.Expression;
 import org.rumbledb.expressions.Node;
 
 
@@ -46,6 +47,17 @@ public class GroupByClause extends Clause {
         return this.variables;
     }
 
+    @Override
+    public boolean replaceChild(Expression child, Expression replacement) {
+        for (GroupByVariableDeclaration variable : this.variables) {
+            if (variable != null && variable.expression != null && variable.expression == child) {
+                variable.expression = replacement;
+                return true;
+            }
+        }
+        return false;
+    }
+
     @Override
     public void initHighestExecutionMode(VisitorConfig visitorConfig) {
         this.highestExecutionMode = this.previousClause.getHighestExecutionMode(visitorConfig);
@@ -74,6 +74,15 @@ public class LetClause extends Clause {
         return this.expression;
     }
 
+    @Override
+    public boolean replaceChild(Expression child, Expression replacement) {
+        if (this.expression != child) {
+            return false;
+        }
+        this.expression = replacement;
+        return true;
+    }
+
     @Override
     public void initHighestExecutionMode(VisitorConfig visitorConfig) {
         this.highestExecutionMode =
@@ -24,6 +24,7 @@ package org.rumbledb.expressions.flowr;
 import org.rumbledb.exceptions.ExceptionMetadata;
 import org.rumbledb.exceptions.SemanticException;
 import org.rumbledb.expressions.AbstractNodeVisitor;
+import org.rumbledb.expressions.Expression;
 import org.rumbledb.expressions.Node;
 
 import java.util.ArrayList;
@@ -99,4 +100,19 @@ public class OrderByClause extends Clause {
         return this.sortingKeys;
     }
 
+    @Override
+    public boolean replaceChild(Expression child, Expression replacement) {
+        for (int i = 0; i < this.sortingKeys.size(); ++i) {
+            OrderByClauseSortingKey key = this.sortingKeys.get(i);
+            if (key.getExpression() == child) {
+                this.sortingKeys.set(
+                    i,
+                    new OrderByClauseSortingKey(replacement, key.isAscending(), key.getUri(), key.getEmptyOrder())
+                );
+                return true;
+            }
+        }
+        return false;
+    }
+
 }
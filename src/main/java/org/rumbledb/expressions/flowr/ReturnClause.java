@@ -31,7 +31,7 @@ import java.util.List;
 public class ReturnClause extends Clause {
 
 
-    private final Expression returnExpr;
+    private Expression returnExpr;
 
     public ReturnClause(Expression expr, ExceptionMetadata metadata) {
         super(FLWOR_CLAUSES.RETURN, metadata);
@@ -42,6 +42,15 @@ public class ReturnClause extends Clause {
         return this.returnExpr;
     }
 
+    @Override
+    public boolean replaceChild(Expression child, Expression replacement) {
+        if (this.returnExpr != child) {
+            return false;
+        }
+        this.returnExpr = replacement;
+        return true;
+    }
+
     @Override
     public List<Node> getChildren() {
         List<Node> result = new ArrayList<>();
@@ -31,7 +31,7 @@ import java.util.List;
 
 public class WhereClause extends Clause {
 
-    private final Expression whereExpression;
+    private Expression whereExpression;
 
     public WhereClause(Expression expr, ExceptionMetadata metadata) {
         super(FLWOR_CLAUSES.WHERE, metadata);
@@ -42,6 +42,15 @@ public class WhereClause extends Clause {
         return this.whereExpression;
     }
 
+    @Override
+    public boolean replaceChild(Expression child, Expression replacement) {
+        if (this.whereExpression != child) {
+            return false;
+        }
+        this.whereExpression = replacement;
+        return true;
+    }
+
     @Override
     public <T> T accept(AbstractNodeVisitor<T> visitor, T argument) {
         return visitor.visitWhereClause(this, argument);
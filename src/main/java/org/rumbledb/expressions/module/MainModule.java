@@ -25,17 +25,22 @@ import org.rumbledb.context.StaticContext;
 import org.rumbledb.exceptions.ExceptionMetadata;
 import org.rumbledb.exceptions.OurBadException;
 import org.rumbledb.expressions.AbstractNodeVisitor;
+import org.rumbledb.expressions.ExecutionMode;
 import org.rumbledb.expressions.Expression;
 import org.rumbledb.expressions.Node;
 
+import java.net.URI;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 public class MainModule extends Module {
 
     protected StaticContext staticContext;
     private final Prolog prolog;
     private final Expression expression;
+    private Map<URI, ExecutionMode> measuredInputs;
 
     public MainModule(Prolog prolog, Expression expression, ExceptionMetadata metadata) {
         super(metadata);
@@ -62,6 +67,19 @@ public class MainModule extends Module {
         return this.expression;
     }
 
+    /**
+     * Returns the inputs whose size was measured at compile time, with the execution mode chosen for each of them.
+     *
+     * @return the measured inputs.
+     */
+    public Map<URI, ExecutionMode> getMeasuredInputs() {
+        return this.measuredInputs == null ? Collections.emptyMap() : this.measuredInputs;
+    }
+
+    public void setMeasuredInputs(Map<URI, ExecutionMode> measuredInputs) {
+        this.measuredInputs = measuredInputs;
+    }
+
     @Override
     public List<Node> getChildren() {
         List<Node> result = new ArrayList<>();
@@ -66,6 +66,15 @@ public class ArrayLookupExpression extends Expression {
         return this.lookupExpression;
     }
 
+    @Override
+    public boolean replaceChild(Expression child, Expression replacement) {
+        if (this.mainExpression != child) {
+            return false;
+        }
+        this.mainExpression = replacement;
+        return true;
+    }
+
     public Expression getMainExpression() {
         return this.mainExpression;
     }
@@ -63,6 +63,15 @@ public class ArrayUnboxingExpression extends Expression {
         sb.append(")\n");
     }
 
+    @Override
+    public boolean replaceChild(Expression child, Expression replacement) {
+        if (this.mainExpression != child) {
+            return false;
+        }
+        this.mainExpression = replacement;
+        return true;
+    }
+
     public Expression getMainExpression() {
         return this.mainExpression;
     }
@@ -71,6 +71,15 @@ public class ObjectLookupExpression extends Expression {
         return visitor.visitObjectLookupExpression(this, argument);
     }
 
+    @Override
+    public boolean replaceChild(Expression child, Expression replacement) {
+        if (this.mainExpression != child) {
+            return false;
+        }
+        this.mainExpression = replacement;
+        return true;
+    }
+
     public Expression getMainExpression() {
         return this.mainExpression;
     }
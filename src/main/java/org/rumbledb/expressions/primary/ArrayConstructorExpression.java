@@ -47,6 +47,15 @@ public class ArrayConstructorExpression extends Expression {
         return this.expression;
     }
 
+    @Override
+    public boolean replaceChild(Expression child, Expression replacement) {
+        if (this.expression == null || this.expression != child) {
+            return false;
+        }
+        this.expression = replacement;
+        return true;
+    }
+
     @Override
     public List<Node> getChildren() {
         List<Node> result = new ArrayList<>();
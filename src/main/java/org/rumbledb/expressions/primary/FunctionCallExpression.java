@@ -34,15 +34,23 @@ import org.rumbledb.expressions.AbstractNodeVisitor;
 import org.rumbledb.expressions.ExecutionMode;
 import org.rumbledb.expressions.Expression;
 import org.rumbledb.expressions.Node;
+import org.rumbledb.items.parsing.FieldProjection;
+import org.rumbledb.runtime.functions.input.PartitionFilter;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Collectors;
 
 public class FunctionCallExpression extends Expression {
 
     private final FunctionIdentifier identifier;
-    private final List<Expression> arguments; // null for placeholder
+    private List<Expression> arguments; // null for placeholder
     private final boolean isPartialApplication;
+    private FieldProjection projection; // only for functions parsing JSON
+    private List<PartitionFilter> partitionFilters; // only for functions reading partitioned directories
+    private boolean isUnordered; // only for functions reading lines
+    // only for functions reading files that may be small
+    private ExecutionMode inputSizeExecutionMode;
 
     public FunctionCallExpression(
             Name functionName,
@@ -63,6 +71,19 @@ public class FunctionCallExpression extends Expression {
         return this.arguments;
     }
 
+    @Override
+    public boolean replaceChild(Expression child, Expression replacement) {
+        for (int i = 0; i < this.arguments.size(); ++i) {
+            if (this.arguments.get(i) == child) {
+                // The arguments may be an immutable list.
+                this.arguments = new ArrayList<>(this.arguments);
+                this.arguments.set(i, replacement);
+                return true;
+            }
+        }
+        return false;
+    }
+
     public FunctionIdentifier getFunctionIdentifier() {
         return this.identifier;
     }
@@ -77,10 +98,64 @@ public class FunctionCallExpression extends Expression {
         return result;
     }
 
+    /**
+     * Returns the fields of parsed objects that are used by the query, or null if they are all needed.
+     *
+     * @return the projection.
+     */
+    public FieldProjection getProjection() {
+        return this.projection;
+    }
+
+    public void setProjection(FieldProjection projection) {
+        this.projection = projection;
+    }
+
+    /**
+     * Returns comparisons of fields with literals that all objects used by the query satisfy, or null if none is
+     * known. They are used to skip partition directories.
+     *
+     * @return the filters.
+     */
+    public List<PartitionFilter> getPartitionFilters() {
+        return this.partitionFilters;
+    }
+
+    public void setPartitionFilters(List<PartitionFilter> partitionFilters) {
+        this.partitionFilters = partitionFilters;
+    }
+
+    /**
+     * Tells whether the query does not depend on the order of the items returned by the call, in which case they may
+     * be returned in any order.
+     *
+     * @return true if the order does not matter.
+     */
+    public boolean isUnordered() {
+        return this.isUnordered;
+    }
+
+    public void setUnordered(boolean isUnordered) {
+        this.isUnordered = isUnordered;
+    }
+
     public boolean isPartialApplication() {
         return this.isPartialApplication;
     }
 
+    /**
+     * Returns the execution mode chosen from the size of the input of the call, or null if it was not measured.
+     *
+     * @return the execution mode.
+     */
+    public ExecutionMode getInputSizeExecutionMode() {
+        return this.inputSizeExecutionMode;
+    }
+
+    public void setInputSizeExecutionMode(ExecutionMode inputSizeExecutionMode) {
+        this.inputSizeExecutionMode = inputSizeExecutionMode;
+    }
+
     @Override
     public final void initHighestExecutionMode(VisitorConfig visitorConfig) {
         throw new OurBadException("Function call expressions do not use the highestExecutionMode initializer");
@@ -152,6 +227,9 @@ public class FunctionCallExpression extends Expression {
             }
             return ExecutionMode.LOCAL;
         }
+        if (functionExecutionMode == BuiltinFunctionExecutionMode.RDD_UNLESS_SMALL_INPUT) {
+            return this.inputSizeExecutionMode == null ? ExecutionMode.RDD : this.inputSizeExecutionMode;
+        }
         if (
             functionExecutionMode == BuiltinFunctionExecutionMode.INHERIT_FROM_FIRST_ARGUMENT_BUT_DATAFRAME_FALLSBACK_TO_LOCAL
         ) {
@@ -187,6 +265,18 @@ public class FunctionCallExpression extends Expression {
                     : this.staticSequenceType
                         + (this.staticSequenceType.isResolved() ? " (resolved)" : " (unresolved)"))
         );
+        if (this.projection != null) {
+            buffer.append(" | projection: " + this.projection);
+        }
+        if (this.partitionFilters != null) {
+            buffer.append(" | partition filters: " + this.partitionFilters);
+        }
+        if (this.isUnordered) {
+            buffer.append(" | unordered");
+        }
+        if (this.inputSizeExecutionMode != null) {
+            buffer.append(" | input size: " + this.inputSizeExecutionMode);
+        }
         buffer.append("\n");
         for (Expression arg : this.arguments) {
             if (arg == null) {
@@ -60,6 +60,20 @@ public class ObjectConstructorExpression extends Expression {
         return this.values;
     }
 
+    @Override
+    public boolean replaceChild(Expression child, Expression replacement) {
+        if (this.isMergedConstructor) {
+            return false;
+        }
+        for (int i = 0; i < this.values.size(); ++i) {
+            if (this.values.get(i) == child) {
+                this.values.set(i, replacement);
+                return true;
+            }
+        }
+        return false;
+    }
+
     public boolean isMergedConstructor() {
         return this.isMergedConstructor;
     }
@@ -212,4 +212,8 @@ public class ItemFactory {
         return new ObjectItem(keyValuePairs);
     }
 
+    public Item createLazyObjectItem(byte[] bytes, int offset, int length) {
+        return new LazyObjectItem(bytes, offset, length);
+    }
+
 }
@@ -0,0 +1,180 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Authors: Stefan Irimescu, Can Berker Cikis
+ *
+ */
+
+package org.rumbledb.items;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import org.rumbledb.api.Item;
+import org.rumbledb.exceptions.ExceptionMetadata;
+import org.rumbledb.items.parsing.UTF8JSONParser;
+import org.rumbledb.types.BuiltinTypesCatalogue;
+import org.rumbledb.types.ItemType;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An object parsed from JSON, the fields of which are only decoded when they are accessed.
+ *
+ * The item keeps the UTF-8 bytes of the object, the syntax of which was checked by the parser. On the first access,
+ * the keys are decoded and the positions of the values are recorded. Each value is then decoded the first time it is
+ * looked up, and nested objects are lazy as well. A query that only looks up a few fields of each object, e.g., in a
+ * where clause, thus does not decode the others.
+ */
+public class LazyObjectItem implements Item {
+
+    private static final long serialVersionUID = 1L;
+    // Parsers are not thread-safe, and creating one for each item would be wasteful.
+    private static final ThreadLocal<UTF8JSONParser> parser = ThreadLocal.withInitial(
+        () -> new UTF8JSONParser(ExceptionMetadata.EMPTY_METADATA)
+    );
+
+    private byte[] bytes;
+    private int offset;
+    private int length;
+    // Computed on the first access.
+    private transient List<String> keys;
+    private transient int[] boundaries;
+    private transient Item[] values;
+
+    public LazyObjectItem() {
+        super();
+    }
+
+    public LazyObjectItem(byte[] bytes, int offset, int length) {
+        super();
+        this.bytes = bytes;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    private void index() {
+        if (this.keys != null) {
+            return;
+        }
+        List<String> keys = new ArrayList<>();
+        this.boundaries = parser.get().indexObject(this.bytes, this.offset, this.length, keys);
+        this.values = new Item[keys.size()];
+        this.keys = keys;
+    }
+
+    private Item getValue(int index) {
+        Item value = this.values[index];
+        if (value == null) {
+            int start = this.boundaries[2 * index];
+            int end = this.boundaries[2 * index + 1];
+            if (this.bytes[start] == '{') {
+                value = new LazyObjectItem(this.bytes, start, end - start);
+            } else {
+                value = parser.get().parse(this.bytes, start, end - start);
+            }
+            this.values[index] = value;
+        }
+        return value;
+    }
+
+    @Override
+    public List<String> getKeys() {
+        index();
+        return this.keys;
+    }
+
+    @Override
+    public List<Item> getValues() {
+        index();
+        List<Item> result = new ArrayList<>(this.values.length);
+        for (int i = 0; i < this.values.length; ++i) {
+            result.add(getValue(i));
+        }
+        return result;
+    }
+
+    @Override
+    public Item getItemByKey(String key) {
+        index();
+        int index = this.keys.indexOf(key);
+        if (index == -1) {
+            return null;
+        }
+        return getValue(index);
+    }
+
+    @Override
+    public boolean isObject() {
+        return true;
+    }
+
+    public boolean equals(Object otherItem) {
+        if (!(otherItem instanceof Item)) {
+            return false;
+        }
+        Item o = (Item) otherItem;
+        if (!o.isObject()) {
+            return false;
+        }
+        for (String s : getKeys()) {
+            Item v = o.getItemByKey(s);
+            if (v == null || !getItemByKey(s).equals(v)) {
+                return false;
+            }
+        }
+        for (String s : o.getKeys()) {
+            Item v = getItemByKey(s);
+            if (v == null || !o.getItemByKey(s).equals(v)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public int hashCode() {
+        int result = 0;
+        result += getKeys().size();
+        for (String s : getKeys()) {
+            result += getItemByKey(s).hashCode();
+        }
+        return result;
+    }
+
+    @Override
+    public void write(Kryo kryo, Output output) {
+        output.writeInt(this.length);
+        output.writeBytes(this.bytes, this.offset, this.length);
+    }
+
+    @Override
+    public void read(Kryo kryo, Input input) {
+        this.length = input.readInt();
+        this.bytes = input.readBytes(this.length);
+        this.offset = 0;
+        this.keys = null;
+    }
+
+    @Override
+    public ItemType getDynamicType() {
+        return BuiltinTypesCatalogue.objectItem;
+    }
+
+    @Override
+    public boolean getEffectiveBooleanValue() {
+        return true;
+    }
+}
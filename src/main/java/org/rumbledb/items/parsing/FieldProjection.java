@@ -0,0 +1,109 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Authors: Stefan Irimescu, Can Berker Cikis
+ *
+ */
+
+package org.rumbledb.items.parsing;
+
+import java.io.Serializable;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The set of object fields, as a tree of paths, that a query uses from parsed JSON values.
+ *
+ * A complete projection keeps a value entirely. Otherwise, only the listed fields of an object are kept (each with its
+ * own projection) and the other fields are skipped by the parser. Values that are not objects are always kept
+ * entirely.
+ */
+public class FieldProjection implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    // null if the projection is complete.
+    private Map<String, FieldProjection> fields;
+
+    /**
+     * Creates a projection that keeps no fields, until paths are added.
+     */
+    public FieldProjection() {
+        this.fields = new TreeMap<>();
+    }
+
+    public boolean isComplete() {
+        return this.fields == null;
+    }
+
+    /**
+     * Adds a path, the value at the end of which is kept entirely.
+     *
+     * @param path the keys of the successive lookups, from the outermost object. If empty, the projection becomes
+     *        complete.
+     */
+    public void addPath(List<String> path) {
+        FieldProjection current = this;
+        for (String key : path) {
+            if (current.isComplete()) {
+                return;
+            }
+            FieldProjection field = current.fields.get(key);
+            if (field == null) {
+                field = new FieldProjection();
+                current.fields.put(key, field);
+            }
+            current = field;
+        }
+        current.fields = null;
+    }
+
+    /**
+     * Returns the projection of a field, or null if the field is not used.
+     *
+     * @param key the key of the field.
+     * @return the projection of the field.
+     */
+    public FieldProjection getField(String key) {
+        if (this.fields == null) {
+            return this;
+        }
+        return this.fields.get(key);
+    }
+
+    @Override
+    public String toString() {
+        if (this.fields == null) {
+            return "*";
+        }
+        StringBuilder sb = new StringBuilder();
+        sb.append("{ ");
+        boolean first = true;
+        for (Map.Entry<String, FieldProjection> entry : this.fields.entrySet()) {
+            if (!first) {
+                sb.append(", ");
+            }
+            first = false;
+            sb.append(entry.getKey());
+            if (!entry.getValue().isComplete()) {
+                sb.append(" : ").append(entry.getValue());
+            }
+        }
+        sb.append(" }");
+        return sb.toString();
+    }
+}
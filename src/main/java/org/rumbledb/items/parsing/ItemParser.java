@@ -42,7 +42,6 @@ import org.rumbledb.exceptions.RumbleException;
 import org.rumbledb.items.ItemFactory;
 
 import com.google.gson.stream.JsonReader;
-import com.google.gson.stream.JsonToken;
 import org.rumbledb.types.BuiltinTypesCatalogue;
 import org.rumbledb.types.FieldDescriptor;
 import org.rumbledb.types.ItemType;
@@ -66,6 +65,8 @@ public class ItemParser implements Serializable {
     private static final long serialVersionUID = 1L;
     private static final DataType vectorType = new VectorUDT();
     public static final DataType decimalType = new DecimalType(30, 15); // 30 and 15 are arbitrary
+    static final String JSON_PARSING_ERROR_MESSAGE =
+        "An error happened while parsing JSON. JSON is not well-formed! Hint: if you use json-file(), it must be in the JSON Lines format, with one value per line. If this is not the case, consider using json-doc().";
 
     /**
      * Parses a JSON string to an item.
@@ -93,58 +94,69 @@ public class ItemParser implements Serializable {
      */
     public static Item getItemFromObject(JsonReader object, ExceptionMetadata metadata) {
         try {
-            if (object.peek() == JsonToken.STRING) {
-                return ItemFactory.getInstance().createStringItem(object.nextString());
-            }
-            if (object.peek() == JsonToken.NUMBER) {
-                String number = object.nextString();
-                if (number.contains("E") || number.contains("e")) {
-                    return ItemFactory.getInstance().createDoubleItem(Double.parseDouble(number));
-                }
-                if (number.contains(".")) {
-                    return ItemFactory.getInstance().createDecimalItem(new BigDecimal(number));
-                }
-                return ItemFactory.getInstance().createIntegerItem(number);
-            }
-            if (object.peek() == JsonToken.BOOLEAN) {
-                return ItemFactory.getInstance().createBooleanItem(object.nextBoolean());
-            }
-            if (object.peek() == JsonToken.BEGIN_ARRAY) {
-                List<Item> values = new ArrayList<>();
-                object.beginArray();
-                while (object.hasNext()) {
-                    values.add(getItemFromObject(object, metadata));
-                }
-                object.endArray();
-                return ItemFactory.getInstance().createArrayItem(values);
-            }
-            if (object.peek() == JsonToken.BEGIN_OBJECT) {
-                List<String> keys = new ArrayList<>();
-                List<Item> values = new ArrayList<>();
-                object.beginObject();
-                while (object.hasNext()) {
-                    keys.add(object.nextName());
-                    values.add(getItemFromObject(object, metadata));
-                }
-                object.endObject();
-                return ItemFactory.getInstance()
-                    .createObjectItem(keys, values, metadata);
-            }
-            if (object.peek() == JsonToken.NULL) {
-                object.nextNull();
-                return ItemFactory.getInstance().createNullItem();
+            switch (object.peek()) {
+                case STRING:
+                    return ItemFactory.getInstance().createStringItem(object.nextString());
+                case NUMBER:
+                    return getNumberItem(object.nextString());
+                case BOOLEAN:
+                    return ItemFactory.getInstance().createBooleanItem(object.nextBoolean());
+                case BEGIN_ARRAY:
+                    List<Item> members = new ArrayList<>();
+                    object.beginArray();
+                    while (object.hasNext()) {
+                        members.add(getItemFromObject(object, metadata));
+                    }
+                    object.endArray();
+                    return ItemFactory.getInstance().createArrayItem(members);
+                case BEGIN_OBJECT:
+                    List<String> keys = new ArrayList<>();
+                    List<Item> values = new ArrayList<>();
+                    object.beginObject();
+                    while (object.hasNext()) {
+                        keys.add(object.nextName());
+                        values.add(getItemFromObject(object, metadata));
+                    }
+                    object.endObject();
+                    return ItemFactory.getInstance()
+                        .createObjectItem(keys, values, metadata);
+                case NULL:
+                    object.nextNull();
+                    return ItemFactory.getInstance().createNullItem();
+                default:
+                    throw new ParsingException(
+                            "Invalid value found while parsing. JSON is not well-formed!",
+                            metadata
+                    );
             }
-            throw new ParsingException("Invalid value found while parsing. JSON is not well-formed!", metadata);
         } catch (Exception e) {
-            RumbleException r = new ParsingException(
-                    "An error happened while parsing JSON. JSON is not well-formed! Hint: if you use json-file(), it must be in the JSON Lines format, with one value per line. If this is not the case, consider using json-doc().",
-                    metadata
-            );
+            RumbleException r = new ParsingException(JSON_PARSING_ERROR_MESSAGE, metadata);
             r.initCause(e);
             throw r;
         }
     }
 
+    /**
+     * Classifies a JSON number in a single scan: numbers with an exponent are doubles, numbers with a fraction are
+     * decimals, and other numbers are integers.
+     */
+    private static Item getNumberItem(String number) {
+        boolean isDecimal = false;
+        for (int i = 0; i < number.length(); ++i) {
+            char c = number.charAt(i);
+            if (c == 'e' || c == 'E') {
+                return ItemFactory.getInstance().createDoubleItem(Double.parseDouble(number));
+            }
+            if (c == '.') {
+                isDecimal = true;
+            }
+        }
+        if (isDecimal) {
+            return ItemFactory.getInstance().createDecimalItem(new BigDecimal(number));
+        }
+        return ItemFactory.getInstance().createIntegerItem(number);
+    }
+
     /**
      * Converts a DataFrame row to an item.
      * 
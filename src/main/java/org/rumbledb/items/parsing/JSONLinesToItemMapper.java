@@ -0,0 +1,96 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Authors: Stefan Irimescu, Can Berker Cikis
+ *
+ */
+
+package org.rumbledb.items.parsing;
+
+import org.apache.hadoop.io.Text;
+import org.apache.spark.api.java.function.FlatMapFunction;
+import org.rumbledb.api.Item;
+import org.rumbledb.exceptions.ExceptionMetadata;
+
+import java.util.Arrays;
+import java.util.Iterator;
+
+/**
+ * Parses the lines of a JSON Lines file, as read by Hadoop, directly from their UTF-8 bytes. Hadoop reuses the same
+ * Text object for all the lines of a split, and the parser is reused for all the lines of a partition.
+ */
+public class JSONLinesToItemMapper implements FlatMapFunction<Iterator<Text>, Item> {
+
+    private static final long serialVersionUID = 1L;
+    private final ExceptionMetadata metadata;
+    private final FieldProjection projection;
+    private final boolean isLazy;
+
+    public JSONLinesToItemMapper(ExceptionMetadata metadata) {
+        this(metadata, null, false);
+    }
+
+    /**
+     * Builds a new mapper.
+     *
+     * @param metadata the metadata of the function call, for errors.
+     * @param projection the fields to keep, or null to keep everything.
+     * @param isLazy whether objects should only be decoded when their fields are accessed. It is ignored if a
+     *        projection is given.
+     */
+    public JSONLinesToItemMapper(ExceptionMetadata metadata, FieldProjection projection, boolean isLazy) {
+        this.metadata = metadata;
+        this.projection = projection;
+        this.isLazy = isLazy && projection == null;
+    }
+
+    @Override
+    public Iterator<Item> call(Iterator<Text> lineIterator) throws Exception {
+        return map(lineIterator);
+    }
+
+    /**
+     * Parses lines lazily, as they are consumed. This is also used to read small files locally.
+     *
+     * @param lineIterator the lines, which may reuse the same Text object.
+     * @return the parsed items.
+     */
+    public Iterator<Item> map(Iterator<Text> lineIterator) {
+        UTF8JSONParser parser = new UTF8JSONParser(this.metadata);
+        return new Iterator<Item>() {
+            @Override
+            public boolean hasNext() {
+                return lineIterator.hasNext();
+            }
+
+            @Override
+            public Item next() {
+                Text line = lineIterator.next();
+                if (JSONLinesToItemMapper.this.isLazy) {
+                    // The item keeps the bytes, and Hadoop reuses the buffer for the next line.
+                    byte[] bytes = Arrays.copyOf(line.getBytes(), line.getLength());
+                    return parser.parseLazily(bytes, 0, bytes.length);
+                }
+                return parser.parse(line.getBytes(), 0, line.getLength(), JSONLinesToItemMapper.this.projection);
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+}
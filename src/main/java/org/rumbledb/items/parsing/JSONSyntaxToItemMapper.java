@@ -23,22 +23,38 @@ package org.rumbledb.items.parsing;
 import org.apache.spark.api.java.function.FlatMapFunction;
 import org.rumbledb.api.Item;
 import org.rumbledb.exceptions.ExceptionMetadata;
-import com.google.gson.stream.JsonReader;
 
-import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
 import java.util.Iterator;
 
 public class JSONSyntaxToItemMapper implements FlatMapFunction<Iterator<String>, Item> {
 
     private static final long serialVersionUID = 1L;
     private final ExceptionMetadata metadata;
+    private final FieldProjection projection;
+    private final boolean isLazy;
 
     public JSONSyntaxToItemMapper(ExceptionMetadata metadata) {
+        this(metadata, null, false);
+    }
+
+    /**
+     * Builds a new mapper.
+     *
+     * @param metadata the metadata of the function call, for errors.
+     * @param projection the fields to keep, or null to keep everything.
+     * @param isLazy whether objects should only be decoded when their fields are accessed. It is ignored if a
+     *        projection is given.
+     */
+    public JSONSyntaxToItemMapper(ExceptionMetadata metadata, FieldProjection projection, boolean isLazy) {
         this.metadata = metadata;
+        this.projection = projection;
+        this.isLazy = isLazy && projection == null;
     }
 
     @Override
     public Iterator<Item> call(Iterator<String> stringIterator) throws Exception {
+        UTF8JSONParser parser = new UTF8JSONParser(this.metadata);
         return new Iterator<Item>() {
             @Override
             public boolean hasNext() {
@@ -47,8 +63,11 @@ public class JSONSyntaxToItemMapper implements FlatMapFunction<Iterator<String>,
 
             @Override
             public Item next() {
-                JsonReader object = new JsonReader(new StringReader(stringIterator.next()));
-                return ItemParser.getItemFromObject(object, JSONSyntaxToItemMapper.this.metadata);
+                byte[] bytes = stringIterator.next().getBytes(StandardCharsets.UTF_8);
+                if (JSONSyntaxToItemMapper.this.isLazy) {
+                    return parser.parseLazily(bytes, 0, bytes.length);
+                }
+                return parser.parse(bytes, 0, bytes.length, JSONSyntaxToItemMapper.this.projection);
             }
 
             @Override
@@ -0,0 +1,690 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Authors: Stefan Irimescu, Can Berker Cikis
+ *
+ */
+
+package org.rumbledb.items.parsing;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.rumbledb.api.Item;
+import org.rumbledb.exceptions.DuplicateObjectKeyException;
+import org.rumbledb.exceptions.ExceptionMetadata;
+import org.rumbledb.exceptions.ParsingException;
+import org.rumbledb.exceptions.RumbleException;
+import org.rumbledb.items.ItemFactory;
+
+/**
+ * Parses JSON values directly from UTF-8 encoded bytes, e.g., the lines of a JSON Lines file as read by Hadoop.
+ *
+ * The parser is meant to be reused for many values (typically, all the lines of a partition): the buffer used to
+ * decode strings is reused, and object keys are looked up in a small cache so that keys repeated from one line to the
+ * next are not decoded again. Numbers are classified (integer, decimal or double) in the same pass that checks their
+ * syntax, and small integers are computed without going through a string.
+ *
+ * The values produced are the same as those of ItemParser.getItemFromObject(), unless a field projection is given:
+ * then, the fields of objects that the query does not use are only checked for syntax and are not materialized.
+ * Objects can also be parsed lazily, in which case their fields are only decoded when they are accessed. A parser is
+ * not thread-safe.
+ */
+public class UTF8JSONParser {
+
+    private static final int KEY_CACHE_SIZE = 1024;
+    private static final int MAXIMUM_CACHED_KEY_LENGTH = 64;
+    // Lexical integers shorter than this are ints, see ItemFactory.createIntegerItem(String).
+    private static final int MAXIMUM_INT_LEXICAL_LENGTH = 9;
+    private static final char REPLACEMENT_CHARACTER = '\uFFFD';
+    private static final int INTEGER = 0;
+    private static final int DECIMAL = 1;
+    private static final int DOUBLE = 2;
+
+    private final ExceptionMetadata metadata;
+    private final ItemFactory factory;
+
+    private byte[] input;
+    private int position;
+    private int end;
+
+    private char[] chars;
+    private final byte[][] cachedKeyBytes;
+    private final String[] cachedKeys;
+
+    public UTF8JSONParser(ExceptionMetadata metadata) {
+        this.metadata = metadata;
+        this.factory = ItemFactory.getInstance();
+        this.chars = new char[256];
+        this.cachedKeyBytes = new byte[KEY_CACHE_SIZE][];
+        this.cachedKeys = new String[KEY_CACHE_SIZE];
+    }
+
+    /**
+     * Parses a JSON value. Whitespace around the value is ignored.
+     *
+     * @param bytes the buffer containing the value, encoded in UTF-8.
+     * @param offset the position of the first byte of the value in the buffer.
+     * @param length the number of bytes of the value.
+     * @return the parsed item.
+     */
+    public Item parse(byte[] bytes, int offset, int length) {
+        return parse(bytes, offset, length, null);
+    }
+
+    /**
+     * Parses a JSON value, skipping the fields of objects that are not in the projection.
+     *
+     * @param bytes the buffer containing the value, encoded in UTF-8.
+     * @param offset the position of the first byte of the value in the buffer.
+     * @param length the number of bytes of the value.
+     * @param projection the fields to keep, or null to keep everything.
+     * @return the parsed item.
+     */
+    public Item parse(byte[] bytes, int offset, int length, FieldProjection projection) {
+        this.input = bytes;
+        this.position = offset;
+        this.end = offset + length;
+        try {
+            skipWhitespace();
+            if (projection == null || projection.isComplete()) {
+                return parseValue();
+            }
+            return parseValue(projection);
+        } catch (Exception e) {
+            throw wrap(e);
+        } finally {
+            this.input = null;
+        }
+    }
+
+    /**
+     * Parses a JSON value, deferring the decoding of the fields of objects to when they are accessed. The syntax of the
+     * whole value is checked right away, so that errors are reported as with parse().
+     *
+     * @param bytes the buffer containing the value, encoded in UTF-8. It must not be modified afterwards, as the items
+     *        returned keep a reference to it.
+     * @param offset the position of the first byte of the value in the buffer.
+     * @param length the number of bytes of the value.
+     * @return the parsed item.
+     */
+    public Item parseLazily(byte[] bytes, int offset, int length) {
+        this.input = bytes;
+        this.position = offset;
+        this.end = offset + length;
+        try {
+            skipWhitespace();
+            if (this.position >= this.end || this.input[this.position] != '{') {
+                return parseValue();
+            }
+            int start = this.position;
+            skipValue();
+            return this.factory.createLazyObjectItem(bytes, start, this.position - start);
+        } catch (Exception e) {
+            throw wrap(e);
+        } finally {
+            this.input = null;
+        }
+    }
+
+    /**
+     * Decodes the keys of an object, the syntax of which was already checked, and locates its values without decoding
+     * them. Duplicate keys are reported as a parsing error, as when the object is parsed right away.
+     *
+     * @param bytes the buffer containing the object, encoded in UTF-8.
+     * @param offset the position of the opening brace in the buffer.
+     * @param length the number of bytes of the object.
+     * @param keys the list to which the keys are added, in order.
+     * @return for each field, the position of the first byte of its value and the position right after it.
+     */
+    public int[] indexObject(byte[] bytes, int offset, int length, List<String> keys) {
+        this.input = bytes;
+        this.position = offset;
+        this.end = offset + length;
+        try {
+            expect('{');
+            skipWhitespace();
+            int[] boundaries = new int[16];
+            int size = 0;
+            if (this.position < this.end && this.input[this.position] == '}') {
+                return new int[0];
+            }
+            while (true) {
+                skipWhitespace();
+                expect('"');
+                String key = parseKey();
+                skipWhitespace();
+                expect(':');
+                skipWhitespace();
+                if (size + 2 > boundaries.length) {
+                    boundaries = Arrays.copyOf(boundaries, 2 * boundaries.length);
+                }
+                boundaries[size++] = this.position;
+                skipValue();
+                boundaries[size++] = this.position;
+                keys.add(key);
+                skipWhitespace();
+                if (this.position >= this.end) {
+                    throw error("Unterminated object");
+                }
+                byte b = this.input[this.position++];
+                if (b == '}') {
+                    checkForDuplicateKeys(keys);
+                    return Arrays.copyOf(boundaries, size);
+                }
+                if (b != ',') {
+                    throw error("Expected ',' or '}'");
+                }
+            }
+        } catch (Exception e) {
+            throw wrap(e);
+        } finally {
+            this.input = null;
+        }
+    }
+
+    private void checkForDuplicateKeys(List<String> keys) {
+        Set<String> distinctKeys = new HashSet<>();
+        for (String key : keys) {
+            if (!distinctKeys.add(key)) {
+                throw new DuplicateObjectKeyException(key, this.metadata);
+            }
+        }
+    }
+
+    private RumbleException wrap(Exception e) {
+        RumbleException exception = new ParsingException(ItemParser.JSON_PARSING_ERROR_MESSAGE, this.metadata);
+        exception.initCause(e);
+        return exception;
+    }
+
+    private Item parseValue() {
+        if (this.position >= this.end) {
+            throw error("Unexpected end of input");
+        }
+        byte b = this.input[this.position];
+        switch (b) {
+            case '{':
+                return parseObject();
+            case '[':
+                return parseArray();
+            case '"':
+                ++this.position;
+                return this.factory.createStringItem(new String(this.chars, 0, parseString()));
+            case 't':
+                expectLiteral("true");
+                return this.factory.createBooleanItem(true);
+            case 'f':
+                expectLiteral("false");
+                return this.factory.createBooleanItem(false);
+            case 'n':
+                expectLiteral("null");
+                return this.factory.createNullItem();
+            default:
+                if (b == '-' || (b >= '0' && b <= '9')) {
+                    return parseNumber();
+                }
+                throw error("Unexpected character");
+        }
+    }
+
+    private Item parseValue(FieldProjection projection) {
+        if (this.position < this.end && this.input[this.position] == '{') {
+            return parseObject(projection);
+        }
+        return parseValue();
+    }
+
+    private Item parseObject() {
+        return parseObject(null);
+    }
+
+    private Item parseObject(FieldProjection projection) {
+        ++this.position;
+        List<String> keys = new ArrayList<>();
+        List<Item> values = new ArrayList<>();
+        skipWhitespace();
+        if (this.position < this.end && this.input[this.position] == '}') {
+            ++this.position;
+            return this.factory.createObjectItem(keys, values, this.metadata);
+        }
+        while (true) {
+            skipWhitespace();
+            expect('"');
+            String key = parseKey();
+            skipWhitespace();
+            expect(':');
+            skipWhitespace();
+            FieldProjection field = projection == null ? null : projection.getField(key);
+            if (projection == null || field != null) {
+                keys.add(key);
+                values.add(field == null || field.isComplete() ? parseValue() : parseValue(field));
+            } else {
+                skipValue();
+            }
+            skipWhitespace();
+            if (this.position >= this.end) {
+                throw error("Unterminated object");
+            }
+            byte b = this.input[this.position++];
+            if (b == '}') {
+                return this.factory.createObjectItem(keys, values, this.metadata);
+            }
+            if (b != ',') {
+                throw error("Expected ',' or '}'");
+            }
+        }
+    }
+
+    private Item parseArray() {
+        ++this.position;
+        List<Item> members = new ArrayList<>();
+        skipWhitespace();
+        if (this.position < this.end && this.input[this.position] == ']') {
+            ++this.position;
+            return this.factory.createArrayItem(members);
+        }
+        while (true) {
+            skipWhitespace();
+            members.add(parseValue());
+            skipWhitespace();
+            if (this.position >= this.end) {
+                throw error("Unterminated array");
+            }
+            byte b = this.input[this.position++];
+            if (b == ']') {
+                return this.factory.createArrayItem(members);
+            }
+            if (b != ',') {
+                throw error("Expected ',' or ']'");
+            }
+        }
+    }
+
+    /**
+     * Checks the syntax of a value without materializing it.
+     */
+    private void skipValue() {
+        if (this.position >= this.end) {
+            throw error("Unexpected end of input");
+        }
+        byte b = this.input[this.position];
+        switch (b) {
+            case '{':
+                skipContainer('}', true);
+                return;
+            case '[':
+                skipContainer(']', false);
+                return;
+            case '"':
+                ++this.position;
+                skipString();
+                return;
+            case 't':
+                expectLiteral("true");
+                return;
+            case 'f':
+                expectLiteral("false");
+                return;
+            case 'n':
+                expectLiteral("null");
+                return;
+            default:
+                if (b == '-' || (b >= '0' && b <= '9')) {
+                    scanNumber();
+                    return;
+                }
+                throw error("Unexpected character");
+        }
+    }
+
+    private void skipContainer(char closing, boolean isObject) {
+        ++this.position;
+        skipWhitespace();
+        if (this.position < this.end && this.input[this.position] == closing) {
+            ++this.position;
+            return;
+        }
+        while (true) {
+            skipWhitespace();
+            if (isObject) {
+                expect('"');
+                skipString();
+                skipWhitespace();
+                expect(':');
+                skipWhitespace();
+            }
+            skipValue();
+            skipWhitespace();
+            if (this.position >= this.end) {
+                throw error("Unterminated " + (isObject ? "object" : "array"));
+            }
+            byte b = this.input[this.position++];
+            if (b == closing) {
+                return;
+            }
+            if (b != ',') {
+                throw error("Expected ',' or '" + closing + "'");
+            }
+        }
+    }
+
+    private void skipString() {
+        while (true) {
+            if (this.position >= this.end) {
+                throw error("Unterminated string");
+            }
+            byte b = this.input[this.position++];
+            if (b == '"') {
+                return;
+            }
+            if (b == '\\') {
+                parseEscapeSequence();
+            }
+        }
+    }
+
+    /**
+     * Parses an object key, the opening quote being already consumed. Short ASCII keys without escapes are taken from
+     * the cache if the same bytes were seen before.
+     */
+    private String parseKey() {
+        int start = this.position;
+        int hash = 0;
+        int i = start;
+        while (i < this.end) {
+            byte b = this.input[i];
+            if (b == '"' || b == '\\' || b < 0) {
+                break;
+            }
+            hash = 31 * hash + b;
+            ++i;
+        }
+        int length = i - start;
+        if (i >= this.end || this.input[i] != '"' || length > MAXIMUM_CACHED_KEY_LENGTH) {
+            return new String(this.chars, 0, parseString());
+        }
+        int slot = hash & (KEY_CACHE_SIZE - 1);
+        byte[] cached = this.cachedKeyBytes[slot];
+        this.position = i + 1;
+        if (cached != null && cached.length == length && regionEquals(cached, start)) {
+            return this.cachedKeys[slot];
+        }
+        ensureCapacity(length);
+        for (int j = 0; j < length; ++j) {
+            this.chars[j] = (char) this.input[start + j];
+        }
+        String key = new String(this.chars, 0, length);
+        this.cachedKeyBytes[slot] = Arrays.copyOfRange(this.input, start, i);
+        this.cachedKeys[slot] = key;
+        return key;
+    }
+
+    private boolean regionEquals(byte[] bytes, int start) {
+        for (int j = 0; j < bytes.length; ++j) {
+            if (bytes[j] != this.input[start + j]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Decodes a string into the character buffer, the opening quote being already consumed.
+     *
+     * @return the number of characters decoded.
+     */
+    private int parseString() {
+        int length = 0;
+        while (true) {
+            if (this.position >= this.end) {
+                throw error("Unterminated string");
+            }
+            int b = this.input[this.position++] & 0xFF;
+            if (b == '"') {
+                return length;
+            }
+            ensureCapacity(length + 2);
+            if (b == '\\') {
+                this.chars[length++] = parseEscapeSequence();
+            } else if (b < 0x80) {
+                // Like gson, unescaped control characters (e.g., tabs) are accepted.
+                this.chars[length++] = (char) b;
+            } else {
+                length = decodeMultiByteCharacter(b, length);
+            }
+        }
+    }
+
+    private char parseEscapeSequence() {
+        if (this.position >= this.end) {
+            throw error("Unterminated escape sequence");
+        }
+        byte b = this.input[this.position++];
+        switch (b) {
+            case '"':
+                return '"';
+            case '\\':
+                return '\\';
+            case '/':
+                return '/';
+            case 'b':
+                return '\b';
+            case 'f':
+                return '\f';
+            case 'n':
+                return '\n';
+            case 'r':
+                return '\r';
+            case 't':
+                return '\t';
+            case 'u':
+                if (this.position + 4 > this.end) {
+                    throw error("Unterminated escape sequence");
+                }
+                int value = 0;
+                for (int i = 0; i < 4; ++i) {
+                    int digit = Character.digit(this.input[this.position++], 16);
+                    if (digit < 0) {
+                        throw error("Invalid unicode escape sequence");
+                    }
+                    value = (value << 4) | digit;
+                }
+                return (char) value;
+            default:
+                throw error("Invalid escape sequence");
+        }
+    }
+
+    /**
+     * Decodes a character encoded on several bytes, given its first byte. Malformed sequences are decoded to the
+     * replacement character, like Hadoop's Text does.
+     */
+    private int decodeMultiByteCharacter(int firstByte, int length) {
+        int codePoint;
+        int continuationBytes;
+        int minimum;
+        if ((firstByte & 0xE0) == 0xC0) {
+            codePoint = firstByte & 0x1F;
+            continuationBytes = 1;
+            minimum = 0x80;
+        } else if ((firstByte & 0xF0) == 0xE0) {
+            codePoint = firstByte & 0x0F;
+            continuationBytes = 2;
+            minimum = 0x800;
+        } else if ((firstByte & 0xF8) == 0xF0) {
+            codePoint = firstByte & 0x07;
+            continuationBytes = 3;
+            minimum = 0x10000;
+        } else {
+            this.chars[length++] = REPLACEMENT_CHARACTER;
+            return length;
+        }
+        for (int i = 0; i < continuationBytes; ++i) {
+            if (this.position >= this.end || (this.input[this.position] & 0xC0) != 0x80) {
+                this.chars[length++] = REPLACEMENT_CHARACTER;
+                return length;
+            }
+            codePoint = (codePoint << 6) | (this.input[this.position++] & 0x3F);
+        }
+        if (
+            codePoint < minimum
+                || codePoint > Character.MAX_CODE_POINT
+                || (codePoint >= Character.MIN_SURROGATE && codePoint <= Character.MAX_SURROGATE)
+        ) {
+            this.chars[length++] = REPLACEMENT_CHARACTER;
+        } else if (codePoint >= Character.MIN_SUPPLEMENTARY_CODE_POINT) {
+            this.chars[length++] = Character.highSurrogate(codePoint);
+            this.chars[length++] = Character.lowSurrogate(codePoint);
+        } else {
+            this.chars[length++] = (char) codePoint;
+        }
+        return length;
+    }
+
+    /**
+     * Parses a number, checking its syntax and classifying it in a single pass. Numbers with an exponent are doubles,
+     * numbers with a fraction are decimals, and other numbers are integers.
+     */
+    private Item parseNumber() {
+        int start = this.position;
+        boolean negative = this.input[this.position] == '-';
+        int numberKind = scanNumber();
+        int length = this.position - start;
+        if (numberKind == DOUBLE) {
+            return this.factory.createDoubleItem(Double.parseDouble(asciiString(start, length)));
+        }
+        if (numberKind == DECIMAL) {
+            copyAscii(start, length);
+            return this.factory.createDecimalItem(new BigDecimal(this.chars, 0, length));
+        }
+        if (length <= MAXIMUM_INT_LEXICAL_LENGTH) {
+            // Short lexical values cannot overflow.
+            int intValue = 0;
+            for (int i = negative ? start + 1 : start; i < this.position; ++i) {
+                intValue = intValue * 10 + (this.input[i] - '0');
+            }
+            return this.factory.createIntItem(negative ? -intValue : intValue);
+        }
+        return this.factory.createIntegerItem(asciiString(start, length));
+    }
+
+    /**
+     * Checks the syntax of a number and moves past it.
+     *
+     * @return INTEGER, DECIMAL or DOUBLE.
+     */
+    private int scanNumber() {
+        if (this.input[this.position] == '-') {
+            ++this.position;
+        }
+        int integerStart = this.position;
+        while (this.position < this.end && isDigit(this.input[this.position])) {
+            ++this.position;
+        }
+        int integerDigits = this.position - integerStart;
+        if (integerDigits == 0) {
+            throw error("Invalid number");
+        }
+        if (integerDigits > 1 && this.input[integerStart] == '0') {
+            throw error("Leading zeros are not allowed");
+        }
+        int numberKind = INTEGER;
+        if (this.position < this.end && this.input[this.position] == '.') {
+            numberKind = DECIMAL;
+            ++this.position;
+            skipDigits();
+        }
+        if (this.position < this.end && (this.input[this.position] == 'e' || this.input[this.position] == 'E')) {
+            numberKind = DOUBLE;
+            ++this.position;
+            if (this.position < this.end && (this.input[this.position] == '+' || this.input[this.position] == '-')) {
+                ++this.position;
+            }
+            skipDigits();
+        }
+        return numberKind;
+    }
+
+    private void skipDigits() {
+        int start = this.position;
+        while (this.position < this.end && isDigit(this.input[this.position])) {
+            ++this.position;
+        }
+        if (this.position == start) {
+            throw error("Invalid number");
+        }
+    }
+
+    private static boolean isDigit(byte b) {
+        return b >= '0' && b <= '9';
+    }
+
+    private void copyAscii(int start, int length) {
+        ensureCapacity(length);
+        for (int i = 0; i < length; ++i) {
+            this.chars[i] = (char) this.input[start + i];
+        }
+    }
+
+    private String asciiString(int start, int length) {
+        copyAscii(start, length);
+        return new String(this.chars, 0, length);
+    }
+
+    private void expectLiteral(String literal) {
+        if (this.position + literal.length() > this.end) {
+            throw error("Unexpected end of input");
+        }
+        for (int i = 0; i < literal.length(); ++i) {
+            if (this.input[this.position + i] != literal.charAt(i)) {
+                throw error("Unexpected literal");
+            }
+        }
+        this.position += literal.length();
+    }
+
+    private void expect(char c) {
+        if (this.position >= this.end || this.input[this.position] != c) {
+            throw error("Expected '" + c + "'");
+        }
+        ++this.position;
+    }
+
+    private void skipWhitespace() {
+        while (this.position < this.end) {
+            byte b = this.input[this.position];
+            if (b != ' ' && b != '\t' && b != '\n' && b != '\r') {
+                return;
+            }
+            ++this.position;
+        }
+    }
+
+    private void ensureCapacity(int length) {
+        if (length > this.chars.length) {
+            this.chars = Arrays.copyOf(this.chars, Math.max(length, 2 * this.chars.length));
+        }
+    }
+
+    private ParsingException error(String message) {
+        return new ParsingException(message + " at byte " + this.position + ".", this.metadata);
+    }
+}
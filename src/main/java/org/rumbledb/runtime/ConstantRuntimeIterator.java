@@ -24,7 +24,13 @@ import org.rumbledb.api.Item;
 import org.rumbledb.context.DynamicContext;
 import org.rumbledb.exceptions.ExceptionMetadata;
 import org.rumbledb.expressions.ExecutionMode;
+import org.rumbledb.runtime.flwor.NativeClauseContext;
+import org.rumbledb.types.BuiltinTypesCatalogue;
 
+/**
+ * Returns a value computed in advance, e.g., a partially applied function or a constant expression folded at compile
+ * time.
+ */
 public class ConstantRuntimeIterator extends AtMostOneItemLocalRuntimeIterator {
 
     private static final long serialVersionUID = 1L;
@@ -43,4 +49,48 @@ public class ConstantRuntimeIterator extends AtMostOneItemLocalRuntimeIterator {
     public Item materializeFirstItemOrNull(DynamicContext context) {
         return this.item;
     }
+
+    @Override
+    public NativeClauseContext generateNativeQuery(NativeClauseContext nativeClauseContext) {
+        if (this.item == null || !this.item.isAtomic()) {
+            return NativeClauseContext.NoNativeQuery;
+        }
+        if (this.item.isInteger()) {
+            return new NativeClauseContext(
+                    nativeClauseContext,
+                    this.item.getIntegerValue().toString(),
+                    BuiltinTypesCatalogue.integerItem
+            );
+        }
+        if (this.item.isDecimal()) {
+            return new NativeClauseContext(
+                    nativeClauseContext,
+                    this.item.getDecimalValue().toPlainString(),
+                    BuiltinTypesCatalogue.decimalItem
+            );
+        }
+        if (this.item.isDouble() && Double.isFinite(this.item.getDoubleValue())) {
+            return new NativeClauseContext(
+                    nativeClauseContext,
+                    Double.toString(this.item.getDoubleValue()) + "D",
+                    BuiltinTypesCatalogue.doubleItem
+            );
+        }
+        if (this.item.isString()) {
+            String value = this.item.getStringValue().replace("\\", "\\\\").replace("\"", "\\\"");
+            return new NativeClauseContext(
+                    nativeClauseContext,
+                    '"' + value + '"',
+                    BuiltinTypesCatalogue.stringItem
+            );
+        }
+        if (this.item.isBoolean()) {
+            return new NativeClauseContext(
+                    nativeClauseContext,
+                    this.item.getBooleanValue() ? "true" : "false",
+                    BuiltinTypesCatalogue.booleanItem
+            );
+        }
+        return NativeClauseContext.NoNativeQuery;
+    }
 }
@@ -421,4 +421,22 @@ public abstract class RuntimeIterator implements RuntimeIteratorInterface, KryoS
     public NativeClauseContext generateNativeQuery(NativeClauseContext nativeClauseContext) {
         return NativeClauseContext.NoNativeQuery;
     }
+
+    /**
+     * Finds the subexpression that prevents this iterator from being translated to a native spark-sql query, for
+     * explaining how clauses are executed. This is the first child that cannot be translated, searched recursively,
+     * or this iterator itself if all its children can be translated.
+     *
+     * @param nativeClauseContext context information to generate the native query
+     * @return the innermost iterator that cannot be translated
+     */
+    public RuntimeIterator getNativeQueryBlocker(NativeClauseContext nativeClauseContext) {
+        for (RuntimeIterator child : this.children) {
+            NativeClauseContext childQuery = child.generateNativeQuery(new NativeClauseContext(nativeClauseContext));
+            if (childQuery == NativeClauseContext.NoNativeQuery) {
+                return child.getNativeQueryBlocker(nativeClauseContext);
+            }
+        }
+        return this;
+    }
 }
@@ -88,31 +88,47 @@ public class AdditiveOperationIterator extends AtMostOneItemLocalRuntimeIterator
         if (this.left == null || this.right == null) {
             return null;
         }
-        if (!this.left.isAtomic()) {
+        return processOperands(this.left, this.right);
+    }
+
+    public boolean isMinus() {
+        return this.isMinus;
+    }
+
+    /**
+     * Adds or subtracts two items. Subclasses specialized for the statically inferred types of the operands override
+     * this method with a fast path, and fall back to it for other items.
+     *
+     * @param left the left operand.
+     * @param right the right operand.
+     * @return the result.
+     */
+    protected Item processOperands(Item left, Item right) {
+        if (!left.isAtomic()) {
             String message = String.format(
                 "Can not atomize an %1$s item: an %1$s has probably been passed where "
                     +
                     "an atomic value is expected (e.g., as a key, or to a function expecting an atomic item)",
-                this.left.getDynamicType().toString()
+                left.getDynamicType().toString()
             );
             throw new NonAtomicKeyException(message, getMetadata());
         }
-        if (!this.right.isAtomic()) {
+        if (!right.isAtomic()) {
             String message = String.format(
                 "Can not atomize an %1$s item: an %1$s has probably been passed where "
                     +
                     "an atomic value is expected (e.g., as a key, or to a function expecting an atomic item)",
-                this.right.getDynamicType().toString()
+                right.getDynamicType().toString()
             );
             throw new NonAtomicKeyException(message, getMetadata());
         }
-        Item result = processItem(this.left, this.right, this.isMinus);
+        Item result = processItem(left, right, this.isMinus);
         if (result == null) {
             throw new UnexpectedTypeException(
                     " \"+\": operation not possible with parameters of type \""
-                        + this.left.getDynamicType().toString()
+                        + left.getDynamicType().toString()
                         + "\" and \""
-                        + this.right.getDynamicType().toString()
+                        + right.getDynamicType().toString()
                         + "\"",
                     getMetadata()
             );
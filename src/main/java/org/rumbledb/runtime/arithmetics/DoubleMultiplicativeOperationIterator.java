@@ -0,0 +1,62 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Authors: Stefan Irimescu, Can Berker Cikis
+ *
+ */
+
+package org.rumbledb.runtime.arithmetics;
+
+import org.rumbledb.api.Item;
+import org.rumbledb.exceptions.ExceptionMetadata;
+import org.rumbledb.expressions.ExecutionMode;
+import org.rumbledb.expressions.arithmetic.MultiplicativeExpression;
+import org.rumbledb.items.ItemFactory;
+import org.rumbledb.runtime.RuntimeIterator;
+
+/**
+ * A multiplicative operation on two operands that are statically known to be doubles. Integer divisions and modulos
+ * go through the general path, which handles their errors.
+ */
+public class DoubleMultiplicativeOperationIterator extends MultiplicativeOperationIterator {
+
+    private static final long serialVersionUID = 1L;
+
+    public DoubleMultiplicativeOperationIterator(
+            RuntimeIterator leftIterator,
+            RuntimeIterator rightIterator,
+            MultiplicativeExpression.MultiplicativeOperator multiplicativeOperator,
+            ExecutionMode executionMode,
+            ExceptionMetadata iteratorMetadata
+    ) {
+        super(leftIterator, rightIterator, multiplicativeOperator, executionMode, iteratorMetadata);
+    }
+
+    @Override
+    protected Item processOperands(Item left, Item right) {
+        if (left.isDouble() && right.isDouble()) {
+            switch (getMultiplicativeOperator()) {
+                case MUL:
+                    return ItemFactory.getInstance().createDoubleItem(left.getDoubleValue() * right.getDoubleValue());
+                case DIV:
+                    return ItemFactory.getInstance().createDoubleItem(left.getDoubleValue() / right.getDoubleValue());
+                default:
+                    break;
+            }
+        }
+        return super.processOperands(left, right);
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Authors: Stefan Irimescu, Can Berker Cikis
+ *
+ */
+
+package org.rumbledb.runtime.arithmetics;
+
+import org.rumbledb.api.Item;
+import org.rumbledb.exceptions.ExceptionMetadata;
+import org.rumbledb.expressions.ExecutionMode;
+import org.rumbledb.items.ItemFactory;
+import org.rumbledb.runtime.RuntimeIterator;
+
+/**
+ * An additive operation on two operands that are statically known to be integers. The sum of two ints is computed
+ * on longs, so that it cannot overflow.
+ */
+public class IntAdditiveOperationIterator extends AdditiveOperationIterator {
+
+    private static final long serialVersionUID = 1L;
+
+    public IntAdditiveOperationIterator(
+            RuntimeIterator leftIterator,
+            RuntimeIterator rightIterator,
+            boolean isMinus,
+            ExecutionMode executionMode,
+            ExceptionMetadata iteratorMetadata
+    ) {
+        super(leftIterator, rightIterator, isMinus, executionMode, iteratorMetadata);
+    }
+
+    @Override
+    protected Item processOperands(Item left, Item right) {
+        if (left.isInt() && right.isInt()) {
+            long l = left.getIntValue();
+            long r = right.getIntValue();
+            return ItemFactory.getInstance().createLongItem(isMinus() ? l - r : l + r);
+        }
+        return super.processOperands(left, right);
+    }
+}
@@ -0,0 +1,193 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Authors: Stefan Irimescu, Can Berker Cikis
+ *
+ */
+
+package org.rumbledb.runtime.flwor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.spark.sql.Dataset;
+import org.apache.spark.sql.Row;
+import org.apache.spark.sql.types.StructType;
+import org.rumbledb.context.DynamicContext;
+import org.rumbledb.exceptions.ExceptionMetadata;
+import org.rumbledb.expressions.flowr.FLWOR_CLAUSES;
+import org.rumbledb.runtime.RuntimeIterator;
+
+/**
+ * Prints, with --explain yes, how a clause evaluated with DataFrames is executed: either as a native SQL query, or
+ * with a UDF, in which case the subexpression that could not be translated to SQL is shown. The Spark plan of the
+ * clause follows.
+ *
+ * Explanations are printed to the standard error, unless the current thread collects them, as the HTTP server does
+ * in order to return them with the response of each request.
+ */
+public class ClauseExplanation {
+
+    private static final ThreadLocal<List<String>> collectedExplanations = new ThreadLocal<>();
+
+    private ClauseExplanation() {
+    }
+
+    /**
+     * Collects the explanations of the clauses evaluated by the current thread from now on, instead of printing them.
+     */
+    public static void startCollecting() {
+        collectedExplanations.set(new ArrayList<>());
+    }
+
+    /**
+     * Stops collecting the explanations of the current thread.
+     *
+     * @return the explanations collected since the last call to startCollecting(), in the order of evaluation.
+     */
+    public static List<String> stopCollecting() {
+        List<String> result = collectedExplanations.get();
+        collectedExplanations.remove();
+        return result == null ? Collections.emptyList() : result;
+    }
+
+    public static boolean isEnabled(DynamicContext context) {
+        return context.getRumbleRuntimeConfiguration().explain();
+    }
+
+    /**
+     * Explains a clause that was translated to a native SQL query.
+     *
+     * @param clauseType the kind of clause
+     * @param metadata the metadata of the clause
+     * @param context the dynamic context
+     * @param result the resulting DataFrame
+     */
+    public static void explainNativeQuery(
+            FLWOR_CLAUSES clauseType,
+            ExceptionMetadata metadata,
+            DynamicContext context,
+            Dataset<Row> result
+    ) {
+        if (!isEnabled(context)) {
+            return;
+        }
+        print(clauseType, metadata, "native SQL query", result);
+    }
+
+    /**
+     * Explains a clause, or part of a clause, that is evaluated with a UDF because some of its expressions cannot be
+     * translated to a native SQL query.
+     *
+     * @param clauseType the kind of clause
+     * @param metadata the metadata of the clause
+     * @param context the dynamic context
+     * @param expressions the expressions of the clause
+     * @param inputSchema the schema of the input DataFrame of the clause
+     * @param result the resulting DataFrame
+     */
+    public static void explainUDF(
+            FLWOR_CLAUSES clauseType,
+            ExceptionMetadata metadata,
+            DynamicContext context,
+            List<RuntimeIterator> expressions,
+            StructType inputSchema,
+            Dataset<Row> result
+    ) {
+        if (!isEnabled(context)) {
+            return;
+        }
+        explainUDF(
+            clauseType,
+            metadata,
+            context,
+            describeNativeQueryBlocker(clauseType, context, expressions, inputSchema),
+            result
+        );
+    }
+
+    /**
+     * Describes the first subexpression that cannot be translated to a native SQL query.
+     *
+     * @param clauseType the kind of clause
+     * @param context the dynamic context
+     * @param expressions the expressions of the clause
+     * @param inputSchema the schema of the input DataFrame of the clause
+     * @return a description of the subexpression and its location
+     */
+    public static String describeNativeQueryBlocker(
+            FLWOR_CLAUSES clauseType,
+            DynamicContext context,
+            List<RuntimeIterator> expressions,
+            StructType inputSchema
+    ) {
+        NativeClauseContext nativeClauseContext = new NativeClauseContext(clauseType, inputSchema, context);
+        for (RuntimeIterator expression : expressions) {
+            if (
+                expression.generateNativeQuery(new NativeClauseContext(nativeClauseContext))
+                    == NativeClauseContext.NoNativeQuery
+            ) {
+                RuntimeIterator blocker = expression.getNativeQueryBlocker(nativeClauseContext);
+                return blocker.getClass().getSimpleName() + " at " + blocker.getMetadata() + " has no SQL translation";
+            }
+        }
+        return "this form of clause has no SQL translation";
+    }
+
+    /**
+     * Explains a clause that is evaluated with a UDF for the given reason.
+     *
+     * @param clauseType the kind of clause
+     * @param metadata the metadata of the clause
+     * @param context the dynamic context
+     * @param reason why no native SQL query could be used
+     * @param result the resulting DataFrame
+     */
+    public static void explainUDF(
+            FLWOR_CLAUSES clauseType,
+            ExceptionMetadata metadata,
+            DynamicContext context,
+            String reason,
+            Dataset<Row> result
+    ) {
+        if (!isEnabled(context)) {
+            return;
+        }
+        print(clauseType, metadata, "UDF, as " + reason, result);
+    }
+
+    private static void print(
+            FLWOR_CLAUSES clauseType,
+            ExceptionMetadata metadata,
+            String explanation,
+            Dataset<Row> result
+    ) {
+        String text = clauseType.toString().toLowerCase().replace('_', ' ')
+            + " clause at "
+            + metadata
+            + " "
+            + explanation
+            + "\n"
+            + result.queryExecution().executedPlan().treeString();
+        List<String> collected = collectedExplanations.get();
+        if (collected != null) {
+            collected.add(text);
+            return;
+        }
+        System.err.println("[EXPLAIN] " + text);
+    }
+}
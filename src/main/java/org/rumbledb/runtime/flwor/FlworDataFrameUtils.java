@@ -26,6 +26,7 @@ import static org.apache.spark.sql.functions.first;
 import static org.apache.spark.sql.functions.lit;
 import static org.apache.spark.sql.functions.monotonically_increasing_id;
 import static org.apache.spark.sql.functions.spark_partition_id;
+import static org.apache.spark.sql.functions.struct;
 import static org.apache.spark.sql.functions.sum;
 import static org.apache.spark.sql.functions.udf;
 
@@ -37,8 +38,8 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.UUID;
 
+import org.apache.spark.sql.Column;
 import org.apache.spark.sql.Dataset;
 import org.apache.spark.sql.Row;
 import org.apache.spark.sql.RowFactory;
@@ -72,6 +73,7 @@ import org.rumbledb.items.FunctionItem;
 import org.rumbledb.items.HexBinaryItem;
 import org.rumbledb.items.IntItem;
 import org.rumbledb.items.IntegerItem;
+import org.rumbledb.items.LazyObjectItem;
 import org.rumbledb.items.NullItem;
 import org.rumbledb.items.ObjectItem;
 import org.rumbledb.items.StringItem;
@@ -105,6 +107,7 @@ public class FlworDataFrameUtils {
 
         kryo.register(ArrayItem.class);
         kryo.register(ObjectItem.class);
+        kryo.register(LazyObjectItem.class);
 
         kryo.register(AnyURIItem.class);
         kryo.register(Base64BinaryItem.class);
@@ -733,6 +736,42 @@ public class FlworDataFrameUtils {
         );
     }
 
+    /**
+     * Prepares the parameters supplied to a UDF, as a row obtained from the specified attributes, for building plans
+     * with the Dataset API rather than with SQL.
+     *
+     * @param columnNames the names of the columns to pass as a parameter.
+     * @return The parameters as a column.
+     */
+    public static Column getUDFParametersColumn(
+            List<String> columnNames
+    ) {
+        Column[] columns = new Column[columnNames.size()];
+        for (int i = 0; i < columns.length; ++i) {
+            columns[i] = col("`" + columnNames.get(i) + "`");
+        }
+        return struct(columns);
+    }
+
+    /**
+     * Prepares a projection from the specified columns, for building plans with the Dataset API rather than with SQL.
+     *
+     * @param columnNames the columns to be used in the query
+     * @param additionalColumns columns to append to the projection
+     * @return the columns to select
+     */
+    public static Column[] getColumnProjection(
+            List<FlworDataFrameColumn> columnNames,
+            Column... additionalColumns
+    ) {
+        Column[] columns = new Column[columnNames.size() + additionalColumns.length];
+        for (int i = 0; i < columnNames.size(); ++i) {
+            columns[i] = col(columnNames.get(i).toString());
+        }
+        System.arraycopy(additionalColumns, 0, columns, columnNames.size(), additionalColumns.length);
+        return columns;
+    }
+
     /**
      * Prepares a SQL projection from the specified column names.
      * 
@@ -1107,8 +1146,19 @@ public class FlworDataFrameUtils {
     }
 
     public static String createTempView(Dataset<Row> df) {
-        String name = "input" + UUID.randomUUID().toString().replaceAll("-", "");
+        String name = SparkSessionManager.getInstance().createTemporaryViewName();
         df.createOrReplaceTempView(name);
         return name;
     }
+
+    /**
+     * Generates a name under which to register a UDF. Names are unique, so that concurrent queries do not override
+     * each other's UDFs.
+     *
+     * @param prefix a prefix describing the UDF.
+     * @return the name of the UDF.
+     */
+    public static String createUDFName(String prefix) {
+        return SparkSessionManager.getInstance().createTemporaryFunctionName(prefix);
+    }
 }
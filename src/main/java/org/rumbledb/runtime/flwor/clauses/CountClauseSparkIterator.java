@@ -20,8 +20,12 @@
 
 package org.rumbledb.runtime.flwor.clauses;
 
+import static org.apache.spark.sql.functions.col;
+import static org.apache.spark.sql.functions.udf;
+
 import org.apache.spark.sql.Dataset;
 import org.apache.spark.sql.Row;
+import org.apache.spark.sql.expressions.UserDefinedFunction;
 import org.apache.spark.sql.types.DataTypes;
 import org.apache.spark.sql.types.StructType;
 import org.rumbledb.api.Item;
@@ -159,29 +163,15 @@ public class CountClauseSparkIterator extends RuntimeTupleIterator {
             Collections.singletonList(variableName)
         );
 
-        String selectSQL = FlworDataFrameUtils.getSQLColumnProjection(allColumns, true);
-
         Dataset<Row> dfWithIndex = FlworDataFrameUtils.zipWithIndex(df, 1L, variableName.toString());
 
-        df.sparkSession()
-            .udf()
-            .register(
-                "serializeCountIndex",
-                new LongSerializeUDF(),
-                DataTypes.BinaryType
-            );
-
-        String viewName = FlworDataFrameUtils.createTempView(dfWithIndex);
-        dfWithIndex = dfWithIndex.sparkSession()
-            .sql(
-                String.format(
-                    "select %s serializeCountIndex(`%s`) as `%s` from %s",
-                    selectSQL,
-                    variableName,
-                    variableName,
-                    viewName
-                )
-            );
+        UserDefinedFunction serializeCountIndex = udf(new LongSerializeUDF(), DataTypes.BinaryType);
+        dfWithIndex = dfWithIndex.select(
+            FlworDataFrameUtils.getColumnProjection(
+                allColumns,
+                serializeCountIndex.apply(col("`" + variableName + "`")).as(variableName.toString())
+            )
+        );
         return dfWithIndex;
     }
 
@@ -20,11 +20,22 @@
 
 package org.rumbledb.runtime.flwor.clauses;
 
+import static org.apache.spark.sql.functions.col;
+import static org.apache.spark.sql.functions.explode;
+import static org.apache.spark.sql.functions.explode_outer;
+import static org.apache.spark.sql.functions.lit;
+import static org.apache.spark.sql.functions.posexplode;
+import static org.apache.spark.sql.functions.posexplode_outer;
+import static org.apache.spark.sql.functions.udf;
+import static org.apache.spark.sql.functions.when;
+
 import org.apache.spark.api.java.JavaRDD;
 import org.apache.spark.api.java.JavaSparkContext;
+import org.apache.spark.sql.Column;
 import org.apache.spark.sql.Dataset;
 import org.apache.spark.sql.Row;
 import org.apache.spark.sql.RowFactory;
+import org.apache.spark.sql.expressions.UserDefinedFunction;
 import org.apache.spark.sql.types.DataTypes;
 import org.apache.spark.sql.types.StructField;
 import org.apache.spark.sql.types.StructType;
@@ -42,6 +53,7 @@ import org.rumbledb.items.ItemFactory;
 import org.rumbledb.items.structured.JSoundDataFrame;
 import org.rumbledb.runtime.RuntimeIterator;
 import org.rumbledb.runtime.RuntimeTupleIterator;
+import org.rumbledb.runtime.flwor.ClauseExplanation;
 import org.rumbledb.runtime.flwor.FlworDataFrameColumn;
 import org.rumbledb.runtime.flwor.FlworDataFrameUtils;
 import org.rumbledb.runtime.flwor.NativeClauseContext;
@@ -440,10 +452,11 @@ public class ForClauseSparkIterator extends RuntimeTupleIterator {
         // If the join criterion uses the context count, then we need to add it to the expression side (it is a
         // constant).
         if (predicateDependencies.containsKey(Name.CONTEXT_COUNT)) {
+            String serializeIntegerIndex = FlworDataFrameUtils.createUDFName("serializeIntegerIndex");
             expressionDF.sparkSession()
                 .udf()
                 .register(
-                    "serializeIntegerIndex",
+                    serializeIntegerIndex,
                     new IntegerSerializeUDF(),
                     DataTypes.BinaryType
                 );
@@ -452,7 +465,8 @@ public class ForClauseSparkIterator extends RuntimeTupleIterator {
             expressionDF = expressionDF.sparkSession()
                 .sql(
                     String.format(
-                        "SELECT *, serializeIntegerIndex(%s) AS `%s` FROM %s",
+                        "SELECT *, %s(%s) AS `%s` FROM %s",
+                        serializeIntegerIndex,
                         Long.toString(size),
                         Name.CONTEXT_COUNT.getLocalName(),
                         expressionDFTableName
@@ -606,6 +620,7 @@ public class ForClauseSparkIterator extends RuntimeTupleIterator {
             context
         );
         if (nativeQueryResult != null) {
+            ClauseExplanation.explainNativeQuery(FLWOR_CLAUSES.FOR, getMetadata(), context, nativeQueryResult);
             return nativeQueryResult;
         }
 
@@ -621,88 +636,51 @@ public class ForClauseSparkIterator extends RuntimeTupleIterator {
             UDFcolumns = Collections.emptyList();
         }
 
-        df.sparkSession()
-            .udf()
-            .register(
-                "forClauseUDF",
-                new ForClauseUDF(this.assignmentIterator, context, inputSchema, UDFcolumns),
-                DataTypes.createArrayType(DataTypes.BinaryType)
-            );
-
-        String projectionVariables = FlworDataFrameUtils.getSQLColumnProjection(allColumns, true);
-        String UDFParameters = FlworDataFrameUtils.getUDFParameters(UDFcolumns);
+        UserDefinedFunction forClauseUDF = udf(
+            new ForClauseUDF(this.assignmentIterator, context, inputSchema, UDFcolumns),
+            DataTypes.createArrayType(DataTypes.BinaryType)
+        );
+        Column forClauseResults = forClauseUDF.apply(FlworDataFrameUtils.getUDFParametersColumn(UDFcolumns));
+        String variable = this.variableName.toString();
 
-        String viewName = FlworDataFrameUtils.createTempView(df);
         if (this.positionalVariableName == null) {
-            if (this.allowingEmpty) {
-                df = df.sparkSession()
-                    .sql(
-                        String.format(
-                            "select %s explode_outer(forClauseUDF(%s)) as `%s` from %s",
-                            projectionVariables,
-                            UDFParameters,
-                            this.variableName,
-                            viewName
-                        )
-                    );
-            } else {
-                df = df.sparkSession()
-                    .sql(
-                        String.format(
-                            "select %s explode(forClauseUDF(%s)) as `%s` from %s",
-                            projectionVariables,
-                            UDFParameters,
-                            this.variableName,
-                            viewName
-                        )
-                    );
-            }
+            Column explodedResults = this.allowingEmpty
+                ? explode_outer(forClauseResults)
+                : explode(forClauseResults);
+            df = df.select(FlworDataFrameUtils.getColumnProjection(allColumns, explodedResults.as(variable)));
         } else {
-            df.sparkSession()
-                .udf()
-                .register(
-                    "serializePositionIndex",
-                    new IntegerSerializeUDF(),
-                    DataTypes.BinaryType
-                );
+            String positionalVariable = this.positionalVariableName.toString();
+            Column explodedResults = this.allowingEmpty
+                ? posexplode_outer(forClauseResults)
+                : posexplode(forClauseResults);
+            df = df.select(
+                FlworDataFrameUtils.getColumnProjection(
+                    allColumns,
+                    explodedResults.as(new String[] { positionalVariable, variable })
+                )
+            );
 
-            if (this.allowingEmpty) {
-                df = df.sparkSession()
-                    .sql(
-                        String.format(
-                            "SELECT %s for_vars.`%s`, serializePositionIndex(IF(for_vars.`%s` IS NULL, 0, for_vars.`%s` + 1)) AS `%s` "
-                                + "FROM %s "
-                                + "LATERAL VIEW OUTER posexplode(forClauseUDF(%s)) for_vars AS `%s`, `%s` ",
-                            projectionVariables,
-                            this.variableName,
-                            this.positionalVariableName,
-                            this.positionalVariableName,
-                            this.positionalVariableName,
-                            viewName,
-                            UDFParameters,
-                            this.positionalVariableName,
-                            this.variableName
-                        )
-                    );
-            } else {
-                df = df.sparkSession()
-                    .sql(
-                        String.format(
-                            "SELECT %s for_vars.`%s`, serializePositionIndex(for_vars.`%s` + 1) AS `%s` "
-                                + "FROM %s "
-                                + "LATERAL VIEW posexplode(forClauseUDF(%s)) for_vars AS `%s`, `%s` ",
-                            projectionVariables,
-                            this.variableName,
-                            this.positionalVariableName,
-                            this.positionalVariableName,
-                            viewName,
-                            UDFParameters,
-                            this.positionalVariableName,
-                            this.variableName
-                        )
-                    );
-            }
+            UserDefinedFunction serializePositionIndex = udf(new IntegerSerializeUDF(), DataTypes.BinaryType);
+            Column position = col("`" + positionalVariable + "`");
+            Column positionIndex = this.allowingEmpty
+                ? when(position.isNull(), lit(0)).otherwise(position.plus(1))
+                : position.plus(1);
+            df = df.select(
+                FlworDataFrameUtils.getColumnProjection(
+                    allColumns,
+                    col("`" + variable + "`"),
+                    serializePositionIndex.apply(positionIndex).as(positionalVariable)
+                )
+            );
         }
+        ClauseExplanation.explainUDF(
+            FLWOR_CLAUSES.FOR,
+            getMetadata(),
+            context,
+            Collections.singletonList(this.assignmentIterator),
+            inputSchema,
+            df
+        );
         return df;
     }
 
@@ -818,10 +796,11 @@ public class ForClauseSparkIterator extends RuntimeTupleIterator {
             return dfWithIndex;
         }
         String inputWithIndex = FlworDataFrameUtils.createTempView(dfWithIndex);
+        String serializeCountIndex = FlworDataFrameUtils.createUDFName("serializeCountIndex");
         dfWithIndex.sparkSession()
             .udf()
             .register(
-                "serializeCountIndex",
+                serializeCountIndex,
                 new IntegerSerializeUDF(),
                 DataTypes.BinaryType
             );
@@ -829,11 +808,12 @@ public class ForClauseSparkIterator extends RuntimeTupleIterator {
         dfWithIndex = dfWithIndex.sparkSession()
             .sql(
                 String.format(
-                    "SELECT %s.`%s`, IF(%s.`%s` IS NULL, serializeCountIndex(0), %s.`%s`) AS `%s` FROM VALUES(1) FULL OUTER JOIN %s",
+                    "SELECT %s.`%s`, IF(%s.`%s` IS NULL, %s(0), %s.`%s`) AS `%s` FROM VALUES(1) FULL OUTER JOIN %s",
                     inputWithIndex,
                     variableName,
                     inputWithIndex,
                     positionalVariableName,
+                    serializeCountIndex,
                     inputWithIndex,
                     positionalVariableName,
                     positionalVariableName,
@@ -1215,6 +1195,7 @@ public class ForClauseSparkIterator extends RuntimeTupleIterator {
 
     public static void registerForClauseUDF(
             Dataset<Row> dataFrame,
+            String udfName,
             RuntimeIterator newVariableExpression,
             DynamicContext context,
             StructType inputSchema,
@@ -1231,7 +1212,7 @@ public class ForClauseSparkIterator extends RuntimeTupleIterator {
                 dataFrame.sparkSession()
                     .udf()
                     .register(
-                        "forClauseUDF",
+                        udfName,
                         new GenericForClauseUDF<String>(
                                 newVariableExpression,
                                 context,
@@ -1248,7 +1229,7 @@ public class ForClauseSparkIterator extends RuntimeTupleIterator {
                 dataFrame.sparkSession()
                     .udf()
                     .register(
-                        "forClauseUDF",
+                        udfName,
                         new GenericForClauseUDF<Integer>(
                                 newVariableExpression,
                                 context,
@@ -1265,7 +1246,7 @@ public class ForClauseSparkIterator extends RuntimeTupleIterator {
                 dataFrame.sparkSession()
                     .udf()
                     .register(
-                        "forClauseUDF",
+                        udfName,
                         new GenericForClauseUDF<BigDecimal>(
                                 newVariableExpression,
                                 context,
@@ -1282,7 +1263,7 @@ public class ForClauseSparkIterator extends RuntimeTupleIterator {
                 dataFrame.sparkSession()
                     .udf()
                     .register(
-                        "forClauseUDF",
+                        udfName,
                         new GenericForClauseUDF<Double>(
                                 newVariableExpression,
                                 context,
@@ -1300,7 +1281,7 @@ public class ForClauseSparkIterator extends RuntimeTupleIterator {
         dataFrame.sparkSession()
             .udf()
             .register(
-                "forClauseUDF",
+                udfName,
                 new ForClauseUDF(newVariableExpression, context, inputSchema, UDFcolumns),
                 DataTypes.BinaryType
             );
@@ -39,6 +39,7 @@ import org.rumbledb.expressions.ExecutionMode;
 import org.rumbledb.expressions.flowr.FLWOR_CLAUSES;
 import org.rumbledb.runtime.RuntimeIterator;
 import org.rumbledb.runtime.RuntimeTupleIterator;
+import org.rumbledb.runtime.flwor.ClauseExplanation;
 import org.rumbledb.runtime.flwor.FlworDataFrameColumn;
 import org.rumbledb.runtime.flwor.FlworDataFrameColumn.ColumnFormat;
 import org.rumbledb.runtime.flwor.FlworDataFrameUtils;
@@ -319,7 +320,7 @@ public class GroupByClauseSparkIterator extends RuntimeTupleIterator {
             input
         );
         if (nativeQueryResult != null) {
-
+            ClauseExplanation.explainNativeQuery(FLWOR_CLAUSES.GROUP_BY, getMetadata(), context, nativeQueryResult);
             return nativeQueryResult;
         }
 
@@ -362,10 +363,11 @@ public class GroupByClauseSparkIterator extends RuntimeTupleIterator {
             groupingVariables
         );
 
+        String createGroupingColumns = FlworDataFrameUtils.createUDFName("createGroupingColumns");
         df.sparkSession()
             .udf()
             .register(
-                "createGroupingColumns",
+                createGroupingColumns,
                 new GroupClauseCreateColumnsUDF(variableAccessNames, context, inputSchema, UDFcolumns, getMetadata()),
                 DataTypes.createStructType(typedFields)
             );
@@ -375,8 +377,9 @@ public class GroupByClauseSparkIterator extends RuntimeTupleIterator {
         String UDFParameters = FlworDataFrameUtils.getUDFParametersFromColumns(UDFcolumns);
 
         String createColumnsSQL = String.format(
-            "select %s createGroupingColumns(%s) as `%s` from %s",
+            "select %s %s(%s) as `%s` from %s",
             selectSQL,
+            createGroupingColumns,
             UDFParameters,
             appendedGroupingColumnsName,
             input
@@ -417,6 +420,15 @@ public class GroupByClauseSparkIterator extends RuntimeTupleIterator {
                     appendedGroupingColumnsName
                 )
             );
+        if (ClauseExplanation.isEnabled(context)) {
+            ClauseExplanation.explainUDF(
+                FLWOR_CLAUSES.GROUP_BY,
+                getMetadata(),
+                context,
+                getNativeQueryBlocker(variableAccessNames, this.outputTupleProjection, inputSchema),
+                result
+            );
+        }
         return result;
     }
 
@@ -517,14 +529,12 @@ public class GroupByClauseSparkIterator extends RuntimeTupleIterator {
             DynamicContext context,
             String input
     ) {
+        if (getNativeQueryBlocker(groupingVariables, dependencies, inputSchema) != null) {
+            return null;
+        }
         StringBuilder groupByString = new StringBuilder();
         String sep = " ";
         for (Name groupingVar : groupingVariables) {
-            if (!FlworDataFrameUtils.isVariableAvailableAsNativeItem(inputSchema, groupingVar)) {
-                // we got a non-native type for grouping, switch to udf version
-                return null;
-            }
-
             groupByString.append(sep);
             sep = ", ";
             groupByString.append(groupingVar.toString());
@@ -562,23 +572,16 @@ public class GroupByClauseSparkIterator extends RuntimeTupleIterator {
                     selectString.append(entry.getKey().toString());
                     selectString.append(".count`");
                 }
-            } else if (FlworDataFrameUtils.isVariableAvailableAsNativeSequence(inputSchema, entry.getKey())) {
-                // we cannot merge arrays natively in Spark, strangely.
-                return null;
             } else if (groupingVariables.contains(entry.getKey())) {
                 // we are considering one of the grouping variables
                 selectString.append(entry.getKey().toString());
             } else {
-                // we collect all the values, if it is a binary object we just switch over to udf
+                // we collect all the values
                 FlworDataFrameColumn dfColumnSequence = new FlworDataFrameColumn(
                         entry.getKey(),
                         ColumnFormat.NATIVE_SEQUENCE
                 );
                 String columnName = entry.getKey().toString();
-                StructField field = inputSchema.fields()[inputSchema.fieldIndex(columnName)];
-                if (field.dataType().equals(DataTypes.BinaryType)) {
-                    return null;
-                }
                 selectString.append("collect_list(");
                 selectString.append(columnName);
                 selectString.append(") as ");
@@ -597,6 +600,48 @@ public class GroupByClauseSparkIterator extends RuntimeTupleIterator {
             );
     }
 
+    /**
+     * Tells why the group by clause cannot be run as a native SQL query.
+     *
+     * @param groupingVariables group by variables
+     * @param dependencies dependencies to forward to the next clause (select variables)
+     * @param inputSchema input schema of the dataframe
+     * @return a description of the variable preventing the native query, or null if there is none
+     */
+    private static String getNativeQueryBlocker(
+            List<Name> groupingVariables,
+            Map<Name, DynamicContext.VariableDependency> dependencies,
+            StructType inputSchema
+    ) {
+        for (Name groupingVar : groupingVariables) {
+            if (!FlworDataFrameUtils.isVariableAvailableAsNativeItem(inputSchema, groupingVar)) {
+                // we got a non-native type for grouping, switch to udf version
+                return "grouping variable $" + groupingVar + " is not stored as a native column";
+            }
+        }
+        for (Map.Entry<Name, DynamicContext.VariableDependency> entry : dependencies.entrySet()) {
+            if (
+                FlworDataFrameUtils.isVariableAvailableAsCountOnly(inputSchema, entry.getKey())
+                    || entry.getValue() == DynamicContext.VariableDependency.COUNT
+            ) {
+                continue;
+            }
+            if (FlworDataFrameUtils.isVariableAvailableAsNativeSequence(inputSchema, entry.getKey())) {
+                // we cannot merge arrays natively in Spark, strangely.
+                return "variable $" + entry.getKey() + " is a native sequence, which cannot be merged natively";
+            }
+            if (groupingVariables.contains(entry.getKey())) {
+                continue;
+            }
+            // if it is a binary object we just switch over to udf
+            StructField field = inputSchema.fields()[inputSchema.fieldIndex(entry.getKey().toString())];
+            if (field.dataType().equals(DataTypes.BinaryType)) {
+                return "variable $" + entry.getKey() + " is not stored as a native column";
+            }
+        }
+        return null;
+    }
+
     public boolean containsClause(FLWOR_CLAUSES kind) {
         if (kind == FLWOR_CLAUSES.GROUP_BY) {
             return true;
@@ -192,35 +192,14 @@ public class JoinClauseSparkIterator extends RuntimeTupleIterator {
 
 
         // Now we prepare the iterators for the two sides of the equality criterion.
-        RuntimeIterator rightHandSideEqualityCriterion;
-        RuntimeIterator leftHandSideEqualityCriterion;
-
-        if (rightTupleSideEqualityCriteria.size() == 1) {
-            rightHandSideEqualityCriterion = rightTupleSideEqualityCriteria.get(0);
-        } else {
-            rightHandSideEqualityCriterion = new ArrayRuntimeIterator(
-                    new CommaExpressionIterator(
-                            rightTupleSideEqualityCriteria,
-                            ExecutionMode.LOCAL,
-                            metadata
-                    ),
-                    ExecutionMode.LOCAL,
-                    metadata
-            );
-        }
-        if (leftTupleSideEqualityCriteria.size() == 1) {
-            leftHandSideEqualityCriterion = leftTupleSideEqualityCriteria.get(0);
-        } else {
-            leftHandSideEqualityCriterion = new ArrayRuntimeIterator(
-                    new CommaExpressionIterator(
-                            leftTupleSideEqualityCriteria,
-                            ExecutionMode.LOCAL,
-                            metadata
-                    ),
-                    ExecutionMode.LOCAL,
-                    metadata
-            );
-        }
+        RuntimeIterator rightHandSideEqualityCriterion = combineEqualityCriteria(
+            rightTupleSideEqualityCriteria,
+            metadata
+        );
+        RuntimeIterator leftHandSideEqualityCriterion = combineEqualityCriteria(
+            leftTupleSideEqualityCriteria,
+            metadata
+        );
         // leftInputTuple.show();
         // rightInputTuple.show();
 
@@ -296,10 +275,11 @@ public class JoinClauseSparkIterator extends RuntimeTupleIterator {
         );
 
         // Now we need to register or join predicate as a UDF.
+        String joinUDF = FlworDataFrameUtils.createUDFName("joinUDF");
         leftInputTuple.sparkSession()
             .udf()
             .register(
-                "joinUDF",
+                joinUDF,
                 new WhereClauseUDF(predicateIterator, context, jointSchema, joinCriterionUDFcolumns),
                 DataTypes.BooleanType
             );
@@ -311,10 +291,11 @@ public class JoinClauseSparkIterator extends RuntimeTupleIterator {
             Dataset<Row> resultDF = leftInputTuple.sparkSession()
                 .sql(
                     String.format(
-                        "SELECT %s FROM %s LEFT OUTER JOIN %s ON joinUDF(%s) = 'true'",
+                        "SELECT %s FROM %s LEFT OUTER JOIN %s ON %s(%s) = 'true'",
                         projectionVariables,
                         leftInputDFTableName,
                         rightInputDFTableName,
+                        joinUDF,
                         UDFParameters
                     )
                 );
@@ -326,12 +307,13 @@ public class JoinClauseSparkIterator extends RuntimeTupleIterator {
             Dataset<Row> resultDF = leftInputTuple.sparkSession()
                 .sql(
                     String.format(
-                        "SELECT %s FROM %s JOIN %s ON `%s` = `%s` WHERE joinUDF(%s) = 'true'",
+                        "SELECT %s FROM %s JOIN %s ON `%s` = `%s` WHERE %s(%s) = 'true'",
                         projectionVariables,
                         leftInputDFTableName,
                         rightInputDFTableName,
                         SparkSessionManager.rightHandSideHashColumnName,
                         SparkSessionManager.leftHandSideHashColumnName,
+                        joinUDF,
                         UDFParameters
                     )
                 );
@@ -341,16 +323,146 @@ public class JoinClauseSparkIterator extends RuntimeTupleIterator {
         Dataset<Row> resultDF = leftInputTuple.sparkSession()
             .sql(
                 String.format(
-                    "SELECT %s FROM %s JOIN %s ON joinUDF(%s) = 'true'",
+                    "SELECT %s FROM %s JOIN %s ON %s(%s) = 'true'",
                     projectionVariables,
                     leftInputDFTableName,
                     rightInputDFTableName,
+                    joinUDF,
                     UDFParameters
                 )
             );
         return resultDF;
     }
 
+    /**
+     * Filters the left input tuples with a left semi join (or a left anti join) on a predicate, i.e., keeps the left
+     * tuples for which at least one (or no) right tuple satisfies the predicate. This is how existentially and
+     * universally quantified expressions over an uncorrelated big sequence are evaluated. The output tuples only
+     * contain the columns of the left input tuples.
+     *
+     * @param context the dynamic context for the evaluation of the predicate expression.
+     * @param leftInputTuple the left tuple.
+     * @param rightInputTuple the right tuple.
+     * @param variablesInLeftInputTuple a list of the variables in the left tuple.
+     * @param variablesInRightInputTuple a list of the variables in the right tuple.
+     * @param predicateIterator the predicate iterator.
+     * @param isAntiJoin true if it is a left anti join, false if it is a left semi join.
+     * @param metadata the metadata.
+     * @return the filtered left tuples.
+     */
+    public static Dataset<Row> semiJoinInputTupleWithSequenceOnPredicate(
+            DynamicContext context,
+            Dataset<Row> leftInputTuple,
+            Dataset<Row> rightInputTuple,
+            List<Name> variablesInLeftInputTuple,
+            List<Name> variablesInRightInputTuple,
+            RuntimeIterator predicateIterator,
+            boolean isAntiJoin,
+            ExceptionMetadata metadata
+    ) {
+        List<FlworDataFrameColumn> columnsToSelect = FlworDataFrameUtils.getColumns(leftInputTuple.schema());
+
+        List<RuntimeIterator> leftTupleSideEqualityCriteria = new ArrayList<>();
+        List<RuntimeIterator> rightTupleSideEqualityCriteria = new ArrayList<>();
+        boolean optimizableJoin = extractEqualityComparisonsForHashing(
+            predicateIterator,
+            leftTupleSideEqualityCriteria,
+            rightTupleSideEqualityCriteria,
+            variablesInLeftInputTuple,
+            variablesInRightInputTuple
+        );
+
+        // The hashes are only a necessary condition for the equalities, so the predicate is still checked.
+        if (optimizableJoin) {
+            System.err.println(
+                "[INFO] Rumble detected that it can optimize your query and make it faster with an equi-join."
+            );
+            rightInputTuple = LetClauseSparkIterator.bindLetVariableInDataFrame(
+                rightInputTuple,
+                Name.createVariableInNoNamespace(SparkSessionManager.rightHandSideHashColumnName),
+                null,
+                combineEqualityCriteria(rightTupleSideEqualityCriteria, metadata),
+                context,
+                variablesInRightInputTuple,
+                null,
+                true
+            );
+            leftInputTuple = LetClauseSparkIterator.bindLetVariableInDataFrame(
+                leftInputTuple,
+                Name.createVariableInNoNamespace(SparkSessionManager.leftHandSideHashColumnName),
+                null,
+                combineEqualityCriteria(leftTupleSideEqualityCriteria, metadata),
+                context,
+                variablesInLeftInputTuple,
+                null,
+                true
+            );
+        }
+
+        String leftInputDFTableName = FlworDataFrameUtils.createTempView(leftInputTuple);
+        String rightInputDFTableName = FlworDataFrameUtils.createTempView(rightInputTuple);
+        StructType jointSchema = FlworDataFrameUtils.schemaUnion(leftInputTuple.schema(), rightInputTuple.schema());
+
+        List<Name> variablesInJointTuple = new ArrayList<>();
+        variablesInJointTuple.addAll(variablesInLeftInputTuple);
+        variablesInJointTuple.addAll(variablesInRightInputTuple);
+        List<String> joinCriterionUDFcolumns = FlworDataFrameUtils.getColumnNames(
+            jointSchema,
+            predicateIterator.getVariableDependencies(),
+            variablesInJointTuple,
+            null
+        );
+        String joinUDF = FlworDataFrameUtils.createUDFName("joinUDF");
+        leftInputTuple.sparkSession()
+            .udf()
+            .register(
+                joinUDF,
+                new WhereClauseUDF(predicateIterator, context, jointSchema, joinCriterionUDFcolumns),
+                DataTypes.BooleanType
+            );
+        String UDFParameters = FlworDataFrameUtils.getUDFParameters(joinCriterionUDFcolumns);
+
+        // Columns of the right side are not visible after a semi join, so the whole predicate goes in the ON part.
+        String joinCondition = String.format("%s(%s) = 'true'", joinUDF, UDFParameters);
+        if (optimizableJoin) {
+            joinCondition = String.format(
+                "`%s` = `%s` AND %s",
+                SparkSessionManager.rightHandSideHashColumnName,
+                SparkSessionManager.leftHandSideHashColumnName,
+                joinCondition
+            );
+        }
+        return leftInputTuple.sparkSession()
+            .sql(
+                String.format(
+                    "SELECT %s FROM %s LEFT %s JOIN %s ON %s",
+                    FlworDataFrameUtils.getSQLColumnProjection(columnsToSelect, false),
+                    leftInputDFTableName,
+                    isAntiJoin ? "ANTI" : "SEMI",
+                    rightInputDFTableName,
+                    joinCondition
+                )
+            );
+    }
+
+    private static RuntimeIterator combineEqualityCriteria(
+            List<RuntimeIterator> equalityCriteria,
+            ExceptionMetadata metadata
+    ) {
+        if (equalityCriteria.size() == 1) {
+            return equalityCriteria.get(0);
+        }
+        return new ArrayRuntimeIterator(
+                new CommaExpressionIterator(
+                        equalityCriteria,
+                        ExecutionMode.LOCAL,
+                        metadata
+                ),
+                ExecutionMode.LOCAL,
+                metadata
+        );
+    }
+
     private static boolean extractEqualityComparisonsForHashing(
             RuntimeIterator predicateIterator,
             List<RuntimeIterator> leftTupleSideEqualityCriteria,
@@ -20,9 +20,14 @@
 
 package org.rumbledb.runtime.flwor.clauses;
 
+import static org.apache.spark.sql.functions.expr;
+import static org.apache.spark.sql.functions.udf;
+
 import org.apache.spark.api.java.JavaRDD;
+import org.apache.spark.sql.Column;
 import org.apache.spark.sql.Dataset;
 import org.apache.spark.sql.Row;
+import org.apache.spark.sql.expressions.UserDefinedFunction;
 import org.apache.spark.sql.types.DataTypes;
 import org.apache.spark.sql.types.StructType;
 import org.rumbledb.api.Item;
@@ -38,6 +43,7 @@ import org.rumbledb.expressions.flowr.FLWOR_CLAUSES;
 import org.rumbledb.items.structured.JSoundDataFrame;
 import org.rumbledb.runtime.RuntimeIterator;
 import org.rumbledb.runtime.RuntimeTupleIterator;
+import org.rumbledb.runtime.flwor.ClauseExplanation;
 import org.rumbledb.runtime.flwor.FlworDataFrameColumn;
 import org.rumbledb.runtime.flwor.FlworDataFrameUtils;
 import org.rumbledb.runtime.flwor.NativeClauseContext;
@@ -367,18 +373,20 @@ public class LetClauseSparkIterator extends RuntimeTupleIterator {
 
         // We serialize back all grouped items as sequences of items.
         String groupedResults = FlworDataFrameUtils.createTempView(expressionDF);
+        String serializeArray = FlworDataFrameUtils.createUDFName("serializeArray");
         expressionDF.sparkSession()
             .udf()
             .register(
-                "serializeArray",
+                serializeArray,
                 new GroupClauseSerializeAggregateResultsUDF(),
                 DataTypes.BinaryType
             );
         expressionDF = expressionDF.sparkSession()
             .sql(
                 String.format(
-                    "SELECT `%s`, serializeArray(`%s`) AS `%s` FROM %s",
+                    "SELECT `%s`, %s(`%s`) AS `%s` FROM %s",
                     SparkSessionManager.rightHandSideHashColumnName,
+                    serializeArray,
                     this.variableName,
                     this.variableName,
                     groupedResults
@@ -577,6 +585,12 @@ public class LetClauseSparkIterator extends RuntimeTupleIterator {
             );
 
             if (nativeQueryResult != null) {
+                ClauseExplanation.explainNativeQuery(
+                    FLWOR_CLAUSES.LET,
+                    newVariableExpression.getMetadata(),
+                    context,
+                    nativeQueryResult
+                );
                 return nativeQueryResult;
             }
         }
@@ -600,163 +614,137 @@ public class LetClauseSparkIterator extends RuntimeTupleIterator {
         // System.out.println("UDF " + c);
         // }
 
-        boolean isNative = false;
+        FlworDataFrameColumn dfColumnSequence = new FlworDataFrameColumn(newVariableName, ColumnFormat.NATIVE_SEQUENCE);
+        FlworDataFrameColumn dfColumnNative = new FlworDataFrameColumn(newVariableName, ColumnFormat.FULLY_NATIVE);
+        Column UDFParameters = FlworDataFrameUtils.getUDFParametersColumn(UDFcolumns);
+
         if (!hash) {
-            isNative = registerLetClauseUDF(
-                dataFrame,
+            boolean isNative = isNativelyTypedLetClause(sequenceType);
+            UserDefinedFunction letClauseUDF = createLetClauseUDF(
                 newVariableExpression,
                 context,
                 inputSchema,
                 UDFcolumns,
                 sequenceType
             );
+            dataFrame = dataFrame.select(
+                FlworDataFrameUtils.getColumnProjection(
+                    allColumns,
+                    letClauseUDF.apply(UDFParameters)
+                        .as((isNative ? dfColumnNative : dfColumnSequence).getColumnName())
+                )
+            );
+            ClauseExplanation.explainUDF(
+                FLWOR_CLAUSES.LET,
+                newVariableExpression.getMetadata(),
+                context,
+                Collections.singletonList(newVariableExpression),
+                inputSchema,
+                dataFrame
+            );
         } else {
-            dataFrame.sparkSession()
-                .udf()
-                .register(
-                    "hashUDF",
-                    new HashUDF(newVariableExpression, context, inputSchema, UDFcolumns),
-                    DataTypes.LongType
-                );
+            UserDefinedFunction hashUDF = udf(
+                new HashUDF(newVariableExpression, context, inputSchema, UDFcolumns),
+                DataTypes.LongType
+            );
+            dataFrame = dataFrame.select(
+                FlworDataFrameUtils.getColumnProjection(
+                    allColumns,
+                    hashUDF.apply(UDFParameters).as(newVariableName.toString())
+                )
+            );
         }
+        return dataFrame;
+    }
 
-        String selectSQL = FlworDataFrameUtils.getSQLColumnProjection(allColumns, true);
-        String UDFParameters = FlworDataFrameUtils.getUDFParameters(UDFcolumns);
-
-        String input = FlworDataFrameUtils.createTempView(dataFrame);
-
-        FlworDataFrameColumn dfColumnSequence = new FlworDataFrameColumn(newVariableName, ColumnFormat.NATIVE_SEQUENCE);
-        FlworDataFrameColumn dfColumnNative = new FlworDataFrameColumn(newVariableName, ColumnFormat.FULLY_NATIVE);
-
-        if (!hash) {
-            dataFrame = dataFrame.sparkSession()
-                .sql(
-                    String.format(
-                        "select %s letClauseUDF(%s) as %s from %s",
-                        selectSQL,
-                        UDFParameters,
-                        isNative ? dfColumnNative : dfColumnSequence,
-                        input
-                    )
-                );
-
-        } else {
-            // System.out.println(
-            // String.format(
-            // "select %s hashUDF(%s) as `%s` from input",
-            // selectSQL,
-            // UDFParameters,
-            // newVariableName
-            // )
-            // );
-            dataFrame = dataFrame.sparkSession()
-                .sql(
-                    String.format(
-                        "select %s hashUDF(%s) as `%s` from %s",
-                        selectSQL,
-                        UDFParameters,
-                        newVariableName,
-                        input
-                    )
-                );
+    /**
+     * Tells whether the let clause UDF returns a native value rather than a sequence of serialized items. For the
+     * moment, only single items of some atomic types are returned natively.
+     *
+     * @param sequenceType the sequence type of the new bound item
+     * @return true if the value is native
+     */
+    private static boolean isNativelyTypedLetClause(SequenceType sequenceType) {
+        if (
+            sequenceType == null
+                || sequenceType.isEmptySequence()
+                || !sequenceType.getArity().equals(SequenceType.Arity.One)
+        ) {
+            return false;
         }
-        return dataFrame;
+        ItemType itemType = sequenceType.getItemType();
+        return itemType.equals(BuiltinTypesCatalogue.stringItem)
+            || itemType.equals(BuiltinTypesCatalogue.integerItem)
+            || itemType.equals(BuiltinTypesCatalogue.decimalItem)
+            || itemType.equals(BuiltinTypesCatalogue.doubleItem);
     }
 
-    public static boolean registerLetClauseUDF(
-            Dataset<Row> dataFrame,
+    public static UserDefinedFunction createLetClauseUDF(
             RuntimeIterator newVariableExpression,
             DynamicContext context,
             StructType inputSchema,
             List<String> UDFcolumns,
             SequenceType sequenceType
     ) {
-        // for the moment we only consider natively types with single arity (what about optional)
-        if (
-            sequenceType != null
-                && !sequenceType.isEmptySequence()
-                && sequenceType.getArity().equals(SequenceType.Arity.One)
-        ) {
+        if (isNativelyTypedLetClause(sequenceType)) {
             ItemType itemType = sequenceType.getItemType();
 
             if (itemType.equals(BuiltinTypesCatalogue.stringItem)) {
-                dataFrame.sparkSession()
-                    .udf()
-                    .register(
-                        "letClauseUDF",
-                        new GenericLetClauseUDF<String>(
-                                newVariableExpression,
-                                context,
-                                inputSchema,
-                                UDFcolumns,
-                                "String"
-                        ),
-                        DataTypes.StringType
-                    );
-                return true;
+                return udf(
+                    new GenericLetClauseUDF<String>(
+                            newVariableExpression,
+                            context,
+                            inputSchema,
+                            UDFcolumns,
+                            "String"
+                    ),
+                    DataTypes.StringType
+                );
             }
 
             if (itemType.equals(BuiltinTypesCatalogue.integerItem)) {
-                dataFrame.sparkSession()
-                    .udf()
-                    .register(
-                        "letClauseUDF",
-                        new GenericLetClauseUDF<Integer>(
-                                newVariableExpression,
-                                context,
-                                inputSchema,
-                                UDFcolumns,
-                                "Integer"
-                        ),
-                        DataTypes.IntegerType
-                    );
-                return true;
+                return udf(
+                    new GenericLetClauseUDF<Integer>(
+                            newVariableExpression,
+                            context,
+                            inputSchema,
+                            UDFcolumns,
+                            "Integer"
+                    ),
+                    DataTypes.IntegerType
+                );
             }
 
             if (itemType.equals(BuiltinTypesCatalogue.decimalItem)) {
-                dataFrame.sparkSession()
-                    .udf()
-                    .register(
-                        "letClauseUDF",
-                        new GenericLetClauseUDF<BigDecimal>(
-                                newVariableExpression,
-                                context,
-                                inputSchema,
-                                UDFcolumns,
-                                "BigDecimal"
-                        ),
-                        DataTypes.createDecimalType()
-                    );
-                return true;
+                return udf(
+                    new GenericLetClauseUDF<BigDecimal>(
+                            newVariableExpression,
+                            context,
+                            inputSchema,
+                            UDFcolumns,
+                            "BigDecimal"
+                    ),
+                    DataTypes.createDecimalType()
+                );
             }
 
-            if (itemType.equals(BuiltinTypesCatalogue.doubleItem)) {
-                dataFrame.sparkSession()
-                    .udf()
-                    .register(
-                        "letClauseUDF",
-                        new GenericLetClauseUDF<Double>(
-                                newVariableExpression,
-                                context,
-                                inputSchema,
-                                UDFcolumns,
-                                "Double"
-                        ),
-                        DataTypes.DoubleType
-                    );
-                return true;
-            }
+            return udf(
+                new GenericLetClauseUDF<Double>(
+                        newVariableExpression,
+                        context,
+                        inputSchema,
+                        UDFcolumns,
+                        "Double"
+                ),
+                DataTypes.DoubleType
+            );
         }
 
         // if it is not one of the allowed sequence type we just return the default udf
-        dataFrame.sparkSession()
-            .udf()
-            .register(
-                "letClauseUDF",
-                new ExpressionEvaluationUDF(newVariableExpression, context, inputSchema, UDFcolumns),
-                DataTypes.createArrayType(DataTypes.BinaryType)
-            );
-        return false;
+        return udf(
+            new ExpressionEvaluationUDF(newVariableExpression, context, inputSchema, UDFcolumns),
+            DataTypes.createArrayType(DataTypes.BinaryType)
+        );
     }
 
     /**
@@ -787,18 +775,12 @@ public class LetClauseSparkIterator extends RuntimeTupleIterator {
         System.err.println(
             "[INFO] Rumble was able to optimize a let clause to a native SQL query."
         );
-        String selectSQL = FlworDataFrameUtils.getSQLColumnProjection(allColumns, true);
-        String input = FlworDataFrameUtils.createTempView(dataFrame);
-        return dataFrame.sparkSession()
-            .sql(
-                String.format(
-                    "select %s %s as `%s` from %s",
-                    selectSQL,
-                    nativeQuery.getResultingQuery(),
-                    newVariableName,
-                    input
-                )
-            );
+        return dataFrame.select(
+            FlworDataFrameUtils.getColumnProjection(
+                allColumns,
+                expr(nativeQuery.getResultingQuery()).as(newVariableName.toString())
+            )
+        );
     }
 
     public boolean containsClause(FLWOR_CLAUSES kind) {
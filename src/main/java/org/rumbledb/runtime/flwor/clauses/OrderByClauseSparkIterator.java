@@ -20,6 +20,7 @@
 
 package org.rumbledb.runtime.flwor.clauses;
 
+import org.apache.spark.sql.Column;
 import org.apache.spark.sql.Dataset;
 import org.apache.spark.sql.Row;
 import org.apache.spark.sql.types.DataType;
@@ -41,6 +42,7 @@ import org.rumbledb.expressions.flowr.FLWOR_CLAUSES;
 import org.rumbledb.expressions.flowr.OrderByClauseSortingKey.EMPTY_ORDER;
 import org.rumbledb.runtime.RuntimeIterator;
 import org.rumbledb.runtime.RuntimeTupleIterator;
+import org.rumbledb.runtime.flwor.ClauseExplanation;
 import org.rumbledb.runtime.flwor.FlworDataFrameColumn;
 import org.rumbledb.runtime.flwor.FlworDataFrameUtils;
 import org.rumbledb.runtime.flwor.NativeClauseContext;
@@ -60,7 +62,9 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.stream.Collectors;
 
+import static org.apache.spark.sql.functions.expr;
 import static org.rumbledb.items.parsing.ItemParser.decimalType;
 
 public class OrderByClauseSparkIterator extends RuntimeTupleIterator {
@@ -244,13 +248,15 @@ public class OrderByClauseSparkIterator extends RuntimeTupleIterator {
             context
         );
         if (nativeQueryResult != null) {
+            ClauseExplanation.explainNativeQuery(FLWOR_CLAUSES.ORDER_BY, getMetadata(), context, nativeQueryResult);
             return nativeQueryResult;
         }
 
+        String determineOrderingDataType = FlworDataFrameUtils.createUDFName("determineOrderingDataType");
         df.sparkSession()
             .udf()
             .register(
-                "determineOrderingDataType",
+                determineOrderingDataType,
                 new OrderClauseDetermineTypeUDF(this.expressionsWithIterator, context, inputSchema, UDFcolumns),
                 DataTypes.createArrayType(DataTypes.StringType)
             );
@@ -258,13 +264,15 @@ public class OrderByClauseSparkIterator extends RuntimeTupleIterator {
 
         String UDFParameters = FlworDataFrameUtils.getUDFParameters(UDFcolumns);
 
-        df.createOrReplaceTempView("input");
-        df.sparkSession().table("input").cache();
+        String input = FlworDataFrameUtils.createTempView(df);
+        df.sparkSession().table(input).cache();
         Dataset<Row> columnTypesDf = df.sparkSession()
             .sql(
                 String.format(
-                    "select distinct(determineOrderingDataType(%s)) as `distinct-types` from input",
-                    UDFParameters
+                    "select distinct(%s(%s)) as `distinct-types` from %s",
+                    determineOrderingDataType,
+                    UDFParameters,
+                    input
                 )
             );
         Object columnTypesObject = columnTypesDf.collect();
@@ -426,10 +434,11 @@ public class OrderByClauseSparkIterator extends RuntimeTupleIterator {
             }
         }
 
+        String createOrderingColumns = FlworDataFrameUtils.createUDFName("createOrderingColumns");
         df.sparkSession()
             .udf()
             .register(
-                "createOrderingColumns",
+                createOrderingColumns,
                 new OrderClauseCreateColumnsUDF(
                         this.expressionsWithIterator,
                         context,
@@ -443,17 +452,30 @@ public class OrderByClauseSparkIterator extends RuntimeTupleIterator {
         String selectSQL = FlworDataFrameUtils.getSQLColumnProjection(allColumns, true);
         String projectSQL = selectSQL.substring(0, selectSQL.length() - 1); // remove trailing comma
 
-        return df.sparkSession()
+        Dataset<Row> result = df.sparkSession()
             .sql(
                 String.format(
-                    "select %s from (select %s createOrderingColumns(%s) as `%s` from input order by %s)",
+                    "select %s from (select %s %s(%s) as `%s` from %s order by %s)",
                     projectSQL,
                     selectSQL,
+                    createOrderingColumns,
                     UDFParameters,
                     appendedOrderingColumnsName,
+                    input,
                     orderingSQL
                 )
             );
+        ClauseExplanation.explainUDF(
+            FLWOR_CLAUSES.ORDER_BY,
+            getMetadata(),
+            context,
+            this.expressionsWithIterator.stream()
+                .map(OrderByClauseAnnotatedChildIterator::getIterator)
+                .collect(Collectors.toList()),
+            inputSchema,
+            result
+        );
+        return result;
     }
 
     public Map<Name, DynamicContext.VariableDependency> getDynamicContextVariableDependencies() {
@@ -527,54 +549,41 @@ public class OrderByClauseSparkIterator extends RuntimeTupleIterator {
             DynamicContext context
     ) {
         NativeClauseContext orderContext = new NativeClauseContext(FLWOR_CLAUSES.ORDER_BY, inputSchema, context);
-        StringBuilder orderSql = new StringBuilder();
-        String orderSeparator = "";
+        List<Column> orderColumns = new ArrayList<>();
         NativeClauseContext nativeQuery;
         for (OrderByClauseAnnotatedChildIterator orderIterator : expressionsWithIterator) {
             nativeQuery = orderIterator.getIterator().generateNativeQuery(orderContext);
             if (nativeQuery == NativeClauseContext.NoNativeQuery) {
                 return null;
             }
-            orderSql.append(orderSeparator);
-            orderSeparator = ", ";
             // special check to avoid ordering by an integer constant in an ordering clause
             // second check to assure it is a literal
             // because of meaning mismatch between sparksql (where it is supposed to order by the i-th col)
             // and jsoniq (order by a costant, so no actual ordering is performed)
+            String orderSql = nativeQuery.getResultingQuery();
             if (
                 (nativeQuery.getResultingType() == BuiltinTypesCatalogue.integerItem
                     || nativeQuery.getResultingType() == BuiltinTypesCatalogue.intItem)
-                    && nativeQuery.getResultingQuery().matches("\\s*-?\\s*\\d+\\s*")
+                    && orderSql.matches("\\s*-?\\s*\\d+\\s*")
             ) {
-                orderSql.append('"');
-                orderSql.append(nativeQuery.getResultingQuery());
-                orderSql.append('"');
-            } else {
-                orderSql.append(nativeQuery.getResultingQuery());
+                orderSql = '"' + orderSql + '"';
             }
+            Column orderColumn = expr(orderSql);
             if (!orderIterator.isAscending()) {
-                orderSql.append(" desc");
-                if (orderIterator.getEmptyOrder() == EMPTY_ORDER.GREATEST) {
-                    orderSql.append(" nulls first");
-                }
+                orderColumn = orderIterator.getEmptyOrder() == EMPTY_ORDER.GREATEST
+                    ? orderColumn.desc_nulls_first()
+                    : orderColumn.desc();
             } else {
-                if (orderIterator.getEmptyOrder() == EMPTY_ORDER.GREATEST) {
-                    orderSql.append(" nulls last");
-                }
+                orderColumn = orderIterator.getEmptyOrder() == EMPTY_ORDER.GREATEST
+                    ? orderColumn.asc_nulls_last()
+                    : orderColumn.asc();
             }
+            orderColumns.add(orderColumn);
         }
 
         System.err.println("[INFO] Rumble was able to optimize an order-by clause to a native SQL query.");
-        String selectSQL = FlworDataFrameUtils.getSQLColumnProjection(allColumns, false);
-        dataFrame.createOrReplaceTempView("input");
-        return dataFrame.sparkSession()
-            .sql(
-                String.format(
-                    "select %s from input order by %s",
-                    selectSQL,
-                    orderSql
-                )
-            );
+        return dataFrame.orderBy(orderColumns.toArray(new Column[0]))
+            .select(FlworDataFrameUtils.getColumnProjection(allColumns));
     }
 
     public boolean containsClause(FLWOR_CLAUSES kind) {
@@ -20,6 +20,9 @@
 
 package org.rumbledb.runtime.flwor.clauses;
 
+import static org.apache.spark.sql.functions.col;
+import static org.apache.spark.sql.functions.expr;
+
 import org.apache.spark.api.java.JavaRDD;
 import org.apache.spark.sql.Dataset;
 import org.apache.spark.sql.Row;
@@ -81,6 +84,14 @@ public class ReturnClauseSparkIterator extends HybridRuntimeIterator {
         setInputAndOutputTupleVariableDependencies();
     }
 
+    public RuntimeTupleIterator getChildIterator() {
+        return this.child;
+    }
+
+    public RuntimeIterator getExpression() {
+        return this.expression;
+    }
+
     @Override
     public JavaRDD<Item> getRDDAux(DynamicContext context) {
         RuntimeIterator expression = this.children.get(0);
@@ -188,16 +199,9 @@ public class ReturnClauseSparkIterator extends HybridRuntimeIterator {
         );
         if (nativeQueryResult != null) {
             if (this.sequenceType.getItemType().isObjectItemType()) {
-                String input = FlworDataFrameUtils.createTempView(nativeQueryResult);
-                nativeQueryResult =
-                    nativeQueryResult.sparkSession()
-                        .sql(
-                            String.format(
-                                "SELECT `%s`.* FROM %s",
-                                SparkSessionManager.atomicJSONiqItemColumnName,
-                                input
-                            )
-                        );
+                nativeQueryResult = nativeQueryResult.select(
+                    col("`" + SparkSessionManager.atomicJSONiqItemColumnName + "`.*")
+                );
             }
             JSoundDataFrame result = new JSoundDataFrame(
                     nativeQueryResult,
@@ -355,17 +359,9 @@ public class ReturnClauseSparkIterator extends HybridRuntimeIterator {
         System.err.println(
             "[INFO] Rumble was able to optimize a return clause to a native SQL query."
         );
-        String input = FlworDataFrameUtils.createTempView(dataFrame);
-        Dataset<Row> result = dataFrame.sparkSession()
-            .sql(
-                String.format(
-                    "select %s as `%s` from %s",
-                    nativeQuery.getResultingQuery(),
-                    SparkSessionManager.atomicJSONiqItemColumnName,
-                    input
-                )
-            );
-        return result;
+        return dataFrame.select(
+            expr(nativeQuery.getResultingQuery()).as(SparkSessionManager.atomicJSONiqItemColumnName)
+        );
     }
 
 }
@@ -20,8 +20,12 @@
 
 package org.rumbledb.runtime.flwor.clauses;
 
+import static org.apache.spark.sql.functions.expr;
+import static org.apache.spark.sql.functions.udf;
+
 import org.apache.spark.sql.Dataset;
 import org.apache.spark.sql.Row;
+import org.apache.spark.sql.expressions.UserDefinedFunction;
 import org.apache.spark.sql.types.DataTypes;
 import org.apache.spark.sql.types.StructType;
 import org.rumbledb.api.Item;
@@ -37,15 +41,22 @@ import org.rumbledb.expressions.comparison.ComparisonExpression;
 import org.rumbledb.expressions.flowr.FLWOR_CLAUSES;
 import org.rumbledb.runtime.RuntimeIterator;
 import org.rumbledb.runtime.RuntimeTupleIterator;
+import org.rumbledb.runtime.flwor.ClauseExplanation;
 import org.rumbledb.runtime.flwor.FlworDataFrameUtils;
 import org.rumbledb.runtime.flwor.NativeClauseContext;
 import org.rumbledb.runtime.flwor.udfs.WhereClauseUDF;
+import org.rumbledb.runtime.functions.sequences.general.EmptyFunctionIterator;
+import org.rumbledb.runtime.functions.sequences.general.ExistsFunctionIterator;
+import org.rumbledb.runtime.logics.AndOperationIterator;
 import org.rumbledb.runtime.misc.ComparisonIterator;
+import org.rumbledb.runtime.primary.NullRuntimeIterator;
 import org.rumbledb.runtime.primary.VariableReferenceIterator;
 
 import sparksoniq.jsoniq.tuple.FlworTuple;
 
+import java.math.BigInteger;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -172,6 +183,11 @@ public class WhereClauseSparkIterator extends RuntimeTupleIterator {
             return dataFrameIfJoinPossible;
         }
 
+        Dataset<Row> dataFrameIfSemiJoinPossible = getDataFrameIfSemiJoinPossible(context);
+        if (dataFrameIfSemiJoinPossible != null) {
+            return dataFrameIfSemiJoinPossible;
+        }
+
         Dataset<Row> df = this.child.getDataFrame(context);
         StructType inputSchema = df.schema();
 
@@ -182,6 +198,7 @@ public class WhereClauseSparkIterator extends RuntimeTupleIterator {
             context
         );
         if (nativeQueryResult != null) {
+            ClauseExplanation.explainNativeQuery(FLWOR_CLAUSES.WHERE, getMetadata(), context, nativeQueryResult);
             return nativeQueryResult;
         }
 
@@ -193,25 +210,19 @@ public class WhereClauseSparkIterator extends RuntimeTupleIterator {
             null
         );
 
-        df.sparkSession()
-            .udf()
-            .register(
-                "whereClauseUDF",
-                new WhereClauseUDF(this.expression, context, inputSchema, UDFcolumns),
-                DataTypes.BooleanType
-            );
-
-        String UDFParameters = FlworDataFrameUtils.getUDFParameters(UDFcolumns);
-
-        String input = FlworDataFrameUtils.createTempView(df);
-        df = df.sparkSession()
-            .sql(
-                String.format(
-                    "select * from %s where whereClauseUDF(%s) = 'true'",
-                    input,
-                    UDFParameters
-                )
-            );
+        UserDefinedFunction whereClauseUDF = udf(
+            new WhereClauseUDF(this.expression, context, inputSchema, UDFcolumns),
+            DataTypes.BooleanType
+        );
+        df = df.filter(whereClauseUDF.apply(FlworDataFrameUtils.getUDFParametersColumn(UDFcolumns)));
+        ClauseExplanation.explainUDF(
+            FLWOR_CLAUSES.WHERE,
+            getMetadata(),
+            context,
+            Collections.singletonList(this.expression),
+            inputSchema,
+            df
+        );
         return df;
     }
 
@@ -256,12 +267,15 @@ public class WhereClauseSparkIterator extends RuntimeTupleIterator {
         if (!item.isInteger()) {
             return null;
         }
+        BigInteger limit = item.getIntegerValue();
+        if (limit.signum() < 0 || limit.bitLength() >= Integer.SIZE) {
+            return null;
+        }
         System.err.println(
             "[INFO] Rumble detected a LIMIT in a count and where clause."
         );
         Dataset<Row> df = this.child.getChildIterator().getDataFrame(context);
-        String input = FlworDataFrameUtils.createTempView(df);
-        return df.sparkSession().sql(String.format("SELECT * FROM %s LIMIT %s", input, item.getStringValue()));
+        return df.limit(limit.intValue());
     }
 
     private Dataset<Row> getDataFrameIfJoinPossible(DynamicContext context) {
@@ -374,6 +388,106 @@ public class WhereClauseSparkIterator extends RuntimeTupleIterator {
 
     }
 
+    /**
+     * Quantified expressions are translated to calls to exists() (some) or empty() (every) on a FLWOR expression with a
+     * for clause and a where clause. If the for clause iterates over a big sequence that does not depend on the tuples
+     * of this clause, the where clause is evaluated as a left semi join (exists) or left anti join (empty) of these
+     * tuples with the sequence, instead of running a Spark job for every tuple.
+     *
+     * @param context the dynamic context.
+     * @return the filtered tuples, or null if the expression is not of this form.
+     */
+    private Dataset<Row> getDataFrameIfSemiJoinPossible(DynamicContext context) {
+        if (this.evaluationDepthLimit >= 0) {
+            return null;
+        }
+        boolean isAntiJoin;
+        RuntimeIterator sequenceIterator;
+        if (this.expression instanceof ExistsFunctionIterator) {
+            isAntiJoin = false;
+            sequenceIterator = ((ExistsFunctionIterator) this.expression).getSequenceIterator();
+        } else if (this.expression instanceof EmptyFunctionIterator) {
+            isAntiJoin = true;
+            sequenceIterator = ((EmptyFunctionIterator) this.expression).getSequenceIterator();
+        } else {
+            return null;
+        }
+        if (!(sequenceIterator instanceof ReturnClauseSparkIterator)) {
+            return null;
+        }
+        ReturnClauseSparkIterator returnClauseIterator = (ReturnClauseSparkIterator) sequenceIterator;
+
+        // The where clauses of the nested FLWOR expression are combined into one predicate.
+        RuntimeIterator predicateIterator = null;
+        RuntimeTupleIterator clauseIterator = returnClauseIterator.getChildIterator();
+        while (clauseIterator instanceof WhereClauseSparkIterator) {
+            RuntimeIterator whereExpression = ((WhereClauseSparkIterator) clauseIterator).expression;
+            predicateIterator = predicateIterator == null
+                ? whereExpression
+                : new AndOperationIterator(whereExpression, predicateIterator, ExecutionMode.LOCAL, getMetadata());
+            clauseIterator = clauseIterator.getChildIterator();
+        }
+        if (predicateIterator == null || !(clauseIterator instanceof ForClauseSparkIterator)) {
+            return null;
+        }
+        ForClauseSparkIterator forClauseIterator = (ForClauseSparkIterator) clauseIterator;
+        if (
+            forClauseIterator.getChildIterator() != null
+                || forClauseIterator.getPositionalVariableName() != null
+                || forClauseIterator.isAllowingEmpty()
+                || !forClauseIterator.isDataFrame()
+        ) {
+            return null;
+        }
+        Name forVariable = forClauseIterator.getVariableName();
+
+        // Each tuple of the for clause must produce exactly one item.
+        RuntimeIterator returnExpression = returnClauseIterator.getExpression();
+        if (
+            !(returnExpression instanceof NullRuntimeIterator)
+                && !(returnExpression instanceof VariableReferenceIterator
+                    && ((VariableReferenceIterator) returnExpression).getVariableName().equals(forVariable))
+        ) {
+            return null;
+        }
+
+        Set<Name> leftVariables = this.child.getOutputTupleVariableNames();
+        if (leftVariables.contains(forVariable)) {
+            return null;
+        }
+        Set<Name> sequenceDependencies = new HashSet<>(
+                forClauseIterator.getAssignmentIterator().getVariableDependencies().keySet()
+        );
+        sequenceDependencies.retainAll(leftVariables);
+        if (!sequenceDependencies.isEmpty()) {
+            return null;
+        }
+
+        System.err.println(
+            "[INFO] Rumble detected a quantified expression in the where clause that can be evaluated with a "
+                + (isAntiJoin ? "left anti join." : "left semi join.")
+        );
+        try {
+            Dataset<Row> leftTuples = this.child.getDataFrame(context);
+            Dataset<Row> rightTuples = forClauseIterator.getDataFrame(context);
+            return JoinClauseSparkIterator.semiJoinInputTupleWithSequenceOnPredicate(
+                context,
+                leftTuples,
+                rightTuples,
+                new ArrayList<Name>(leftVariables),
+                Collections.singletonList(forVariable),
+                predicateIterator,
+                isAntiJoin,
+                getMetadata()
+            );
+        } catch (Exception e) {
+            System.err.println(
+                "[INFO] Join failed. Falling back to regular execution (nevertheless, please let us know!)."
+            );
+            return null;
+        }
+    }
+
     public Map<Name, DynamicContext.VariableDependency> getDynamicContextVariableDependencies() {
         Map<Name, DynamicContext.VariableDependency> result = new TreeMap<>(
                 this.expression.getVariableDependencies()
@@ -443,15 +557,7 @@ public class WhereClauseSparkIterator extends RuntimeTupleIterator {
         System.err.println(
             "[INFO] Rumble was able to optimize a where clause to a native SQL query."
         );
-        String input = FlworDataFrameUtils.createTempView(dataFrame);
-        return dataFrame.sparkSession()
-            .sql(
-                String.format(
-                    "select * from %s where %s",
-                    input,
-                    nativeQuery.getResultingQuery()
-                )
-            );
+        return dataFrame.filter(expr(nativeQuery.getResultingQuery()));
     }
 
     public boolean containsClause(FLWOR_CLAUSES kind) {
@@ -24,25 +24,40 @@ import org.apache.spark.sql.AnalysisException;
 import org.apache.spark.sql.DataFrameReader;
 import org.apache.spark.sql.Dataset;
 import org.apache.spark.sql.Row;
+import org.apache.spark.sql.types.DataType;
+import org.apache.spark.sql.types.DataTypes;
 import org.rumbledb.api.Item;
 import org.rumbledb.context.DynamicContext;
 import org.rumbledb.exceptions.CannotRetrieveResourceException;
 import org.rumbledb.exceptions.ExceptionMetadata;
+import org.rumbledb.exceptions.InvalidSchemaException;
+import org.rumbledb.exceptions.RumbleException;
 import org.rumbledb.exceptions.UnexpectedTypeException;
 import org.rumbledb.expressions.ExecutionMode;
 import org.rumbledb.items.ObjectItem;
+import org.rumbledb.items.parsing.ItemParser;
 import org.rumbledb.items.structured.JSoundDataFrame;
 import org.rumbledb.runtime.DataFrameRuntimeIterator;
 import org.rumbledb.runtime.RuntimeIterator;
+import org.rumbledb.runtime.typing.ValidateTypeIterator;
+import org.rumbledb.types.FieldDescriptor;
+import org.rumbledb.types.ItemType;
+import org.rumbledb.types.ItemTypeFactory;
 
 import sparksoniq.spark.SparkSessionManager;
 
 import java.net.URI;
 import java.util.List;
 
+/**
+ * Reads CSV files with Spark. The options are passed to the reader, except for the schema option, which gives the
+ * type of the rows as a JSound compact schema, as for annotate(). The columns are then read with the corresponding
+ * types in a single pass, instead of being inferred with an additional pass or read as strings.
+ */
 public class CSVFileFunctionIterator extends DataFrameRuntimeIterator {
 
     private static final long serialVersionUID = 1L;
+    public static final String SCHEMA_OPTION = "schema";
 
     public CSVFileFunctionIterator(
             List<RuntimeIterator> arguments,
@@ -62,6 +77,7 @@ public class CSVFileFunctionIterator extends DataFrameRuntimeIterator {
             throw new CannotRetrieveResourceException("File " + uri + " not found.", getMetadata());
         }
         Item optionsObjectItem;
+        ItemType itemType = null;
         try {
             DataFrameReader dfr = SparkSessionManager.getInstance().getOrCreateSession().read();
             if (this.children.size() > 1 && ((optionsObjectItem = getObjectItem(context)) != null)) {
@@ -70,7 +86,10 @@ public class CSVFileFunctionIterator extends DataFrameRuntimeIterator {
                 List<Item> values = options.getValues();
                 for (int i = 0; i < keys.size(); i++) {
                     Item value = values.get(i);
-                    if (value.isBoolean()) {
+                    if (keys.get(i).equals(SCHEMA_OPTION)) {
+                        itemType = getSchemaType(value, context);
+                        dfr.schema(ValidateTypeIterator.convertToDataFrameSchema(itemType));
+                    } else if (value.isBoolean()) {
                         dfr.option(keys.get(i), value.getBooleanValue());
                     } else if (value.isString()) {
                         dfr.option(keys.get(i), value.getStringValue());
@@ -91,7 +110,12 @@ public class CSVFileFunctionIterator extends DataFrameRuntimeIterator {
                 }
             }
             Dataset<Row> dataFrame = dfr.csv(uri.toString());
+            if (itemType != null) {
+                return new JSoundDataFrame(dataFrame, itemType);
+            }
             return new JSoundDataFrame(dataFrame);
+        } catch (RumbleException e) {
+            throw e;
         } catch (Exception e) {
             if (e instanceof AnalysisException || e instanceof IllegalArgumentException) {
                 throw new CannotRetrieveResourceException("File " + url + " not found.", getMetadata());
@@ -101,6 +125,46 @@ public class CSVFileFunctionIterator extends DataFrameRuntimeIterator {
         }
     }
 
+    /**
+     * Resolves the type of the rows, which must be an object type with atomic fields that Spark can parse from CSV.
+     */
+    private ItemType getSchemaType(Item schema, DynamicContext context) {
+        ItemType itemType = ItemTypeFactory.createItemTypeFromJSoundCompactItem(null, schema, null);
+        itemType.resolve(context, getMetadata());
+        if (!itemType.isObjectItemType()) {
+            throw new InvalidSchemaException(
+                    "The schema of a CSV file must be an object type, but it is " + itemType,
+                    getMetadata()
+            );
+        }
+        for (FieldDescriptor field : itemType.getObjectContentFacet().values()) {
+            ItemType fieldType = field.getType();
+            if (!isSupportedColumnType(fieldType)) {
+                throw new InvalidSchemaException(
+                        "The type of column "
+                            + field.getName()
+                            + " cannot be read from a CSV file: "
+                            + fieldType
+                            + ". Only atomic types other than null and binary types are supported.",
+                        getMetadata()
+                );
+            }
+        }
+        return itemType;
+    }
+
+    private static boolean isSupportedColumnType(ItemType itemType) {
+        if (!itemType.isAtomicItemType()) {
+            return false;
+        }
+        try {
+            DataType dataType = ItemParser.getDataFrameDataTypeFromItemType(itemType);
+            return !dataType.equals(DataTypes.NullType) && !dataType.equals(DataTypes.BinaryType);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
     private Item getObjectItem(DynamicContext context) {
         return this.children.get(1).materializeFirstItemOrNull(context);
     }
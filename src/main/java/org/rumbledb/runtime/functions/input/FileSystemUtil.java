@@ -4,6 +4,7 @@ import org.apache.hadoop.HadoopIllegalArgumentException;
 import org.apache.hadoop.fs.CreateFlag;
 import org.apache.hadoop.fs.FSDataOutputStream;
 import org.apache.hadoop.fs.FileContext;
+import org.apache.hadoop.fs.FileStatus;
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.fs.UnsupportedFileSystemException;
 import org.apache.http.HttpEntity;
@@ -22,9 +23,11 @@ import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.OutputStream;
 import java.lang.reflect.InvocationTargetException;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.ArrayList;
 import java.util.EnumSet;
 import java.util.List;
 
@@ -122,6 +125,160 @@ public class FileSystemUtil {
         }
     }
 
+    /**
+     * Returns the total size of the files denoted by a path, which may be a file, a directory or a pattern. This is
+     * used at compile time to decide whether an input is worth a Spark job, so no error is thrown: they will be
+     * reported when the input is actually read.
+     *
+     * @param locator the resolved path.
+     * @param conf the configuration.
+     * @param metadata the metadata for error reporting.
+     * @return the size in bytes, or -1 if it is unknown, e.g., for HTTP resources or missing files.
+     */
+    public static long getSize(URI locator, RumbleRuntimeConfiguration conf, ExceptionMetadata metadata) {
+        if (locator.getScheme().equals("http") || locator.getScheme().equals("https")) {
+            return -1;
+        }
+        try {
+            checkAllowed(locator, conf, metadata);
+            List<FileStatus> statuses = getFileStatuses(locator);
+            if (statuses.isEmpty()) {
+                return -1;
+            }
+            long result = 0;
+            for (FileStatus status : statuses) {
+                result += status.getLen();
+            }
+            return result;
+        } catch (Exception e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Lists the files denoted by a path, which may be a file, a directory or a pattern, in the order of their paths.
+     *
+     * @param locator the resolved path.
+     * @param conf the configuration.
+     * @param metadata the metadata for error reporting.
+     * @return the files.
+     */
+    public static List<URI> listFiles(URI locator, RumbleRuntimeConfiguration conf, ExceptionMetadata metadata) {
+        checkAllowed(locator, conf, metadata);
+        List<URI> result = new ArrayList<>();
+        if (locator.getScheme().equals("http") || locator.getScheme().equals("https")) {
+            result.add(locator);
+            return result;
+        }
+        try {
+            for (FileStatus status : getFileStatuses(locator)) {
+                result.add(status.getPath().toUri());
+            }
+        } catch (Exception e) {
+            handleException(e, locator, metadata);
+        }
+        if (result.isEmpty()) {
+            throw new CannotRetrieveResourceException("No file matches " + locator, metadata);
+        }
+        return result;
+    }
+
+    /**
+     * Tells whether a directory directly contains Hive-style partition directories (key=value). Only the directory
+     * itself is listed, not its subdirectories.
+     *
+     * @param locator the resolved path.
+     * @param conf the configuration.
+     * @param metadata the metadata for error reporting.
+     * @return true if the path is a directory with at least one partition directory.
+     */
+    public static boolean hasPartitionDirectories(
+            URI locator,
+            RumbleRuntimeConfiguration conf,
+            ExceptionMetadata metadata
+    ) {
+        checkAllowed(locator, conf, metadata);
+        if (locator.getScheme().equals("http") || locator.getScheme().equals("https")) {
+            return false;
+        }
+        try {
+            FileContext fileContext = FileContext.getFileContext();
+            Path path = new Path(locator);
+            if (!fileContext.util().exists(path) || !fileContext.getFileStatus(path).isDirectory()) {
+                return false;
+            }
+            for (FileStatus child : fileContext.util().listStatus(path)) {
+                String name = child.getPath().getName();
+                if (child.isDirectory() && name.indexOf('=') > 0 && !name.startsWith("_") && !name.startsWith(".")) {
+                    return true;
+                }
+            }
+            return false;
+        } catch (Exception e) {
+            handleException(e, locator, metadata);
+            return false;
+        }
+    }
+
+    /**
+     * Returns a string that changes whenever a file denoted by a path is added, removed or modified, to invalidate
+     * what was computed from these files.
+     *
+     * @param locator the resolved path.
+     * @param conf the configuration.
+     * @param metadata the metadata for error reporting.
+     * @return the paths, lengths and modification times of the files.
+     */
+    public static String getFingerprint(URI locator, RumbleRuntimeConfiguration conf, ExceptionMetadata metadata) {
+        checkAllowed(locator, conf, metadata);
+        StringBuilder result = new StringBuilder();
+        if (locator.getScheme().equals("http") || locator.getScheme().equals("https")) {
+            return result.toString();
+        }
+        try {
+            for (FileStatus status : getFileStatuses(locator)) {
+                result.append(status.getPath())
+                    .append(':')
+                    .append(status.getLen())
+                    .append(':')
+                    .append(status.getModificationTime())
+                    .append('\n');
+            }
+        } catch (Exception e) {
+            handleException(e, locator, metadata);
+        }
+        return result.toString();
+    }
+
+    private static List<FileStatus> getFileStatuses(URI locator) throws IOException {
+        FileContext fileContext = FileContext.getFileContext();
+        List<FileStatus> result = new ArrayList<>();
+        FileStatus[] statuses = fileContext.util().globStatus(new Path(locator));
+        if (statuses == null) {
+            return result;
+        }
+        for (FileStatus status : statuses) {
+            addFileStatuses(fileContext, status, result);
+        }
+        result.sort((left, right) -> left.getPath().compareTo(right.getPath()));
+        return result;
+    }
+
+    private static void addFileStatuses(FileContext fileContext, FileStatus status, List<FileStatus> result)
+            throws IOException {
+        if (!status.isDirectory()) {
+            result.add(status);
+            return;
+        }
+        for (FileStatus child : fileContext.util().listStatus(status.getPath())) {
+            String name = child.getPath().getName();
+            // Like Hadoop input formats, files starting with an underscore or a dot are ignored.
+            if (!name.startsWith("_") && !name.startsWith(".")) {
+                addFileStatuses(fileContext, child, result);
+            }
+        }
+    }
+
     public static boolean delete(URI locator, RumbleRuntimeConfiguration conf, ExceptionMetadata metadata) {
         checkForAbsoluteAndNoWildcards(locator, metadata);
         checkAllowed(locator, conf, metadata);
@@ -235,6 +392,34 @@ public class FileSystemUtil {
         }
     }
 
+    /**
+     * Opens a file for writing, creating it or overwriting it. The caller is responsible for closing the stream.
+     *
+     * @param locator the location of the file.
+     * @param conf the configuration.
+     * @param metadata the metadata for error reporting.
+     * @return the output stream.
+     */
+    public static OutputStream getOutputStream(
+            URI locator,
+            RumbleRuntimeConfiguration conf,
+            ExceptionMetadata metadata
+    ) {
+        checkForAbsoluteAndNoWildcards(locator, metadata);
+        checkAllowed(locator, conf, metadata);
+        try {
+            FileContext fileContext = FileContext.getFileContext();
+            Path path = new Path(locator);
+            return fileContext.create(
+                path,
+                EnumSet.of(CreateFlag.CREATE, CreateFlag.OVERWRITE)
+            );
+        } catch (Exception e) {
+            handleException(e, locator, metadata);
+            return null;
+        }
+    }
+
     public static void append(
             URI locator,
             List<String> content,
@@ -0,0 +1,278 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Authors: Stefan Irimescu, Can Berker Cikis
+ *
+ */
+
+package org.rumbledb.runtime.functions.input;
+
+import org.rumbledb.api.Item;
+import org.rumbledb.config.RumbleRuntimeConfiguration;
+import org.rumbledb.exceptions.CannotRetrieveResourceException;
+import org.rumbledb.exceptions.ExceptionMetadata;
+import org.rumbledb.items.ItemFactory;
+
+import java.io.Serializable;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The partitions of a directory laid out the Hive way, in which the files of each partition are in nested
+ * key=value directories, e.g., date=2026-10-01/region=eu/part-00000.json.
+ *
+ * The keys and values of the directories of a file below the path passed to json-file() are added as fields to the
+ * objects that it contains, as Spark does for structured inputs. Values that are all integers are added as integers,
+ * and other values as strings. Files of partitions that cannot satisfy the filters of the query are not read at all.
+ */
+public class HivePartitions implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+    // The value Hive uses for partitions whose key was null.
+    public static final String DEFAULT_PARTITION_VALUE = "__HIVE_DEFAULT_PARTITION__";
+
+    private final List<String> keys;
+    private final Set<String> integerKeys;
+    // Only needed on the driver, to prune files.
+    private final transient Map<URI, List<String>> files;
+
+    private HivePartitions(List<String> keys, Set<String> integerKeys, Map<URI, List<String>> files) {
+        this.keys = keys;
+        this.integerKeys = integerKeys;
+        this.files = files;
+    }
+
+    /**
+     * Looks for partition directories in a path, listing its files only if it directly contains partition
+     * directories.
+     *
+     * @param locator the resolved path, usually the root directory of the partitions.
+     * @param conf the configuration.
+     * @param metadata the metadata for error reporting.
+     * @return the partitions, or null if the files are not all in partition directories with the same keys.
+     */
+    public static HivePartitions discover(
+            URI locator,
+            RumbleRuntimeConfiguration conf,
+            ExceptionMetadata metadata
+    ) {
+        if (!FileSystemUtil.hasPartitionDirectories(locator, conf, metadata)) {
+            return null;
+        }
+        try {
+            return discover(locator, FileSystemUtil.listFiles(locator, conf, metadata));
+        } catch (CannotRetrieveResourceException e) {
+            // Empty directories are not partitioned, and are read as usual.
+            return null;
+        }
+    }
+
+    /**
+     * Looks for partition directories in the files already listed for a path. Only the directories below the path
+     * are considered, as with Spark: a single file or the files matching a pattern have no partitions.
+     *
+     * @param locator the resolved path, usually the root directory of the partitions.
+     * @param allFiles the files of the path.
+     * @return the partitions, or null if the files are not all in partition directories with the same keys.
+     */
+    public static HivePartitions discover(URI locator, List<URI> allFiles) {
+        if (locator.getScheme().equals("http") || locator.getScheme().equals("https")) {
+            return null;
+        }
+        String base = locator.getPath();
+        if (base == null) {
+            return null;
+        }
+        if (!base.endsWith("/")) {
+            base = base + "/";
+        }
+        List<String> keys = null;
+        Map<URI, List<String>> files = new LinkedHashMap<>();
+        for (URI file : allFiles) {
+            String path = file.getPath();
+            if (path == null || !path.startsWith(base)) {
+                return null;
+            }
+            String relativePath = path.substring(base.length());
+            List<String> fileKeys = new ArrayList<>();
+            List<String> fileValues = new ArrayList<>();
+            // The last segment is the name of the file itself.
+            parseDirectories(relativePath, relativePath.split("/").length - 1, fileKeys, fileValues);
+            if (fileKeys.isEmpty() || (keys != null && !keys.equals(fileKeys))) {
+                return null;
+            }
+            keys = fileKeys;
+            files.put(file, fileValues);
+        }
+        if (keys == null || new HashSet<>(keys).size() != keys.size()) {
+            return null;
+        }
+        Set<String> integerKeys = new HashSet<>();
+        for (int i = 0; i < keys.size(); ++i) {
+            boolean isInteger = true;
+            for (List<String> values : files.values()) {
+                String value = values.get(i);
+                if (value != null && !value.matches("-?[0-9]+")) {
+                    isInteger = false;
+                    break;
+                }
+            }
+            if (isInteger) {
+                integerKeys.add(keys.get(i));
+            }
+        }
+        return new HivePartitions(keys, integerKeys, files);
+    }
+
+    /**
+     * Collects the keys and values of the innermost partition directories of a file, from the outermost one, looking
+     * at most at the given number of directories.
+     */
+    private static void parseDirectories(String path, int maximumDepth, List<String> keys, List<String> values) {
+        String[] segments = path.split("/");
+        // The last segment is the name of the file itself.
+        int outermost = Math.max(0, segments.length - 1 - maximumDepth);
+        for (int i = segments.length - 2; i >= outermost; --i) {
+            int equals = segments[i].indexOf('=');
+            if (equals <= 0) {
+                break;
+            }
+            String value = unescape(segments[i].substring(equals + 1));
+            keys.add(0, unescape(segments[i].substring(0, equals)));
+            values.add(0, value.equals(DEFAULT_PARTITION_VALUE) ? null : value);
+        }
+    }
+
+    /**
+     * Decodes the %XX escapes with which Hive writes special characters in directory names.
+     */
+    private static String unescape(String segment) {
+        if (segment.indexOf('%') == -1) {
+            return segment;
+        }
+        StringBuilder result = new StringBuilder();
+        for (int i = 0; i < segment.length(); ++i) {
+            char c = segment.charAt(i);
+            if (
+                c == '%'
+                    && i + 2 < segment.length()
+                    && isHexDigit(segment.charAt(i + 1))
+                    && isHexDigit(segment.charAt(i + 2))
+            ) {
+                result.append((char) Integer.parseInt(segment.substring(i + 1, i + 3), 16));
+                i += 2;
+                continue;
+            }
+            result.append(c);
+        }
+        return result.toString();
+    }
+
+    private static boolean isHexDigit(char c) {
+        return Character.digit(c, 16) != -1;
+    }
+
+    public List<String> getKeys() {
+        return Collections.unmodifiableList(this.keys);
+    }
+
+    /**
+     * Returns the files of the partitions that may satisfy all filters.
+     *
+     * @param filters the filters of the query, possibly on other fields than the partition keys.
+     * @return the files to read.
+     */
+    public List<URI> getFiles(List<PartitionFilter> filters) {
+        List<URI> result = new ArrayList<>();
+        for (Map.Entry<URI, List<String>> file : this.files.entrySet()) {
+            if (mayMatch(file.getValue(), filters)) {
+                result.add(file.getKey());
+            }
+        }
+        return result;
+    }
+
+    private boolean mayMatch(List<String> values, List<PartitionFilter> filters) {
+        if (filters == null) {
+            return true;
+        }
+        for (PartitionFilter filter : filters) {
+            int index = this.keys.indexOf(filter.getKey());
+            if (
+                index != -1
+                    && !filter.mayMatch(values.get(index), this.integerKeys.contains(filter.getKey()))
+            ) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the values of the partition keys for a file, as items.
+     *
+     * @param path the decoded path of the file, as returned by URI.getPath().
+     * @return the values, in the order of the keys.
+     */
+    public List<Item> getValues(String path) {
+        List<String> fileKeys = new ArrayList<>();
+        List<String> fileValues = new ArrayList<>();
+        // All files have exactly the partition directories found by discover() below the path.
+        parseDirectories(path, this.keys.size(), fileKeys, fileValues);
+        List<Item> result = new ArrayList<>();
+        for (String value : fileValues) {
+            if (value == null) {
+                result.add(ItemFactory.getInstance().createNullItem());
+            } else if (this.integerKeys.contains(this.keys.get(result.size()))) {
+                result.add(ItemFactory.getInstance().createIntegerItem(value));
+            } else {
+                result.add(ItemFactory.getInstance().createStringItem(value));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Adds the partition keys and values as fields of an object, replacing fields with the same names.
+     *
+     * @param item the item read from a file. Other items than objects are returned unchanged.
+     * @param values the values of the partition of the file.
+     * @param metadata the metadata for error reporting.
+     * @return the object with the partition fields.
+     */
+    public Item addFields(Item item, List<Item> values, ExceptionMetadata metadata) {
+        if (!item.isObject()) {
+            return item;
+        }
+        List<String> keys = new ArrayList<>();
+        List<Item> fieldValues = new ArrayList<>();
+        for (String key : item.getKeys()) {
+            if (!this.keys.contains(key)) {
+                keys.add(key);
+                fieldValues.add(item.getItemByKey(key));
+            }
+        }
+        keys.addAll(this.keys);
+        fieldValues.addAll(values);
+        return ItemFactory.getInstance().createObjectItem(keys, fieldValues, metadata);
+    }
+}
@@ -0,0 +1,476 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Authors: Stefan Irimescu, Can Berker Cikis
+ *
+ */
+
+package org.rumbledb.runtime.functions.input;
+
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.compress.CompressionCodec;
+import org.apache.hadoop.io.compress.CompressionCodecFactory;
+import org.apache.hadoop.mapred.FileInputFormat;
+import org.apache.hadoop.mapred.FileSplit;
+import org.apache.hadoop.mapred.InputSplit;
+import org.apache.hadoop.mapred.JobConf;
+import org.apache.hadoop.mapred.JobConfigurable;
+import org.apache.hadoop.mapred.RecordReader;
+import org.apache.hadoop.mapred.Reporter;
+import org.rumbledb.exceptions.ExceptionMetadata;
+import org.rumbledb.exceptions.ParsingException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Splits files that contain large JSON values into smaller values that can be parsed in parallel: either the members
+ * of the top-level arrays (base depth 1), or the top-level values themselves when they are not separated by newlines
+ * (base depth 0). Each value is returned as the Text of its UTF-8 bytes.
+ *
+ * Whether a split starts inside a string, and how deeply nested it is, cannot be known without reading the file from
+ * its beginning. Files are thus read twice, in parallel both times. In the summary pass, each split is scanned from
+ * each of the three possible states at its start (outside of strings, inside a string, and after a backslash inside a
+ * string), and the state at its end as well as its change in nesting depth are recorded. The driver then chains these
+ * summaries from the beginning of each file (see computeSplitStates()) to find the actual state and depth at the start
+ * of each split. In the values pass, each split is scanned again from its actual state, and the values that start in
+ * it are returned, reading past its end to complete the last one if needed.
+ */
+public class JSONSplitInputFormat extends FileInputFormat<LongWritable, Text> implements JobConfigurable {
+
+    public static final String PASS_PROPERTY = "rumble.json-split.pass";
+    public static final String SUMMARY_PASS = "summary";
+    public static final String VALUES_PASS = "values";
+    public static final String BASE_DEPTH_PROPERTY = "rumble.json-split.base-depth";
+    public static final String SPLIT_STATES_PROPERTY = "rumble.json-split.split-states";
+
+    private static final int OUTSIDE_STRING = 0;
+    private static final int IN_STRING = 1;
+    private static final int AFTER_BACKSLASH = 2;
+    private static final int NUMBER_OF_STATES = 3;
+
+    private CompressionCodecFactory compressionCodecs;
+
+    @Override
+    public void configure(JobConf job) {
+        this.compressionCodecs = new CompressionCodecFactory(job);
+    }
+
+    @Override
+    protected boolean isSplitable(FileSystem fs, Path file) {
+        return this.compressionCodecs.getCodec(file) == null;
+    }
+
+    @Override
+    public RecordReader<LongWritable, Text> getRecordReader(InputSplit split, JobConf job, Reporter reporter)
+            throws IOException {
+        FileSplit fileSplit = (FileSplit) split;
+        if (SUMMARY_PASS.equals(job.get(PASS_PROPERTY))) {
+            return new SummaryRecordReader(fileSplit, job);
+        }
+        return new ValuesRecordReader(fileSplit, job);
+    }
+
+    /**
+     * Chains the summaries of the splits of each file, as returned by the summary pass, into the state and depth at the
+     * start of each split, in the format expected by the values pass.
+     *
+     * @param summaries the summaries returned by the summary pass.
+     * @return the value of the split states property.
+     */
+    public static String computeSplitStates(List<String> summaries) {
+        Map<String, TreeMap<Long, long[]>> summariesByFile = new TreeMap<>();
+        for (String summary : summaries) {
+            String[] fields = summary.split("\t", 3);
+            long[] transitions = new long[2 * NUMBER_OF_STATES];
+            String[] values = fields[1].split(",");
+            for (int i = 0; i < transitions.length; ++i) {
+                transitions[i] = Long.parseLong(values[i]);
+            }
+            summariesByFile.computeIfAbsent(fields[2], k -> new TreeMap<>())
+                .put(Long.parseLong(fields[0]), transitions);
+        }
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, TreeMap<Long, long[]>> file : summariesByFile.entrySet()) {
+            int state = OUTSIDE_STRING;
+            long depth = 0;
+            for (Map.Entry<Long, long[]> split : file.getValue().entrySet()) {
+                sb.append(split.getKey()).append('\t').append(state).append('\t').append(depth).append('\t');
+                sb.append(file.getKey()).append('\n');
+                long[] transitions = split.getValue();
+                depth += transitions[2 * state + 1];
+                state = (int) transitions[2 * state];
+            }
+        }
+        return sb.toString();
+    }
+
+    private static int nextState(int state, int b) {
+        switch (state) {
+            case OUTSIDE_STRING:
+                return b == '"' ? IN_STRING : OUTSIDE_STRING;
+            case IN_STRING:
+                if (b == '"') {
+                    return OUTSIDE_STRING;
+                }
+                return b == '\\' ? AFTER_BACKSLASH : IN_STRING;
+            default:
+                return IN_STRING;
+        }
+    }
+
+    private static int depthChange(int state, int b) {
+        if (state != OUTSIDE_STRING) {
+            return 0;
+        }
+        if (b == '[' || b == '{') {
+            return 1;
+        }
+        if (b == ']' || b == '}') {
+            return -1;
+        }
+        return 0;
+    }
+
+    private static boolean isWhitespace(int b) {
+        return b == ' ' || b == '\t' || b == '\n' || b == '\r';
+    }
+
+    /**
+     * Tells whether a byte can be part of a number or of the literals true, false and null.
+     */
+    private static boolean isScalarByte(int b) {
+        return (b >= '0' && b <= '9') || (b >= 'a' && b <= 'z') || (b >= 'A' && b <= 'Z') || b == '-' || b == '+'
+            || b == '.';
+    }
+
+    private static InputStream open(FileSplit split, JobConf job, long offset) throws IOException {
+        Path file = split.getPath();
+        FSDataInputStream in = file.getFileSystem(job).open(file);
+        CompressionCodec codec = new CompressionCodecFactory(job).getCodec(file);
+        if (codec != null) {
+            // Compressed files are not split.
+            return codec.createInputStream(in);
+        }
+        in.seek(offset);
+        return in;
+    }
+
+    private static boolean isCompressed(FileSplit split, JobConf job) {
+        return new CompressionCodecFactory(job).getCodec(split.getPath()) != null;
+    }
+
+    /**
+     * Returns a single record, the key of which is the start of the split, and the value of which is its summary: for
+     * each starting state, the state at the end and the change in depth.
+     */
+    private static class SummaryRecordReader implements RecordReader<LongWritable, Text> {
+
+        private final FileSplit split;
+        private final JobConf job;
+        private boolean isDone;
+
+        SummaryRecordReader(FileSplit split, JobConf job) {
+            this.split = split;
+            this.job = job;
+            this.isDone = false;
+        }
+
+        @Override
+        public boolean next(LongWritable key, Text value) throws IOException {
+            if (this.isDone) {
+                return false;
+            }
+            this.isDone = true;
+            int[] states = new int[NUMBER_OF_STATES];
+            long[] depths = new long[NUMBER_OF_STATES];
+            for (int i = 0; i < NUMBER_OF_STATES; ++i) {
+                states[i] = i;
+            }
+            long remaining = isCompressed(this.split, this.job) ? Long.MAX_VALUE : this.split.getLength();
+            byte[] buffer = new byte[65536];
+            try (InputStream in = open(this.split, this.job, this.split.getStart())) {
+                while (remaining > 0) {
+                    int length = in.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+                    if (length == -1) {
+                        break;
+                    }
+                    remaining -= length;
+                    for (int i = 0; i < NUMBER_OF_STATES; ++i) {
+                        int state = states[i];
+                        long depth = depths[i];
+                        for (int j = 0; j < length; ++j) {
+                            int b = buffer[j];
+                            depth += depthChange(state, b);
+                            state = nextState(state, b);
+                        }
+                        states[i] = state;
+                        depths[i] = depth;
+                    }
+                }
+            }
+            StringBuilder sb = new StringBuilder();
+            sb.append(this.split.getStart()).append('\t');
+            for (int i = 0; i < NUMBER_OF_STATES; ++i) {
+                if (i > 0) {
+                    sb.append(',');
+                }
+                sb.append(states[i]).append(',').append(depths[i]);
+            }
+            sb.append('\t').append(this.split.getPath().toString());
+            key.set(this.split.getStart());
+            value.set(sb.toString());
+            return true;
+        }
+
+        @Override
+        public LongWritable createKey() {
+            return new LongWritable();
+        }
+
+        @Override
+        public Text createValue() {
+            return new Text();
+        }
+
+        @Override
+        public long getPos() {
+            return this.isDone ? this.split.getStart() + this.split.getLength() : this.split.getStart();
+        }
+
+        @Override
+        public void close() {
+        }
+
+        @Override
+        public float getProgress() {
+            return this.isDone ? 1 : 0;
+        }
+    }
+
+    /**
+     * Returns the values that start in the split, keyed by their position in the file.
+     */
+    private static class ValuesRecordReader implements RecordReader<LongWritable, Text> {
+
+        private final long start;
+        private final long end;
+        private final int baseDepth;
+        private final InputStream in;
+        private final byte[] buffer;
+        private int bufferPosition;
+        private int bufferLength;
+        // The position in the file of the next byte.
+        private long position;
+        private int state;
+        private long depth;
+        // Whether the previous byte was part of a number or literal, in which case the next one does not start a value.
+        private boolean isInScalar;
+        // The value being read, or null.
+        private Text currentValue;
+        private int currentValueStart;
+        private boolean isDone;
+
+        ValuesRecordReader(FileSplit split, JobConf job) throws IOException {
+            this.baseDepth = job.getInt(BASE_DEPTH_PROPERTY, 1);
+            this.buffer = new byte[65536];
+            this.state = OUTSIDE_STRING;
+            this.depth = 0;
+            this.isInScalar = false;
+            this.isDone = false;
+            if (isCompressed(split, job)) {
+                this.start = 0;
+                this.end = Long.MAX_VALUE;
+            } else {
+                this.start = split.getStart();
+                this.end = split.getStart() + split.getLength();
+            }
+            if (this.start == 0) {
+                this.in = open(split, job, 0);
+                this.position = 0;
+                return;
+            }
+            String splitState = getSplitState(job.get(SPLIT_STATES_PROPERTY, ""), split);
+            String[] fields = splitState.split("\t");
+            this.state = Integer.parseInt(fields[1]);
+            this.depth = Long.parseLong(fields[2]);
+            // The previous byte tells whether the split starts in the middle of a number or literal.
+            this.in = open(split, job, this.start - 1);
+            this.position = this.start - 1;
+            int previous = peek();
+            // The state and depth at the start of the split already account for this byte.
+            ++this.bufferPosition;
+            ++this.position;
+            this.isInScalar = this.state == OUTSIDE_STRING && this.depth == this.baseDepth && isScalarByte(previous);
+        }
+
+        private static String getSplitState(String splitStates, FileSplit split) throws IOException {
+            String path = split.getPath().toString();
+            String prefix = split.getStart() + "\t";
+            for (String splitState : splitStates.split("\n")) {
+                if (splitState.startsWith(prefix) && splitState.endsWith("\t" + path)) {
+                    return splitState;
+                }
+            }
+            throw new IOException("No state found for the split of " + path + " at " + split.getStart() + ".");
+        }
+
+        @Override
+        public boolean next(LongWritable key, Text value) throws IOException {
+            while (!this.isDone) {
+                int b = peek();
+                if (b == -1) {
+                    this.isDone = true;
+                    if (this.state != OUTSIDE_STRING || this.depth != 0) {
+                        throw error("Unterminated JSON value at the end of the file.");
+                    }
+                    return false;
+                }
+                if (this.state != OUTSIDE_STRING || this.depth > this.baseDepth) {
+                    // Skips the end of a value that started in the previous split.
+                    advance();
+                    continue;
+                }
+                if (this.isInScalar) {
+                    this.isInScalar = isScalarByte(b);
+                    if (this.isInScalar) {
+                        advance();
+                        continue;
+                    }
+                }
+                if (isWhitespace(b)) {
+                    advance();
+                    continue;
+                }
+                if (this.depth < this.baseDepth) {
+                    if (b != '[') {
+                        throw error("A JSON array is expected at the top level of the file.");
+                    }
+                    advance();
+                    continue;
+                }
+                if (this.baseDepth > 0 && (b == ',' || b == ']')) {
+                    advance();
+                    continue;
+                }
+                if (this.position >= this.end) {
+                    this.isDone = true;
+                    return false;
+                }
+                key.set(this.position);
+                readValue(value);
+                return true;
+            }
+            return false;
+        }
+
+        private void readValue(Text value) throws IOException {
+            value.clear();
+            this.currentValue = value;
+            this.currentValueStart = this.bufferPosition;
+            int first = peek();
+            if (first == '[' || first == '{' || first == '"') {
+                // Containers end when the depth is back to the base depth, and strings when the state is back to
+                // outside of strings.
+                advance();
+                while (this.state != OUTSIDE_STRING || this.depth > this.baseDepth) {
+                    if (peek() == -1) {
+                        break;
+                    }
+                    advance();
+                }
+            } else if (isScalarByte(first)) {
+                while (isScalarByte(peek())) {
+                    advance();
+                }
+            } else {
+                // The parser reports the error.
+                advance();
+            }
+            this.currentValue.append(this.buffer, this.currentValueStart, this.bufferPosition - this.currentValueStart);
+            this.currentValue = null;
+        }
+
+        private int peek() throws IOException {
+            if (this.bufferPosition == this.bufferLength && !fill()) {
+                return -1;
+            }
+            return this.buffer[this.bufferPosition] & 0xFF;
+        }
+
+        private void advance() {
+            int b = this.buffer[this.bufferPosition++];
+            ++this.position;
+            this.depth += depthChange(this.state, b);
+            this.state = nextState(this.state, b);
+        }
+
+        private boolean fill() throws IOException {
+            if (this.currentValue != null) {
+                int remaining = this.bufferLength - this.currentValueStart;
+                this.currentValue.append(this.buffer, this.currentValueStart, remaining);
+                this.currentValueStart = 0;
+            }
+            this.bufferPosition = 0;
+            this.bufferLength = 0;
+            int length = this.in.read(this.buffer);
+            if (length <= 0) {
+                return false;
+            }
+            this.bufferLength = length;
+            return true;
+        }
+
+        private ParsingException error(String message) {
+            return new ParsingException(message + " (at byte " + this.position + ")", ExceptionMetadata.EMPTY_METADATA);
+        }
+
+        @Override
+        public LongWritable createKey() {
+            return new LongWritable();
+        }
+
+        @Override
+        public Text createValue() {
+            return new Text();
+        }
+
+        @Override
+        public long getPos() {
+            return this.position;
+        }
+
+        @Override
+        public void close() throws IOException {
+            this.in.close();
+        }
+
+        @Override
+        public float getProgress() {
+            if (this.isDone || this.end == Long.MAX_VALUE) {
+                return this.isDone ? 1 : 0;
+            }
+            return Math.min(1, (this.position - this.start) / (float) (this.end - this.start));
+        }
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Authors: Stefan Irimescu, Can Berker Cikis
+ *
+ */
+
+package org.rumbledb.runtime.functions.input;
+
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapred.FileInputFormat;
+import org.apache.hadoop.mapred.JobConf;
+import org.apache.spark.api.java.JavaRDD;
+import org.apache.spark.api.java.JavaSparkContext;
+import org.rumbledb.api.Item;
+import org.rumbledb.context.DynamicContext;
+import org.rumbledb.exceptions.CannotRetrieveResourceException;
+import org.rumbledb.exceptions.ExceptionMetadata;
+import org.rumbledb.expressions.ExecutionMode;
+import org.rumbledb.items.parsing.JSONLinesToItemMapper;
+import org.rumbledb.runtime.RDDRuntimeIterator;
+import org.rumbledb.runtime.RuntimeIterator;
+
+import sparksoniq.spark.SparkSessionManager;
+
+import java.net.URI;
+import java.util.List;
+
+/**
+ * Returns the members of the top-level array of a JSON file, which can be very large: the file is split and its
+ * members are found and parsed in parallel (see JSONSplitInputFormat), unlike json-doc(), which parses the whole file
+ * on the driver.
+ */
+public class JsonArrayFileFunctionIterator extends RDDRuntimeIterator {
+
+    private static final long serialVersionUID = 1L;
+
+    public JsonArrayFileFunctionIterator(
+            List<RuntimeIterator> arguments,
+            ExecutionMode executionMode,
+            ExceptionMetadata iteratorMetadata
+    ) {
+        super(arguments, executionMode, iteratorMetadata);
+    }
+
+    /**
+     * Returns the depth at which the values to return are nested.
+     *
+     * @return 1 for the members of the top-level arrays.
+     */
+    protected int getBaseDepth() {
+        return 1;
+    }
+
+    @Override
+    public JavaRDD<Item> getRDDAux(DynamicContext context) {
+        String url = this.children.get(0).materializeFirstItemOrNull(context).getStringValue();
+        url = url.replaceAll(" ", "%20");
+        URI uri = FileSystemUtil.resolveURI(this.staticURI, url, getMetadata());
+        if (!FileSystemUtil.exists(uri, context.getRumbleRuntimeConfiguration(), getMetadata())) {
+            throw new CannotRetrieveResourceException("File " + uri + " not found.", getMetadata());
+        }
+        String path = uri.toString();
+        if (uri.getScheme().contentEquals("file")) {
+            path = path.replaceAll("%20", " ");
+        }
+
+        JavaSparkContext sparkContext = SparkSessionManager.getInstance().getJavaSparkContext();
+        int partitions = sparkContext.defaultMinPartitions();
+        if (this.children.size() > 1) {
+            partitions = this.children.get(1).materializeFirstItemOrNull(context).getIntValue();
+        }
+
+        // Each query uses its own configuration, as the split states differ from one file to the next.
+        JobConf summaryConfiguration = new JobConf(sparkContext.hadoopConfiguration());
+        FileInputFormat.setInputPaths(summaryConfiguration, new Path(path));
+        summaryConfiguration.set(JSONSplitInputFormat.PASS_PROPERTY, JSONSplitInputFormat.SUMMARY_PASS);
+        List<String> summaries = sparkContext
+            .hadoopRDD(summaryConfiguration, JSONSplitInputFormat.class, LongWritable.class, Text.class, partitions)
+            .values()
+            .map(Text::toString)
+            .collect();
+
+        JobConf valuesConfiguration = new JobConf(summaryConfiguration);
+        valuesConfiguration.set(JSONSplitInputFormat.PASS_PROPERTY, JSONSplitInputFormat.VALUES_PASS);
+        valuesConfiguration.setInt(JSONSplitInputFormat.BASE_DEPTH_PROPERTY, getBaseDepth());
+        valuesConfiguration.set(
+            JSONSplitInputFormat.SPLIT_STATES_PROPERTY,
+            JSONSplitInputFormat.computeSplitStates(summaries)
+        );
+        JavaRDD<Text> values = sparkContext
+            .hadoopRDD(valuesConfiguration, JSONSplitInputFormat.class, LongWritable.class, Text.class, partitions)
+            .values();
+        boolean isLazy = context.getRumbleRuntimeConfiguration().getLazyJSONParsing();
+        return values.mapPartitions(new JSONLinesToItemMapper(getMetadata(), null, isLazy));
+    }
+}
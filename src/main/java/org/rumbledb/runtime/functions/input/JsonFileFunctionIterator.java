@@ -20,14 +20,22 @@
 
 package org.rumbledb.runtime.functions.input;
 
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.mapred.TextInputFormat;
+import org.apache.spark.api.java.JavaHadoopRDD;
 import org.apache.spark.api.java.JavaRDD;
 import org.rumbledb.api.Item;
 import org.rumbledb.context.DynamicContext;
 import org.rumbledb.exceptions.CannotRetrieveResourceException;
 import org.rumbledb.exceptions.ExceptionMetadata;
+import org.rumbledb.exceptions.IteratorFlowException;
 import org.rumbledb.expressions.ExecutionMode;
+import org.rumbledb.items.parsing.FieldProjection;
+import org.rumbledb.items.parsing.JSONLinesToItemMapper;
 import org.rumbledb.items.parsing.JSONSyntaxToItemMapper;
-import org.rumbledb.runtime.RDDRuntimeIterator;
+import org.rumbledb.runtime.HybridRuntimeIterator;
 import org.rumbledb.runtime.RuntimeIterator;
 
 import sparksoniq.spark.SparkSessionManager;
@@ -38,11 +46,27 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.net.URI;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.StringJoiner;
 
-public class JsonFileFunctionIterator extends RDDRuntimeIterator {
+/**
+ * Reads a JSON Lines file, a directory of such files or a pattern. This is done with Spark, unless the compiler
+ * found the input small enough to be read locally (see the local-execution-threshold option).
+ *
+ * If the files are in Hive-style partition directories (key=value), the partition keys are added as fields to the
+ * objects, and the directories that cannot satisfy the partition filters found by the compiler are skipped.
+ */
+public class JsonFileFunctionIterator extends HybridRuntimeIterator {
 
     private static final long serialVersionUID = 1L;
+    private FieldProjection projection;
+    private List<PartitionFilter> partitionFilters;
+    private transient LocalLinesIterator lines;
+    private transient Iterator<Item> items;
+    private transient HivePartitions partitions;
+    private transient URI currentFile;
+    private transient List<Item> currentPartitionValues;
 
     public JsonFileFunctionIterator(
             List<RuntimeIterator> arguments,
@@ -50,6 +74,26 @@ public class JsonFileFunctionIterator extends RDDRuntimeIterator {
             ExceptionMetadata iteratorMetadata
     ) {
         super(arguments, executionMode, iteratorMetadata);
+        this.projection = null;
+        this.partitionFilters = null;
+    }
+
+    /**
+     * Restricts the fields of the parsed objects to those that the query uses.
+     *
+     * @param projection the fields to keep, or null to keep all of them.
+     */
+    public void setProjection(FieldProjection projection) {
+        this.projection = projection;
+    }
+
+    /**
+     * Sets comparisons of fields with literals that all objects of the query must satisfy, to skip partitions.
+     *
+     * @param partitionFilters the comparisons, or null if there are none.
+     */
+    public void setPartitionFilters(List<PartitionFilter> partitionFilters) {
+        this.partitionFilters = partitionFilters;
     }
 
     @Override
@@ -63,13 +107,15 @@ public class JsonFileFunctionIterator extends RDDRuntimeIterator {
             partitions = this.children.get(1).materializeFirstItemOrNull(context).getIntValue();
         }
 
-        JavaRDD<String> strings;
+        boolean isLazy = context.getRumbleRuntimeConfiguration().getLazyJSONParsing();
+
         if (uri.getScheme().equals("http") || uri.getScheme().equals("https")) {
             InputStream is = FileSystemUtil.getDataInputStream(
                 uri,
                 context.getRumbleRuntimeConfiguration(),
                 getMetadata()
             );
+            JavaRDD<String> strings;
             BufferedReader br = new BufferedReader(new InputStreamReader(is));
             List<String> lines = new ArrayList<>();
             String line = null;
@@ -92,29 +138,141 @@ public class JsonFileFunctionIterator extends RDDRuntimeIterator {
                         partitions
                     );
             }
+            return strings.mapPartitions(new JSONSyntaxToItemMapper(getMetadata(), this.projection, isLazy));
+        }
+
+        if (!FileSystemUtil.exists(uri, context.getRumbleRuntimeConfiguration(), getMetadata())) {
+            throw new CannotRetrieveResourceException("File " + uri + " not found.", getMetadata());
+        }
+
+        JSONLinesToItemMapper mapper = new JSONLinesToItemMapper(getMetadata(), this.projection, isLazy);
+        // The files are only listed here if the directory is partitioned. They are then passed explicitly to the
+        // input format, which otherwise lists the directory itself.
+        HivePartitions hivePartitions = HivePartitions.discover(
+            uri,
+            context.getRumbleRuntimeConfiguration(),
+            getMetadata()
+        );
+        if (hivePartitions != null) {
+            return getPartitionedRDD(
+                hivePartitions,
+                hivePartitions.getFiles(this.partitionFilters),
+                mapper,
+                partitions
+            );
+        }
+
+        String path = uri.toString();
+        if (uri.getScheme().contentEquals("file")) {
+            path = path.replaceAll("%20", " ");
+        }
+
+        // Lines are parsed directly from the bytes read by Hadoop, without decoding them to strings first.
+        JavaRDD<Text> lines;
+        if (partitions == -1) {
+            lines = SparkSessionManager.getInstance()
+                .getJavaSparkContext()
+                .hadoopFile(path, TextInputFormat.class, LongWritable.class, Text.class)
+                .values();
         } else {
-            if (!FileSystemUtil.exists(uri, context.getRumbleRuntimeConfiguration(), getMetadata())) {
-                throw new CannotRetrieveResourceException("File " + uri + " not found.", getMetadata());
-            }
+            lines = SparkSessionManager.getInstance()
+                .getJavaSparkContext()
+                .hadoopFile(path, TextInputFormat.class, LongWritable.class, Text.class, partitions)
+                .values();
+        }
+        return lines.mapPartitions(mapper);
+    }
 
-            String path = uri.toString();
-            if (uri.getScheme().contentEquals("file")) {
-                path = path.replaceAll("%20", " ");
-            }
+    @SuppressWarnings("unchecked")
+    private JavaRDD<Item> getPartitionedRDD(
+            HivePartitions hivePartitions,
+            List<URI> files,
+            JSONLinesToItemMapper mapper,
+            int minPartitions
+    ) {
+        if (files.isEmpty()) {
+            return SparkSessionManager.getInstance().getJavaSparkContext().emptyRDD();
+        }
+        StringJoiner paths = new StringJoiner(",");
+        for (URI file : files) {
+            paths.add(new Path(file).toString());
+        }
+        JavaHadoopRDD<LongWritable, Text> records;
+        if (minPartitions == -1) {
+            records = (JavaHadoopRDD<LongWritable, Text>) SparkSessionManager.getInstance()
+                .getJavaSparkContext()
+                .hadoopFile(paths.toString(), TextInputFormat.class, LongWritable.class, Text.class);
+        } else {
+            records = (JavaHadoopRDD<LongWritable, Text>) SparkSessionManager.getInstance()
+                .getJavaSparkContext()
+                .hadoopFile(paths.toString(), TextInputFormat.class, LongWritable.class, Text.class, minPartitions);
+        }
+        return records.mapPartitionsWithInputSplit(
+            new PartitionedJSONLinesMapper(mapper, hivePartitions, getMetadata()),
+            false
+        );
+    }
 
-            if (partitions == -1) {
-                strings = SparkSessionManager.getInstance()
-                    .getJavaSparkContext()
-                    .textFile(path);
-            } else {
-                strings = SparkSessionManager.getInstance()
-                    .getJavaSparkContext()
-                    .textFile(
-                        path,
-                        partitions
-                    );
-            }
+    @Override
+    protected void openLocal() {
+        DynamicContext context = this.currentDynamicContextForLocalExecution;
+        String url = this.children.get(0).materializeFirstItemOrNull(context).getStringValue();
+        url = url.replaceAll(" ", "%20");
+        URI uri = FileSystemUtil.resolveURI(this.staticURI, url, getMetadata());
+        if (!FileSystemUtil.exists(uri, context.getRumbleRuntimeConfiguration(), getMetadata())) {
+            throw new CannotRetrieveResourceException("File " + uri + " not found.", getMetadata());
+        }
+        // The files are listed once, both to discover the partitions and to read them.
+        List<URI> files = FileSystemUtil.listFiles(uri, context.getRumbleRuntimeConfiguration(), getMetadata());
+        this.partitions = HivePartitions.discover(uri, files);
+        this.lines = new LocalLinesIterator(
+                this.partitions == null ? files : this.partitions.getFiles(this.partitionFilters),
+                context.getRumbleRuntimeConfiguration(),
+                getMetadata()
+        );
+        boolean isLazy = context.getRumbleRuntimeConfiguration().getLazyJSONParsing();
+        this.items = new JSONLinesToItemMapper(getMetadata(), this.projection, isLazy).map(this.lines);
+    }
+
+    @Override
+    protected void closeLocal() {
+        if (this.lines != null) {
+            this.lines.close();
+        }
+        this.lines = null;
+        this.items = null;
+        this.partitions = null;
+        this.currentFile = null;
+        this.currentPartitionValues = null;
+    }
+
+    @Override
+    protected void resetLocal() {
+        closeLocal();
+        openLocal();
+    }
+
+    @Override
+    protected boolean hasNextLocal() {
+        return this.items.hasNext();
+    }
+
+    @Override
+    protected Item nextLocal() {
+        if (!this.items.hasNext()) {
+            throw new IteratorFlowException(
+                    RuntimeIterator.FLOW_EXCEPTION_MESSAGE + " json-file function",
+                    getMetadata()
+            );
+        }
+        Item item = this.items.next();
+        if (this.partitions == null) {
+            return item;
+        }
+        if (!this.lines.getCurrentFile().equals(this.currentFile)) {
+            this.currentFile = this.lines.getCurrentFile();
+            this.currentPartitionValues = this.partitions.getValues(this.currentFile.getPath());
         }
-        return strings.mapPartitions(new JSONSyntaxToItemMapper(getMetadata()));
+        return this.partitions.addFields(item, this.currentPartitionValues, getMetadata());
     }
 }
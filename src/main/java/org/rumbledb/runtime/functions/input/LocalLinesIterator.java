@@ -0,0 +1,153 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Authors: Stefan Irimescu, Can Berker Cikis
+ *
+ */
+
+package org.rumbledb.runtime.functions.input;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.compress.CompressionCodec;
+import org.apache.hadoop.io.compress.CompressionCodecFactory;
+import org.apache.hadoop.util.LineReader;
+import org.rumbledb.config.RumbleRuntimeConfiguration;
+import org.rumbledb.exceptions.CannotRetrieveResourceException;
+import org.rumbledb.exceptions.ExceptionMetadata;
+import org.rumbledb.exceptions.RumbleException;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Reads the lines of some files one after the other, in the calling thread, for inputs that are too small to be
+ * worth a Spark job. Lines are split and compressed files are decoded as with Hadoop's TextInputFormat, so that the
+ * same items are obtained in both cases.
+ *
+ * Like Hadoop record readers, the iterator reuses the same Text object for all lines: it must be consumed before
+ * hasNext() is called again.
+ */
+public class LocalLinesIterator implements Iterator<Text>, Closeable {
+
+    private final List<URI> files;
+    private final RumbleRuntimeConfiguration configuration;
+    private final ExceptionMetadata metadata;
+    private final CompressionCodecFactory codecs;
+    private final Text line;
+    private int nextFileIndex;
+    private LineReader reader;
+    private boolean isLineRead;
+    private boolean hasLine;
+
+    public LocalLinesIterator(List<URI> files, RumbleRuntimeConfiguration configuration, ExceptionMetadata metadata) {
+        this.files = files;
+        this.configuration = configuration;
+        this.metadata = metadata;
+        this.codecs = new CompressionCodecFactory(new Configuration());
+        this.line = new Text();
+        this.nextFileIndex = 0;
+        this.reader = null;
+        this.isLineRead = false;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (!this.isLineRead) {
+            this.hasLine = readLine();
+            this.isLineRead = true;
+        }
+        return this.hasLine;
+    }
+
+    @Override
+    public Text next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        this.isLineRead = false;
+        return this.line;
+    }
+
+    private boolean readLine() {
+        try {
+            while (true) {
+                if (this.reader == null) {
+                    if (this.nextFileIndex == this.files.size()) {
+                        return false;
+                    }
+                    this.reader = new LineReader(open(this.files.get(this.nextFileIndex++)));
+                }
+                if (this.reader.readLine(this.line) > 0) {
+                    return true;
+                }
+                this.reader.close();
+                this.reader = null;
+            }
+        } catch (IOException e) {
+            // The file being read is the last one opened.
+            RumbleException exception = new CannotRetrieveResourceException(
+                    "Cannot read " + this.files.get(this.nextFileIndex - 1),
+                    this.metadata
+            );
+            exception.initCause(e);
+            throw exception;
+        }
+    }
+
+    /**
+     * Returns the file of the last line returned by next().
+     *
+     * @return the file, or null if no line was read yet.
+     */
+    public URI getCurrentFile() {
+        if (this.nextFileIndex == 0) {
+            return null;
+        }
+        return this.files.get(this.nextFileIndex - 1);
+    }
+
+    private InputStream open(URI file) throws IOException {
+        InputStream stream = FileSystemUtil.getDataInputStream(file, this.configuration, this.metadata);
+        CompressionCodec codec = this.codecs.getCodec(new Path(file));
+        if (codec == null) {
+            return stream;
+        }
+        return codec.createInputStream(stream);
+    }
+
+    @Override
+    public void close() {
+        if (this.reader == null) {
+            return;
+        }
+        try {
+            this.reader.close();
+        } catch (IOException e) {
+            RumbleException exception = new CannotRetrieveResourceException("I/O exception", this.metadata);
+            exception.initCause(e);
+            throw exception;
+        } finally {
+            this.reader = null;
+        }
+    }
+}
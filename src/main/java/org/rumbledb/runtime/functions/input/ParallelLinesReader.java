@@ -0,0 +1,333 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Authors: Stefan Irimescu, Can Berker Cikis
+ *
+ */
+
+package org.rumbledb.runtime.functions.input;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.compress.CompressionCodecFactory;
+import org.rumbledb.exceptions.CannotRetrieveResourceException;
+import org.rumbledb.exceptions.ExceptionMetadata;
+import org.rumbledb.exceptions.RumbleException;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Reads the lines of local, uncompressed files with several threads. Each file is memory-mapped and cut into chunks
+ * of CHUNK_SIZE bytes, the lines of which are decoded from UTF-8 in parallel. As with Hadoop splits, a chunk owns the
+ * lines that start within it, so that chunks can be cut anywhere. Lines end with \n, \r or \r\n, as with
+ * BufferedReader.
+ *
+ * In ordered mode, lines are returned in the order of the files. In unordered mode, the lines of each chunk are
+ * returned as soon as it is decoded, which is used when the query does not depend on the order of the lines. Only a
+ * bounded number of chunks are decoded ahead of the consumer. Inputs that fit in one chunk are decoded in the calling
+ * thread.
+ */
+public class ParallelLinesReader implements Iterator<String>, Closeable {
+
+    public static final int CHUNK_SIZE = 16 * 1024 * 1024;
+    private static final int THREADS = Runtime.getRuntime().availableProcessors();
+    // Chunks decoded ahead of the consumer, which bounds the memory used.
+    private static final int WINDOW = 2 * THREADS;
+    private static final long INITIAL_TAIL_SIZE = 1024 * 1024;
+
+    private static ExecutorService executor;
+
+    private final ExceptionMetadata metadata;
+    private final boolean isOrdered;
+    private final long initialTailSize;
+    private final Deque<Chunk> pendingChunks;
+    private final Deque<Future<List<String>>> orderedResults;
+    private final CompletionService<List<String>> unorderedResults;
+    private final List<Future<List<String>>> unorderedFutures;
+    private int unorderedResultCount;
+    private Iterator<String> currentLines;
+
+    /**
+     * Builds a new reader.
+     *
+     * @param files the files, which must be accepted by canRead().
+     * @param isOrdered whether lines must be returned in order.
+     * @param metadata the metadata for error reporting.
+     */
+    public ParallelLinesReader(List<URI> files, boolean isOrdered, ExceptionMetadata metadata) {
+        this(files, isOrdered, metadata, CHUNK_SIZE, INITIAL_TAIL_SIZE);
+    }
+
+    /**
+     * Builds a new reader with custom sizes, e.g., a few bytes so that tests cover chunk boundaries.
+     *
+     * @param files the files, which must be accepted by canRead().
+     * @param isOrdered whether lines must be returned in order.
+     * @param metadata the metadata for error reporting.
+     * @param chunkSize the number of bytes in which lines start for each chunk.
+     * @param initialTailSize the number of bytes first mapped after a chunk to find the end of its last line.
+     */
+    ParallelLinesReader(
+            List<URI> files,
+            boolean isOrdered,
+            ExceptionMetadata metadata,
+            int chunkSize,
+            long initialTailSize
+    ) {
+        this.metadata = metadata;
+        this.isOrdered = isOrdered;
+        this.initialTailSize = initialTailSize;
+        this.pendingChunks = new ArrayDeque<>();
+        long totalSize = 0;
+        for (URI file : files) {
+            long size = new File(file).length();
+            totalSize += size;
+            for (long start = 0; start < size; start += chunkSize) {
+                this.pendingChunks.add(new Chunk(file, start, Math.min(start + chunkSize, size)));
+            }
+        }
+        this.orderedResults = new ArrayDeque<>();
+        this.unorderedResults = totalSize > chunkSize && !isOrdered
+            ? new ExecutorCompletionService<>(getExecutor())
+            : null;
+        this.unorderedFutures = new ArrayList<>();
+        this.unorderedResultCount = 0;
+        this.currentLines = Collections.emptyIterator();
+        if (totalSize <= chunkSize) {
+            List<String> lines = new ArrayList<>();
+            for (Chunk chunk : this.pendingChunks) {
+                lines.addAll(readChunk(chunk));
+            }
+            this.pendingChunks.clear();
+            this.currentLines = lines.iterator();
+        }
+        submitChunks();
+    }
+
+    /**
+     * Checks whether files can be read by this class, i.e., whether they are local and not compressed.
+     *
+     * @param files the files.
+     * @return true if they can be memory-mapped.
+     */
+    public static boolean canRead(List<URI> files) {
+        CompressionCodecFactory codecs = new CompressionCodecFactory(new Configuration());
+        for (URI file : files) {
+            if (!"file".equals(file.getScheme()) || codecs.getCodec(new Path(file)) != null) {
+                return false;
+            }
+            if (!new File(file).isFile()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static synchronized ExecutorService getExecutor() {
+        if (executor == null) {
+            executor = Executors.newFixedThreadPool(THREADS, runnable -> {
+                Thread thread = new Thread(runnable, "rumble-lines-reader");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return executor;
+    }
+
+    private void submitChunks() {
+        while (!this.pendingChunks.isEmpty() && getRunningChunkCount() < WINDOW) {
+            Chunk chunk = this.pendingChunks.poll();
+            if (this.isOrdered) {
+                this.orderedResults.add(getExecutor().submit(() -> readChunk(chunk)));
+            } else {
+                this.unorderedFutures.add(this.unorderedResults.submit(() -> readChunk(chunk)));
+                ++this.unorderedResultCount;
+            }
+        }
+    }
+
+    private int getRunningChunkCount() {
+        return this.isOrdered ? this.orderedResults.size() : this.unorderedResultCount;
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (!this.currentLines.hasNext()) {
+            if (getRunningChunkCount() == 0) {
+                return false;
+            }
+            this.currentLines = takeNextResult().iterator();
+            submitChunks();
+        }
+        return true;
+    }
+
+    @Override
+    public String next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return this.currentLines.next();
+    }
+
+    private List<String> takeNextResult() {
+        try {
+            if (this.isOrdered) {
+                return this.orderedResults.poll().get();
+            }
+            --this.unorderedResultCount;
+            return this.unorderedResults.take().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CannotRetrieveResourceException("Interrupted while reading lines.", this.metadata);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RumbleException) {
+                throw (RumbleException) e.getCause();
+            }
+            RumbleException exception = new CannotRetrieveResourceException(
+                    "Cannot read lines: " + e.getCause().getMessage(),
+                    this.metadata
+            );
+            exception.initCause(e.getCause());
+            throw exception;
+        }
+    }
+
+    private List<String> readChunk(Chunk chunk) {
+        try (FileChannel channel = FileChannel.open(Paths.get(chunk.file), StandardOpenOption.READ)) {
+            long size = channel.size();
+            // The previous byte tells whether a line starts at the beginning of the chunk.
+            long mapStart = Math.max(0, chunk.start - 1);
+            // The last line of the chunk usually ends shortly after it, otherwise more is mapped.
+            for (long tail = this.initialTailSize;; tail *= 2) {
+                long mapLength = Math.min(Math.min(size, chunk.end + tail) - mapStart, Integer.MAX_VALUE);
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, mapStart, mapLength);
+                List<String> lines = readLines(
+                    buffer,
+                    (int) (chunk.start - mapStart),
+                    (int) (chunk.end - mapStart),
+                    mapStart + mapLength == size || mapLength == Integer.MAX_VALUE
+                );
+                if (lines != null) {
+                    return lines;
+                }
+            }
+        } catch (IOException e) {
+            RumbleException exception = new CannotRetrieveResourceException(
+                    "Cannot read " + chunk.file,
+                    this.metadata
+            );
+            exception.initCause(e);
+            throw exception;
+        }
+    }
+
+    /**
+     * Decodes the lines that start between two positions of a buffer.
+     *
+     * @return the lines, or null if the last one does not end within the buffer and the file continues.
+     */
+    private static List<String> readLines(MappedByteBuffer buffer, int start, int end, boolean isFileEnd) {
+        int limit = buffer.limit();
+        int position = start;
+        while (position < end && !isLineStart(buffer, position)) {
+            ++position;
+        }
+        List<String> lines = new ArrayList<>();
+        byte[] bytes = new byte[256];
+        // A line belongs to the chunk in which it starts.
+        while (position < end) {
+            int lineEnd = position;
+            while (lineEnd < limit && buffer.get(lineEnd) != '\n' && buffer.get(lineEnd) != '\r') {
+                ++lineEnd;
+            }
+            if (lineEnd == limit && !isFileEnd) {
+                return null;
+            }
+            int length = lineEnd - position;
+            if (length > bytes.length) {
+                bytes = new byte[Math.max(length, 2 * bytes.length)];
+            }
+            buffer.position(position);
+            buffer.get(bytes, 0, length);
+            lines.add(new String(bytes, 0, length, StandardCharsets.UTF_8));
+            if (lineEnd == limit) {
+                break;
+            }
+            position = lineEnd + 1;
+            if (buffer.get(lineEnd) == '\r' && position < limit && buffer.get(position) == '\n') {
+                ++position;
+            }
+        }
+        return lines;
+    }
+
+    private static boolean isLineStart(MappedByteBuffer buffer, int position) {
+        if (position == 0) {
+            return true;
+        }
+        byte previous = buffer.get(position - 1);
+        return previous == '\n' || (previous == '\r' && buffer.get(position) != '\n');
+    }
+
+    @Override
+    public void close() {
+        for (Future<List<String>> result : this.orderedResults) {
+            result.cancel(true);
+        }
+        for (Future<List<String>> result : this.unorderedFutures) {
+            result.cancel(true);
+        }
+        this.orderedResults.clear();
+        this.unorderedFutures.clear();
+        this.pendingChunks.clear();
+        this.unorderedResultCount = 0;
+        this.currentLines = Collections.emptyIterator();
+    }
+
+    private static class Chunk {
+        private final URI file;
+        private final long start;
+        private final long end;
+
+        Chunk(URI file, long start, long end) {
+            this.file = file;
+            this.start = start;
+            this.end = end;
+        }
+    }
+}
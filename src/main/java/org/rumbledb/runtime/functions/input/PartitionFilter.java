@@ -0,0 +1,121 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Authors: Stefan Irimescu, Can Berker Cikis
+ *
+ */
+
+package org.rumbledb.runtime.functions.input;
+
+import org.rumbledb.expressions.comparison.ComparisonExpression.ComparisonOperator;
+
+import java.io.Serializable;
+import java.math.BigInteger;
+
+/**
+ * A comparison of an object field with a literal, taken from a where clause, that allows skipping the partition
+ * directories of a json-file() input in which it is false for all objects.
+ *
+ * The filter only prunes directories: the where clause is still evaluated on the objects that are read. It is thus
+ * conservative, and keeps a directory whenever it cannot decide, e.g., if the field is not a partition key or if its
+ * type does not match that of the literal.
+ */
+public class PartitionFilter implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+    private final String key;
+    private final ComparisonOperator operator;
+    private final String value;
+    private final boolean isInteger;
+
+    /**
+     * Builds a new filter.
+     *
+     * @param key the field compared.
+     * @param operator the comparison, with the field on the left-hand side.
+     * @param value the lexical value of the literal.
+     * @param isInteger true if the literal is an integer, false if it is a string.
+     */
+    public PartitionFilter(String key, ComparisonOperator operator, String value, boolean isInteger) {
+        this.key = key;
+        this.operator = operator;
+        this.value = value;
+        this.isInteger = isInteger;
+    }
+
+    public String getKey() {
+        return this.key;
+    }
+
+    /**
+     * Checks whether some objects of a partition may satisfy the comparison.
+     *
+     * @param partitionValue the value of the key for the partition, or null for the default partition.
+     * @param isIntegerKey whether the values of the key are integers.
+     * @return false only if the comparison is false for all objects of the partition.
+     */
+    public boolean mayMatch(String partitionValue, boolean isIntegerKey) {
+        if (partitionValue == null || isIntegerKey != this.isInteger) {
+            return true;
+        }
+        int comparison = this.isInteger
+            ? new BigInteger(partitionValue).compareTo(new BigInteger(this.value))
+            : compareCodepoints(partitionValue, this.value);
+        switch (this.operator) {
+            case VC_EQ:
+            case GC_EQ:
+                return comparison == 0;
+            case VC_NE:
+            case GC_NE:
+                return comparison != 0;
+            case VC_LT:
+            case GC_LT:
+                return comparison < 0;
+            case VC_LE:
+            case GC_LE:
+                return comparison <= 0;
+            case VC_GT:
+            case GC_GT:
+                return comparison > 0;
+            case VC_GE:
+            case GC_GE:
+                return comparison >= 0;
+            default:
+                return true;
+        }
+    }
+
+    // Strings are compared by codepoints, as with the default collation.
+    private static int compareCodepoints(String left, String right) {
+        int i = 0;
+        int j = 0;
+        while (i < left.length() && j < right.length()) {
+            int leftCodepoint = left.codePointAt(i);
+            int rightCodepoint = right.codePointAt(j);
+            if (leftCodepoint != rightCodepoint) {
+                return Integer.compare(leftCodepoint, rightCodepoint);
+            }
+            i += Character.charCount(leftCodepoint);
+            j += Character.charCount(rightCodepoint);
+        }
+        return Integer.compare(left.length() - i, right.length() - j);
+    }
+
+    @Override
+    public String toString() {
+        return this.key + " " + this.operator + " " + (this.isInteger ? this.value : "\"" + this.value + "\"");
+    }
+}
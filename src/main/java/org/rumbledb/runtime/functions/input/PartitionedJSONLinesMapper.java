@@ -0,0 +1,89 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Authors: Stefan Irimescu, Can Berker Cikis
+ *
+ */
+
+package org.rumbledb.runtime.functions.input;
+
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapred.FileSplit;
+import org.apache.hadoop.mapred.InputSplit;
+import org.apache.spark.api.java.function.Function2;
+import org.rumbledb.api.Item;
+import org.rumbledb.exceptions.ExceptionMetadata;
+import org.rumbledb.items.parsing.JSONLinesToItemMapper;
+
+import scala.Tuple2;
+
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Parses the lines of a split of a partitioned JSON Lines directory, and adds the partition fields of the file of the
+ * split to the objects.
+ */
+public class PartitionedJSONLinesMapper
+        implements Function2<InputSplit, Iterator<Tuple2<LongWritable, Text>>, Iterator<Item>> {
+
+    private static final long serialVersionUID = 1L;
+    private final JSONLinesToItemMapper mapper;
+    private final HivePartitions partitions;
+    private final ExceptionMetadata metadata;
+
+    public PartitionedJSONLinesMapper(
+            JSONLinesToItemMapper mapper,
+            HivePartitions partitions,
+            ExceptionMetadata metadata
+    ) {
+        this.mapper = mapper;
+        this.partitions = partitions;
+        this.metadata = metadata;
+    }
+
+    @Override
+    public Iterator<Item> call(InputSplit split, Iterator<Tuple2<LongWritable, Text>> records) throws Exception {
+        List<Item> values = this.partitions.getValues(((FileSplit) split).getPath().toUri().getPath());
+        Iterator<Item> items = this.mapper.map(new Iterator<Text>() {
+            @Override
+            public boolean hasNext() {
+                return records.hasNext();
+            }
+
+            @Override
+            public Text next() {
+                return records.next()._2();
+            }
+        });
+        return new Iterator<Item>() {
+            @Override
+            public boolean hasNext() {
+                return items.hasNext();
+            }
+
+            @Override
+            public Item next() {
+                return PartitionedJSONLinesMapper.this.partitions.addFields(
+                    items.next(),
+                    values,
+                    PartitionedJSONLinesMapper.this.metadata
+                );
+            }
+        };
+    }
+}
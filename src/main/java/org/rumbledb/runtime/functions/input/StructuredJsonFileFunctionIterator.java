@@ -24,6 +24,8 @@ import org.apache.spark.SparkException;
 import org.apache.spark.sql.AnalysisException;
 import org.apache.spark.sql.Dataset;
 import org.apache.spark.sql.Row;
+import org.apache.spark.sql.SparkSession;
+import org.apache.spark.sql.types.StructType;
 import org.rumbledb.context.DynamicContext;
 import org.rumbledb.exceptions.CannotRetrieveResourceException;
 import org.rumbledb.exceptions.ExceptionMetadata;
@@ -35,6 +37,7 @@ import org.rumbledb.runtime.RuntimeIterator;
 
 import sparksoniq.spark.SparkSessionManager;
 
+import java.io.IOException;
 import java.net.URI;
 import java.util.List;
 
@@ -61,12 +64,23 @@ public class StructuredJsonFileFunctionIterator extends DataFrameRuntimeIterator
             throw new CannotRetrieveResourceException("File " + uri + " not found.", getMetadata());
         }
         try {
-            Dataset<Row> dataFrame = SparkSessionManager.getInstance()
-                .getOrCreateSession()
+            SparkSession session = SparkSessionManager.getInstance().getOrCreateSession();
+            // Inferring the schema reads all the data, so it is only done if the files changed since the last time.
+            StructType schema = StructuredJsonSchemaCache.getInstance()
+                .getSchema(uri.toString(), session, context.getRumbleRuntimeConfiguration());
+            // A schema inferred from a sample may not fit all records, the fields of which that do not fit are then
+            // null rather than failing the query.
+            boolean isSampled = context.getRumbleRuntimeConfiguration().getSchemaInferenceSamplingRatio() < 1.0;
+            Dataset<Row> dataFrame = session
                 .read()
-                .option("mode", "FAILFAST")
+                .schema(schema)
+                .option("mode", isSampled ? "PERMISSIVE" : "FAILFAST")
                 .json(uri.toString());
             return new JSoundDataFrame(dataFrame);
+        } catch (IOException e) {
+            RumbleException exception = new CannotRetrieveResourceException("Cannot list files " + uri, getMetadata());
+            exception.initCause(e);
+            throw exception;
         } catch (Exception e) {
             if (e instanceof AnalysisException) {
                 throw new CannotRetrieveResourceException("File " + uri + " not found.", getMetadata());
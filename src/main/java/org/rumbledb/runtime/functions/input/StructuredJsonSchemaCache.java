@@ -0,0 +1,334 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Authors: Stefan Irimescu, Can Berker Cikis
+ *
+ */
+
+package org.rumbledb.runtime.functions.input;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.spark.sql.SparkSession;
+import org.apache.spark.sql.types.ArrayType;
+import org.apache.spark.sql.types.DataType;
+import org.apache.spark.sql.types.DataTypes;
+import org.apache.spark.sql.types.StructField;
+import org.apache.spark.sql.types.StructType;
+import org.rumbledb.config.RumbleRuntimeConfiguration;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * A bounded, least-recently-used cache of the schemas that Spark infers for the files read with
+ * structured-json-file(), shared by all queries of the JVM.
+ *
+ * Inferring a schema requires reading the whole dataset once, before reading it again to run the query. As the same
+ * immutable datasets are often queried many times, schemas are cached by path, and are reused as long as the files
+ * that the path denotes have the same lengths and modification times, and the sampling ratio is the same. If files
+ * were only added, only the schema of the new files is inferred, and it is merged into the cached schema. If configured, schemas are also persisted in a
+ * sidecar file next to the data, so that they survive the JVM.
+ */
+public class StructuredJsonSchemaCache {
+
+    public static final int MAXIMUM_SIZE = 100;
+    // Spark ignores files starting with an underscore when reading a directory.
+    static final String SIDECAR_FILE_NAME = "_rumble_schema.json";
+
+    private static StructuredJsonSchemaCache instance;
+
+    private final LinkedHashMap<String, Entry> entries;
+
+    private StructuredJsonSchemaCache() {
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    public static synchronized StructuredJsonSchemaCache getInstance() {
+        if (instance == null) {
+            instance = new StructuredJsonSchemaCache();
+        }
+        return instance;
+    }
+
+    /**
+     * Returns the schema of the JSON Lines files denoted by a path, inferring it only if it is not cached yet.
+     *
+     * @param path a file, a directory or a pattern.
+     * @param session the Spark session.
+     * @param configuration the configuration, for the sampling ratio and the sidecar file.
+     * @return the schema.
+     * @throws IOException if the files cannot be listed.
+     */
+    public StructType getSchema(String path, SparkSession session, RumbleRuntimeConfiguration configuration)
+            throws IOException {
+        Configuration hadoopConfiguration = session.sparkContext().hadoopConfiguration();
+        Path hadoopPath = new Path(path);
+        FileSystem fileSystem = hadoopPath.getFileSystem(hadoopConfiguration);
+        Map<String, String> files = listFiles(hadoopPath, fileSystem);
+        Path sidecarPath = configuration.getSchemaCacheSidecar() ? getSidecarPath(hadoopPath, fileSystem) : null;
+
+        Entry cached;
+        synchronized (this) {
+            cached = this.entries.get(path);
+        }
+        if (cached == null && sidecarPath != null) {
+            cached = readSidecar(sidecarPath, fileSystem);
+        }
+        double samplingRatio = configuration.getSchemaInferenceSamplingRatio();
+        if (cached != null && cached.samplingRatio != samplingRatio) {
+            // A schema inferred from a sample may lack fields that a larger sample would find.
+            cached = null;
+        }
+        if (cached != null && cached.files.equals(files)) {
+            put(path, cached);
+            return cached.schema;
+        }
+
+        StructType schema;
+        if (cached != null && isExtendedBy(cached.files, files)) {
+            List<String> newFiles = new ArrayList<>();
+            for (String file : files.keySet()) {
+                if (!cached.files.containsKey(file)) {
+                    newFiles.add(file);
+                }
+            }
+            schema = (StructType) mergeTypes(cached.schema, inferSchema(newFiles, session, samplingRatio));
+        } else {
+            List<String> paths = new ArrayList<>();
+            paths.add(path);
+            schema = inferSchema(paths, session, samplingRatio);
+        }
+        Entry entry = new Entry(files, samplingRatio, schema);
+        put(path, entry);
+        if (sidecarPath != null) {
+            writeSidecar(sidecarPath, fileSystem, entry);
+        }
+        return schema;
+    }
+
+    private synchronized void put(String path, Entry entry) {
+        this.entries.put(path, entry);
+        Iterator<String> iterator = this.entries.keySet().iterator();
+        while (this.entries.size() > MAXIMUM_SIZE && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+        }
+    }
+
+    /**
+     * Removes all cached schemas from memory. Sidecar files are left untouched.
+     */
+    public synchronized void invalidateAll() {
+        this.entries.clear();
+    }
+
+    private static StructType inferSchema(List<String> paths, SparkSession session, double samplingRatio) {
+        return session.read()
+            .option("mode", "FAILFAST")
+            .option("samplingRatio", samplingRatio)
+            .json(paths.toArray(new String[0]))
+            .schema();
+    }
+
+    /**
+     * Lists the data files denoted by a path, like Spark does, with their lengths and modification times.
+     */
+    private static Map<String, String> listFiles(Path path, FileSystem fileSystem) throws IOException {
+        Map<String, String> result = new TreeMap<>();
+        FileStatus[] statuses = fileSystem.globStatus(path);
+        if (statuses == null) {
+            return result;
+        }
+        for (FileStatus status : statuses) {
+            addFiles(status, fileSystem, result);
+        }
+        return result;
+    }
+
+    private static void addFiles(FileStatus status, FileSystem fileSystem, Map<String, String> result)
+            throws IOException {
+        if (!status.isDirectory()) {
+            result.put(status.getPath().toString(), status.getLen() + ":" + status.getModificationTime());
+            return;
+        }
+        for (FileStatus child : fileSystem.listStatus(status.getPath())) {
+            String name = child.getPath().getName();
+            if (!name.startsWith("_") && !name.startsWith(".")) {
+                addFiles(child, fileSystem, result);
+            }
+        }
+    }
+
+    private static boolean isExtendedBy(Map<String, String> cachedFiles, Map<String, String> files) {
+        for (Map.Entry<String, String> file : cachedFiles.entrySet()) {
+            if (!file.getValue().equals(files.get(file.getKey()))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Merges two inferred types the way Spark does when it infers the schema of all the files at once: fields are
+     * united, integers and doubles are widened to doubles, and other conflicting types fall back to strings.
+     */
+    static DataType mergeTypes(DataType left, DataType right) {
+        if (left.equals(right)) {
+            return left;
+        }
+        if (left.equals(DataTypes.NullType)) {
+            return right;
+        }
+        if (right.equals(DataTypes.NullType)) {
+            return left;
+        }
+        if (left instanceof StructType && right instanceof StructType) {
+            Map<String, DataType> fields = new TreeMap<>();
+            for (StructField field : ((StructType) left).fields()) {
+                fields.put(field.name(), field.dataType());
+            }
+            for (StructField field : ((StructType) right).fields()) {
+                DataType existing = fields.get(field.name());
+                fields.put(field.name(), existing == null ? field.dataType() : mergeTypes(existing, field.dataType()));
+            }
+            List<StructField> result = new ArrayList<>();
+            for (Map.Entry<String, DataType> field : fields.entrySet()) {
+                result.add(DataTypes.createStructField(field.getKey(), field.getValue(), true));
+            }
+            return DataTypes.createStructType(result);
+        }
+        if (left instanceof ArrayType && right instanceof ArrayType) {
+            return DataTypes.createArrayType(
+                mergeTypes(((ArrayType) left).elementType(), ((ArrayType) right).elementType()),
+                true
+            );
+        }
+        if (isIntegerOrDouble(left) && isIntegerOrDouble(right)) {
+            return DataTypes.DoubleType;
+        }
+        return DataTypes.StringType;
+    }
+
+    private static boolean isIntegerOrDouble(DataType type) {
+        return type.equals(DataTypes.LongType) || type.equals(DataTypes.DoubleType);
+    }
+
+    /**
+     * Returns where to persist the schema of a directory or of a file. Patterns have no sidecar file.
+     */
+    private static Path getSidecarPath(Path path, FileSystem fileSystem) throws IOException {
+        String pathString = path.toString();
+        if (pathString.contains("*") || pathString.contains("?") || pathString.contains("[")) {
+            return null;
+        }
+        if (!fileSystem.exists(path)) {
+            return null;
+        }
+        if (fileSystem.getFileStatus(path).isDirectory()) {
+            return new Path(path, SIDECAR_FILE_NAME);
+        }
+        return new Path(path.getParent(), "_" + path.getName() + ".schema.json");
+    }
+
+    private static Entry readSidecar(Path sidecarPath, FileSystem fileSystem) {
+        try {
+            if (!fileSystem.exists(sidecarPath)) {
+                return null;
+            }
+            Map<String, String> files = new TreeMap<>();
+            // Sidecar files written without the sampling ratio never match.
+            double samplingRatio = Double.NaN;
+            String schema = null;
+            try (
+                JsonReader reader = new JsonReader(
+                        new InputStreamReader(fileSystem.open(sidecarPath), StandardCharsets.UTF_8)
+                )
+            ) {
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    String name = reader.nextName();
+                    if (name.equals("files")) {
+                        reader.beginObject();
+                        while (reader.hasNext()) {
+                            files.put(reader.nextName(), reader.nextString());
+                        }
+                        reader.endObject();
+                    } else if (name.equals("samplingRatio")) {
+                        samplingRatio = reader.nextDouble();
+                    } else if (name.equals("schema")) {
+                        schema = reader.nextString();
+                    } else {
+                        reader.skipValue();
+                    }
+                }
+                reader.endObject();
+            }
+            if (schema == null) {
+                return null;
+            }
+            return new Entry(files, samplingRatio, (StructType) DataType.fromJson(schema));
+        } catch (Exception e) {
+            // A sidecar file that cannot be read is ignored, and the schema is inferred again.
+            return null;
+        }
+    }
+
+    private static void writeSidecar(Path sidecarPath, FileSystem fileSystem, Entry entry) {
+        try (
+            JsonWriter writer = new JsonWriter(
+                    new OutputStreamWriter(fileSystem.create(sidecarPath, true), StandardCharsets.UTF_8)
+            )
+        ) {
+            writer.beginObject();
+            writer.name("files");
+            writer.beginObject();
+            for (Map.Entry<String, String> file : entry.files.entrySet()) {
+                writer.name(file.getKey()).value(file.getValue());
+            }
+            writer.endObject();
+            writer.name("samplingRatio").value(entry.samplingRatio);
+            writer.name("schema").value(entry.schema.json());
+            writer.endObject();
+        } catch (IOException e) {
+            // The data may be read-only, in which case the schema is only cached in memory.
+        }
+    }
+
+    private static class Entry {
+        private final Map<String, String> files;
+        private final double samplingRatio;
+        private final StructType schema;
+
+        Entry(Map<String, String> files, double samplingRatio, StructType schema) {
+            this.files = files;
+            this.samplingRatio = samplingRatio;
+            this.schema = schema;
+        }
+    }
+}
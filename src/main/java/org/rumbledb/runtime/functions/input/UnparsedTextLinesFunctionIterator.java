@@ -25,9 +25,11 @@ import org.rumbledb.api.Item;
 import org.rumbledb.context.DynamicContext;
 import org.rumbledb.exceptions.CannotRetrieveResourceException;
 import org.rumbledb.exceptions.ExceptionMetadata;
+import org.rumbledb.exceptions.IteratorFlowException;
 import org.rumbledb.expressions.ExecutionMode;
+import org.rumbledb.items.ItemFactory;
 import org.rumbledb.items.parsing.StringToStringItemMapper;
-import org.rumbledb.runtime.RDDRuntimeIterator;
+import org.rumbledb.runtime.HybridRuntimeIterator;
 import org.rumbledb.runtime.RuntimeIterator;
 
 import sparksoniq.spark.SparkSessionManager;
@@ -40,10 +42,18 @@ import java.net.URI;
 import java.util.ArrayList;
 import java.util.List;
 
-public class UnparsedTextLinesFunctionIterator extends RDDRuntimeIterator {
+/**
+ * Reads the lines of a text file, a directory of such files or a pattern. This is done with Spark, unless the
+ * compiler found the input small enough to be read locally (see the local-execution-threshold option). Local,
+ * uncompressed files are then memory-mapped and decoded with several threads.
+ */
+public class UnparsedTextLinesFunctionIterator extends HybridRuntimeIterator {
 
     private static final long serialVersionUID = 1L;
     public static final int MIN_PARTITIONS = 10;
+    private boolean isUnordered;
+    private transient LocalLinesIterator lines;
+    private transient ParallelLinesReader parallelLines;
 
     public UnparsedTextLinesFunctionIterator(
             List<RuntimeIterator> arguments,
@@ -51,6 +61,16 @@ public class UnparsedTextLinesFunctionIterator extends RDDRuntimeIterator {
             ExceptionMetadata iteratorMetadata
     ) {
         super(arguments, executionMode, iteratorMetadata);
+        this.isUnordered = false;
+    }
+
+    /**
+     * Allows returning the lines in any order when they are read locally.
+     *
+     * @param isUnordered true if the query does not depend on the order of the lines.
+     */
+    public void setUnordered(boolean isUnordered) {
+        this.isUnordered = isUnordered;
     }
 
     @Override
@@ -120,4 +140,60 @@ public class UnparsedTextLinesFunctionIterator extends RDDRuntimeIterator {
         }
         return strings.mapPartitions(new StringToStringItemMapper());
     }
+
+    @Override
+    protected void openLocal() {
+        DynamicContext context = this.currentDynamicContextForLocalExecution;
+        Item url = this.children.get(0).materializeFirstItemOrNull(context);
+        List<URI> files = new ArrayList<>();
+        if (url != null) {
+            URI uri = FileSystemUtil.resolveURI(this.staticURI, url.getStringValue(), getMetadata());
+            if (!FileSystemUtil.exists(uri, context.getRumbleRuntimeConfiguration(), getMetadata())) {
+                throw new CannotRetrieveResourceException("File " + uri + " not found.", getMetadata());
+            }
+            files = FileSystemUtil.listFiles(uri, context.getRumbleRuntimeConfiguration(), getMetadata());
+        }
+        if (ParallelLinesReader.canRead(files)) {
+            this.parallelLines = new ParallelLinesReader(files, !this.isUnordered, getMetadata());
+            return;
+        }
+        this.lines = new LocalLinesIterator(files, context.getRumbleRuntimeConfiguration(), getMetadata());
+    }
+
+    @Override
+    protected void closeLocal() {
+        if (this.lines != null) {
+            this.lines.close();
+        }
+        if (this.parallelLines != null) {
+            this.parallelLines.close();
+        }
+        this.lines = null;
+        this.parallelLines = null;
+    }
+
+    @Override
+    protected void resetLocal() {
+        closeLocal();
+        openLocal();
+    }
+
+    @Override
+    protected boolean hasNextLocal() {
+        return this.parallelLines != null ? this.parallelLines.hasNext() : this.lines.hasNext();
+    }
+
+    @Override
+    protected Item nextLocal() {
+        if (!hasNextLocal()) {
+            throw new IteratorFlowException(
+                    RuntimeIterator.FLOW_EXCEPTION_MESSAGE + " text-file function",
+                    getMetadata()
+            );
+        }
+        if (this.parallelLines != null) {
+            return ItemFactory.getInstance().createStringItem(this.parallelLines.next());
+        }
+        return ItemFactory.getInstance().createStringItem(this.lines.next().toString());
+    }
 }
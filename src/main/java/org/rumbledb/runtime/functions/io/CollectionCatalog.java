@@ -0,0 +1,374 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Authors: Stefan Irimescu, Can Berker Cikis
+ *
+ */
+
+package org.rumbledb.runtime.functions.io;
+
+import org.apache.spark.sql.DataFrameReader;
+import org.apache.spark.sql.Dataset;
+import org.apache.spark.sql.Row;
+import org.apache.spark.storage.StorageLevel;
+import org.rumbledb.api.Item;
+import org.rumbledb.config.RumbleRuntimeConfiguration;
+import org.rumbledb.context.DynamicContext;
+import org.rumbledb.exceptions.CannotRetrieveResourceException;
+import org.rumbledb.exceptions.ExceptionMetadata;
+import org.rumbledb.exceptions.RumbleException;
+import org.rumbledb.items.ItemFactory;
+import org.rumbledb.items.parsing.ItemParser;
+import org.rumbledb.items.structured.JSoundDataFrame;
+import org.rumbledb.runtime.functions.input.FileSystemUtil;
+import org.rumbledb.runtime.typing.ValidateTypeIterator;
+import org.rumbledb.types.BuiltinTypesCatalogue;
+import org.rumbledb.types.ItemType;
+import org.rumbledb.types.ItemTypeFactory;
+
+import sparksoniq.spark.SparkSessionManager;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The collections accessible with fn:collection(), shared by all queries of the JVM.
+ *
+ * Collections are defined in a JSON catalog file, which maps each name to a source: a path, a Spark data source
+ * format, options for the reader, an optional JSound compact schema and a storage level. The first time a collection
+ * is accessed, it is read into a DataFrame that is persisted in the cluster, so that a long-running server keeps hot
+ * datasets parsed in memory across queries. A cached collection is read again if its definition changes or if the
+ * files it denotes are added, removed or modified.
+ *
+ * The catalog file is read for every access, so that collections can be added or redefined while the server runs.
+ *
+ * Reading a collection may take minutes, so it does not block the whole catalog: the map of cached collections is
+ * only locked briefly, and a collection is read while holding a lock specific to its name, so that concurrent queries
+ * accessing it for the first time read it only once.
+ */
+public class CollectionCatalog {
+
+    public static final String DEFAULT_FORMAT = "json";
+    public static final String DEFAULT_STORAGE_LEVEL = "MEMORY_AND_DISK";
+
+    private static CollectionCatalog instance;
+
+    // Keyed by catalog location and collection name.
+    private final Map<String, Collection> collections;
+    private final Map<String, Object> loadingLocks;
+
+    private CollectionCatalog() {
+        this.collections = new LinkedHashMap<>();
+        this.loadingLocks = new ConcurrentHashMap<>();
+    }
+
+    public static synchronized CollectionCatalog getInstance() {
+        if (instance == null) {
+            instance = new CollectionCatalog();
+        }
+        return instance;
+    }
+
+    /**
+     * Returns the contents of a collection, reading it only if it is not cached or if it changed.
+     *
+     * @param name the name of the collection in the catalog.
+     * @param context the dynamic context of the query, with the configuration that locates the catalog.
+     * @param metadata the metadata for error reporting.
+     * @return the collection.
+     */
+    public JSoundDataFrame getCollection(String name, DynamicContext context, ExceptionMetadata metadata) {
+        RumbleRuntimeConfiguration configuration = context.getRumbleRuntimeConfiguration();
+        if (configuration.getCatalog() == null) {
+            throw new CannotRetrieveResourceException(
+                    "Collection " + name + " cannot be found, as no catalog is configured (see --catalog).",
+                    metadata
+            );
+        }
+        URI catalogURI = FileSystemUtil.resolveURIAgainstWorkingDirectory(
+            configuration.getCatalog(),
+            configuration,
+            metadata
+        );
+        Definition definition = readDefinition(catalogURI, name, context, metadata);
+        URI sourceURI = FileSystemUtil.resolveURI(catalogURI, definition.path, metadata);
+        String fingerprint = FileSystemUtil.getFingerprint(sourceURI, configuration, metadata);
+
+        String key = catalogURI + "#" + name;
+        Collection collection = getCachedCollection(key, definition, fingerprint);
+        if (collection != null) {
+            return new JSoundDataFrame(collection.dataFrame, collection.itemType);
+        }
+        synchronized (this.loadingLocks.computeIfAbsent(key, k -> new Object())) {
+            // Another query may have read the collection in the meantime.
+            collection = getCachedCollection(key, definition, fingerprint);
+            if (collection != null) {
+                return new JSoundDataFrame(collection.dataFrame, collection.itemType);
+            }
+            Collection outdated;
+            synchronized (this) {
+                outdated = this.collections.remove(key);
+            }
+            if (outdated != null) {
+                outdated.dataFrame.unpersist();
+            }
+            collection = load(name, definition, sourceURI, fingerprint, context, metadata);
+            synchronized (this) {
+                this.collections.put(key, collection);
+            }
+            return new JSoundDataFrame(collection.dataFrame, collection.itemType);
+        }
+    }
+
+    private synchronized Collection getCachedCollection(String key, Definition definition, String fingerprint) {
+        Collection collection = this.collections.get(key);
+        if (
+            collection == null
+                || !collection.definition.equals(definition)
+                || !collection.fingerprint.equals(fingerprint)
+        ) {
+            return null;
+        }
+        collection.hitCount.incrementAndGet();
+        return collection;
+    }
+
+    private static Collection load(
+            String name,
+            Definition definition,
+            URI sourceURI,
+            String fingerprint,
+            DynamicContext context,
+            ExceptionMetadata metadata
+    ) {
+        StorageLevel storageLevel;
+        try {
+            storageLevel = StorageLevel.fromString(definition.storageLevel);
+        } catch (IllegalArgumentException e) {
+            throw new CannotRetrieveResourceException(
+                    "Invalid storage level for collection " + name + ": " + definition.storageLevel,
+                    metadata
+            );
+        }
+        DataFrameReader reader = SparkSessionManager.getInstance()
+            .getOrCreateSession()
+            .read()
+            .format(definition.format)
+            .options(definition.options);
+        ItemType itemType = BuiltinTypesCatalogue.item;
+        if (definition.schema != null) {
+            itemType = ItemTypeFactory.createItemTypeFromJSoundCompactItem(null, definition.schema, null);
+            itemType.resolve(context, metadata);
+            reader = reader.schema(ValidateTypeIterator.convertToDataFrameSchema(itemType));
+        }
+        try {
+            Dataset<Row> dataFrame = reader.load(sourceURI.toString()).persist(storageLevel);
+            Collection result = new Collection(definition, fingerprint, dataFrame, itemType);
+            // Counting the rows also fills the cache.
+            result.rowCount = dataFrame.count();
+            result.sizeInBytes = FileSystemUtil.getSize(sourceURI, context.getRumbleRuntimeConfiguration(), metadata);
+            return result;
+        } catch (RumbleException e) {
+            throw e;
+        } catch (Exception e) {
+            RumbleException exception = new CannotRetrieveResourceException(
+                    "Collection " + name + " cannot be read from " + sourceURI + ": " + e.getMessage(),
+                    metadata
+            );
+            exception.initCause(e);
+            throw exception;
+        }
+    }
+
+    private static Definition readDefinition(
+            URI catalogURI,
+            String name,
+            DynamicContext context,
+            ExceptionMetadata metadata
+    ) {
+        RumbleRuntimeConfiguration configuration = context.getRumbleRuntimeConfiguration();
+        String content = FileSystemUtil.readContent(catalogURI, configuration, metadata);
+        Item catalog = ItemParser.getItemFromString(content, metadata);
+        if (!catalog.isObject()) {
+            throw new CannotRetrieveResourceException(
+                    "The catalog " + catalogURI + " must be an object mapping collection names to their sources.",
+                    metadata
+            );
+        }
+        Item entry = catalog.getItemByKey(name);
+        if (entry == null) {
+            throw new CannotRetrieveResourceException(
+                    "Collection " + name + " is not defined in the catalog " + catalogURI + ".",
+                    metadata
+            );
+        }
+        Item path = entry.isObject() ? entry.getItemByKey("path") : null;
+        if (path == null || !path.isString()) {
+            throw new CannotRetrieveResourceException(
+                    "The definition of collection " + name + " must be an object with a path string.",
+                    metadata
+            );
+        }
+        Item format = entry.getItemByKey("format");
+        Item storageLevel = entry.getItemByKey("storage-level");
+        Map<String, String> options = new LinkedHashMap<>();
+        Item optionsItem = entry.getItemByKey("options");
+        if (optionsItem != null && optionsItem.isObject()) {
+            for (String key : optionsItem.getKeys()) {
+                options.put(key, getOptionValue(name, key, optionsItem.getItemByKey(key), metadata));
+            }
+        }
+        return new Definition(
+                path.getStringValue(),
+                format == null ? DEFAULT_FORMAT : format.getStringValue(),
+                options,
+                entry.getItemByKey("schema"),
+                storageLevel == null ? DEFAULT_STORAGE_LEVEL : storageLevel.getStringValue()
+        );
+    }
+
+    /**
+     * Converts the value of a reader option to a string as Spark expects it, e.g., "true" for {"header" : true}.
+     */
+    private static String getOptionValue(String name, String key, Item value, ExceptionMetadata metadata) {
+        if (value.isString()) {
+            return value.getStringValue();
+        }
+        if (value.isBoolean() || value.isNumeric()) {
+            return value.serialize();
+        }
+        throw new CannotRetrieveResourceException(
+                "Option " + key + " of collection " + name + " must be a string, a boolean or a number.",
+                metadata
+        );
+    }
+
+    /**
+     * Removes a collection from the cache, releasing its storage in the cluster.
+     *
+     * @param name the name of the collection, in any catalog.
+     * @return the number of cached collections removed.
+     */
+    public synchronized int invalidate(String name) {
+        int removed = 0;
+        Iterator<Map.Entry<String, Collection>> iterator = this.collections.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, Collection> entry = iterator.next();
+            if (entry.getKey().endsWith("#" + name)) {
+                entry.getValue().dataFrame.unpersist();
+                iterator.remove();
+                ++removed;
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Removes all collections from the cache, releasing their storage in the cluster.
+     *
+     * @return the number of cached collections removed.
+     */
+    public synchronized int invalidateAll() {
+        int removed = this.collections.size();
+        for (Collection collection : this.collections.values()) {
+            collection.dataFrame.unpersist();
+        }
+        this.collections.clear();
+        return removed;
+    }
+
+    /**
+     * Returns statistics on the cached collections, as objects with their name, source, size and number of hits.
+     *
+     * @return the statistics.
+     */
+    public synchronized List<Item> getStatistics() {
+        ItemFactory factory = ItemFactory.getInstance();
+        List<Item> result = new ArrayList<>();
+        for (Map.Entry<String, Collection> entry : this.collections.entrySet()) {
+            Collection collection = entry.getValue();
+            String name = entry.getKey().substring(entry.getKey().lastIndexOf('#') + 1);
+            Item statistics = factory.createObjectItem();
+            statistics.putItemByKey("name", factory.createStringItem(name));
+            statistics.putItemByKey("path", factory.createStringItem(collection.definition.path));
+            statistics.putItemByKey("format", factory.createStringItem(collection.definition.format));
+            statistics.putItemByKey("storage-level", factory.createStringItem(collection.definition.storageLevel));
+            statistics.putItemByKey("rows", factory.createLongItem(collection.rowCount));
+            statistics.putItemByKey("bytes", factory.createLongItem(collection.sizeInBytes));
+            statistics.putItemByKey("hits", factory.createLongItem(collection.hitCount.get()));
+            result.add(statistics);
+        }
+        return result;
+    }
+
+    private static class Definition {
+        private final String path;
+        private final String format;
+        private final Map<String, String> options;
+        private final Item schema;
+        private final String storageLevel;
+
+        Definition(String path, String format, Map<String, String> options, Item schema, String storageLevel) {
+            this.path = path;
+            this.format = format;
+            this.options = options;
+            this.schema = schema;
+            this.storageLevel = storageLevel;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Definition)) {
+                return false;
+            }
+            Definition o = (Definition) other;
+            return this.path.equals(o.path)
+                && this.format.equals(o.format)
+                && this.options.equals(o.options)
+                && (this.schema == null ? o.schema == null : this.schema.equals(o.schema))
+                && this.storageLevel.equals(o.storageLevel);
+        }
+
+        @Override
+        public int hashCode() {
+            return this.path.hashCode() + this.format.hashCode();
+        }
+    }
+
+    private static class Collection {
+        private final Definition definition;
+        private final String fingerprint;
+        private final Dataset<Row> dataFrame;
+        private final ItemType itemType;
+        private long rowCount;
+        private long sizeInBytes;
+        private final AtomicLong hitCount;
+
+        Collection(Definition definition, String fingerprint, Dataset<Row> dataFrame, ItemType itemType) {
+            this.definition = definition;
+            this.fingerprint = fingerprint;
+            this.dataFrame = dataFrame;
+            this.itemType = itemType;
+            this.hitCount = new AtomicLong();
+        }
+    }
+}
@@ -8,10 +8,12 @@ import org.rumbledb.expressions.ExecutionMode;
 import org.rumbledb.items.structured.JSoundDataFrame;
 import org.rumbledb.runtime.DataFrameRuntimeIterator;
 import org.rumbledb.runtime.RuntimeIterator;
-import org.rumbledb.runtime.functions.input.FileSystemUtil;
-import java.net.URI;
+
 import java.util.List;
 
+/**
+ * Returns a collection defined in the catalog, see CollectionCatalog.
+ */
 public class CollectionFunctionIterator extends DataFrameRuntimeIterator {
 
     private static final long serialVersionUID = 1L;
@@ -24,19 +26,12 @@ public class CollectionFunctionIterator extends DataFrameRuntimeIterator {
         super(children, executionMode, iteratorMetadata);
     }
 
-    // TODO: implement collection function
-
     @Override
     public JSoundDataFrame getDataFrame(DynamicContext context) {
-        Item stringItem = this.children.get(0)
-            .materializeFirstItemOrNull(context);
-        String url = stringItem.getStringValue();
-        URI uri = FileSystemUtil.resolveURI(this.staticURI, url, getMetadata());
-        if (!FileSystemUtil.exists(uri, context.getRumbleRuntimeConfiguration(), getMetadata())) {
-            throw new CannotRetrieveResourceException("File " + uri + " not found.", getMetadata());
+        Item name = this.children.get(0).materializeFirstItemOrNull(context);
+        if (name == null) {
+            throw new CannotRetrieveResourceException("There is no default collection.", getMetadata());
         }
-        // DataFrameReader dfr = SparkSessionManager.getInstance().getOrCreateSession().read();
-        return JSoundDataFrame.emptyDataFrame();
+        return CollectionCatalog.getInstance().getCollection(name.getStringValue(), context, getMetadata());
     }
-
 }
@@ -31,22 +31,31 @@ import org.rumbledb.items.ItemFactory;
 import org.rumbledb.runtime.RuntimeIterator;
 import org.rumbledb.runtime.functions.base.LocalFunctionCallIterator;
 import org.rumbledb.runtime.functions.input.FileSystemUtil;
+import org.rumbledb.runtime.functions.input.ParallelLinesReader;
 
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 
+/**
+ * Reads the lines of a file in the calling process. Local, uncompressed files are memory-mapped and decoded with
+ * several threads, other files are streamed.
+ */
 public class LocalTextFileFunctionIterator extends LocalFunctionCallIterator {
 
     private static final long serialVersionUID = 1L;
     private RuntimeIterator iterator;
+    private boolean isUnordered;
 
     private transient InputStream is;
     private transient Iterator<String> stream;
+    private transient ParallelLinesReader parallelLines;
 
     public LocalTextFileFunctionIterator(
             List<RuntimeIterator> arguments,
@@ -54,11 +63,32 @@ public class LocalTextFileFunctionIterator extends LocalFunctionCallIterator {
             ExceptionMetadata iteratorMetadata
     ) {
         super(arguments, executionMode, iteratorMetadata);
+        this.isUnordered = false;
+    }
+
+    /**
+     * Allows returning the lines in any order.
+     *
+     * @param isUnordered true if the query does not depend on the order of the lines.
+     */
+    public void setUnordered(boolean isUnordered) {
+        this.isUnordered = isUnordered;
     }
 
     @Override
     public void open(DynamicContext context) {
         super.open(context);
+        openStream(context);
+    }
+
+    @Override
+    public void reset(DynamicContext context) {
+        super.reset(context);
+        closeStream();
+        openStream(context);
+    }
+
+    private void openStream(DynamicContext context) {
         this.iterator = this.children.get(0);
         Item path = this.iterator.materializeFirstItemOrNull(context);
         if (path == null) {
@@ -72,62 +102,52 @@ public class LocalTextFileFunctionIterator extends LocalFunctionCallIterator {
             path.getStringValue(),
             getMetadata()
         );
-        this.is = FileSystemUtil.getDataInputStream(
+        FileSystemUtil.checkAllowed(
             uri,
             this.currentDynamicContextForLocalExecution.getRumbleRuntimeConfiguration(),
             getMetadata()
         );
-        InputStreamReader r = new InputStreamReader(this.is);
-        BufferedReader br = new BufferedReader(r);
-        this.stream = br.lines().iterator();
+        List<URI> files = Collections.singletonList(uri);
+        if (ParallelLinesReader.canRead(files)) {
+            this.parallelLines = new ParallelLinesReader(files, !this.isUnordered, getMetadata());
+            this.stream = this.parallelLines;
+        } else {
+            this.is = FileSystemUtil.getDataInputStream(
+                uri,
+                this.currentDynamicContextForLocalExecution.getRumbleRuntimeConfiguration(),
+                getMetadata()
+            );
+            InputStreamReader r = new InputStreamReader(this.is, StandardCharsets.UTF_8);
+            BufferedReader br = new BufferedReader(r);
+            this.stream = br.lines().iterator();
+        }
         this.hasNext = this.stream.hasNext();
     }
 
-    @Override
-    public void reset(DynamicContext context) {
-        super.reset(context);
+    private void closeStream() {
+        if (this.parallelLines != null) {
+            this.parallelLines.close();
+            this.parallelLines = null;
+        }
+        if (this.is == null) {
+            return;
+        }
         try {
             this.is.close();
         } catch (IOException e) {
             CannotRetrieveResourceException ex = new CannotRetrieveResourceException("I/O exception", getMetadata());
             ex.initCause(e);
             throw ex;
+        } finally {
+            this.is = null;
         }
-        this.iterator = this.children.get(0);
-        Item path = this.iterator.materializeFirstItemOrNull(context);
-        if (path == null) {
-            throw new IteratorFlowException(
-                    RuntimeIterator.FLOW_EXCEPTION_MESSAGE + " local-text-file function",
-                    getMetadata()
-            );
-        }
-        URI uri = FileSystemUtil.resolveURI(
-            this.staticURI,
-            path.getStringValue(),
-            getMetadata()
-        );
-        this.is = FileSystemUtil.getDataInputStream(
-            uri,
-            this.currentDynamicContextForLocalExecution.getRumbleRuntimeConfiguration(),
-            getMetadata()
-        );
-        InputStreamReader r = new InputStreamReader(this.is);
-        BufferedReader br = new BufferedReader(r);
-        this.stream = br.lines().iterator();
-        this.hasNext = this.stream.hasNext();
     }
 
     @Override
     public void close() {
         super.close();
         this.iterator = null;
-        try {
-            this.is.close();
-        } catch (IOException e) {
-            CannotRetrieveResourceException ex = new CannotRetrieveResourceException("I/O exception", getMetadata());
-            ex.initCause(e);
-            throw ex;
-        }
+        closeStream();
     }
 
     @Override
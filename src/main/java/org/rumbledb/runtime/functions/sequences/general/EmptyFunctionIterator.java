@@ -43,6 +43,10 @@ public class EmptyFunctionIterator extends AtMostOneItemLocalRuntimeIterator {
         super(parameters, executionMode, iteratorMetadata);
     }
 
+    public RuntimeIterator getSequenceIterator() {
+        return this.children.get(0);
+    }
+
     @Override
     public Item materializeFirstItemOrNull(DynamicContext dynamicContext) {
         if (this.children.get(0).isRDDOrDataFrame()) {
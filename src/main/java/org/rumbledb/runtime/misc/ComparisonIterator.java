@@ -151,7 +151,15 @@ public class ComparisonIterator extends AtMostOneItemLocalRuntimeIterator {
         return ItemFactory.getInstance().createBooleanItem(false);
     }
 
-    private Item valueComparison(Item left, Item right) {
+    /**
+     * Compares two items. Subclasses specialized for the statically inferred types of the operands override this
+     * method with a fast path, and fall back to it for other items.
+     *
+     * @param left the left item.
+     * @param right the right item.
+     * @return the boolean result.
+     */
+    protected Item valueComparison(Item left, Item right) {
 
         if (left.isArray() || right.isArray()) {
             throw new NonAtomicKeyException(
@@ -490,7 +498,7 @@ public class ComparisonIterator extends AtMostOneItemLocalRuntimeIterator {
         }
     }
 
-    private static Item comparisonResultToBooleanItem(
+    protected static Item comparisonResultToBooleanItem(
             int comparison,
             ComparisonExpression.ComparisonOperator comparisonOperator,
             ExceptionMetadata metadata
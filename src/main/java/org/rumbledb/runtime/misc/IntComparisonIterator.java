@@ -0,0 +1,57 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Authors: Stefan Irimescu, Can Berker Cikis
+ *
+ */
+
+package org.rumbledb.runtime.misc;
+
+import org.rumbledb.api.Item;
+import org.rumbledb.exceptions.ExceptionMetadata;
+import org.rumbledb.expressions.ExecutionMode;
+import org.rumbledb.expressions.comparison.ComparisonExpression;
+import org.rumbledb.runtime.RuntimeIterator;
+
+/**
+ * A comparison of two operands that are statically known to be integers.
+ */
+public class IntComparisonIterator extends ComparisonIterator {
+
+    private static final long serialVersionUID = 1L;
+
+    public IntComparisonIterator(
+            RuntimeIterator leftIterator,
+            RuntimeIterator rightIterator,
+            ComparisonExpression.ComparisonOperator comparisonOperator,
+            ExecutionMode executionMode,
+            ExceptionMetadata iteratorMetadata
+    ) {
+        super(leftIterator, rightIterator, comparisonOperator, executionMode, iteratorMetadata);
+    }
+
+    @Override
+    protected Item valueComparison(Item left, Item right) {
+        if (left.isInt() && right.isInt()) {
+            return comparisonResultToBooleanItem(
+                Integer.compare(left.getIntValue(), right.getIntValue()),
+                getComparisonOperator(),
+                getMetadata()
+            );
+        }
+        return super.valueComparison(left, right);
+    }
+}
@@ -256,19 +256,21 @@ public class PredicateIterator extends HybridRuntimeIterator {
                     null
                 );
 
+                String predicateUDF = FlworDataFrameUtils.createUDFName("predicate");
                 childDataFrame.getDataFrame()
                     .sparkSession()
                     .udf()
                     .register(
-                        "predicate",
+                        predicateUDF,
                         new PredicateUDF(filter, context, getMetadata(), childDataFrame.getItemType()),
                         DataTypes.BooleanType
                     );
                 String UDFParameters = FlworDataFrameUtils.getUDFParameters(UDFcolumns);
                 return childDataFrame.evaluateSQL(
                     String.format(
-                        "SELECT * FROM %s WHERE predicate(%s) = 'true'",
+                        "SELECT * FROM %s WHERE %s(%s) = 'true'",
                         left,
+                        predicateUDF,
                         UDFParameters
                     ),
                     childDataFrame.getItemType()
@@ -293,11 +295,12 @@ public class PredicateIterator extends HybridRuntimeIterator {
                 );
 
                 long contextSize = childDataFrame.getDataFrame().count();
+                String predicateUDF = FlworDataFrameUtils.createUDFName("predicate");
                 childDataFrame.getDataFrame()
                     .sparkSession()
                     .udf()
                     .register(
-                        "predicate",
+                        predicateUDF,
                         new PredicateWithZipUDF(
                                 filter,
                                 context,
@@ -311,9 +314,10 @@ public class PredicateIterator extends HybridRuntimeIterator {
                 String projection = FlworDataFrameUtils.getSQLProjection(originalcolumns, false);
                 return childDataFrame.evaluateSQL(
                     String.format(
-                        "SELECT %s FROM %s WHERE predicate(%s) = 'true'",
+                        "SELECT %s FROM %s WHERE %s(%s) = 'true'",
                         projection,
                         left,
+                        predicateUDF,
                         UDFParameters
                     ),
                     childDataFrame.getItemType()
@@ -27,7 +27,6 @@ import org.rumbledb.exceptions.IteratorFlowException;
 import org.rumbledb.exceptions.UnexpectedTypeException;
 import org.rumbledb.expressions.ExecutionMode;
 import org.rumbledb.items.ItemFactory;
-import org.rumbledb.items.ObjectItem;
 import org.rumbledb.runtime.AtMostOneItemLocalRuntimeIterator;
 import org.rumbledb.runtime.RuntimeIterator;
 
@@ -72,7 +71,7 @@ public class ObjectConstructorRuntimeIterator extends AtMostOneItemLocalRuntimeI
             for (RuntimeIterator iterator : this.children) {
                 iterator.open(dynamicContext);
                 while (iterator.hasNext()) {
-                    ObjectItem item = (ObjectItem) iterator.next();
+                    Item item = iterator.next();
                     keys.addAll(item.getKeys());
                     values.addAll(item.getValues());
                 }
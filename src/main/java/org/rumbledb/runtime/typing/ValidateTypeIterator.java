@@ -119,7 +119,13 @@ public class ValidateTypeIterator extends HybridRuntimeIterator {
         );
     }
 
-    private static StructType convertToDataFrameSchema(ItemType itemType) {
+    /**
+     * Returns the DataFrame schema that stores the items of a type, which must be compatible with DataFrames.
+     *
+     * @param itemType an object or atomic type.
+     * @return the schema.
+     */
+    public static StructType convertToDataFrameSchema(ItemType itemType) {
         if (itemType.isAtomicItemType()) {
             List<StructField> fields = new ArrayList<>();
             String columnName = SparkSessionManager.atomicJSONiqItemColumnName;
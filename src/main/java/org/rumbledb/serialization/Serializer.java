@@ -1,9 +1,26 @@
 package org.rumbledb.serialization;
 
-import org.apache.commons.text.StringEscapeUtils;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
 import org.rumbledb.api.Item;
 import org.rumbledb.exceptions.FunctionsNonSerializableException;
+import org.rumbledb.exceptions.OurBadException;
 
+/**
+ * Serializes items to JSON, TYSON or the XML-JSON hybrid format.
+ *
+ * Items are written directly to an Appendable (e.g., a Writer on an output stream), so that large outputs do not need
+ * to be built as strings first. Indentation strings are cached and a few buffers are reused across calls, which is why
+ * a serializer must not be shared between threads.
+ */
 public class Serializer {
     public enum Method {
         JSON,
@@ -11,16 +28,26 @@ public class Serializer {
         XML_JSON_HYBRID
     };
 
+    private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+
     String encoding;
     Method method;
     boolean indent;
     String itemSeparator;
 
+    // indentations[i] is a new line followed by i levels of indentation.
+    private String[] indentations;
+    private final char[] numberBuffer;
+    private final StringBuilder stringBuilder;
+
     public Serializer(String encoding, Method method, boolean indent, String itemSeparator) {
         this.encoding = encoding;
         this.method = method;
         this.indent = indent;
         this.itemSeparator = itemSeparator;
+        this.indentations = new String[] { "\n" };
+        this.numberBuffer = new char[20];
+        this.stringBuilder = new StringBuilder();
     }
 
     String getEncoding() {
@@ -35,113 +62,160 @@ public class Serializer {
         return this.indent;
     }
 
-    String getItemSeparator() {
+    public String getItemSeparator() {
         return this.itemSeparator;
     }
 
-    public String serialize(Item i) {
-        StringBuffer sb = new StringBuffer();
-        serialize(i, sb, "", true);
-        return sb.toString();
+    /**
+     * Creates a buffered writer on an output stream, with the encoding of this serializer.
+     *
+     * @param outputStream the output stream.
+     * @return the writer.
+     */
+    public Writer createWriter(OutputStream outputStream) {
+        return new BufferedWriter(new OutputStreamWriter(outputStream, Charset.forName(this.encoding)));
+    }
+
+    public String serialize(Item item) {
+        this.stringBuilder.setLength(0);
+        try {
+            serialize(item, this.stringBuilder);
+        } catch (IOException e) {
+            throw new OurBadException("Unexpected error while serializing to a string.");
+        }
+        String result = this.stringBuilder.toString();
+        if (this.stringBuilder.capacity() > 1 << 16) {
+            // Do not hold on to the memory used for a very large item.
+            this.stringBuilder.setLength(0);
+            this.stringBuilder.trimToSize();
+        }
+        return result;
+    }
+
+    public void serialize(Item item, Appendable output) throws IOException {
+        serialize(item, output, 0, true);
+    }
+
+    /**
+     * Serializes a sequence of items, separated with the item separator.
+     *
+     * @param items the items.
+     * @param output where to write the items.
+     * @return the number of items written.
+     * @throws IOException if writing fails.
+     */
+    public long serialize(Iterator<Item> items, Appendable output) throws IOException {
+        long count = 0;
+        while (items.hasNext()) {
+            if (count > 0) {
+                output.append(this.itemSeparator);
+            }
+            serialize(items.next(), output, 0, true);
+            ++count;
+        }
+        return count;
     }
 
-    public void serialize(Item item, StringBuffer sb, String indent, boolean isTopLevel) {
+    private void serialize(Item item, Appendable output, int level, boolean isTopLevel) throws IOException {
         if (item.isFunction()) {
             throw new FunctionsNonSerializableException();
         }
         if (item.isAtomic()) {
             switch (this.method) {
                 case JSON:
-                    appendJSONAtomicItem(item, sb);
+                    appendJSONAtomicItem(item, output);
                     return;
                 case TYSON:
-                    sb.append("(\"");
-                    sb.append(item.getDynamicType().getIdentifierString());
-                    sb.append("\") ");
-                    sb.append("\"");
-                    sb.append(StringEscapeUtils.escapeJson(item.getStringValue()));
-                    sb.append("\"");
+                    output.append("(\"");
+                    output.append(item.getDynamicType().getIdentifierString());
+                    output.append("\") ");
+                    output.append('"');
+                    appendEscaped(item.getStringValue(), output);
+                    output.append('"');
                     return;
                 case XML_JSON_HYBRID:
                     if (isTopLevel) {
-                        sb.append(item.getStringValue());
+                        output.append(item.getStringValue());
                     } else {
-                        appendJSONAtomicItem(item, sb);
+                        appendJSONAtomicItem(item, output);
                     }
                     return;
             }
         }
         if (item.isArray()) {
             if (this.method.equals(Method.TYSON)) {
-                sb.append("(\"");
-                sb.append(item.getDynamicType().getIdentifierString());
-                sb.append("\") ");
-            }
-            sb.append("[");
-
-            String separator = " ";
-            if (this.indent) {
-                separator = "\n" + indent + "  ";
+                output.append("(\"");
+                output.append(item.getDynamicType().getIdentifierString());
+                output.append("\") ");
             }
+            output.append('[');
             boolean firstTime = true;
             for (Item member : item.getItems()) {
-                sb.append(separator);
-                if (firstTime) {
-                    separator = "," + separator;
-                    firstTime = false;
-                }
-                if (this.indent) {
-                    serialize(member, sb, indent + "  ", false);
-                } else {
-                    serialize(member, sb, "", false);
+                if (!firstTime) {
+                    output.append(',');
                 }
-
+                firstTime = false;
+                appendSeparator(output, level + 1);
+                serialize(member, output, level + 1, false);
             }
-            if (this.indent) {
-                sb.append("\n" + indent);
-            } else {
-                sb.append(" ");
-            }
-            sb.append("]");
+            appendSeparator(output, level);
+            output.append(']');
             return;
         }
         if (item.isObject()) {
             if (this.method.equals(Method.TYSON)) {
-                sb.append("(\"");
-                sb.append(item.getDynamicType().getIdentifierString());
-                sb.append("\") ");
-            }
-            sb.append("{");
-            String separator = " ";
-            if (this.indent) {
-                separator = "\n" + indent + "  ";
+                output.append("(\"");
+                output.append(item.getDynamicType().getIdentifierString());
+                output.append("\") ");
             }
-            boolean firstTime = true;
-            for (String key : item.getKeys()) {
-                sb.append(separator);
-                if (firstTime) {
-                    separator = "," + separator;
-                    firstTime = false;
-                }
-                Item value = item.getItemByKey(key);
-                sb.append("\"").append(StringEscapeUtils.escapeJson(key)).append("\"").append(" : ");
-                if (this.indent) {
-                    serialize(value, sb, indent + "  ", false);
-                } else {
-                    serialize(value, sb, "", false);
+            output.append('{');
+            // Keys and values are iterated together: looking up each key would be quadratic in the object size.
+            List<String> keys = item.getKeys();
+            List<Item> values = item.getValues();
+            for (int i = 0; i < keys.size(); ++i) {
+                if (i > 0) {
+                    output.append(',');
                 }
+                appendSeparator(output, level + 1);
+                output.append('"');
+                appendEscaped(keys.get(i), output);
+                output.append("\" : ");
+                serialize(values.get(i), output, level + 1, false);
             }
-            if (this.indent) {
-                sb.append("\n" + indent);
-            } else {
-                sb.append(" ");
+            appendSeparator(output, level);
+            output.append('}');
+        }
+    }
+
+    private void appendSeparator(Appendable output, int level) throws IOException {
+        if (!this.indent) {
+            output.append(' ');
+            return;
+        }
+        if (level >= this.indentations.length) {
+            int oldLength = this.indentations.length;
+            this.indentations = Arrays.copyOf(this.indentations, Math.max(level + 1, 2 * oldLength));
+            for (int i = oldLength; i < this.indentations.length; ++i) {
+                this.indentations[i] = this.indentations[i - 1] + "  ";
             }
-            sb.append("}");
         }
+        output.append(this.indentations[level]);
     }
 
-    private void appendJSONAtomicItem(Item item, StringBuffer sb) {
-        boolean isStringValue = item.isAtomic() && !item.isNumeric() && !item.isBoolean() && !item.isNull();
+    private void appendJSONAtomicItem(Item item, Appendable output) throws IOException {
+        if (item.isInt()) {
+            appendInt(item.getIntValue(), output);
+            return;
+        }
+        if (item.isBoolean()) {
+            output.append(item.getBooleanValue() ? "true" : "false");
+            return;
+        }
+        if (item.isNull()) {
+            output.append("null");
+            return;
+        }
+        boolean isStringValue = !item.isNumeric();
         if (item.isDouble()) {
             if (Double.isNaN(item.getDoubleValue()) || Double.isInfinite(item.getDoubleValue())) {
                 isStringValue = true;
@@ -153,11 +227,81 @@ public class Serializer {
             }
         }
         if (isStringValue) {
-            sb.append("\"");
-            sb.append(StringEscapeUtils.escapeJson(item.getStringValue()));
-            sb.append("\"");
+            output.append('"');
+            appendEscaped(item.getStringValue(), output);
+            output.append('"');
         } else {
-            sb.append(item.getStringValue());
+            output.append(item.getStringValue());
+        }
+    }
+
+    private void appendInt(int value, Appendable output) throws IOException {
+        if (value == Integer.MIN_VALUE) {
+            output.append(Integer.toString(value));
+            return;
+        }
+        int position = this.numberBuffer.length;
+        boolean negative = value < 0;
+        int remaining = negative ? -value : value;
+        do {
+            this.numberBuffer[--position] = (char) ('0' + remaining % 10);
+            remaining /= 10;
+        } while (remaining != 0);
+        if (negative) {
+            this.numberBuffer[--position] = '-';
+        }
+        for (int i = position; i < this.numberBuffer.length; ++i) {
+            output.append(this.numberBuffer[i]);
+        }
+    }
+
+    /**
+     * Escapes a string in the same way as StringEscapeUtils.escapeJson(), but without creating an intermediate string.
+     * Characters outside of the printable ASCII range are written as unicode escapes.
+     */
+    private static void appendEscaped(String value, Appendable output) throws IOException {
+        int length = value.length();
+        int start = 0;
+        for (int i = 0; i < length; ++i) {
+            char c = value.charAt(i);
+            if (c >= 32 && c <= 127 && c != '"' && c != '\\' && c != '/') {
+                continue;
+            }
+            output.append(value, start, i);
+            start = i + 1;
+            switch (c) {
+                case '"':
+                    output.append("\\\"");
+                    break;
+                case '\\':
+                    output.append("\\\\");
+                    break;
+                case '/':
+                    output.append("\\/");
+                    break;
+                case '\b':
+                    output.append("\\b");
+                    break;
+                case '\n':
+                    output.append("\\n");
+                    break;
+                case '\t':
+                    output.append("\\t");
+                    break;
+                case '\f':
+                    output.append("\\f");
+                    break;
+                case '\r':
+                    output.append("\\r");
+                    break;
+                default:
+                    output.append("\\u");
+                    output.append(HEX_DIGITS[(c >> 12) & 0xF]);
+                    output.append(HEX_DIGITS[(c >> 8) & 0xF]);
+                    output.append(HEX_DIGITS[(c >> 4) & 0xF]);
+                    output.append(HEX_DIGITS[c & 0xF]);
+            }
         }
+        output.append(value, start, length);
     }
 }
@@ -0,0 +1,43 @@
+package org.rumbledb.server;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.apache.commons.io.IOUtils;
+import org.rumbledb.api.Item;
+import org.rumbledb.items.ItemFactory;
+import org.rumbledb.runtime.functions.io.CollectionCatalog;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+/**
+ * Exposes the collections cached by fn:collection().
+ *
+ * A GET request returns their statistics. A POST request releases the collection named in the body, or all
+ * collections if the body is empty.
+ */
+@SuppressWarnings("restriction")
+public class CollectionCatalogHandler implements HttpHandler {
+
+    public CollectionCatalogHandler() {
+    }
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        CollectionCatalog catalog = CollectionCatalog.getInstance();
+        Item output = ItemFactory.getInstance().createObjectItem();
+        if (exchange.getRequestMethod().equals("POST")) {
+            String name = IOUtils.toString(exchange.getRequestBody(), StandardCharsets.UTF_8.name()).trim();
+            int invalidated = name.isEmpty() ? catalog.invalidateAll() : catalog.invalidate(name);
+            output.putItemByKey("invalidated", ItemFactory.getInstance().createIntItem(invalidated));
+        }
+        output.putItemByKey("collections", ItemFactory.getInstance().createArrayItem(catalog.getStatistics()));
+        byte[] response = output.serialize().getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(200, response.length);
+        OutputStream stream = exchange.getResponseBody();
+        stream.write(response);
+        stream.close();
+    }
+}
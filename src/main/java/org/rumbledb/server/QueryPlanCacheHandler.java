@@ -0,0 +1,57 @@
+package org.rumbledb.server;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.apache.commons.io.IOUtils;
+import org.rumbledb.api.Item;
+import org.rumbledb.compiler.LibraryModuleCache;
+import org.rumbledb.compiler.QueryPlanCache;
+import org.rumbledb.items.ItemFactory;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+/**
+ * Exposes the statistics of the query plan cache, and the number of library modules kept parsed.
+ *
+ * A GET request returns the statistics. A POST request invalidates the cached plans of the query sent in the body, or
+ * all cached plans and parsed library modules if the body is empty.
+ */
+@SuppressWarnings("restriction")
+public class QueryPlanCacheHandler implements HttpHandler {
+
+    public QueryPlanCacheHandler() {
+    }
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        QueryPlanCache cache = QueryPlanCache.getInstance();
+        LibraryModuleCache libraryModules = LibraryModuleCache.getInstance();
+        Item output = ItemFactory.getInstance().createObjectItem();
+        if (exchange.getRequestMethod().equals("POST")) {
+            String query = IOUtils.toString(exchange.getRequestBody(), StandardCharsets.UTF_8.name());
+            if (query.trim().isEmpty()) {
+                output.putItemByKey("invalidated", ItemFactory.getInstance().createIntItem(cache.invalidateAll()));
+                output.putItemByKey(
+                    "invalidated-library-modules",
+                    ItemFactory.getInstance().createIntItem(libraryModules.invalidateAll())
+                );
+            } else {
+                output.putItemByKey("invalidated", ItemFactory.getInstance().createIntItem(cache.invalidate(query)));
+            }
+        }
+        output.putItemByKey("size", ItemFactory.getInstance().createIntItem(cache.size()));
+        output.putItemByKey("maximum-size", ItemFactory.getInstance().createIntItem(cache.getMaximumSize()));
+        output.putItemByKey("hits", ItemFactory.getInstance().createLongItem(cache.getHitCount()));
+        output.putItemByKey("misses", ItemFactory.getInstance().createLongItem(cache.getMissCount()));
+        output.putItemByKey("evictions", ItemFactory.getInstance().createLongItem(cache.getEvictionCount()));
+        output.putItemByKey("library-modules", ItemFactory.getInstance().createIntItem(libraryModules.size()));
+        byte[] response = output.serialize().getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(200, response.length);
+        OutputStream stream = exchange.getResponseBody();
+        stream.write(response);
+        stream.close();
+    }
+}
@@ -5,23 +5,29 @@ import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
+import java.io.Writer;
 import java.net.ConnectException;
 import java.net.URI;
 import java.net.URLDecoder;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
 import javassist.CannotCompileException;
 import org.apache.spark.SparkException;
 import org.rumbledb.api.Item;
+import org.rumbledb.api.SequenceOfItems;
 import org.rumbledb.cli.JsoniqQueryExecutor;
 import org.rumbledb.config.RumbleRuntimeConfiguration;
 import org.rumbledb.errorcodes.ErrorCode;
+import org.rumbledb.exceptions.CliException;
 import org.rumbledb.exceptions.OurBadException;
 import org.rumbledb.exceptions.RumbleException;
 import org.rumbledb.items.ItemFactory;
+import org.rumbledb.runtime.flwor.ClauseExplanation;
+import org.rumbledb.serialization.Serializer;
 
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpHandler;
@@ -31,6 +37,11 @@ import sparksoniq.spark.SparkSessionManager;
 @SuppressWarnings("restriction")
 public class RumbleHttpHandler implements HttpHandler {
 
+    // Responses are always JSON. Serializers reuse buffers, so each worker thread has its own.
+    private static final ThreadLocal<Serializer> JSON_SERIALIZER = ThreadLocal.withInitial(
+        () -> new Serializer("UTF-8", Serializer.Method.JSON, false, "\n")
+    );
+
     private RumbleRuntimeConfiguration rumbleRuntimeConfiguration;
 
     private enum StatusCode {
@@ -60,6 +71,16 @@ public class RumbleHttpHandler implements HttpHandler {
         stream.close();
     }
 
+    /**
+     * Sends a response item, serialized directly to the response body rather than to an intermediate string.
+     */
+    private void sendResponse(HttpExchange exchange, StatusCode code, Item response) throws IOException {
+        exchange.sendResponseHeaders(code.getCode(), 0);
+        try (Writer writer = JSON_SERIALIZER.get().createWriter(exchange.getResponseBody())) {
+            JSON_SERIALIZER.get().serialize(response, writer);
+        }
+    }
+
     private String[] getCLIArguments(String query) throws UnsupportedEncodingException {
         Map<String, String> queryParameters = new HashMap<String, String>();
         if (query == null) {
@@ -94,37 +115,163 @@ public class RumbleHttpHandler implements HttpHandler {
             RumbleRuntimeConfiguration configuration = new RumbleRuntimeConfiguration(args);
             configuration.setAllowedURIPrefixes(this.rumbleRuntimeConfiguration.getAllowedURIPrefixes());
             validateConfiguration(exchange, configuration);
-            SparkSessionManager.COLLECT_ITEM_LIMIT = configuration.getResultSizeCap();
 
             JsoniqQueryExecutor translator = new JsoniqQueryExecutor(configuration);
             List<Item> items = null;
             long count = -1;
-            if (configuration.getQueryPath() != null) {
-                items = translator.runQuery();
-            } else {
-                InputStreamReader r = new InputStreamReader(exchange.getRequestBody());
-                BufferedReader r2 = new BufferedReader(r);
-                StringBuilder sb = new StringBuilder();
-                String s;
-                while ((s = r2.readLine()) != null) {
-                    sb.append(s);
-                    sb.append("\n");
+            List<String> explanations;
+            // Each request runs in its own Spark job group, in the scheduler pool of the worker thread, so that
+            // concurrent requests share the cluster fairly.
+            String queryId = SparkSessionManager.getInstance()
+                .beginQuery(
+                    "RumbleDB HTTP request " + uri,
+                    Thread.currentThread().getName()
+                );
+            // Explanations are returned with the response rather than printed, as requests run concurrently.
+            if (configuration.explain()) {
+                ClauseExplanation.startCollecting();
+            }
+            try {
+                String streamingFormat = configuration.getStreamingResponseFormat();
+                if (!streamingFormat.equals("no") && configuration.getOutputPath() == null) {
+                    String JSONiqQuery = configuration.getQueryPath() != null ? null : readQuery(exchange);
+                    SequenceOfItems sequence = translator.runQueryLazily(JSONiqQuery);
+                    streamResponse(exchange, streamingFormat, sequence);
+                    return;
                 }
-                String JSONiqQuery = sb.toString();
-                items = new ArrayList<Item>();
-                count = translator.runInteractive(JSONiqQuery, items);
+                if (configuration.getQueryPath() != null) {
+                    items = translator.runQuery();
+                } else {
+                    String JSONiqQuery = readQuery(exchange);
+                    items = new ArrayList<Item>();
+                    count = translator.runInteractive(JSONiqQuery, items);
+                }
+            } finally {
+                explanations = ClauseExplanation.stopCollecting();
+                SparkSessionManager.getInstance().endQuery(queryId);
             }
 
-            Item output = assembleResponse(configuration, items, count);
+            Item output = assembleResponse(configuration, items, count, explanations);
 
-            this.sendResponse(exchange, StatusCode.SUCCESS, output.serialize());
+            this.sendResponse(exchange, StatusCode.SUCCESS, output);
         } catch (Exception e) {
             Item output = handleException(e);
-            this.sendResponse(exchange, StatusCode.SUCCESS, output.serialize());
+            this.sendResponse(exchange, StatusCode.SUCCESS, output);
         }
     }
 
 
+    private static String readQuery(HttpExchange exchange) throws IOException {
+        InputStreamReader r = new InputStreamReader(exchange.getRequestBody());
+        BufferedReader r2 = new BufferedReader(r);
+        StringBuilder sb = new StringBuilder();
+        String s;
+        while ((s = r2.readLine()) != null) {
+            sb.append(s);
+            sb.append("\n");
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Writes the results with chunked transfer encoding as they are produced, so that the server does not hold the
+     * whole result in memory and the client receives the first items early. RDD-backed results are fetched one
+     * partition at a time. The materialization cap does not apply.
+     *
+     * Since the status code was already sent, an error occurring during the evaluation is reported at the end of the
+     * stream: as the last line in the ndjson format, and with the same fields as an error response (after the values)
+     * in the json format. Clause explanations, if requested, are only returned in the json format, after the values.
+     */
+    private static void streamResponse(HttpExchange exchange, String format, SequenceOfItems sequence)
+            throws IOException {
+        boolean ndjson;
+        switch (format) {
+            case "ndjson":
+                ndjson = true;
+                break;
+            case "json":
+                ndjson = false;
+                break;
+            default:
+                throw new CliException(
+                        "Unknown streaming response format: " + format + ". Supported formats are no, json and ndjson."
+                );
+        }
+        exchange.getResponseHeaders().set("Content-Type", ndjson ? "application/x-ndjson" : "application/json");
+        exchange.sendResponseHeaders(StatusCode.SUCCESS.getCode(), 0);
+        Serializer serializer = JSON_SERIALIZER.get();
+        Writer writer = serializer.createWriter(exchange.getResponseBody());
+        try {
+            if (!ndjson) {
+                writer.write("{ \"values\" : [ ");
+            }
+            Item error = null;
+            try {
+                Iterator<Item> items;
+                if (sequence.availableAsRDD()) {
+                    items = sequence.getAsRDD().toLocalIterator();
+                } else {
+                    sequence.open();
+                    items = new Iterator<Item>() {
+                        @Override
+                        public boolean hasNext() {
+                            return sequence.hasNext();
+                        }
+
+                        @Override
+                        public Item next() {
+                            return sequence.next();
+                        }
+                    };
+                }
+                boolean first = true;
+                while (items.hasNext()) {
+                    Item item = items.next();
+                    if (ndjson) {
+                        serializer.serialize(item, writer);
+                        writer.write("\n");
+                    } else {
+                        if (!first) {
+                            writer.write(", ");
+                        }
+                        serializer.serialize(item, writer);
+                    }
+                    first = false;
+                }
+            } catch (Exception e) {
+                error = handleException(e);
+            } finally {
+                if (sequence.isOpen()) {
+                    sequence.close();
+                }
+            }
+            if (ndjson) {
+                if (error != null) {
+                    serializer.serialize(error, writer);
+                    writer.write("\n");
+                }
+            } else {
+                writer.write(" ]");
+                List<String> explanations = ClauseExplanation.stopCollecting();
+                if (!explanations.isEmpty()) {
+                    writer.write(", \"explanations\" : ");
+                    serializer.serialize(createExplanationsItem(explanations), writer);
+                }
+                if (error != null) {
+                    for (String key : error.getKeys()) {
+                        writer.write(", ");
+                        serializer.serialize(ItemFactory.getInstance().createStringItem(key), writer);
+                        writer.write(" : ");
+                        serializer.serialize(error.getItemByKey(key), writer);
+                    }
+                }
+                writer.write(" }");
+            }
+        } finally {
+            writer.close();
+        }
+    }
+
     private void validateRequest(HttpExchange exchange) throws IOException {
         if (!exchange.getRequestMethod().equals("GET") && !exchange.getRequestMethod().equals("POST")) {
             this.sendResponse(
@@ -146,7 +293,12 @@ public class RumbleHttpHandler implements HttpHandler {
         }
     }
 
-    private static Item assembleResponse(RumbleRuntimeConfiguration configuration, List<Item> results, long count) {
+    private static Item assembleResponse(
+            RumbleRuntimeConfiguration configuration,
+            List<Item> results,
+            long count,
+            List<String> explanations
+    ) {
         Item output = ItemFactory.getInstance().createObjectItem();
         if (configuration.getOutputPath() != null) {
             output.putItemByKey(
@@ -162,6 +314,9 @@ public class RumbleHttpHandler implements HttpHandler {
         if (configuration.getLogPath() != null) {
             output.putItemByKey("log-path", ItemFactory.getInstance().createStringItem(configuration.getLogPath()));
         }
+        if (!explanations.isEmpty()) {
+            output.putItemByKey("explanations", createExplanationsItem(explanations));
+        }
         if (count != -1) {
             output.putItemByKey(
                 "warning",
@@ -170,7 +325,7 @@ public class RumbleHttpHandler implements HttpHandler {
                         "Warning! The output sequence contains "
                             + count
                             + " items but its materialization was capped at "
-                            + SparkSessionManager.COLLECT_ITEM_LIMIT
+                            + configuration.getResultSizeCap()
                             + " items. This value can be configured with the result-size parameter in the query string of the HTTP request."
                     )
             );
@@ -178,6 +333,14 @@ public class RumbleHttpHandler implements HttpHandler {
         return output;
     }
 
+    private static Item createExplanationsItem(List<String> explanations) {
+        List<Item> members = new ArrayList<>();
+        for (String explanation : explanations) {
+            members.add(ItemFactory.getInstance().createStringItem(explanation));
+        }
+        return ItemFactory.getInstance().createArrayItem(members);
+    }
+
     private static Item assembleErrorReponse(String message, String code, StackTraceElement[] stackTraceElements) {
         Item output = ItemFactory.getInstance().createObjectItem();
         output.putItemByKey("error-message", ItemFactory.getInstance().createStringItem(message));
@@ -2,7 +2,12 @@ package org.rumbledb.server;
 
 import java.io.IOException;
 import java.net.InetSocketAddress;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import org.rumbledb.compiler.QueryPlanCache;
+import org.rumbledb.compiler.VisitorHelpers;
 import org.rumbledb.config.RumbleRuntimeConfiguration;
 import org.rumbledb.exceptions.ExceptionMetadata;
 import org.rumbledb.exceptions.OurBadException;
@@ -31,8 +36,21 @@ public class RumbleServer {
                 ),
                 0
             );
+            // Requests are handled concurrently by a bounded pool of worker threads.
+            server.setExecutor(
+                Executors.newFixedThreadPool(
+                    this.rumbleRuntimeConfiguration.getServerThreads(),
+                    new WorkerThreadFactory()
+                )
+            );
+            QueryPlanCache.getInstance().setMaximumSize(this.rumbleRuntimeConfiguration.getQueryPlanCacheSize());
+            VisitorHelpers.warmUpParsers();
             HttpContext context = server.createContext("/jsoniq");
             context.setHandler(new RumbleHttpHandler(this.rumbleRuntimeConfiguration));
+            context = server.createContext("/query-plan-cache");
+            context.setHandler(new QueryPlanCacheHandler());
+            context = server.createContext("/collections");
+            context.setHandler(new CollectionCatalogHandler());
             context = server.createContext("/public.html");
             context.setHandler(new MainPageHandler());
             context = server.createContext("/jsound-validator.html");
@@ -69,4 +87,15 @@ public class RumbleServer {
         }
     }
 
+    private static class WorkerThreadFactory implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "rumble-server-worker-" + this.count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+
 }
@@ -43,11 +43,11 @@ import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.OutputStreamWriter;
+import java.io.StringWriter;
 import java.io.Writer;
 import java.net.ConnectException;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
 
 public class RumbleJLineShell {
     private static final String EXIT_COMMAND = "exit";
@@ -97,12 +97,9 @@ public class RumbleJLineShell {
         try {
             long count = this.jsoniqQueryExecutor.runInteractive(query, results);
             Serializer serializer = this.configuration.getSerializer();
-            String result = String.join(
-                "\n",
-                results.stream()
-                    .map(x -> serializer.serialize(x))
-                    .collect(Collectors.toList())
-            );
+            StringWriter resultWriter = new StringWriter();
+            serializer.serialize(results.iterator(), resultWriter);
+            String result = resultWriter.toString();
             String shell = this.configuration.getShellFilter();
             if (shell != null) {
                 Process process = Runtime.getRuntime().exec(shell);
@@ -124,7 +121,7 @@ public class RumbleJLineShell {
             }
             output(result);
             if (count != -1) {
-                JsoniqQueryExecutor.issueMaterializationWarning(count);
+                JsoniqQueryExecutor.issueMaterializationWarning(count, this.configuration.getResultSizeCap());
             }
             long time = System.currentTimeMillis() - startTime;
             if (this.printTime) {
@@ -33,8 +33,6 @@ import org.rumbledb.exceptions.OurBadException;
 import org.rumbledb.items.parsing.RowToItemMapper;
 import org.rumbledb.items.structured.JSoundDataFrame;
 
-import sparksoniq.spark.SparkSessionManager;
-
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.LinkedHashMap;
@@ -116,8 +114,9 @@ public class FlworTuple implements Serializable, KryoSerializable {
             return this.localVariables.get(key);
         }
         if (this.rddVariables.containsKey(key)) {
-            JavaRDD<Item> rdd = this.getRDDValue(key, metadata);
-            return SparkSessionManager.collectRDDwithLimit(rdd, metadata);
+            // RDD values are bound as such (see getRDDValue()) and materialized by the dynamic context, which knows the
+            // materialization cap of the query.
+            throw new OurBadException("FLWOR variable " + key + " is not local", metadata);
         }
 
         throw new OurBadException("Undeclared FLOWR variable", metadata);
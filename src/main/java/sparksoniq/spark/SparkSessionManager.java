@@ -56,6 +56,7 @@ import org.rumbledb.items.FunctionItem;
 import org.rumbledb.items.HexBinaryItem;
 import org.rumbledb.items.IntItem;
 import org.rumbledb.items.IntegerItem;
+import org.rumbledb.items.LazyObjectItem;
 import org.rumbledb.items.NullItem;
 import org.rumbledb.items.ObjectItem;
 import org.rumbledb.items.StringItem;
@@ -69,18 +70,27 @@ import org.rumbledb.types.SequenceType;
 import sparksoniq.jsoniq.tuple.FlworKey;
 import sparksoniq.jsoniq.tuple.FlworTuple;
 
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 public class SparkSessionManager {
 
     private static final String APP_NAME = "Rumble application";
-    public static int COLLECT_ITEM_LIMIT = 0;
+    private static final String SCHEDULER_POOL_PROPERTY = "spark.scheduler.pool";
+    private static final String JOB_GROUP_ID_PROPERTY = "spark.jobGroup.id";
     private static SparkSessionManager instance;
     private static Level LOG_LEVEL = Level.FATAL;
     private SparkConf configuration;
     private SparkSession session;
     private JavaSparkContext javaSparkContext;
+    // Temporary views and functions created by each query, keyed by the Spark job group of the query.
+    private final Map<String, Set<String>> temporaryViewsByQuery = new ConcurrentHashMap<>();
+    private final Map<String, Set<String>> temporaryFunctionsByQuery = new ConcurrentHashMap<>();
 
     public static String atomicJSONiqItemColumnName = "0d08af5d-10bb-4a73-af84-c6aac917a830";
     public static String emptyObjectJSONiqItemColumnName = "a84bc646-05af-4383-8853-2e9f31a710f2";
@@ -92,18 +102,14 @@ public class SparkSessionManager {
     private SparkSessionManager() {
     }
 
-    public static boolean LIMIT_COLLECT() {
-        return COLLECT_ITEM_LIMIT > 0;
-    }
-
-    public static SparkSessionManager getInstance() {
+    public static synchronized SparkSessionManager getInstance() {
         if (instance == null) {
             instance = new SparkSessionManager();
         }
         return instance;
     }
 
-    public SparkSession getOrCreateSession() {
+    public synchronized SparkSession getOrCreateSession() {
         if (this.configuration == null) {
             setDefaultConfiguration();
         }
@@ -124,6 +130,10 @@ public class SparkSessionManager {
                 this.configuration.setAppName(APP_NAME);
             }
             this.configuration.set("spark.sql.crossJoin.enabled", "true"); // enables cartesian product
+            if (!this.configuration.contains("spark.scheduler.mode")) {
+                // concurrent queries (in server mode) each get their own pool and share the cluster fairly
+                this.configuration.set("spark.scheduler.mode", "FAIR");
+            }
             if (!this.configuration.contains("spark.master")) {
                 this.configuration.set("spark.master", "local[*]");
             }
@@ -155,6 +165,7 @@ public class SparkSessionManager {
                 AnnotatedItem.class,
                 ArrayItem.class,
                 ObjectItem.class,
+                LazyObjectItem.class,
                 AnyURIItem.class,
                 Base64BinaryItem.class,
                 BooleanItem.class,
@@ -211,7 +222,7 @@ public class SparkSessionManager {
         initializeSession();
     }
 
-    public JavaSparkContext getJavaSparkContext() {
+    public synchronized JavaSparkContext getJavaSparkContext() {
         if (this.configuration == null) {
             setDefaultConfiguration();
         }
@@ -224,16 +235,93 @@ public class SparkSessionManager {
         return this.javaSparkContext;
     }
 
-    public static <T> List<T> collectRDDwithLimit(JavaRDD<T> rdd, ExceptionMetadata metadata) {
-        if (SparkSessionManager.LIMIT_COLLECT()) {
-            List<T> result = rdd.take(SparkSessionManager.COLLECT_ITEM_LIMIT + 1);
-            if (result.size() == SparkSessionManager.COLLECT_ITEM_LIMIT + 1) {
+    /**
+     * Marks the beginning of a query executed by the current thread. All Spark jobs triggered by the thread until
+     * endQuery() is called belong to a new job group and run in the given scheduler pool, and the temporary views and
+     * functions created in the meantime are dropped by endQuery().
+     *
+     * @param description a description of the query shown in the Spark UI.
+     * @param schedulerPool the fair scheduler pool to run the jobs in.
+     * @return the identifier of the query, to be passed to endQuery().
+     */
+    public String beginQuery(String description, String schedulerPool) {
+        String queryId = "rumble-query-" + UUID.randomUUID().toString();
+        JavaSparkContext sparkContext = getJavaSparkContext();
+        sparkContext.setJobGroup(queryId, description, true);
+        sparkContext.setLocalProperty(SCHEDULER_POOL_PROPERTY, schedulerPool);
+        return queryId;
+    }
+
+    /**
+     * Marks the end of a query started with beginQuery() on the current thread, and drops the temporary views and
+     * functions it created.
+     *
+     * @param queryId the identifier returned by beginQuery().
+     */
+    public void endQuery(String queryId) {
+        JavaSparkContext sparkContext = getJavaSparkContext();
+        sparkContext.clearJobGroup();
+        sparkContext.setLocalProperty(SCHEDULER_POOL_PROPERTY, null);
+        Set<String> views = this.temporaryViewsByQuery.remove(queryId);
+        if (views != null) {
+            for (String view : views) {
+                this.session.catalog().dropTempView(view);
+            }
+        }
+        Set<String> functions = this.temporaryFunctionsByQuery.remove(queryId);
+        if (functions != null) {
+            for (String function : functions) {
+                this.session.sql("DROP TEMPORARY FUNCTION IF EXISTS " + function);
+            }
+        }
+    }
+
+    /**
+     * Generates a fresh name for a temporary view. The view is dropped at the end of the current query, if any.
+     *
+     * @return the name of the view.
+     */
+    public String createTemporaryViewName() {
+        String name = "input" + UUID.randomUUID().toString().replaceAll("-", "");
+        registerTemporaryName(this.temporaryViewsByQuery, name);
+        return name;
+    }
+
+    /**
+     * Generates a fresh name for a UDF, so that UDFs registered by concurrent queries do not override each other. The
+     * function is dropped at the end of the current query, if any.
+     *
+     * @param prefix a prefix describing the function.
+     * @return the name of the function.
+     */
+    public String createTemporaryFunctionName(String prefix) {
+        String name = prefix + UUID.randomUUID().toString().replaceAll("-", "");
+        registerTemporaryName(this.temporaryFunctionsByQuery, name);
+        return name;
+    }
+
+    private void registerTemporaryName(Map<String, Set<String>> namesByQuery, String name) {
+        if (this.session == null) {
+            return;
+        }
+        String queryId = this.session.sparkContext().getLocalProperty(JOB_GROUP_ID_PROPERTY);
+        if (queryId == null) {
+            return;
+        }
+        namesByQuery.computeIfAbsent(queryId, k -> Collections.newSetFromMap(new ConcurrentHashMap<>()))
+            .add(name);
+    }
+
+    public static <T> List<T> collectRDDwithLimit(JavaRDD<T> rdd, int limit, ExceptionMetadata metadata) {
+        if (limit > 0) {
+            List<T> result = rdd.take(limit + 1);
+            if (result.size() == limit + 1) {
                 long count = rdd.count();
                 throw new CannotMaterializeException(
                         "Cannot materialize a sequence of "
                             + count
                             + " items because the limit is set to "
-                            + SparkSessionManager.COLLECT_ITEM_LIMIT
+                            + limit
                             + ". This value can be configured with the --materialization-cap parameter at startup",
                         metadata
                 );
@@ -244,16 +332,16 @@ public class SparkSessionManager {
         }
     }
 
-    public static <T> long collectRDDwithLimitWarningOnly(JavaRDD<T> rdd, List<T> outputList) {
+    public static <T> long collectRDDwithLimitWarningOnly(JavaRDD<T> rdd, int limit, List<T> outputList) {
         outputList.clear();
         long count = -1;
-        if (SparkSessionManager.LIMIT_COLLECT()) {
-            List<T> result = rdd.take(SparkSessionManager.COLLECT_ITEM_LIMIT + 1);
-            if (result.size() == SparkSessionManager.COLLECT_ITEM_LIMIT + 1) {
+        if (limit > 0) {
+            List<T> result = rdd.take(limit + 1);
+            if (result.size() == limit + 1) {
                 count = rdd.count();
             }
             result.stream()
-                .limit(SparkSessionManager.COLLECT_ITEM_LIMIT)
+                .limit(limit)
                 .collect(Collectors.toCollection(() -> outputList));
             return count;
         } else {
@@ -26,12 +26,21 @@ import org.junit.Assert;
 import org.junit.BeforeClass;
 import org.junit.Test;
 import org.rumbledb.api.Item;
+import org.rumbledb.api.PreparedQuery;
 import org.rumbledb.api.Rumble;
 import org.rumbledb.api.SequenceOfItems;
+import org.rumbledb.compiler.QueryPlanCache;
 import org.rumbledb.config.RumbleRuntimeConfiguration;
+import org.rumbledb.items.ItemFactory;
+import org.rumbledb.runtime.functions.io.CollectionCatalog;
 
 import sparksoniq.spark.SparkSessionManager;
 
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
 import java.util.List;
 
 public class JavaAPITest {
@@ -122,4 +131,132 @@ public class JavaAPITest {
             Assert.assertTrue(value.getIntValue() == i);
         }
     }
+
+    @Test(timeout = 1000000)
+    public void testQueryPlanCache() throws Throwable {
+        QueryPlanCache cache = QueryPlanCache.getInstance();
+        String query = "for $i in 1 to 3 return $i * 2";
+        cache.invalidate(query);
+        long misses = cache.getMissCount();
+        long hits = cache.getHitCount();
+        Rumble rumble = new Rumble(RumbleRuntimeConfiguration.getDefaultConfiguration());
+        for (int run = 0; run < 3; ++run) {
+            SequenceOfItems iterator = rumble.runQuery(query);
+            iterator.open();
+            for (int i = 1; i <= 3; ++i) {
+                Assert.assertTrue(iterator.hasNext());
+                Assert.assertEquals(2 * i, iterator.next().getIntValue());
+            }
+            Assert.assertFalse(iterator.hasNext());
+            iterator.close();
+        }
+        Assert.assertEquals(misses + 1, cache.getMissCount());
+        Assert.assertEquals(hits + 2, cache.getHitCount());
+        Assert.assertEquals(1, cache.invalidate(query));
+    }
+
+    @Test(timeout = 1000000)
+    public void testLocalExecutionThreshold() throws Throwable {
+        Path file = Files.createTempFile("local-execution", ".json");
+        try {
+            Files.write(file, "{ \"foo\" : 1 }\n{ \"foo\" : 2 }\n".getBytes(StandardCharsets.UTF_8));
+            String query = "json-file(\"" + file.toUri() + "\").foo";
+            Rumble rumble = new Rumble(
+                    new RumbleRuntimeConfiguration(new String[] { "--local-execution-threshold", "100" })
+            );
+            QueryPlanCache cache = QueryPlanCache.getInstance();
+            long misses = cache.getMissCount();
+            Assert.assertFalse(rumble.runQuery(query).availableAsRDD());
+            Assert.assertFalse(rumble.runQuery(query).availableAsRDD());
+            Assert.assertEquals(misses + 1, cache.getMissCount());
+
+            // The cached plan reads the file locally, which it must not do any more once it is above the threshold.
+            for (int i = 3; i <= 10; ++i) {
+                Files.write(
+                    file,
+                    ("{ \"foo\" : " + i + " }\n").getBytes(StandardCharsets.UTF_8),
+                    StandardOpenOption.APPEND
+                );
+            }
+            SequenceOfItems iterator = rumble.runQuery(query);
+            Assert.assertTrue(iterator.availableAsRDD());
+            Assert.assertEquals(misses + 2, cache.getMissCount());
+            List<Item> items = iterator.getAsRDD().collect();
+            Assert.assertEquals(10, items.size());
+            Assert.assertEquals(10, items.get(9).getIntValue());
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test(timeout = 1000000)
+    public void testCollectionCatalog() throws Throwable {
+        Path directory = Files.createTempDirectory("catalog");
+        Path data = directory.resolve("scores.csv");
+        Path catalog = directory.resolve("catalog.json");
+        try {
+            Files.write(data, "name,score\na,1\nb,2\nc,3\n".getBytes(StandardCharsets.UTF_8));
+            // Options that are not strings are passed to Spark as their JSON serialization.
+            Files.write(
+                catalog,
+                ("{ \"scores\" : { \"path\" : \"scores.csv\", \"format\" : \"csv\", "
+                    + "\"options\" : { \"header\" : true, \"inferSchema\" : true, \"samplingRatio\" : 1.0 } } }")
+                        .getBytes(StandardCharsets.UTF_8)
+            );
+            Rumble rumble = new Rumble(
+                    new RumbleRuntimeConfiguration(new String[] { "--catalog", catalog.toUri().toString() })
+            );
+            CollectionCatalog collections = CollectionCatalog.getInstance();
+            collections.invalidate("scores");
+            String query = "sum(collection(\"scores\").score)";
+            for (int run = 0; run < 2; ++run) {
+                SequenceOfItems iterator = rumble.runQuery(query);
+                iterator.open();
+                Assert.assertEquals(6, iterator.next().getIntValue());
+                iterator.close();
+            }
+            Assert.assertEquals(1, getCollectionHits("scores"));
+
+            Assert.assertEquals(1, collections.invalidate("scores"));
+            Assert.assertEquals(-1, getCollectionHits("scores"));
+            SequenceOfItems iterator = rumble.runQuery(query);
+            iterator.open();
+            Assert.assertEquals(6, iterator.next().getIntValue());
+            iterator.close();
+            Assert.assertEquals(0, getCollectionHits("scores"));
+            Assert.assertEquals(1, collections.invalidate("scores"));
+        } finally {
+            Files.deleteIfExists(catalog);
+            Files.deleteIfExists(data);
+            Files.deleteIfExists(directory);
+        }
+    }
+
+    private static int getCollectionHits(String name) {
+        for (Item statistics : CollectionCatalog.getInstance().getStatistics()) {
+            if (statistics.getItemByKey("name").getStringValue().equals(name)) {
+                return statistics.getItemByKey("hits").getIntValue();
+            }
+        }
+        return -1;
+    }
+
+    @Test(timeout = 1000000)
+    public void testPreparedQuery() throws Throwable {
+        Rumble rumble = new Rumble(RumbleRuntimeConfiguration.getDefaultConfiguration());
+        PreparedQuery query = rumble.prepare(
+            "declare variable $id as integer external; for $i in 1 to 5 where $i le $id return $i"
+        );
+        for (int id = 0; id <= 5; ++id) {
+            query.bind("id", Collections.singletonList(ItemFactory.getInstance().createIntItem(id)));
+            SequenceOfItems iterator = query.execute();
+            iterator.open();
+            int count = 0;
+            while (iterator.hasNext()) {
+                Assert.assertEquals(++count, iterator.next().getIntValue());
+            }
+            iterator.close();
+            Assert.assertEquals(id, count);
+        }
+    }
 }
@@ -0,0 +1,170 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Authors: Stefan Irimescu, Can Berker Cikis
+ *
+ */
+
+
+package iq;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import org.apache.spark.SparkConf;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.rumbledb.api.Item;
+import org.rumbledb.api.Rumble;
+import org.rumbledb.api.SequenceOfItems;
+import org.rumbledb.config.RumbleRuntimeConfiguration;
+import org.rumbledb.exceptions.ExceptionMetadata;
+import org.rumbledb.exceptions.RumbleException;
+import org.rumbledb.items.LazyObjectItem;
+import org.rumbledb.items.parsing.UTF8JSONParser;
+import org.rumbledb.runtime.flwor.FlworDataFrameUtils;
+
+import sparksoniq.spark.SparkSessionManager;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Checks that queries over objects parsed lazily by json-file() give the same results, or fail with the same errors,
+ * as when the objects are parsed right away. The queries use the objects entirely, as no lazy objects are created
+ * when only some fields are projected.
+ */
+public class LazyJSONParsingTest {
+
+    private static final String queriesDirectory = System.getProperty("user.dir") + "/src/test/resources/queries/";
+
+    private static final RumbleRuntimeConfiguration eagerConfiguration = new RumbleRuntimeConfiguration(
+            new String[] { "--lazy-json-parsing", "no" }
+    );
+    private static final RumbleRuntimeConfiguration lazyConfiguration = new RumbleRuntimeConfiguration(
+            new String[] { "--lazy-json-parsing", "yes" }
+    );
+    private static final RumbleRuntimeConfiguration lazyLocalConfiguration = new RumbleRuntimeConfiguration(
+            new String[] { "--lazy-json-parsing", "yes", "--local-execution-threshold", "1000000" }
+    );
+
+    public LazyJSONParsingTest() {
+    }
+
+    @BeforeClass
+    public static void setupSparkSession() {
+        SparkConf sparkConfiguration = new SparkConf();
+        sparkConfiguration.setMaster("local[*]");
+        sparkConfiguration.set("spark.submit.deployMode", "client");
+        sparkConfiguration.set("spark.executor.extraClassPath", "lib/");
+        sparkConfiguration.set("spark.driver.extraClassPath", "lib/");
+        sparkConfiguration.set("spark.driver.host", "127.0.0.1");
+        sparkConfiguration.set("spark.driver.bindAddress", "127.0.0.1");
+        SparkSessionManager.getInstance().initializeConfigurationAndSession(sparkConfiguration, true);
+    }
+
+    @Test(timeout = 1000000)
+    public void testSerialization() throws Throwable {
+        assertSameOutput("json-file(\"%s\")", "lazy-objects.json");
+    }
+
+    @Test(timeout = 1000000)
+    public void testKeys() throws Throwable {
+        assertSameOutput("for $o in json-file(\"%s\") return [ keys($o) ]", "lazy-objects.json");
+    }
+
+    @Test(timeout = 1000000)
+    public void testLookups() throws Throwable {
+        assertSameOutput(
+            "for $o in json-file(\"%s\") "
+                + "return { \"keys\" : [ keys($o) ], \"c\" : $o.nested.a.b[[4]].c, \"y\" : $o.tags[[2]].y[[1]], "
+                + "\"a\" : [ $o.nested.a ], \"d\" : [ $o.nested.d ], \"missing\" : [ $o.missing ], "
+                + "\"empty\" : [ $o.empty, keys($o.empty) ], \"list\" : [ $o.list[], $o.list[[2]][[1]] ] }",
+            "lazy-objects.json"
+        );
+    }
+
+    @Test(timeout = 1000000)
+    public void testDuplicateKeysInNestedObject() throws Throwable {
+        assertSameOutput("for $o in json-file(\"%s\") return $o", "lazy-duplicate-keys.json");
+    }
+
+    @Test(timeout = 1000000)
+    public void testMalformedNestedValue() throws Throwable {
+        assertSameOutput("for $o in json-file(\"%s\") return [ keys($o) ]", "lazy-malformed.json");
+    }
+
+    @Test(timeout = 1000000)
+    public void testKryoRoundTrip() throws Throwable {
+        String json = "{ \"id\" : 1, \"nested\" : { \"a\" : [ 1, { \"b\" : \"c\" } ], \"d\" : {} }, \"e\" : null }";
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        UTF8JSONParser parser = new UTF8JSONParser(ExceptionMetadata.EMPTY_METADATA);
+        Item eager = parser.parse(bytes, 0, bytes.length);
+        Item lazy = parser.parseLazily(bytes, 0, bytes.length);
+        Assert.assertTrue(lazy instanceof LazyObjectItem);
+
+        Kryo kryo = new Kryo();
+        FlworDataFrameUtils.registerKryoClassesKryo(kryo);
+        // Before any access, after an access and, for the nested object, from an offset within the buffer.
+        Item copy = kryoRoundTrip(kryo, lazy);
+        Assert.assertEquals(eager.serialize(), copy.serialize());
+        Assert.assertEquals(eager, copy);
+        copy = kryoRoundTrip(kryo, lazy);
+        Assert.assertEquals(eager.serialize(), copy.serialize());
+        Item nested = lazy.getItemByKey("nested");
+        Assert.assertTrue(nested instanceof LazyObjectItem);
+        copy = kryoRoundTrip(kryo, nested);
+        Assert.assertEquals(eager.getItemByKey("nested").serialize(), copy.serialize());
+        Assert.assertEquals(eager.getItemByKey("nested"), copy);
+        Assert.assertEquals(eager.getItemByKey("nested").hashCode(), copy.hashCode());
+    }
+
+    private static Item kryoRoundTrip(Kryo kryo, Item item) {
+        Output output = new Output(1024, -1);
+        kryo.writeClassAndObject(output, item);
+        output.close();
+        Input input = new Input(output.toBytes());
+        return (Item) kryo.readClassAndObject(input);
+    }
+
+    private static void assertSameOutput(String query, String fileName) {
+        String path = new File(queriesDirectory + fileName).toURI().toString();
+        String expected = runQuery(eagerConfiguration, String.format(query, path));
+        Assert.assertEquals(expected, runQuery(lazyConfiguration, String.format(query, path)));
+        Assert.assertEquals(expected, runQuery(lazyLocalConfiguration, String.format(query, path)));
+    }
+
+    /**
+     * Runs a query and returns its serialized output or, if it fails, its error code.
+     */
+    private static String runQuery(RumbleRuntimeConfiguration configuration, String query) {
+        List<String> output = new ArrayList<>();
+        try {
+            SequenceOfItems sequence = new Rumble(configuration).runQuery(query);
+            sequence.open();
+            while (sequence.hasNext()) {
+                output.add(sequence.next().serialize());
+            }
+            sequence.close();
+        } catch (Exception e) {
+            return "Error: " + RumbleException.unnestException(e).getErrorCode();
+        }
+        return String.join("\n", output);
+    }
+}
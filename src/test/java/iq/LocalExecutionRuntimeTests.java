@@ -0,0 +1,100 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Authors: Stefan Irimescu, Can Berker Cikis
+ *
+ */
+
+package iq;
+
+import iq.base.AnnotationsTestsBase;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.rumbledb.api.SequenceOfItems;
+import org.rumbledb.compiler.QueryPlan;
+import org.rumbledb.config.RumbleRuntimeConfiguration;
+import org.rumbledb.expressions.ExecutionMode;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+@RunWith(Parameterized.class)
+public class LocalExecutionRuntimeTests extends RuntimeTests {
+
+    protected static final RumbleRuntimeConfiguration configuration = new RumbleRuntimeConfiguration(
+            new String[] { "--local-execution-threshold", "1000000" }
+    );
+
+    public static final File localExecutionRuntimeTestsDirectory = new File(
+            System.getProperty("user.dir")
+                +
+                "/src/test/resources/test_files/runtime-local-execution"
+    );
+
+    public LocalExecutionRuntimeTests(File testFile) {
+        super(testFile);
+    }
+
+    @Parameterized.Parameters(name = "{index}:{0}")
+    public static Collection<Object[]> testFiles() {
+        List<Object[]> result = new ArrayList<>();
+        _testFiles.clear();
+        readFileList(localExecutionRuntimeTestsDirectory);
+        _testFiles.forEach(file -> result.add(new Object[] { file }));
+        return result;
+    }
+
+    @Test(timeout = 1000000)
+    public void testRuntimeIterators() throws Throwable {
+        System.err.println(AnnotationsTestsBase.counter++ + " : " + this.testFile);
+        checkInputsAreReadLocally();
+        testAnnotations(this.testFile.getAbsolutePath(), LocalExecutionRuntimeTests.configuration);
+    }
+
+    /**
+     * Checks that the size of at least one input was measured, and that all measured inputs are read locally.
+     */
+    private void checkInputsAreReadLocally() throws IOException {
+        String query = new String(Files.readAllBytes(this.testFile.toPath()), StandardCharsets.UTF_8);
+        QueryPlan plan = QueryPlan.compileForSingleUse(query, this.testFile.toURI(), configuration);
+        Map<URI, ExecutionMode> inputs = plan.getMainModule().getMeasuredInputs();
+        Assert.assertFalse("No input was measured.", inputs.isEmpty());
+        for (Map.Entry<URI, ExecutionMode> input : inputs.entrySet()) {
+            Assert.assertEquals("Input not read locally: " + input.getKey(), ExecutionMode.LOCAL, input.getValue());
+        }
+    }
+
+    @Override
+    protected void checkExpectedOutput(
+            String expectedOutput,
+            SequenceOfItems sequence
+    ) {
+        String actualOutput = runIterators(sequence);
+        Assert.assertTrue(
+            "Expected output: " + expectedOutput + " Actual result: " + actualOutput,
+            expectedOutput.equals(actualOutput)
+        );
+    }
+}
@@ -77,7 +77,6 @@ public class StaticTypeTests extends AnnotationsTestsBase {
         // sparkConfiguration.set("spark.speculation", "true");
         // sparkConfiguration.set("spark.speculation.quantile", "0.5");
         SparkSessionManager.getInstance().initializeConfigurationAndSession(sparkConfiguration, true);
-        SparkSessionManager.COLLECT_ITEM_LIMIT = configuration.getResultSizeCap();
         System.err.println("Spark version: " + SparkSessionManager.getInstance().getJavaSparkContext().version());
     }
 
@@ -141,7 +140,7 @@ public class StaticTypeTests extends AnnotationsTestsBase {
             if (sequence.hasNext() && itemCount == AnnotationsTestsBase.configuration.getResultSizeCap()) {
                 System.err.println(
                     "Warning! The output sequence contains a large number of items but its materialization was capped at "
-                        + SparkSessionManager.COLLECT_ITEM_LIMIT
+                        + AnnotationsTestsBase.configuration.getResultSizeCap()
                         + " items. This value can be configured with the --result-size parameter at startup"
                 );
             }
@@ -157,7 +156,11 @@ public class StaticTypeTests extends AnnotationsTestsBase {
         JavaRDD<Item> rdd = sequence.getAsRDD();
         JavaRDD<String> output = rdd.map(o -> o.serialize());
         List<String> collectedOutput = new ArrayList<String>();
-        SparkSessionManager.collectRDDwithLimitWarningOnly(output, collectedOutput);
+        SparkSessionManager.collectRDDwithLimitWarningOnly(
+            output,
+            AnnotationsTestsBase.configuration.getResultSizeCap(),
+            collectedOutput
+        );
 
         if (collectedOutput.isEmpty()) {
             return "";
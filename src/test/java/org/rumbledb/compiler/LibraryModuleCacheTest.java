@@ -0,0 +1,103 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Authors: Stefan Irimescu, Can Berker Cikis
+ *
+ */
+
+package org.rumbledb.compiler;
+
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.net.URI;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+public class LibraryModuleCacheTest {
+
+    private static final URI FIRST = URI.create("file:///modules/first.jq");
+    private static final URI SECOND = URI.create("file:///modules/second.jq");
+    private static final URI THIRD = URI.create("file:///modules/third.jq");
+
+    private final AtomicInteger parses = new AtomicInteger();
+
+    private final Supplier<ParserRuleContext> parser = () -> {
+        this.parses.incrementAndGet();
+        return new ParserRuleContext();
+    };
+
+    @Test(timeout = 1000000)
+    public void testUnchangedContentIsParsedOnce() {
+        LibraryModuleCache cache = new LibraryModuleCache(2);
+        ParserRuleContext tree = cache.getOrParse(FIRST, "module v1", ParserRuleContext.class, this.parser);
+        Assert.assertEquals(1, this.parses.get());
+        Assert.assertSame(tree, cache.getOrParse(FIRST, "module v1", ParserRuleContext.class, this.parser));
+        Assert.assertSame(tree, cache.getOrParse(FIRST, "module v1", ParserRuleContext.class, this.parser));
+        Assert.assertEquals(1, this.parses.get());
+        Assert.assertEquals(1, cache.size());
+    }
+
+    @Test(timeout = 1000000)
+    public void testChangedContentIsParsedAgain() {
+        LibraryModuleCache cache = new LibraryModuleCache(2);
+        ParserRuleContext first = cache.getOrParse(FIRST, "module v1", ParserRuleContext.class, this.parser);
+        ParserRuleContext second = cache.getOrParse(FIRST, "module v2", ParserRuleContext.class, this.parser);
+        Assert.assertEquals(2, this.parses.get());
+        Assert.assertNotSame(first, second);
+        Assert.assertSame(second, cache.getOrParse(FIRST, "module v2", ParserRuleContext.class, this.parser));
+        Assert.assertEquals(2, this.parses.get());
+        Assert.assertEquals(1, cache.size());
+
+        // The same content at another location is parsed separately.
+        cache.getOrParse(SECOND, "module v2", ParserRuleContext.class, this.parser);
+        Assert.assertEquals(3, this.parses.get());
+        Assert.assertEquals(2, cache.size());
+    }
+
+    @Test(timeout = 1000000)
+    public void testLeastRecentlyUsedModuleIsEvicted() {
+        LibraryModuleCache cache = new LibraryModuleCache(2);
+        cache.getOrParse(FIRST, "first", ParserRuleContext.class, this.parser);
+        cache.getOrParse(SECOND, "second", ParserRuleContext.class, this.parser);
+        // Using the first module again makes the second one the least recently used.
+        cache.getOrParse(FIRST, "first", ParserRuleContext.class, this.parser);
+        Assert.assertEquals(2, this.parses.get());
+
+        cache.getOrParse(THIRD, "third", ParserRuleContext.class, this.parser);
+        Assert.assertEquals(3, this.parses.get());
+        Assert.assertEquals(2, cache.size());
+
+        cache.getOrParse(FIRST, "first", ParserRuleContext.class, this.parser);
+        cache.getOrParse(THIRD, "third", ParserRuleContext.class, this.parser);
+        Assert.assertEquals(3, this.parses.get());
+        cache.getOrParse(SECOND, "second", ParserRuleContext.class, this.parser);
+        Assert.assertEquals(4, this.parses.get());
+        Assert.assertEquals(2, cache.size());
+    }
+
+    @Test(timeout = 1000000)
+    public void testInvalidateAll() {
+        LibraryModuleCache cache = new LibraryModuleCache(2);
+        cache.getOrParse(FIRST, "first", ParserRuleContext.class, this.parser);
+        cache.getOrParse(SECOND, "second", ParserRuleContext.class, this.parser);
+        Assert.assertEquals(2, cache.invalidateAll());
+        Assert.assertEquals(0, cache.size());
+        cache.getOrParse(FIRST, "first", ParserRuleContext.class, this.parser);
+        Assert.assertEquals(3, this.parses.get());
+    }
+}
@@ -0,0 +1,173 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Authors: Stefan Irimescu, Can Berker Cikis
+ *
+ */
+
+package org.rumbledb.compiler;
+
+import org.antlr.v4.runtime.BailErrorStrategy;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.atn.PredictionMode;
+import org.antlr.v4.runtime.misc.ParseCancellationException;
+import org.apache.spark.SparkConf;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.rumbledb.api.Item;
+import org.rumbledb.api.Rumble;
+import org.rumbledb.api.SequenceOfItems;
+import org.rumbledb.config.RumbleRuntimeConfiguration;
+import org.rumbledb.exceptions.ExceptionMetadata;
+import org.rumbledb.exceptions.ParsingException;
+import org.rumbledb.parser.JsoniqLexer;
+import org.rumbledb.parser.JsoniqParser;
+import sparksoniq.spark.SparkSessionManager;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class VisitorHelpersTest {
+
+    /**
+     * With SLL prediction, the parser cannot tell whether the star is an occurrence indicator of the sequence type
+     * or a multiplication, because it does not know that the treat expression is nested in a multiplicative
+     * expression.
+     */
+    private static final String SLL_FAILING_QUERY = "1 treat as integer * 2";
+
+    private static final String SLL_FAILING_SYNTAX_ERROR = "let $x := 1 treat as integer * 2\n"
+        + "return $x treat as integer * ]";
+
+    private static final List<String> MAIN_MODULE_PHASES = Arrays.asList(
+        "parsing",
+        "translation",
+        "module pruning",
+        "rewriting",
+        "variable dependencies",
+        "static context",
+        "type inference",
+        "projections",
+        "partition filters",
+        "unordered inputs",
+        "constant folding",
+        "input sizes",
+        "execution modes",
+        "total"
+    );
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @BeforeClass
+    public static void setupSparkSession() {
+        SparkConf sparkConfiguration = new SparkConf();
+        sparkConfiguration.setMaster("local[*]");
+        sparkConfiguration.set("spark.submit.deployMode", "client");
+        sparkConfiguration.set("spark.executor.extraClassPath", "lib/");
+        sparkConfiguration.set("spark.driver.extraClassPath", "lib/");
+        sparkConfiguration.set("spark.driver.host", "127.0.0.1");
+        sparkConfiguration.set("spark.driver.bindAddress", "127.0.0.1");
+        SparkSessionManager.getInstance().initializeConfigurationAndSession(sparkConfiguration, true);
+    }
+
+    @Test(timeout = 1000000)
+    public void testQueriesFailingSLLPredictionAreParsedWithLL() {
+        Assert.assertFalse(parsesWith(SLL_FAILING_QUERY, PredictionMode.SLL));
+        Assert.assertTrue(parsesWith(SLL_FAILING_QUERY, PredictionMode.LL));
+
+        Rumble rumble = new Rumble(RumbleRuntimeConfiguration.getDefaultConfiguration());
+        SequenceOfItems items = rumble.runQuery(SLL_FAILING_QUERY);
+        items.open();
+        Assert.assertTrue(items.hasNext());
+        Item item = items.next();
+        Assert.assertTrue(item.isInteger());
+        Assert.assertEquals(2, item.getIntValue());
+        Assert.assertFalse(items.hasNext());
+        items.close();
+    }
+
+    @Test(timeout = 1000000)
+    public void testSyntaxErrorsAreLocatedAsWithLLOnly() {
+        Assert.assertFalse(parsesWith(SLL_FAILING_SYNTAX_ERROR, PredictionMode.SLL));
+        Assert.assertFalse(parsesWith(SLL_FAILING_SYNTAX_ERROR, PredictionMode.LL));
+
+        JsoniqLexer lexer = new JsoniqLexer(CharStreams.fromString(SLL_FAILING_SYNTAX_ERROR));
+        JsoniqParser parser = new JsoniqParser(new CommonTokenStream(lexer));
+        parser.setErrorHandler(new BailErrorStrategy());
+        parser.getInterpreter().setPredictionMode(PredictionMode.LL);
+        try {
+            parser.moduleAndThisIsIt();
+            Assert.fail("The query should not parse.");
+        } catch (ParseCancellationException e) {
+            // The lexer is now where a parse with LL prediction only leaves it.
+        }
+
+        try {
+            VisitorHelpers.parseMainModuleFromQuery(
+                SLL_FAILING_SYNTAX_ERROR,
+                RumbleRuntimeConfiguration.getDefaultConfiguration()
+            );
+            Assert.fail("The query should not parse.");
+        } catch (ParsingException e) {
+            ExceptionMetadata metadata = e.getMetadata();
+            Assert.assertEquals("XPST0003", e.getErrorCode());
+            Assert.assertEquals(lexer.getLine(), metadata.getTokenLineNumber());
+            Assert.assertEquals(lexer.getCharPositionInLine(), metadata.getTokenColumnNumber());
+        }
+    }
+
+    @Test(timeout = 1000000)
+    public void testCompilationTimesAreLoggedOncePerPhase() throws Exception {
+        File log = new File(this.folder.getRoot(), "compile.log");
+        RumbleRuntimeConfiguration configuration = new RumbleRuntimeConfiguration(
+                new String[] { "--log-path", log.getAbsolutePath() }
+        );
+        VisitorHelpers.parseMainModuleFromQuery(SLL_FAILING_QUERY, configuration);
+
+        List<String> phases = new ArrayList<>();
+        for (String line : Files.readAllLines(log.toPath(), StandardCharsets.UTF_8)) {
+            if (line.startsWith("[CompileTime] ")) {
+                Assert.assertTrue(line, line.endsWith(" ms"));
+                phases.add(line.substring("[CompileTime] ".length(), line.lastIndexOf(':')));
+            }
+        }
+        Assert.assertEquals(MAIN_MODULE_PHASES, phases);
+    }
+
+    private static boolean parsesWith(String query, PredictionMode mode) {
+        JsoniqParser parser = new JsoniqParser(
+                new CommonTokenStream(new JsoniqLexer(CharStreams.fromString(query)))
+        );
+        parser.removeErrorListeners();
+        parser.setErrorHandler(new BailErrorStrategy());
+        parser.getInterpreter().setPredictionMode(mode);
+        try {
+            parser.moduleAndThisIsIt();
+            return true;
+        } catch (ParseCancellationException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Authors: Stefan Irimescu, Can Berker Cikis
+ *
+ */
+
+package org.rumbledb.runtime.flwor;
+
+import org.apache.spark.SparkConf;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.rumbledb.api.Item;
+import org.rumbledb.api.Rumble;
+import org.rumbledb.api.SequenceOfItems;
+import org.rumbledb.config.RumbleRuntimeConfiguration;
+import sparksoniq.spark.SparkSessionManager;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+public class ClauseExplanationTest {
+
+    private static final String WHERE_TESTS_DIRECTORY = "src/test/resources/test_files/runtime-native-flwor/where/";
+
+    private static final RumbleRuntimeConfiguration configuration = new RumbleRuntimeConfiguration(
+            new String[] { "--explain", "yes" }
+    );
+
+    @BeforeClass
+    public static void setupSparkSession() {
+        SparkConf sparkConfiguration = new SparkConf();
+        sparkConfiguration.setMaster("local[*]");
+        sparkConfiguration.set("spark.submit.deployMode", "client");
+        sparkConfiguration.set("spark.executor.extraClassPath", "lib/");
+        sparkConfiguration.set("spark.driver.extraClassPath", "lib/");
+        sparkConfiguration.set("spark.driver.host", "127.0.0.1");
+        sparkConfiguration.set("spark.driver.bindAddress", "127.0.0.1");
+        SparkSessionManager.getInstance().initializeConfigurationAndSession(sparkConfiguration, true);
+    }
+
+    @Test(timeout = 1000000)
+    public void testWhereClauseWithOneUDFConjunct() throws Throwable {
+        List<String> explanations = new ArrayList<>();
+        Assert.assertEquals("2", run("where7.jq", explanations));
+        checkWhereClauses(explanations, 1, "EndsWithFunctionIterator");
+    }
+
+    @Test(timeout = 1000000)
+    public void testWhereClauseWithUDFConjunctBetweenNativeConjuncts() throws Throwable {
+        List<String> explanations = new ArrayList<>();
+        Assert.assertEquals("1", run("where8.jq", explanations));
+        checkWhereClauses(explanations, 2, "StartsWithFunctionIterator");
+    }
+
+    /**
+     * Checks that the where clause was split into the given number of conjuncts translated to SQL, and one conjunct
+     * evaluated with a UDF because of the given iterator. A clause may be explained more than once if its DataFrame
+     * is built more than once.
+     */
+    private static void checkWhereClauses(List<String> explanations, int nativeConjuncts, String blocker) {
+        List<String> nativeClauses = new ArrayList<>();
+        List<String> udfClauses = new ArrayList<>();
+        for (String explanation : explanations) {
+            if (!explanation.startsWith("where clause at ")) {
+                continue;
+            }
+            String location = explanation.substring(0, explanation.indexOf(" ", "where clause at ".length()));
+            if (explanation.contains(" native SQL query\n")) {
+                if (!nativeClauses.contains(location)) {
+                    nativeClauses.add(location);
+                }
+            } else {
+                Assert.assertTrue(explanation, explanation.contains(" UDF, as " + blocker + " at "));
+                if (!udfClauses.contains(location)) {
+                    udfClauses.add(location);
+                }
+            }
+        }
+        Assert.assertEquals(explanations.toString(), nativeConjuncts, nativeClauses.size());
+        Assert.assertEquals(explanations.toString(), 1, udfClauses.size());
+    }
+
+    private static String run(String fileName, List<String> explanations) throws Throwable {
+        Rumble rumble = new Rumble(configuration);
+        ClauseExplanation.startCollecting();
+        try {
+            SequenceOfItems sequence = rumble.runQuery(new File(WHERE_TESTS_DIRECTORY + fileName).toURI());
+            List<Item> items = new ArrayList<>();
+            if (sequence.availableAsRDD()) {
+                items.addAll(sequence.getAsRDD().collect());
+            } else {
+                sequence.open();
+                while (sequence.hasNext()) {
+                    items.add(sequence.next());
+                }
+                sequence.close();
+            }
+            StringBuilder result = new StringBuilder();
+            for (Item item : items) {
+                if (result.length() > 0) {
+                    result.append(", ");
+                }
+                result.append(item.serialize());
+            }
+            return result.toString();
+        } finally {
+            explanations.addAll(ClauseExplanation.stopCollecting());
+        }
+    }
+}
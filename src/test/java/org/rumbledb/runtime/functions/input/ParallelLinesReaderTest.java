@@ -0,0 +1,177 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Authors: Stefan Irimescu, Can Berker Cikis
+ *
+ */
+
+
+package org.rumbledb.runtime.functions.input;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.rumbledb.exceptions.ExceptionMetadata;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Reads files with chunks of a few bytes, so that every position of a line falls on a chunk boundary for some chunk
+ * size, and compares the lines with those of BufferedReader.
+ */
+public class ParallelLinesReaderTest {
+
+    private static final String[] contents = {
+        "foo\nbar\nfoobar\n",
+        "foo\r\nbar\r\n\r\nfoobar\r\n",
+        "foo\rbar\r\rfoobar\r",
+        "foo\n\r\nbar\r\n\nbaz",
+        "no newline at the end",
+        "\n\nfoo\n",
+        "café\nété\r\n☃\n😀😀\n",
+        "a\nbc\ndef\nghij\nklmno\npqrstu\nvwxyz12\n" };
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test(timeout = 1000000)
+    public void testLineOwnershipAtChunkBoundaries() throws IOException {
+        for (String content : contents) {
+            URI file = writeFile(content);
+            for (int chunkSize = 1; chunkSize <= content.getBytes(StandardCharsets.UTF_8).length + 1; ++chunkSize) {
+                Assert.assertEquals(
+                    "Chunk size " + chunkSize + ": " + content,
+                    getExpectedLines(content),
+                    readLines(Collections.singletonList(file), true, chunkSize, 1024)
+                );
+            }
+        }
+    }
+
+    @Test(timeout = 1000000)
+    public void testCarriageReturnLineFeedSplitAcrossChunks() throws IOException {
+        // With chunks of 4 bytes, the first \r ends the first chunk and the \n starts the second one.
+        URI file = writeFile("foo\r\nbar\r\nbaz");
+        List<String> expected = new ArrayList<>();
+        expected.add("foo");
+        expected.add("bar");
+        expected.add("baz");
+        Assert.assertEquals(expected, readLines(Collections.singletonList(file), true, 4, 1024));
+        Assert.assertEquals(expected, readLines(Collections.singletonList(file), true, 5, 1024));
+    }
+
+    @Test(timeout = 1000000)
+    public void testLongLinesExtendTheMappedTail() throws IOException {
+        // The last line of each chunk ends far after it, so that the tail is doubled several times.
+        String longLine = "0123456789012345678901234567890123456789";
+        String content = "a\n" + longLine + "\nb\n" + longLine;
+        URI file = writeFile(content);
+        for (int chunkSize = 1; chunkSize <= 8; ++chunkSize) {
+            for (long tailSize = 1; tailSize <= 64; tailSize *= 2) {
+                Assert.assertEquals(
+                    "Chunk size " + chunkSize + ", tail size " + tailSize,
+                    getExpectedLines(content),
+                    readLines(Collections.singletonList(file), true, chunkSize, tailSize)
+                );
+            }
+        }
+    }
+
+    @Test(timeout = 1000000)
+    public void testFinalLineWithoutNewline() throws IOException {
+        URI file = writeFile("foo\nbar");
+        for (int chunkSize = 1; chunkSize <= 8; ++chunkSize) {
+            List<String> lines = readLines(Collections.singletonList(file), true, chunkSize, 1);
+            Assert.assertEquals(2, lines.size());
+            Assert.assertEquals("bar", lines.get(1));
+        }
+    }
+
+    @Test(timeout = 1000000)
+    public void testOrderedAndUnorderedReads() throws IOException {
+        // More chunks than the number of chunks decoded ahead of the consumer.
+        List<URI> files = new ArrayList<>();
+        List<String> expected = new ArrayList<>();
+        for (String content : contents) {
+            files.add(writeFile(content));
+            expected.addAll(getExpectedLines(content));
+        }
+        for (int chunkSize = 1; chunkSize <= 16; chunkSize *= 2) {
+            Assert.assertEquals(expected, readLines(files, true, chunkSize, 4));
+            List<String> unordered = readLines(files, false, chunkSize, 4);
+            Collections.sort(unordered);
+            List<String> sorted = new ArrayList<>(expected);
+            Collections.sort(sorted);
+            Assert.assertEquals(sorted, unordered);
+        }
+    }
+
+    @Test(timeout = 1000000)
+    public void testCloseBeforeTheEnd() throws IOException {
+        URI file = writeFile(contents[contents.length - 1]);
+        ParallelLinesReader reader = new ParallelLinesReader(
+                Collections.singletonList(file),
+                true,
+                ExceptionMetadata.EMPTY_METADATA,
+                2,
+                1
+        );
+        Assert.assertEquals("a", reader.next());
+        reader.close();
+        Assert.assertFalse(reader.hasNext());
+    }
+
+    private URI writeFile(String content) throws IOException {
+        File file = this.folder.newFile();
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        return file.toURI();
+    }
+
+    private static List<String> readLines(List<URI> files, boolean isOrdered, int chunkSize, long tailSize) {
+        List<String> result = new ArrayList<>();
+        ParallelLinesReader reader = new ParallelLinesReader(
+                files,
+                isOrdered,
+                ExceptionMetadata.EMPTY_METADATA,
+                chunkSize,
+                tailSize
+        );
+        while (reader.hasNext()) {
+            result.add(reader.next());
+        }
+        reader.close();
+        return result;
+    }
+
+    private static List<String> getExpectedLines(String content) throws IOException {
+        List<String> result = new ArrayList<>();
+        BufferedReader reader = new BufferedReader(new StringReader(content));
+        for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+            result.add(line);
+        }
+        return result;
+    }
+}
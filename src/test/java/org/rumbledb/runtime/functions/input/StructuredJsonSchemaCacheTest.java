@@ -0,0 +1,223 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Authors: Stefan Irimescu, Can Berker Cikis
+ *
+ */
+
+
+package org.rumbledb.runtime.functions.input;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.apache.spark.SparkConf;
+import org.apache.spark.sql.SparkSession;
+import org.apache.spark.sql.types.DataType;
+import org.apache.spark.sql.types.DataTypes;
+import org.apache.spark.sql.types.StructField;
+import org.apache.spark.sql.types.StructType;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.rumbledb.config.RumbleRuntimeConfiguration;
+
+import sparksoniq.spark.SparkSessionManager;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+public class StructuredJsonSchemaCacheTest {
+
+    private static final RumbleRuntimeConfiguration sidecarConfiguration = new RumbleRuntimeConfiguration(
+            new String[] { "--schema-cache-sidecar", "yes" }
+    );
+    // Spark only samples below 0.99, so that the inferred schema is the same, but the ratio is not.
+    private static final RumbleRuntimeConfiguration sampledConfiguration = new RumbleRuntimeConfiguration(
+            new String[] { "--schema-cache-sidecar", "yes", "--schema-inference-sampling-ratio", "0.995" }
+    );
+    private static final StructType sidecarSchema = DataTypes.createStructType(
+        new StructField[] { DataTypes.createStructField("fromSidecar", DataTypes.StringType, true) }
+    );
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File directory;
+    private String path;
+
+    public StructuredJsonSchemaCacheTest() {
+    }
+
+    @BeforeClass
+    public static void setupSparkSession() {
+        SparkConf sparkConfiguration = new SparkConf();
+        sparkConfiguration.setMaster("local[*]");
+        sparkConfiguration.set("spark.submit.deployMode", "client");
+        sparkConfiguration.set("spark.executor.extraClassPath", "lib/");
+        sparkConfiguration.set("spark.driver.extraClassPath", "lib/");
+        sparkConfiguration.set("spark.driver.host", "127.0.0.1");
+        sparkConfiguration.set("spark.driver.bindAddress", "127.0.0.1");
+        SparkSessionManager.getInstance().initializeConfigurationAndSession(sparkConfiguration, true);
+    }
+
+    @Before
+    public void createDataset() throws IOException {
+        this.directory = this.folder.newFolder("data");
+        this.path = this.directory.toURI().toString();
+        writeFile("part-1.json", "{ \"a\" : 1 }\n");
+        StructuredJsonSchemaCache.getInstance().invalidateAll();
+    }
+
+    @Test(timeout = 1000000)
+    public void testMergeTypes() {
+        DataType longType = DataTypes.LongType;
+        DataType doubleType = DataTypes.DoubleType;
+        DataType stringType = DataTypes.StringType;
+        Assert.assertEquals(longType, StructuredJsonSchemaCache.mergeTypes(longType, longType));
+        Assert.assertEquals(longType, StructuredJsonSchemaCache.mergeTypes(DataTypes.NullType, longType));
+        Assert.assertEquals(longType, StructuredJsonSchemaCache.mergeTypes(longType, DataTypes.NullType));
+        Assert.assertEquals(doubleType, StructuredJsonSchemaCache.mergeTypes(longType, doubleType));
+        Assert.assertEquals(doubleType, StructuredJsonSchemaCache.mergeTypes(doubleType, longType));
+        Assert.assertEquals(stringType, StructuredJsonSchemaCache.mergeTypes(longType, stringType));
+        Assert.assertEquals(stringType, StructuredJsonSchemaCache.mergeTypes(DataTypes.BooleanType, longType));
+        Assert.assertEquals(
+            DataTypes.createArrayType(doubleType, true),
+            StructuredJsonSchemaCache.mergeTypes(
+                DataTypes.createArrayType(longType, true),
+                DataTypes.createArrayType(doubleType, true)
+            )
+        );
+        Assert.assertEquals(
+            stringType,
+            StructuredJsonSchemaCache.mergeTypes(DataTypes.createArrayType(longType, true), longType)
+        );
+
+        // Fields are united and sorted by name, like Spark does, and common fields are merged recursively.
+        StructType left = struct(
+            DataTypes.createStructField("c", longType, true),
+            DataTypes.createStructField("a", struct(DataTypes.createStructField("x", longType, true)), true)
+        );
+        StructType right = struct(
+            DataTypes.createStructField("a", struct(DataTypes.createStructField("y", stringType, true)), true),
+            DataTypes.createStructField("b", DataTypes.BooleanType, true),
+            DataTypes.createStructField("c", doubleType, true)
+        );
+        StructType expected = struct(
+            DataTypes.createStructField(
+                "a",
+                struct(
+                    DataTypes.createStructField("x", longType, true),
+                    DataTypes.createStructField("y", stringType, true)
+                ),
+                true
+            ),
+            DataTypes.createStructField("b", DataTypes.BooleanType, true),
+            DataTypes.createStructField("c", doubleType, true)
+        );
+        Assert.assertEquals(expected, StructuredJsonSchemaCache.mergeTypes(left, right));
+        Assert.assertEquals(expected, StructuredJsonSchemaCache.mergeTypes(right, left));
+    }
+
+    @Test(timeout = 1000000)
+    public void testSidecarRoundTrip() throws IOException {
+        StructuredJsonSchemaCache cache = StructuredJsonSchemaCache.getInstance();
+        Assert.assertEquals(
+            struct(DataTypes.createStructField("a", DataTypes.LongType, true)),
+            cache.getSchema(this.path, getSession(), sidecarConfiguration)
+        );
+        File sidecar = new File(this.directory, StructuredJsonSchemaCache.SIDECAR_FILE_NAME);
+        Assert.assertTrue(sidecar.exists());
+
+        // A schema that Spark would not infer shows that the sidecar file is used.
+        replaceSidecarSchema(sidecar, sidecarSchema);
+        cache.invalidateAll();
+        Assert.assertEquals(sidecarSchema, cache.getSchema(this.path, getSession(), sidecarConfiguration));
+    }
+
+    @Test(timeout = 1000000)
+    public void testAppendedFilesAreInferredIncrementally() throws IOException {
+        StructuredJsonSchemaCache cache = StructuredJsonSchemaCache.getInstance();
+        cache.getSchema(this.path, getSession(), sidecarConfiguration);
+        replaceSidecarSchema(new File(this.directory, StructuredJsonSchemaCache.SIDECAR_FILE_NAME), sidecarSchema);
+        cache.invalidateAll();
+        Assert.assertEquals(sidecarSchema, cache.getSchema(this.path, getSession(), sidecarConfiguration));
+
+        // Only the new file is read, and its schema is merged into the cached one.
+        writeFile("part-2.json", "{ \"b\" : \"x\" }\n");
+        Assert.assertEquals(
+            struct(
+                DataTypes.createStructField("b", DataTypes.StringType, true),
+                DataTypes.createStructField("fromSidecar", DataTypes.StringType, true)
+            ),
+            cache.getSchema(this.path, getSession(), sidecarConfiguration)
+        );
+
+        // A modified file requires inferring the schema of all files again.
+        writeFile("part-1.json", "{ \"a\" : 1, \"c\" : true }\n");
+        Assert.assertEquals(
+            struct(
+                DataTypes.createStructField("a", DataTypes.LongType, true),
+                DataTypes.createStructField("b", DataTypes.StringType, true),
+                DataTypes.createStructField("c", DataTypes.BooleanType, true)
+            ),
+            cache.getSchema(this.path, getSession(), sidecarConfiguration)
+        );
+    }
+
+    @Test(timeout = 1000000)
+    public void testSamplingRatioChangeInfersAgain() throws IOException {
+        StructuredJsonSchemaCache cache = StructuredJsonSchemaCache.getInstance();
+        StructType inferred = struct(DataTypes.createStructField("a", DataTypes.LongType, true));
+        cache.getSchema(this.path, getSession(), sidecarConfiguration);
+        File sidecar = new File(this.directory, StructuredJsonSchemaCache.SIDECAR_FILE_NAME);
+        replaceSidecarSchema(sidecar, sidecarSchema);
+        cache.invalidateAll();
+        Assert.assertEquals(sidecarSchema, cache.getSchema(this.path, getSession(), sidecarConfiguration));
+
+        // The cached schema was not inferred with this ratio.
+        Assert.assertEquals(inferred, cache.getSchema(this.path, getSession(), sampledConfiguration));
+        replaceSidecarSchema(sidecar, sidecarSchema);
+        cache.invalidateAll();
+        Assert.assertEquals(sidecarSchema, cache.getSchema(this.path, getSession(), sampledConfiguration));
+        Assert.assertEquals(inferred, cache.getSchema(this.path, getSession(), sidecarConfiguration));
+    }
+
+    private static SparkSession getSession() {
+        return SparkSessionManager.getInstance().getOrCreateSession();
+    }
+
+    private static StructType struct(StructField... fields) {
+        return DataTypes.createStructType(fields);
+    }
+
+    private void writeFile(String name, String content) throws IOException {
+        Files.write(new File(this.directory, name).toPath(), content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void replaceSidecarSchema(File sidecar, StructType schema) throws IOException {
+        String content = new String(Files.readAllBytes(sidecar.toPath()), StandardCharsets.UTF_8);
+        JsonObject object = new JsonParser().parse(content).getAsJsonObject();
+        object.addProperty("schema", schema.json());
+        Files.write(sidecar.toPath(), object.toString().getBytes(StandardCharsets.UTF_8));
+        // Otherwise, Hadoop's local file system would reject the modified file.
+        Files.deleteIfExists(new File(sidecar.getParentFile(), "." + sidecar.getName() + ".crc").toPath());
+    }
+}